@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,9 @@ package org.eclipse.pde.api.tools.anttasks.tests;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -53,6 +56,10 @@ public class ApiToolingApiuseAntTaskTests extends AntRunnerTestCase {
 			IOException {
 		
 		IFolder buildFolder = newTest(getTestResourcesFolder(), new String[]{resourceName, "profile"});
+		return runTaskAndVerify(buildFolder);
+	}
+
+	private IFolder runTaskAndVerify(IFolder buildFolder) throws Exception {
 		String buildXMLPath = buildFolder.getFile("build.xml").getLocation().toOSString();
 		Properties properties = new Properties();
 		properties.put("baseline_location", buildFolder.getFile("OSGiProduct.zip").getLocation().toOSString());
@@ -100,4 +107,42 @@ public class ApiToolingApiuseAntTaskTests extends AntRunnerTestCase {
 			}
 		}
 	}
+	
+	/**
+	 * Tests that an incremental scan of an unchanged baseline reuses the previous report
+	 */
+	public void test4() throws Exception {
+		IFolder buildFolder = newTest(getTestResourcesFolder(), new String[]{"test4", "profile"});
+		IFolder reportFolder = runTaskAndVerify(buildFolder);
+		assertTrue("use_scan.manifest must exist", reportFolder.getFile("use_scan.manifest").exists());
+		List directories = getReportDirectories(reportFolder);
+		String total = getTotalCount(reportFolder);
+		reportFolder = runTaskAndVerify(buildFolder);
+		assertTrue("use_scan.manifest must exist", reportFolder.getFile("use_scan.manifest").exists());
+		assertEquals("The report should not change", directories, getReportDirectories(reportFolder));
+		assertEquals("The counts should not change", total, getTotalCount(reportFolder));
+	}
+	
+	private List getReportDirectories(IFolder reportFolder) {
+		List names = new ArrayList();
+		File[] referenced = reportFolder.getLocation().toFile().listFiles();
+		for (int i = 0; i < referenced.length; i++) {
+			if (!referenced[i].isDirectory())
+				continue;
+			File[] referencing = referenced[i].listFiles();
+			for (int j = 0; j < referencing.length; j++) {
+				names.add(referenced[i].getName() + "/" + referencing[j].getName());
+			}
+		}
+		Collections.sort(names);
+		return names;
+	}
+	
+	private String getTotalCount(IFolder reportFolder) throws Exception {
+		reportFolder.refreshLocal(IResource.DEPTH_INFINITE, null);
+		InputSource is = new InputSource(reportFolder.getFile("counts.xml").getContents());
+		DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		Document doc = db.parse(is);
+		return doc.getDocumentElement().getAttribute("total");
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.apiusescan.tests;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+
 import junit.framework.TestCase;
 
 import org.eclipse.core.resources.IProject;
@@ -21,7 +25,11 @@ import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.search.IReferenceCollection;
 import org.eclipse.pde.api.tools.internal.search.IReferenceDescriptor;
+import org.eclipse.pde.api.tools.internal.search.UseScanIndex;
 import org.eclipse.pde.api.tools.internal.search.UseScanManager;
+import org.eclipse.pde.api.tools.internal.search.UseScanParser;
+import org.eclipse.pde.api.tools.internal.search.UseScanReferenceVisitor;
+import org.eclipse.pde.api.tools.internal.search.UseScanReferences;
 import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
 
 public class ReferenceCountTests extends TestCase {
@@ -126,4 +134,121 @@ public class ReferenceCountTests extends TestCase {
 		assertFalse("References for org.eclipse.equinox.app.IApplication should have been purged from the cache",
 				useScanRefs.hasReferencesTo("org.eclipse.equinox.app.IApplication"));
 	}
+
+	/**
+	 * Tests that the references read from a use scan index are the ones parsed from the XML reports
+	 * 
+	 * @throws Exception
+	 */
+	public void testUseScanIndex() throws Exception {
+		String location = ExternalDependencyTestUtils.setupReport("PDEApiUseScanReport", true);
+		if (location == null) {
+			fail("Could not setup the report : PDEApiUseScanReport.zip");
+		}
+		UseScanIndex.build(location, null);
+		UseScanIndex index = UseScanIndex.read(new File(location, UseScanIndex.INDEX_FILE_NAME));
+		assertNotNull("the index should have been read", index);
+		assertTrue("the index should be up to date", index.isUpToDate(location));
+		String[] ids = new String[] {"org.eclipse.equinox.app", "org.eclipse.equinox.p2.operations"};
+		for (int i = 0; i < ids.length; i++) {
+			IApiComponent apiComponent = TestSuiteHelper.createTestingApiComponent(ids[i], ids[i], new ApiDescription(null));
+			UseScanReferences parsed = new UseScanReferences();
+			new UseScanParser().parse(location, null, new UseScanReferenceVisitor(apiComponent, null, parsed));
+			UseScanReferences indexed = new UseScanReferences();
+			index.collect(apiComponent, null, indexed);
+			IReferenceDescriptor[] expected = parsed.getAllExternalDependencies();
+			IReferenceDescriptor[] actual = indexed.getAllExternalDependencies();
+			assertEquals("wrong number of references for " + ids[i], expected.length, actual.length);
+			assertEquals("wrong references for " + ids[i], new HashSet(Arrays.asList(expected)), new HashSet(Arrays.asList(actual)));
+		}
+	}
+
+	/**
+	 * Tests that a report changed in a referencing component directory makes the index out of date
+	 * 
+	 * @throws Exception
+	 */
+	public void testUseScanIndexStaleness() throws Exception {
+		String location = ExternalDependencyTestUtils.setupReport("PDEApiUseScanReport", true);
+		if (location == null) {
+			fail("Could not setup the report : PDEApiUseScanReport.zip");
+		}
+		UseScanIndex.build(location, null);
+		UseScanIndex index = UseScanIndex.read(new File(location, UseScanIndex.INDEX_FILE_NAME));
+		assertNotNull("the index should have been read", index);
+		File report = findReport(new File(location), 2);
+		assertNotNull("the scan should have reports in referencing component directories", report);
+		long stamp = report.lastModified();
+		File referenced = report.getParentFile().getParentFile();
+		long referencedStamp = referenced.lastModified();
+		try {
+			report.setLastModified(stamp - 10000);
+			assertEquals("the referenced component directory should not have changed", referencedStamp, referenced.lastModified());
+			assertFalse("the index should be out of date", index.isUpToDate(location));
+			UseScanIndex.build(location, null);
+			index = UseScanIndex.read(new File(location, UseScanIndex.INDEX_FILE_NAME));
+			assertTrue("the rebuilt index should be up to date", index.isUpToDate(location));
+		}
+		finally {
+			report.setLastModified(stamp);
+		}
+	}
+
+	/**
+	 * Tests that an index stays current until its index file is rewritten, without looking at the reports
+	 * 
+	 * @throws Exception
+	 */
+	public void testUseScanIndexCurrent() throws Exception {
+		String location = ExternalDependencyTestUtils.setupReport("PDEApiUseScanReport", true);
+		if (location == null) {
+			fail("Could not setup the report : PDEApiUseScanReport.zip");
+		}
+		File file = new File(location, UseScanIndex.INDEX_FILE_NAME);
+		UseScanIndex.build(location, null);
+		UseScanIndex index = UseScanIndex.read(file);
+		assertNotNull("the index should have been read", index);
+		assertTrue("the index should be current", index.isCurrent());
+		File report = findReport(new File(location), 2);
+		assertNotNull("the scan should have reports in referencing component directories", report);
+		long stamp = report.lastModified();
+		try {
+			report.setLastModified(stamp - 10000);
+			assertTrue("the index should still be current", index.isCurrent());
+			// the next scan run writes a new index
+			UseScanIndex.build(location, null);
+			file.setLastModified(file.lastModified() - 10000);
+			assertFalse("the index should not be current", index.isCurrent());
+			assertTrue("the new index should be current", UseScanIndex.read(file).isCurrent());
+		}
+		finally {
+			report.setLastModified(stamp);
+		}
+	}
+
+	/**
+	 * Returns the first report file found at the given depth below the given directory
+	 * 
+	 * @param directory
+	 * @param depth
+	 * @return the report or <code>null</code>
+	 */
+	private File findReport(File directory, int depth) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return null;
+		}
+		for (int i = 0; i < children.length; i++) {
+			if (depth == 0 && children[i].isFile() && children[i].getName().endsWith(".xml")) {
+				return children[i];
+			}
+			if (depth > 0 && children[i].isDirectory()) {
+				File report = findReport(children[i], depth - 1);
+				if (report != null) {
+					return report;
+				}
+			}
+		}
+		return null;
+	}
 }
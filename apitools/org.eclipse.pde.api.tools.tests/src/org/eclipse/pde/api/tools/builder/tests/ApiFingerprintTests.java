@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.builder.ApiFingerprint;
+import org.eclipse.pde.api.tools.internal.builder.BuildState;
+import org.eclipse.pde.api.tools.internal.comparator.Delta;
+import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
+import org.eclipse.pde.api.tools.internal.provisional.RestrictionModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.comparator.IDelta;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.Util;
+import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
+
+/**
+ * Tests that the {@link ApiFingerprint} of a type changes with its API surface only, and that the
+ * comparisons recorded with fingerprints in the {@link BuildState} are saved and restored
+ *
+ * @since 1.0.400
+ */
+public class ApiFingerprintTests extends TestCase {
+
+	private static final String SOURCE = "package a;\npublic class A {\n\tpublic int f;\n\tpublic void m() {\n\t\tint x = 1;\n\t}\n"
+		+ "\tpublic static class Inner {\n\t\tpublic void n(int i) {}\n\t}\n}\n";
+
+	private File fRoot;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fRoot = File.createTempFile("fingerprint", ".test");
+		fRoot.delete();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		Util.delete(fRoot);
+		super.tearDown();
+	}
+
+	/**
+	 * Compiles the given source of type <code>a.A</code> into a bundle and returns the fingerprint of the type
+	 *
+	 * @param name the name of the bundle directory
+	 * @param source
+	 * @return the fingerprint
+	 * @throws Exception
+	 */
+	private long fingerprint(String name, String source) throws Exception {
+		File src = new File(fRoot, name + ".src/a/A.java");
+		src.getParentFile().mkdirs();
+		write(src, source);
+		File bundle = new File(fRoot, name);
+		write(new File(bundle, JarFile.MANIFEST_NAME), "Manifest-Version: 1.0\nBundle-ManifestVersion: 2\nBundle-SymbolicName: fingerprint\nBundle-Version: 1.0.0\n");
+		assertTrue("the source should compile", TestSuiteHelper.compile(src.getAbsolutePath(), bundle.getAbsolutePath(), TestSuiteHelper.COMPILER_OPTIONS));
+		IApiBaseline baseline = TestSuiteHelper.newApiBaseline(name, TestSuiteHelper.getEEDescriptionFile());
+		try {
+			IApiComponent component = ApiModelFactory.newApiComponent(baseline, bundle.getAbsolutePath());
+			baseline.addApiComponents(new IApiComponent[] {component});
+			IApiTypeRoot root = component.findTypeRoot("a.A");
+			assertNotNull("the type should have been compiled", root);
+			return ApiFingerprint.compute(root.getStructure());
+		}
+		finally {
+			baseline.dispose();
+		}
+	}
+
+	private void write(File file, String contents) throws Exception {
+		file.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(contents.getBytes());
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Tests that a change in a method body does not change the fingerprint
+	 *
+	 * @throws Exception
+	 */
+	public void testMethodBodyChange() throws Exception {
+		long before = fingerprint("before", SOURCE);
+		assertEquals("the fingerprint should be stable", before, fingerprint("again", SOURCE));
+		String after = SOURCE.replaceFirst("int x = 1;", "int x = 2;\n\t\tSystem.out.println(x);");
+		assertEquals("a method body change should not change the fingerprint", before, fingerprint("after", after));
+	}
+
+	/**
+	 * Tests that an added method changes the fingerprint
+	 *
+	 * @throws Exception
+	 */
+	public void testApiChange() throws Exception {
+		long before = fingerprint("before", SOURCE);
+		String after = SOURCE.replaceFirst("public int f;", "public int f;\n\tpublic void added() {}");
+		assertFalse("an added method should change the fingerprint", before == fingerprint("after", after));
+		after = SOURCE.replaceFirst("public int f;", "protected int f;");
+		assertFalse("a field visibility change should change the fingerprint", before == fingerprint("visibility", after));
+	}
+
+	/**
+	 * Tests that a signature change in a member type changes the fingerprint
+	 *
+	 * @throws Exception
+	 */
+	public void testMemberTypeChange() throws Exception {
+		long before = fingerprint("before", SOURCE);
+		String after = SOURCE.replaceFirst("n\\(int i\\)", "n(long i)");
+		assertFalse("a member type change should change the fingerprint", before == fingerprint("after", after));
+	}
+
+	/**
+	 * Tests that the deltas of a comparison keep their restrictions and component id when the build state
+	 * is saved and restored, and are only returned for the fingerprints they were recorded with
+	 *
+	 * @throws Exception
+	 */
+	public void testSavedComparison() throws Exception {
+		BuildState state = new BuildState();
+		IDelta delta = new Delta("fingerprint_1.0.0", IDelta.CLASS_ELEMENT_TYPE, IDelta.ADDED, IDelta.METHOD,
+				RestrictionModifiers.NO_EXTEND, RestrictionModifiers.NO_INSTANTIATE, 0, 0, "a.A", "m()V", new String[] {"a.A", "m()"});
+		state.setTypeComparison("a.A", 1L, 2L, new IDelta[] {delta});
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BuildState.write(state, out);
+		out.flush();
+		BuildState restored = BuildState.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertNotNull("the state should have been read", restored);
+		assertNull("the comparison should not be reused for another fingerprint", restored.getTypeComparison("a.A", 3L, 2L));
+		assertNull("the comparison should not be reused for another reference fingerprint", restored.getTypeComparison("a.A", 1L, 3L));
+		IDelta[] deltas = restored.getTypeComparison("a.A", 1L, 2L);
+		assertNotNull("the comparison should have been restored", deltas);
+		assertEquals("wrong number of deltas", 1, deltas.length);
+		assertEquals("wrong component id", delta.getComponentVersionId(), deltas[0].getComponentVersionId());
+		assertEquals("wrong restrictions", RestrictionModifiers.NO_EXTEND, deltas[0].getCurrentRestrictions());
+		assertEquals("wrong previous restrictions", RestrictionModifiers.NO_INSTANTIATE, deltas[0].getPreviousRestrictions());
+		assertEquals("wrong key", delta.getKey(), deltas[0].getKey());
+		assertEquals("wrong flags", delta.getFlags(), deltas[0].getFlags());
+	}
+}
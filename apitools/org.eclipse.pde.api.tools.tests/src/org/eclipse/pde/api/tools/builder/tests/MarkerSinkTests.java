@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.pde.api.tools.internal.builder.MarkerSink;
+
+/**
+ * Tests that {@link MarkerSink} keeps the markers that did not change between two builds
+ *
+ * @since 1.0.400
+ */
+public class MarkerSinkTests extends TestCase {
+
+	private static final String PROJECT_NAME = "markersink"; //$NON-NLS-1$
+
+	private IProject fProject;
+	private IFile fFile;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject = ResourcesPlugin.getWorkspace().getRoot().getProject(PROJECT_NAME);
+		if (!fProject.exists()) {
+			fProject.create(null);
+		}
+		fProject.open(null);
+		fFile = fProject.getFile("A.java"); //$NON-NLS-1$
+		if (!fFile.exists()) {
+			fFile.create(new ByteArrayInputStream(new byte[0]), true, null);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		fProject.delete(true, true, null);
+		super.tearDown();
+	}
+
+	/**
+	 * Returns the attributes of a testing marker
+	 *
+	 * @param message
+	 * @param line
+	 * @return the attributes
+	 */
+	private Map attributes(String message, int line) {
+		HashMap attributes = new HashMap();
+		attributes.put(IMarker.MESSAGE, message);
+		attributes.put(IMarker.LINE_NUMBER, new Integer(line));
+		attributes.put(IMarker.SEVERITY, new Integer(IMarker.SEVERITY_ERROR));
+		return attributes;
+	}
+
+	/**
+	 * Runs a build that reports the given markers on the testing file
+	 *
+	 * @param messages
+	 * @return the markers on the file after the build
+	 * @throws Exception
+	 */
+	private IMarker[] build(String[] messages) throws Exception {
+		MarkerSink sink = new MarkerSink(fProject);
+		sink.replaceMarkers(fProject, IMarker.PROBLEM, false, IResource.DEPTH_INFINITE);
+		for (int i = 0; i < messages.length; i++) {
+			sink.addMarker(fFile, IMarker.PROBLEM, attributes(messages[i], i + 1));
+		}
+		sink.apply(null);
+		return fFile.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO);
+	}
+
+	private HashSet ids(IMarker[] markers) {
+		HashSet ids = new HashSet();
+		for (int i = 0; i < markers.length; i++) {
+			ids.add(new Long(markers[i].getId()));
+		}
+		return ids;
+	}
+
+	/**
+	 * Tests that building twice with the same problems keeps the markers of the first build
+	 *
+	 * @throws Exception
+	 */
+	public void testUnchangedMarkersKept() throws Exception {
+		String[] messages = new String[] {"first", "second", "third"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		IMarker[] first = build(messages);
+		assertEquals("Wrong number of markers", messages.length, first.length);
+		IMarker[] second = build(messages);
+		assertEquals("Wrong number of markers", messages.length, second.length);
+		assertEquals("The markers should have been kept", ids(first), ids(second));
+	}
+
+	/**
+	 * Tests that only the markers that changed are replaced and that markers no longer reported are deleted
+	 *
+	 * @throws Exception
+	 */
+	public void testChangedMarkersReplaced() throws Exception {
+		IMarker[] first = build(new String[] {"first", "second", "third"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		IMarker[] second = build(new String[] {"first", "changed"}); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong number of markers", 2, second.length);
+		HashSet kept = ids(first);
+		kept.retainAll(ids(second));
+		assertEquals("Only the unchanged marker should have been kept", 1, kept.size());
+		for (int i = 0; i < second.length; i++) {
+			if (kept.contains(new Long(second[i].getId()))) {
+				assertEquals("Wrong marker kept", "first", second[i].getAttribute(IMarker.MESSAGE)); //$NON-NLS-1$
+			}
+		}
+	}
+}
@@ -68,4 +68,39 @@ public class OSGiLessAnalysisTests extends TestCase {
 		baseline.dispose();
 		current.dispose();
 	}
+	
+	/**
+	 * Tests that analyzing with several threads reports the same problems as analyzing serially
+	 * 
+	 * @throws CoreException
+	 */
+	public void testAnalyzerWithThreads() throws CoreException {
+		IApiBaseline baseline = TestSuiteHelper.createTestingBaseline("baseline", new Path("test-analyzer-1"));
+		IApiBaseline current = TestSuiteHelper.createTestingBaseline("current", new Path("test-analyzer-2"));
+		try {
+			IApiComponent component = current.getApiComponent("test.bundle.a");
+			assertNotNull("Missing API component test.bundle.a", component);
+			BaseApiAnalyzer analyzer = new BaseApiAnalyzer();
+			analyzer.analyzeComponent(null, null, null, baseline, component, new BuildContext(), new NullProgressMonitor());
+			IApiProblem[] serial = analyzer.getProblems();
+			analyzer.dispose();
+			analyzer = new BaseApiAnalyzer();
+			analyzer.setThreadCount(4);
+			analyzer.analyzeComponent(null, null, null, baseline, component, new BuildContext(), new NullProgressMonitor());
+			IApiProblem[] parallel = analyzer.getProblems();
+			analyzer.dispose();
+			assertEquals("Wrong number of problems", serial.length, parallel.length);
+			Set<Integer> ids = new HashSet<Integer>();
+			for (int i = 0; i < serial.length; i++) {
+				ids.add(new Integer(serial[i].getId()));
+			}
+			for (int i = 0; i < parallel.length; i++) {
+				assertTrue("Unexpected problem: " + parallel[i].getMessage(), ids.contains(new Integer(parallel[i].getId())));
+			}
+		}
+		finally {
+			baseline.dispose();
+			current.dispose();
+		}
+	}
 }
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.builder.tests.performance;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.pde.api.tools.internal.comparator.ClassFileComparator;
+import org.eclipse.pde.api.tools.internal.model.AbstractApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.model.TypeStructureBuilder;
+import org.eclipse.pde.api.tools.internal.problems.ApiProblemFactory;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.IApiFilterStore;
+import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+import org.eclipse.pde.api.tools.internal.provisional.comparator.IDelta;
+import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiField;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMethod;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.provisional.problems.IApiProblem;
+import org.eclipse.pde.api.tools.internal.provisional.problems.IApiProblemFilter;
+import org.eclipse.pde.api.tools.internal.util.Signatures;
+import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
+import org.eclipse.pde.api.tools.tests.AbstractApiTest;
+import org.eclipse.pde.api.tools.tests.util.FileUtils;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+/**
+ * Micro benchmarks for the hot paths of the API analysis: class file comparison, reference
+ * extraction, type structure building, signature processing, problem filtering and
+ * API description lookups.
+ * <p>
+ * Unlike the other performance tests these do not build a workspace: each scenario runs one
+ * operation repeatedly over all the types of the <code>test-analyzer-1</code> and
+ * <code>test-analyzer-2</code> bundles, so a regression in a single operation is not hidden
+ * by the cost of a build. The measurements are committed to the performance framework like
+ * any other scenario, so the results end up in the performance database and can be compared
+ * against a reference build.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public class HotPathPerfTests extends AbstractApiTest {
+
+	/**
+	 * Number of warm-up runs, not measured
+	 */
+	private static final int WARMUP_RUNS = 5;
+
+	/**
+	 * Number of measured runs
+	 */
+	private static final int RUNS = 15;
+
+	/**
+	 * Number of times an operation is repeated over all types within one run
+	 */
+	private static final int ITERATIONS = 50;
+
+	private static final IPath SRC_LOC = TestSuiteHelper.getPluginDirectoryPath().append("test-source");
+
+	IApiBaseline fBaseline = null;
+	IApiBaseline fCurrent = null;
+	IApiComponent fComponent = null;
+	IApiComponent fCurrentComponent = null;
+	IApiTypeRoot[] fRoots = null;
+
+	/**
+	 * @return the tests for this class
+	 */
+	public static Test suite() {
+		return new TestSuite(HotPathPerfTests.class);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fBaseline = TestSuiteHelper.createTestingBaseline("baseline", new Path("test-analyzer-1"));
+		fCurrent = TestSuiteHelper.createTestingBaseline("current", new Path("test-analyzer-2"));
+		fComponent = fBaseline.getApiComponent("test.bundle.a");
+		assertNotNull("the baseline component must exist", fComponent);
+		fCurrentComponent = fCurrent.getApiComponent("test.bundle.a");
+		assertNotNull("the current component must exist", fCurrentComponent);
+		final List roots = new ArrayList();
+		fComponent.accept(new ApiTypeContainerVisitor() {
+			public void visit(String packageName, IApiTypeRoot typeroot) {
+				roots.add(typeroot);
+			}
+		});
+		fRoots = (IApiTypeRoot[]) roots.toArray(new IApiTypeRoot[roots.size()]);
+		assertTrue("there should be types to measure", fRoots.length > 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		if (fBaseline != null) {
+			fBaseline.dispose();
+		}
+		if (fCurrent != null) {
+			fCurrent.dispose();
+		}
+		super.tearDown();
+	}
+
+	/**
+	 * An operation to measure
+	 */
+	interface Operation {
+		/**
+		 * Runs the operation once over all the types
+		 * @throws CoreException
+		 */
+		void run() throws CoreException;
+	}
+
+	/**
+	 * Warms up and measures the given operation, then commits and asserts the measurements.
+	 *
+	 * @param summary the short name of the scenario
+	 * @param operation the operation to measure
+	 * @throws CoreException
+	 */
+	void measure(String summary, Operation operation) throws CoreException {
+		Performance performance = Performance.getDefault();
+		PerformanceMeter meter = performance.createPerformanceMeter(performance.getDefaultScenarioId(this));
+		try {
+			performance.tagAsSummary(meter, summary, Dimension.ELAPSED_PROCESS);
+			for (int i = 0; i < WARMUP_RUNS; i++) {
+				operation.run();
+			}
+			for (int i = 0; i < RUNS; i++) {
+				meter.start();
+				for (int j = 0; j < ITERATIONS; j++) {
+					operation.run();
+				}
+				meter.stop();
+			}
+			meter.commit();
+			performance.assertPerformance(meter);
+		}
+		finally {
+			meter.dispose();
+		}
+	}
+
+	/**
+	 * Measures comparing the class files of two versions of the same bundle
+	 *
+	 * @throws Exception
+	 */
+	public void testClassFileComparator() throws Exception {
+		final IApiTypeRoot[] roots2 = new IApiTypeRoot[fRoots.length];
+		for (int i = 0; i < fRoots.length; i++) {
+			roots2[i] = fCurrentComponent.findTypeRoot(fRoots[i].getTypeName());
+		}
+		measure("Compare class files", new Operation() {
+			public void run() throws CoreException {
+				for (int i = 0; i < fRoots.length; i++) {
+					if (roots2[i] == null) {
+						continue;
+					}
+					ClassFileComparator comparator = new ClassFileComparator(fRoots[i], roots2[i], fComponent, fCurrentComponent, fBaseline, fCurrent, VisibilityModifiers.ALL_VISIBILITIES);
+					IDelta delta = comparator.getDelta(null);
+					assertNotNull("the delta should not be null", delta);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Measures extracting all the references of the types
+	 *
+	 * @throws Exception
+	 */
+	public void testReferenceExtractor() throws Exception {
+		final IApiType[] types = getStructures();
+		measure("Extract references", new Operation() {
+			public void run() throws CoreException {
+				for (int i = 0; i < types.length; i++) {
+					types[i].extractReferences(IReference.MASK_REF_ALL, null);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Measures building the structure of the types from their class files
+	 *
+	 * @throws Exception
+	 */
+	public void testBuildTypeStructure() throws Exception {
+		final byte[][] contents = new byte[fRoots.length][];
+		for (int i = 0; i < fRoots.length; i++) {
+			contents[i] = ((AbstractApiTypeRoot) fRoots[i]).getContents();
+		}
+		measure("Build type structures", new Operation() {
+			public void run() throws CoreException {
+				for (int i = 0; i < contents.length; i++) {
+					IApiType type = TypeStructureBuilder.buildTypeStructure(contents[i], fComponent, fRoots[i]);
+					assertNotNull("the type structure should not be null", type);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Measures computing the display signatures of the types and their members
+	 *
+	 * @throws Exception
+	 */
+	public void testSignatures() throws Exception {
+		final IApiType[] types = getStructures();
+		measure("Compute signatures", new Operation() {
+			public void run() throws CoreException {
+				for (int i = 0; i < types.length; i++) {
+					Signatures.getQualifiedTypeSignature(types[i]);
+					IApiMethod[] methods = types[i].getMethods();
+					for (int j = 0; j < methods.length; j++) {
+						Signatures.getQualifiedMethodSignature(methods[j]);
+						Signatures.getMethodSignature(methods[j]);
+					}
+					IApiField[] fields = types[i].getFields();
+					for (int j = 0; j < fields.length; j++) {
+						Signatures.getQualifiedFieldSignature(fields[j]);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Measures looking up the annotations of the types and their members in the API description
+	 *
+	 * @throws Exception
+	 */
+	public void testApiDescriptionLookup() throws Exception {
+		final IApiType[] types = getStructures();
+		final IApiDescription description = fComponent.getApiDescription();
+		measure("Look up API descriptions", new Operation() {
+			public void run() throws CoreException {
+				for (int i = 0; i < types.length; i++) {
+					description.resolveAnnotations(types[i].getHandle());
+					IApiMethod[] methods = types[i].getMethods();
+					for (int j = 0; j < methods.length; j++) {
+						description.resolveAnnotations(methods[j].getHandle());
+					}
+					IApiField[] fields = types[i].getFields();
+					for (int j = 0; j < fields.length; j++) {
+						description.resolveAnnotations(fields[j].getHandle());
+					}
+				}
+				// a package that has no annotations
+				description.resolveAnnotations(Factory.packageDescriptor("no.such.pkg"));
+			}
+		});
+	}
+
+	/**
+	 * Measures asking a project filter store whether problems are filtered
+	 *
+	 * @throws Exception
+	 */
+	public void testIsFiltered() throws Exception {
+		createProject(TESTING_PLUGIN_PROJECT_NAME, null);
+		try {
+			IJavaProject jproject = getTestingJavaProject(TESTING_PLUGIN_PROJECT_NAME);
+			IPackageFragmentRoot srcroot = jproject.findPackageFragmentRoot(jproject.getProject().getFullPath().append("src"));
+			assertNotNull("the default src root must exist", srcroot);
+			File dest = SRC_LOC.toFile();
+			FileUtils.importFileFromDirectory(dest, srcroot.getPath(), new NullProgressMonitor());
+			IApiComponent component = getProjectApiComponent(TESTING_PLUGIN_PROJECT_NAME);
+			assertNotNull("the testing project api component must exist", component);
+			final IApiFilterStore store = component.getFilterStore();
+			IProject project = jproject.getProject();
+			String[] paths = new String[] {"src/x/C1.java", "src/x/y/C3.java", "src/x/y/z/C4.java"};
+			List filters = new ArrayList();
+			final List problems = new ArrayList();
+			for (int i = 0; i < paths.length; i++) {
+				IResource resource = project.findMember(new Path(paths[i]));
+				assertNotNull("the resource "+paths[i]+" must exist", resource);
+				String path = resource.getProjectRelativePath().toPortableString();
+				for (int j = 0; j < 100; j++) {
+					IApiProblem problem = ApiProblemFactory.newApiProblem(path, "x.T"+j, new String[] {"m"+j}, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, IApiProblem.ILLEGAL_REFERENCE, j, IApiProblem.NO_FLAGS);
+					// filter every other problem so both answers are measured
+					if (j % 2 == 0) {
+						filters.add(ApiProblemFactory.newProblemFilter(component.getSymbolicName(), problem, null));
+					}
+					problems.add(problem);
+				}
+			}
+			store.addFilters((IApiProblemFilter[]) filters.toArray(new IApiProblemFilter[filters.size()]));
+			measure("Filter API problems", new Operation() {
+				public void run() {
+					for (int i = 0, max = problems.size(); i < max; i++) {
+						store.isFiltered((IApiProblem) problems.get(i));
+					}
+				}
+			});
+		}
+		finally {
+			deleteProject(TESTING_PLUGIN_PROJECT_NAME);
+		}
+	}
+
+	/**
+	 * Returns the structures of all the types being measured
+	 *
+	 * @return the type structures
+	 * @throws CoreException
+	 */
+	IApiType[] getStructures() throws CoreException {
+		IApiType[] types = new IApiType[fRoots.length];
+		for (int i = 0; i < fRoots.length; i++) {
+			types[i] = fRoots[i].getStructure();
+		}
+		return types;
+	}
+}
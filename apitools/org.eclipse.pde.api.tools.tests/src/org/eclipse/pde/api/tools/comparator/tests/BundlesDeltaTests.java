@@ -574,4 +574,21 @@ public class BundlesDeltaTests extends DeltaTestSetup {
 		assertNotNull("No delta", delta);
 		assertFalse("Equals to NO_DELTA", delta == ApiComparator.NO_DELTA);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Test that a parallel comparison returns the same delta as the serial comparison
+	 * using org.eclipse.pde.api.tools.internal.provisional.comparator.ApiComparator.compare(IApiBaseline, IApiBaseline, int, boolean, int, IProgressMonitor)
+	 */
+	public void test17() {
+		deployBundles("test1");
+		IDelta serial = ApiComparator.compare(getBeforeState(), getAfterState(), VisibilityModifiers.ALL_VISIBILITIES, false, null);
+		IDelta parallel = ApiComparator.compare(getBeforeState(), getAfterState(), VisibilityModifiers.ALL_VISIBILITIES, false, 4, null);
+		assertNotNull("No delta", parallel);
+		IDelta[] serialLeaves = collectLeaves(serial);
+		IDelta[] parallelLeaves = collectLeaves(parallel);
+		assertEquals("Wrong size", serialLeaves.length, parallelLeaves.length);
+		for (int i = 0; i < serialLeaves.length; i++) {
+			assertEquals("Wrong delta at " + i, serialLeaves[i], parallelLeaves[i]);
+		}
+	}
+}
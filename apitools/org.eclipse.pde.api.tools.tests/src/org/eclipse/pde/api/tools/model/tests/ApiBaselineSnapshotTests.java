@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.model.tests;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.model.ApiBaselineSnapshot;
+import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.util.Util;
+import org.eclipse.pde.api.tools.tests.util.FileUtils;
+
+/**
+ * Tests the {@link ApiBaselineSnapshot}
+ *
+ * @since 1.0.400
+ */
+public class ApiBaselineSnapshotTests extends TestCase {
+
+	private File fFile;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFile = File.createTempFile("baseline", ".snapshot");
+		fFile.deleteOnExit();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Tests that the components restored from a snapshot match the original components
+	 *
+	 * @throws Exception
+	 */
+	public void testRoundTrip() throws Exception {
+		IApiBaseline baseline = TestSuiteHelper.createTestingBaseline("test-plugins");
+		assertNotNull("the testing baseline should exist", baseline);
+		IApiBaseline restored = null;
+		try {
+			IApiComponent[] components = baseline.getApiComponents();
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write("location", components, fFile));
+			ApiBaselineSnapshot snapshot = ApiBaselineSnapshot.read(fFile);
+			assertNotNull("the snapshot should have been read", snapshot);
+			assertTrue("the snapshot should be up to date", snapshot.isUpToDate());
+			assertEquals("wrong baseline location", "location", snapshot.getLocation());
+			restored = TestSuiteHelper.newApiBaseline("restored", TestSuiteHelper.getEEDescriptionFile());
+			restored.addApiComponents(snapshot.createComponents(restored));
+			for (int i = 0; i < components.length; i++) {
+				if (components[i].isSystemComponent()) {
+					continue;
+				}
+				IApiComponent component = restored.getApiComponent(components[i].getSymbolicName());
+				assertNotNull("missing restored component " + components[i].getSymbolicName(), component);
+				assertEquals("wrong version", components[i].getVersion(), component.getVersion());
+				assertEquals("wrong location", components[i].getLocation(), component.getLocation());
+			}
+		}
+		finally {
+			baseline.dispose();
+			if (restored != null) {
+				restored.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Tests that a file that is not a snapshot is rejected
+	 *
+	 * @throws Exception
+	 */
+	public void testInvalidSnapshot() throws Exception {
+		FileOutputStream out = new FileOutputStream(fFile);
+		try {
+			out.write("<apiprofile/>".getBytes());
+		}
+		finally {
+			out.close();
+		}
+		assertNull("the file should not have been read as a snapshot", ApiBaselineSnapshot.read(fFile));
+	}
+
+	/**
+	 * Returns the contents of the snapshot file
+	 *
+	 * @return the contents
+	 * @throws Exception
+	 */
+	private byte[] readFile() throws Exception {
+		InputStream stream = new FileInputStream(fFile);
+		try {
+			return Util.getInputStreamAsByteArray(stream, -1);
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Replaces the contents of the snapshot file with the given bytes
+	 *
+	 * @param bytes
+	 * @param length the number of bytes to write
+	 * @throws Exception
+	 */
+	private void writeFile(byte[] bytes, int length) throws Exception {
+		FileOutputStream out = new FileOutputStream(fFile);
+		try {
+			out.write(bytes, 0, length);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Tests that snapshots with corrupt lengths or counts, or that are truncated, are rejected
+	 * rather than failing to restore
+	 *
+	 * @throws Exception
+	 */
+	public void testCorruptSnapshot() throws Exception {
+		IApiBaseline baseline = TestSuiteHelper.createTestingBaseline("test-plugins");
+		try {
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write("location", baseline.getApiComponents(), fFile));
+		}
+		finally {
+			baseline.dispose();
+		}
+		byte[] valid = readFile();
+		// magic, version and the length of the baseline location
+		int locationLength = ByteBuffer.wrap(valid).getInt(8);
+		int countOffset = 12 + locationLength;
+		int[][] corruptions = new int[][] {
+				{8, -1},
+				{8, Integer.MAX_VALUE},
+				{countOffset, -1},
+				{countOffset, Integer.MAX_VALUE},
+				// the length of the location of the first component
+				{countOffset + 4, -5},
+				{countOffset + 4, valid.length}
+		};
+		for (int i = 0; i < corruptions.length; i++) {
+			byte[] bytes = (byte[]) valid.clone();
+			ByteBuffer.wrap(bytes).putInt(corruptions[i][0], corruptions[i][1]);
+			writeFile(bytes, bytes.length);
+			assertNull("the corrupt snapshot " + i + " should have been rejected", ApiBaselineSnapshot.read(fFile));
+		}
+		for (int length = valid.length - 1; length > 0; length -= 97) {
+			writeFile(valid, length);
+			assertNull("the snapshot truncated at " + length + " should have been rejected", ApiBaselineSnapshot.read(fFile));
+		}
+		writeFile(valid, valid.length);
+		assertNotNull("the snapshot should have been read", ApiBaselineSnapshot.read(fFile));
+	}
+
+	/**
+	 * Writes the manifest of the testing directory bundle
+	 *
+	 * @param bundle
+	 * @param version
+	 * @throws Exception
+	 */
+	private void writeManifest(File bundle, String version) throws Exception {
+		File manifest = new File(bundle, JarFile.MANIFEST_NAME);
+		manifest.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(manifest);
+		try {
+			out.write(("Manifest-Version: 1.0\nBundle-ManifestVersion: 2\nBundle-SymbolicName: snapshot.dir\nBundle-Version: " + version + "\n").getBytes());
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Tests that a snapshot of a directory bundle is out of date once the manifest changes or a package is added,
+	 * although neither changes the size or time stamp of the bundle directory itself
+	 *
+	 * @throws Exception
+	 */
+	public void testDirectoryBundleChanges() throws Exception {
+		File bundle = new File(fFile.getParentFile(), "snapshot.dir");
+		FileUtils.delete(bundle.getPath());
+		new File(bundle, "a").mkdirs();
+		writeManifest(bundle, "1.0.0");
+		long stamp = bundle.lastModified();
+		IApiBaseline baseline = TestSuiteHelper.newApiBaseline("directory", TestSuiteHelper.getEEDescriptionFile());
+		try {
+			IApiComponent component = ApiModelFactory.newApiComponent(baseline, bundle.getAbsolutePath());
+			assertNotNull("the directory bundle should have been created", component);
+			IApiComponent[] components = new IApiComponent[] {component};
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write(null, components, fFile));
+			assertTrue("the snapshot should be up to date", ApiBaselineSnapshot.read(fFile).isUpToDate());
+
+			File pkg = new File(bundle, "a/b");
+			assertTrue("the package should have been created", pkg.mkdirs());
+			new File(bundle, "a").setLastModified(stamp + 10000);
+			bundle.setLastModified(stamp);
+			assertFalse("the added package should have been detected", ApiBaselineSnapshot.read(fFile).isUpToDate());
+
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write(null, components, fFile));
+			File manifest = new File(bundle, JarFile.MANIFEST_NAME);
+			writeManifest(bundle, "1.0.1");
+			manifest.setLastModified(stamp + 20000);
+			bundle.setLastModified(stamp);
+			assertFalse("the changed manifest should have been detected", ApiBaselineSnapshot.read(fFile).isUpToDate());
+		}
+		finally {
+			baseline.dispose();
+			FileUtils.delete(bundle.getPath());
+		}
+	}
+
+	/**
+	 * Tests that writing a snapshot again takes the manifest headers of the unchanged bundles from
+	 * the previous snapshot instead of reading their manifests
+	 *
+	 * @throws Exception
+	 */
+	public void testHeadersReused() throws Exception {
+		File bundle = new File(fFile.getParentFile(), "snapshot.dir");
+		FileUtils.delete(bundle.getPath());
+		bundle.mkdirs();
+		writeManifest(bundle, "1.0.0");
+		IApiBaseline baseline = TestSuiteHelper.newApiBaseline("directory", TestSuiteHelper.getEEDescriptionFile());
+		IApiBaseline restored = TestSuiteHelper.newApiBaseline("restored", TestSuiteHelper.getEEDescriptionFile());
+		try {
+			IApiComponent component = ApiModelFactory.newApiComponent(baseline, bundle.getAbsolutePath());
+			IApiComponent[] components = new IApiComponent[] {component};
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write(null, components, fFile));
+			// the bundle description is created and the manifest compacted
+			baseline.addApiComponents(components);
+			ApiBaselineSnapshot previous = ApiBaselineSnapshot.read(fFile);
+
+			// change the manifest without changing the stamp of the bundle, so that only
+			// reading the manifest again can tell
+			File metainf = new File(bundle, "META-INF");
+			File manifest = new File(metainf, "MANIFEST.MF");
+			long[] stamps = new long[] {manifest.lastModified(), metainf.lastModified(), bundle.lastModified()};
+			writeManifest(bundle, "1.0.1");
+			manifest.setLastModified(stamps[0]);
+			metainf.setLastModified(stamps[1]);
+			bundle.setLastModified(stamps[2]);
+
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write(null, components, fFile, previous));
+			IApiComponent[] written = ApiBaselineSnapshot.read(fFile).createComponents(restored);
+			assertEquals("the recorded headers should have been written", "1.0.0", written[0].getVersion());
+
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write(null, components, fFile));
+			written = ApiBaselineSnapshot.read(fFile).createComponents(restored);
+			assertEquals("the manifest should have been read", "1.0.1", written[0].getVersion());
+		}
+		finally {
+			baseline.dispose();
+			restored.dispose();
+			FileUtils.delete(bundle.getPath());
+		}
+	}
+
+	/**
+	 * Tests that the snapshot file is not held open once read, so that it can be replaced
+	 *
+	 * @throws Exception
+	 */
+	public void testFileReleased() throws Exception {
+		IApiBaseline baseline = TestSuiteHelper.createTestingBaseline("test-plugins");
+		try {
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write("location", baseline.getApiComponents(), fFile));
+			ApiBaselineSnapshot snapshot = ApiBaselineSnapshot.read(fFile);
+			assertTrue("the snapshot file should have been deleted", fFile.delete());
+			assertEquals("wrong baseline location", "location", snapshot.getLocation());
+			assertTrue("the snapshot should have been written", ApiBaselineSnapshot.write("other", baseline.getApiComponents(), fFile));
+		}
+		finally {
+			baseline.dispose();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,15 +10,22 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.model.tests;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.jar.JarFile;
 
 import junit.framework.TestCase;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.pde.api.tools.internal.BundleVersionRange;
 import org.eclipse.pde.api.tools.internal.RequiredComponentDescription;
+import org.eclipse.pde.api.tools.internal.model.ApiBaseline;
+import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
 import org.eclipse.pde.api.tools.internal.provisional.Factory;
 import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
 import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
@@ -28,6 +35,7 @@ import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.Util;
 
 /**
  * Test creation of states and components.
@@ -71,6 +79,162 @@ public class ApiBaselineTests extends TestCase {
 		assertEquals("Wrong provider for package", baseline.getApiComponent("component.a"), components[0]);
 	}
 	
+	/**
+	 * Resolves the same package repeatedly and after the cached package names are
+	 * cleared, which must keep answering the same provider
+	 * 
+	 * @throws FileNotFoundException
+	 * @throws CoreException
+	 */
+	public void testResolvePackageCached() throws FileNotFoundException, CoreException {
+		IApiBaseline baseline = TestSuiteHelper.createTestingBaseline("test-plugins");
+		assertNotNull("the testing baseline should exist", baseline);
+		IApiComponent source = baseline.getApiComponent("component.b");
+		IApiComponent provider = baseline.getApiComponent("component.a");
+		for (int i = 0; i < 3; i++) {
+			IApiComponent[] components = baseline.resolvePackage(source, "component.a");
+			assertEquals("Wrong size", 1, components.length);
+			assertEquals("Wrong provider for package", provider, components[0]);
+			assertSame("A cached resolution should be answered as is", components, baseline.resolvePackage(source, "component.a"));
+			((ApiBaseline) baseline).clearPackage("component.a");
+		}
+		assertEquals("Should not resolve an unknown package", 0, baseline.resolvePackage(source, "no.such.pkg").length);
+		IApiComponent[] system = baseline.resolvePackage(source, "java.lang");
+		assertSame("The system library should be answered as is", system, baseline.resolvePackage(source, "java.lang"));
+	}
+	
+	/**
+	 * Creates a directory bundle with the given manifest headers in the given directory
+	 * 
+	 * @param baseline the baseline the component belongs to
+	 * @param root the parent directory of the bundle
+	 * @param name the symbolic name of the bundle
+	 * @param headers additional manifest headers, each ending with a new line
+	 * @return the new component
+	 * @throws Exception
+	 */
+	private IApiComponent newComponent(IApiBaseline baseline, File root, String name, String headers) throws Exception {
+		File bundle = new File(root, name);
+		File manifest = new File(bundle, JarFile.MANIFEST_NAME);
+		manifest.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(manifest);
+		try {
+			out.write(("Manifest-Version: 1.0\nBundle-ManifestVersion: 2\nBundle-SymbolicName: " + name + "\nBundle-Version: 1.0.0\n" + headers).getBytes());
+		}
+		finally {
+			out.close();
+		}
+		return ApiModelFactory.newApiComponent(baseline, bundle.getAbsolutePath());
+	}
+	
+	/**
+	 * Resolves a package again after the component exporting it has been added to the baseline,
+	 * which must not answer the resolution cached before
+	 * 
+	 * @throws Exception
+	 */
+	public void testResolvePackageCachedAddComponent() throws Exception {
+		File root = File.createTempFile("resolve", ".test");
+		root.delete();
+		IApiBaseline baseline = TestSuiteHelper.newApiBaseline("resolve", TestSuiteHelper.getEEDescriptionFile());
+		try {
+			IApiComponent importer = newComponent(baseline, root, "importer", "Import-Package: p\n");
+			baseline.addApiComponents(new IApiComponent[] {importer});
+			assertEquals("Should not resolve a package nobody exports", 0, baseline.resolvePackage(importer, "p").length);
+			IApiComponent exporter = newComponent(baseline, root, "exporter", "Export-Package: p\n");
+			baseline.addApiComponents(new IApiComponent[] {exporter});
+			IApiComponent[] components = baseline.resolvePackage(importer, "p");
+			assertEquals("Wrong size", 1, components.length);
+			assertSame("Wrong provider for package", exporter, components[0]);
+		}
+		finally {
+			baseline.dispose();
+			Util.delete(root);
+		}
+	}
+	
+	/**
+	 * Resolves a package again after the component exporting it has been replaced in the baseline,
+	 * which must answer the new component rather than the one cached before
+	 * 
+	 * @throws Exception
+	 */
+	public void testResolvePackageCachedReplaceComponent() throws Exception {
+		File root = File.createTempFile("resolve", ".test");
+		root.delete();
+		IApiBaseline baseline = TestSuiteHelper.newApiBaseline("resolve", TestSuiteHelper.getEEDescriptionFile());
+		try {
+			IApiComponent importer = newComponent(baseline, root, "importer", "Import-Package: p\n");
+			IApiComponent exporter = newComponent(baseline, root, "exporter", "Export-Package: p\n");
+			baseline.addApiComponents(new IApiComponent[] {importer, exporter});
+			IApiComponent[] components = baseline.resolvePackage(importer, "p");
+			assertEquals("Wrong size", 1, components.length);
+			assertSame("Wrong provider for package", exporter, components[0]);
+			IApiComponent replacement = newComponent(baseline, root, "exporter", "Export-Package: p\n");
+			baseline.addApiComponents(new IApiComponent[] {replacement});
+			assertSame("The replaced component should no longer be answered", replacement, baseline.getApiComponent("exporter"));
+			components = baseline.resolvePackage(importer, "p");
+			assertEquals("Wrong size", 1, components.length);
+			assertSame("The replaced component should no longer provide the package", replacement, components[0]);
+		}
+		finally {
+			baseline.dispose();
+			Util.delete(root);
+		}
+	}
+	
+	/**
+	 * Resolves packages from several threads while the cached package names are cleared,
+	 * which must always answer the same providers
+	 * 
+	 * @throws Exception
+	 */
+	public void testResolvePackageConcurrently() throws Exception {
+		final IApiBaseline baseline = TestSuiteHelper.createTestingBaseline("test-plugins");
+		assertNotNull("the testing baseline should exist", baseline);
+		final IApiComponent componentA = baseline.getApiComponent("component.a");
+		final IApiComponent componentB = baseline.getApiComponent("component.b");
+		final IApiComponent system = baseline.getApiComponent(baseline.getExecutionEnvironment());
+		final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread("resolver " + i) {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 500; j++) {
+							check(baseline.resolvePackage(componentB, "component.a"), componentA);
+							check(baseline.resolvePackage(componentA, "a.b.c"), componentA);
+							check(baseline.resolvePackage(componentB, "java.lang"), system);
+							if (baseline.resolvePackage(componentB, "no.such.pkg").length != 0) {
+								failures.add(getName() + ": resolved an unknown package");
+							}
+						}
+					}
+					catch (Throwable e) {
+						failures.add(getName() + ": " + e);
+					}
+				}
+				private void check(IApiComponent[] components, IApiComponent provider) {
+					if (components.length != 1 || components[0] != provider) {
+						failures.add(getName() + ": wrong providers " + Arrays.asList(components));
+					}
+				}
+			};
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].start();
+		}
+		for (int i = 0; i < 100; i++) {
+			((ApiBaseline) baseline).clearPackage("a.b.c");
+			Thread.yield();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertTrue("Wrong resolutions: " + failures, failures.isEmpty());
+	}
+	
 	/**
 	 * Resolves a package within a single component
 	 * 
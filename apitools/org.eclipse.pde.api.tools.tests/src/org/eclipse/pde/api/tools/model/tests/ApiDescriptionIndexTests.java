@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.model.tests;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.ApiDescription;
+import org.eclipse.pde.api.tools.internal.ApiDescriptionIndex;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
+import org.eclipse.pde.api.tools.internal.provisional.RestrictionModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Tests the {@link ApiDescriptionIndex} of jar and directory bundles, and that stale or
+ * corrupt index files are rebuilt
+ *
+ * @since 1.0.400
+ */
+public class ApiDescriptionIndexTests extends TestCase {
+
+	private static final IElementDescriptor TYPE = Factory.typeDescriptor("a.b.A");
+
+	private File fBundle;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fBundle = File.createTempFile("indexed", ".bundle");
+		fBundle.delete();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		ApiDescriptionIndex.getIndexFile(fBundle).delete();
+		Util.delete(fBundle);
+		super.tearDown();
+	}
+
+	/**
+	 * Returns the XML of a description restricting type <code>a.b.A</code>
+	 *
+	 * @param restriction <code>extend</code> or <code>instantiate</code>
+	 * @return the XML
+	 */
+	private String getXML(String restriction) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<component name=\"indexed\">\n <plugin id=\"indexed\" />\n <package name=\"a.b\">\n"
+			+ "  <type name=\"A\" " + restriction + "=\"false\"/>\n </package>\n</component>\n";
+	}
+
+	/**
+	 * Writes the <code>.api_description</code> file of the testing directory bundle
+	 *
+	 * @param xml
+	 * @param stamp the time stamp to give to the file
+	 * @throws Exception
+	 */
+	private void writeDirectoryBundle(String xml, long stamp) throws Exception {
+		fBundle.mkdirs();
+		File file = new File(fBundle, IApiCoreConstants.API_DESCRIPTION_XML_NAME);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(xml.getBytes(IApiCoreConstants.UTF_8));
+		}
+		finally {
+			out.close();
+		}
+		file.setLastModified(stamp);
+	}
+
+	/**
+	 * Returns the restrictions of type <code>a.b.A</code> in the index of the testing bundle
+	 *
+	 * @return the restrictions
+	 * @throws Exception
+	 */
+	private int getRestrictions() throws Exception {
+		ApiDescriptionIndex index = ApiDescriptionIndex.getIndex(fBundle);
+		assertNotNull("the bundle should have an index", index);
+		assertTrue("the index should have the package", index.getPackageNames().contains("a.b"));
+		ApiDescription description = new ApiDescription(null);
+		index.annotate(description, "a.b");
+		IApiAnnotations annotations = description.resolveAnnotations(TYPE);
+		assertNotNull("missing annotations", annotations);
+		return annotations.getRestrictions();
+	}
+
+	/**
+	 * Tests that the index of a jar bundle is built, written and read back
+	 *
+	 * @throws Exception
+	 */
+	public void testJarBundle() throws Exception {
+		fBundle = new File(fBundle.getPath() + ".jar");
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(fBundle));
+		try {
+			out.putNextEntry(new ZipEntry(IApiCoreConstants.API_DESCRIPTION_XML_NAME));
+			out.write(getXML("extend").getBytes(IApiCoreConstants.UTF_8));
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+		assertEquals("wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestrictions());
+		File file = ApiDescriptionIndex.getIndexFile(fBundle);
+		assertTrue("the index should have been written", file.isFile());
+		long length = file.length();
+		assertEquals("wrong restrictions read from the index file", RestrictionModifiers.NO_EXTEND, getRestrictions());
+		assertEquals("the index file should not have been rewritten", length, file.length());
+	}
+
+	/**
+	 * Tests that a bundle without <code>.api_description</code> file has no index
+	 *
+	 * @throws Exception
+	 */
+	public void testNoDescription() throws Exception {
+		fBundle.mkdirs();
+		assertNull("the bundle should have no index", ApiDescriptionIndex.getIndex(fBundle));
+	}
+
+	/**
+	 * Tests that the index of a changed description replaces the index of the previous description
+	 *
+	 * @throws Exception
+	 */
+	public void testStaleIndex() throws Exception {
+		long stamp = System.currentTimeMillis() - 10000;
+		writeDirectoryBundle(getXML("extend"), stamp);
+		assertEquals("wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestrictions());
+		writeDirectoryBundle(getXML("instantiate"), stamp + 2000);
+		assertEquals("the stale index should have been rebuilt", RestrictionModifiers.NO_INSTANTIATE, getRestrictions());
+		File folder = ApiDescriptionIndex.getIndexFile(fBundle).getParentFile();
+		String prefix = ApiDescriptionIndex.getIndexFile(fBundle).getName();
+		String[] names = folder.list();
+		int count = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].startsWith(prefix)) {
+				count++;
+			}
+		}
+		assertEquals("the index should have been replaced", 1, count);
+	}
+
+	/**
+	 * Tests that a corrupt index file is rebuilt from the description
+	 *
+	 * @throws Exception
+	 */
+	public void testCorruptIndex() throws Exception {
+		writeDirectoryBundle(getXML("extend"), System.currentTimeMillis() - 10000);
+		assertEquals("wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestrictions());
+		File file = ApiDescriptionIndex.getIndexFile(fBundle);
+		byte[] bytes = null;
+		FileInputStream in = new FileInputStream(file);
+		try {
+			bytes = Util.getInputStreamAsByteArray(in, (int) file.length());
+		}
+		finally {
+			in.close();
+		}
+		// keep the header and stamp, garble the package table
+		for (int i = bytes.length / 2; i < bytes.length; i++) {
+			bytes[i] = (byte) 0xFF;
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes, 0, bytes.length - 3);
+		}
+		finally {
+			out.close();
+		}
+		assertEquals("the corrupt index should have been rebuilt", RestrictionModifiers.NO_EXTEND, getRestrictions());
+	}
+}
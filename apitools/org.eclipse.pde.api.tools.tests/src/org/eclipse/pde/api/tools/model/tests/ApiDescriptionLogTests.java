@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.model.tests;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.pde.api.tools.internal.ProjectApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
+import org.eclipse.pde.api.tools.internal.provisional.RestrictionModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.tests.AbstractApiTest;
+import org.eclipse.pde.api.tools.tests.util.ProjectUtils;
+
+/**
+ * Tests saving and restoring project API descriptions through their binary log
+ *
+ * @since 1.0.400
+ */
+public class ApiDescriptionLogTests extends AbstractApiTest {
+
+	private static final String PROJECT_NAME = "ApiDescriptionLogTests";
+
+	private static final IElementDescriptor TYPE_A = Factory.typeDescriptor("a.b.A");
+	private static final IElementDescriptor TYPE_C = Factory.typeDescriptor("a.c.C");
+
+	private IJavaProject fProject;
+	private File fLog;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		createProject(PROJECT_NAME, new String[] {"a.b", "a.c"});
+		fProject = getTestingJavaProject(PROJECT_NAME);
+		ProjectUtils.addExportedPackage(fProject.getProject(), "a.b", false, null);
+		ProjectUtils.addExportedPackage(fProject.getProject(), "a.c", false, null);
+		IPackageFragmentRoot root = fProject.getPackageFragmentRoot(fProject.getProject().getFolder(ProjectUtils.SRC_FOLDER));
+		IPackageFragment fragment = root.getPackageFragment("a.b");
+		fragment.createCompilationUnit("A.java", "package a.b;\npublic class A {\n\tpublic void m() {}\n}\n", true, new NullProgressMonitor());
+		fragment = root.getPackageFragment("a.c");
+		fragment.createCompilationUnit("C.java", "package a.c;\npublic class C {}\n", true, new NullProgressMonitor());
+		fLog = new File(System.getProperty("java.io.tmpdir"), "api_description_log_test.log");
+		fLog.delete();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		fLog.delete();
+		new File(fLog.getPath() + ".tmp").delete();
+		new File(fLog.getPath() + ".bak").delete();
+		deleteProject(PROJECT_NAME);
+		super.tearDown();
+	}
+
+	/**
+	 * Returns the restrictions of the given element in a description restored from the log
+	 *
+	 * @param element
+	 * @return the restrictions
+	 * @throws Exception
+	 */
+	private int getRestoredRestrictions(IElementDescriptor element) throws Exception {
+		ProjectApiDescription restored = new ProjectApiDescription(fProject);
+		assertTrue("The description should have been restored", restored.restore(fLog));
+		IApiAnnotations annotations = restored.resolveAnnotations(element);
+		assertNotNull("The element should be in the restored description", annotations);
+		return annotations.getRestrictions();
+	}
+
+	/**
+	 * Tests that the restrictions saved to the log are restored, including the ones appended by a later save
+	 *
+	 * @throws Exception
+	 */
+	public void testRoundTrip() throws Exception {
+		ProjectApiDescription description = new ProjectApiDescription(fProject);
+		description.setRestrictions(TYPE_A, RestrictionModifiers.NO_EXTEND);
+		description.save(fLog);
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestoredRestrictions(TYPE_A));
+
+		long length = fLog.length();
+		description.setRestrictions(TYPE_C, RestrictionModifiers.NO_INSTANTIATE);
+		description.save(fLog);
+		assertTrue("The change should have been appended", fLog.length() > length);
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestoredRestrictions(TYPE_A));
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_INSTANTIATE, getRestoredRestrictions(TYPE_C));
+	}
+
+	/**
+	 * Tests that a last record that was not completely written is ignored and cut off, so that
+	 * the records saved after it are restored
+	 *
+	 * @throws Exception
+	 */
+	public void testBrokenLastRecord() throws Exception {
+		ProjectApiDescription description = new ProjectApiDescription(fProject);
+		description.setRestrictions(TYPE_A, RestrictionModifiers.NO_EXTEND);
+		description.save(fLog);
+		description.setRestrictions(TYPE_C, RestrictionModifiers.NO_INSTANTIATE);
+		description.save(fLog);
+
+		// simulate a crash while the last record was written
+		RandomAccessFile raf = new RandomAccessFile(fLog, "rw");
+		try {
+			raf.setLength(raf.length() - 3);
+		} finally {
+			raf.close();
+		}
+		ProjectApiDescription restored = new ProjectApiDescription(fProject);
+		assertTrue("The description should have been restored", restored.restore(fLog));
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_EXTEND, restored.resolveAnnotations(TYPE_A).getRestrictions());
+
+		// records saved after the broken one must not be lost
+		restored.setRestrictions(TYPE_C, RestrictionModifiers.NO_REFERENCE);
+		restored.save(fLog);
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestoredRestrictions(TYPE_A));
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_REFERENCE, getRestoredRestrictions(TYPE_C));
+	}
+
+	/**
+	 * Tests that a log holding many records for the same packages is compacted and still restores the latest state
+	 *
+	 * @throws Exception
+	 */
+	public void testCompaction() throws Exception {
+		ProjectApiDescription description = new ProjectApiDescription(fProject);
+		description.setRestrictions(TYPE_A, RestrictionModifiers.NO_EXTEND);
+		description.save(fLog);
+		long compacted = fLog.length();
+		long longest = compacted;
+		for (int i = 0; i < 40; i++) {
+			description.setRestrictions(TYPE_A, i % 2 == 0 ? RestrictionModifiers.NO_INSTANTIATE : RestrictionModifiers.NO_EXTEND);
+			description.save(fLog);
+			longest = Math.max(longest, fLog.length());
+		}
+		assertTrue("The log should have been compacted", fLog.length() < longest);
+		assertTrue("The log should have been compacted", fLog.length() < compacted * 20);
+		assertFalse("No temporary file should be left", new File(fLog.getPath() + ".tmp").exists());
+		assertFalse("No backup file should be left", new File(fLog.getPath() + ".bak").exists());
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestoredRestrictions(TYPE_A));
+	}
+
+	/**
+	 * Tests that a log moved to its backup by a compaction that did not complete is restored
+	 *
+	 * @throws Exception
+	 */
+	public void testInterruptedCompaction() throws Exception {
+		ProjectApiDescription description = new ProjectApiDescription(fProject);
+		description.setRestrictions(TYPE_A, RestrictionModifiers.NO_EXTEND);
+		description.save(fLog);
+		File backup = new File(fLog.getPath() + ".bak");
+		assertTrue("The log should have been moved", fLog.renameTo(backup));
+		assertEquals("Wrong restrictions", RestrictionModifiers.NO_EXTEND, getRestoredRestrictions(TYPE_A));
+	}
+}
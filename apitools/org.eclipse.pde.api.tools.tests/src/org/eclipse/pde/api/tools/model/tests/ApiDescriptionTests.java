@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,8 +23,10 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jdt.core.Signature;
 import org.eclipse.pde.api.tools.internal.ApiDescription;
+import org.eclipse.pde.api.tools.internal.ApiDescriptionIndex;
 import org.eclipse.pde.api.tools.internal.ApiDescriptionProcessor;
 import org.eclipse.pde.api.tools.internal.ApiDescriptionXmlCreator;
+import org.eclipse.pde.api.tools.internal.BundleApiDescription;
 import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
 import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
 import org.eclipse.pde.api.tools.internal.provisional.ApiDescriptionVisitor;
@@ -794,6 +796,54 @@ public class ApiDescriptionTests extends TestCase {
 		resolveType("a.b.c.internal.PB", VisibilityModifiers.PRIVATE, RestrictionModifiers.NO_RESTRICTIONS);
 	}
 		
+	/**
+	 * Tests that the settings loaded per package from the .api_description index are the same
+	 * as the ones read from the XML, whether the index is built or read back from disk
+	 *
+	 * @throws CoreException
+	 * @throws IOException
+	 */
+	public void testIndexedDescription() throws CoreException, IOException {
+		IPath path = TestSuiteHelper.getPluginDirectoryPath().append("test-xml");
+		File file = path.toFile();
+		assertTrue("Missing xml directory", file.exists());
+		FileInputStream stream = new FileInputStream(new File(file, IApiCoreConstants.API_DESCRIPTION_XML_NAME));
+		String xml = null;
+		try {
+			xml = new String(Util.getInputStreamAsCharArray(stream, -1, IApiCoreConstants.UTF_8));
+		}
+		finally {
+			stream.close();
+		}
+		IApiDescription expected = new ApiDescription(null);
+		ApiDescriptionProcessor.annotateApiSettings(null, expected, xml);
+		IReferenceTypeDescriptor[] types = new IReferenceTypeDescriptor[] {
+				Factory.typeDescriptor("B"),
+				Factory.typeDescriptor("a.b.c.A"),
+				Factory.typeDescriptor("a.b.c.spi.SpiC"),
+				Factory.typeDescriptor("a.b.c.spi.SpiE")
+		};
+		IElementDescriptor[] elements = new IElementDescriptor[] {
+				types[0], types[0].getMethod("m1", "()V"),
+				types[1], types[1].getMethod("m2", "()V"),
+				types[2], types[2].getField("f4"), types[2].getMethod("m4", "()V"),
+				types[3]
+		};
+		for (int round = 0; round < 2; round++) {
+			BundleApiDescription description = new BundleApiDescription(null);
+			ApiDescriptionIndex index = ApiDescriptionIndex.getIndex(file);
+			assertNotNull("Should have an index", index);
+			description.setIndex(index);
+			for (int i = elements.length - 1; i >= 0; i--) {
+				IApiAnnotations annotations = description.resolveAnnotations(elements[i]);
+				IApiAnnotations expectedAnnotations = expected.resolveAnnotations(elements[i]);
+				assertNotNull("Missing annotations for " + elements[i], annotations);
+				assertEquals("Wrong visibility for " + elements[i], expectedAnnotations.getVisibility(), annotations.getVisibility());
+				assertEquals("Wrong restrictions for " + elements[i], expectedAnnotations.getRestrictions(), annotations.getRestrictions());
+			}
+		}
+	}
+
 	/**
 	 * tests that a binary bundle with no .api_description file has no API description
 	 */
@@ -241,6 +241,64 @@ public class ApiFilterStoreTests extends AbstractApiTest {
 		}
 	}
 	
+	/**
+	 * Tests that filters added and removed after the filters have been looked up are taken into account
+	 */
+	public void testFilterIndexUpdated() {
+		try {
+			IApiComponent component = getProjectApiComponent(TESTING_PLUGIN_PROJECT_NAME);
+			assertNotNull("the testing project api component must exist", component);
+			IProject project = getTestingJavaProject(TESTING_PLUGIN_PROJECT_NAME).getProject();
+			IResource resource = project.findMember(new Path("src/x/y/z/C4.java"));
+			assertNotNull("the resource src/x/y/z/C4.java must exist", resource);
+			IApiProblem problem = ApiProblemFactory.newApiProblem(resource.getProjectRelativePath().toPortableString(), "x.y.z.C4", new String[] {"x.y.z.C4"}, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, 0, RestrictionModifiers.NO_IMPLEMENT, IApiProblem.NO_FLAGS);
+			IApiFilterStore store = component.getFilterStore();
+			assertFalse("src/x/y/z/C4.java should not have a filter", store.isFiltered(problem));
+			IApiProblemFilter[] filters = new IApiProblemFilter[] {ApiProblemFactory.newProblemFilter(component.getSymbolicName(), problem, null)};
+			store.addFilters(filters);
+			assertTrue("the added filter should be found", store.isFiltered(problem));
+			store.removeFilters(filters);
+			assertFalse("the removed filter should not be found", store.isFiltered(problem));
+		}
+		catch(CoreException ce) {
+			fail(ce.getMessage());
+		}
+	}
+	
+	/**
+	 * Tests that a filter only matches problems with the same message arguments and type name
+	 */
+	public void testFilterMessageArgumentsAndTypeName() {
+		try {
+			IApiComponent component = getProjectApiComponent(TESTING_PLUGIN_PROJECT_NAME);
+			assertNotNull("the testing project api component must exist", component);
+			IProject project = getTestingJavaProject(TESTING_PLUGIN_PROJECT_NAME).getProject();
+			IResource resource = project.findMember(new Path("src/x/y/z/C4.java"));
+			assertNotNull("the resource src/x/y/z/C4.java must exist", resource);
+			String path = resource.getProjectRelativePath().toPortableString();
+			IApiProblem problem = ApiProblemFactory.newApiProblem(path, "x.y.z.C4", new String[] {"a", "b"}, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, 0, RestrictionModifiers.NO_IMPLEMENT, IApiProblem.NO_FLAGS);
+			IApiFilterStore store = component.getFilterStore();
+			IApiProblemFilter[] filters = new IApiProblemFilter[] {ApiProblemFactory.newProblemFilter(component.getSymbolicName(), problem, null)};
+			store.addFilters(filters);
+			try {
+				IApiProblem same = ApiProblemFactory.newApiProblem(path, "x.y.z.C4", new String[] {"a", "b"}, null, null, 10, 20, 30, IApiProblem.CATEGORY_USAGE, 0, RestrictionModifiers.NO_IMPLEMENT, IApiProblem.NO_FLAGS);
+				assertTrue("a problem with the same key should be filtered", store.isFiltered(same));
+				IApiProblem other = ApiProblemFactory.newApiProblem(path, "x.y.z.C4", new String[] {"a", "c"}, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, 0, RestrictionModifiers.NO_IMPLEMENT, IApiProblem.NO_FLAGS);
+				assertFalse("a problem with other message arguments should not be filtered", store.isFiltered(other));
+				other = ApiProblemFactory.newApiProblem(path, "x.y.z.C4", new String[] {"a"}, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, 0, RestrictionModifiers.NO_IMPLEMENT, IApiProblem.NO_FLAGS);
+				assertFalse("a problem with fewer message arguments should not be filtered", store.isFiltered(other));
+				other = ApiProblemFactory.newApiProblem(path, "x.y.z.C4$Inner", new String[] {"a", "b"}, null, null, -1, -1, -1, IApiProblem.CATEGORY_USAGE, 0, RestrictionModifiers.NO_IMPLEMENT, IApiProblem.NO_FLAGS);
+				assertFalse("a problem with another type name should not be filtered", store.isFiltered(other));
+			}
+			finally {
+				store.removeFilters(filters);
+			}
+		}
+		catch(CoreException ce) {
+			fail(ce.getMessage());
+		}
+	}
+	
 	/**
 	 * Tests that a filter store will not be annotated from a bundle
 	 */
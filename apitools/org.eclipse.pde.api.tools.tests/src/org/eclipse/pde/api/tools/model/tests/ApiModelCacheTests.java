@@ -32,6 +32,8 @@ public class ApiModelCacheTests extends TestCase {
 	@Override
 	protected void tearDown() throws Exception {
 		ApiModelCache.getCache().flushCaches();
+		ApiModelCache.getCache().setMaxWeight(ApiModelCache.DEFAULT_MAX_WEIGHT);
+		ApiModelCache.getCache().resetCounters();
 		super.tearDown();
 	}
 	
@@ -43,8 +45,20 @@ public class ApiModelCacheTests extends TestCase {
 	 * @throws Exception
 	 */
 	private void cacheType(String typename) throws Exception {
+		cacheType(TEST_BASELINE_ID, typename);
+	}
+	
+	/**
+	 * Creates a testing {@link IApiType} with the given type name ad adds it to the cache
+	 * using the default test component in the given baseline
+	 * 
+	 * @param baselineid
+	 * @param typename
+	 * @throws Exception
+	 */
+	private void cacheType(String baselineid, String typename) throws Exception {
 		IApiType type = TestSuiteHelper.createTestingApiType(
-				TEST_BASELINE_ID,
+				baselineid,
 				TEST_COMP_ID, 
 				typename, 
 				"()V",
@@ -161,4 +175,52 @@ public class ApiModelCacheTests extends TestCase {
 		assertTrue("The type 'a.b.c.testee1' should have been removed from the cache", ApiModelCache.getCache().removeElementInfo(element));
 		assertTrue("The cache should be empty", ApiModelCache.getCache().isEmpty());
 	}
+	
+	/**
+	 * Tests that removing a baseline only removes the types cached for that baseline
+	 * 
+	 * @throws Exception
+	 */
+	public void testRemoveBaseline() throws Exception {
+		String otherbaseline = "otherbaseline-id";
+		cacheType("a.b.c.testee1");
+		cacheType("a.b.c.testee1$inner");
+		cacheType(otherbaseline, "a.b.c.testee1");
+		assertTrue("The baseline should have been removed from the cache", 
+				ApiModelCache.getCache().removeElementInfo(TEST_BASELINE_ID, null, null, IApiElement.BASELINE));
+		assertNull("The element 'a.b.c.testee1' should not exist in the cache", 
+				ApiModelCache.getCache().getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.testee1", IApiElement.TYPE));
+		assertNull("The element 'a.b.c.testee1$inner' should not exist in the cache", 
+				ApiModelCache.getCache().getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "a.b.c.testee1$inner", IApiElement.TYPE));
+		assertNotNull("The element 'a.b.c.testee1' of the other baseline should exist in the cache", 
+				ApiModelCache.getCache().getElementInfo(otherbaseline, TEST_COMP_ID, "a.b.c.testee1", IApiElement.TYPE));
+		assertFalse("The baseline should already have been removed from the cache", 
+				ApiModelCache.getCache().removeElementInfo(TEST_BASELINE_ID, null, null, IApiElement.BASELINE));
+	}
+	
+	/**
+	 * Tests that the cache stays within its weight bound and counts hits, misses and evictions
+	 * 
+	 * @throws Exception
+	 */
+	public void testWeightBoundAndStatistics() throws Exception {
+		ApiModelCache cache = ApiModelCache.getCache();
+		cache.resetCounters();
+		cacheType("testtype1");
+		assertTrue("The cache should have a weight", cache.getWeight() > 0);
+		assertNotNull("The type 'testtype1' should have been retrieved", 
+				cache.getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "testtype1", IApiElement.TYPE));
+		assertNull("The type 'testtype2' should not have been retrieved", 
+				cache.getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "testtype2", IApiElement.TYPE));
+		assertEquals("There should have been one hit", 1, cache.getHitCount());
+		assertEquals("There should have been one miss", 1, cache.getMissCount());
+		cache.setMaxWeight(1);
+		assertTrue("The cache should be empty", cache.isEmpty());
+		assertEquals("The cache should have no weight", 0, cache.getWeight());
+		assertEquals("One type should have been evicted", 1, cache.getEvictionCount());
+		cacheType("testtype2");
+		assertNull("A type heavier than the bound should not stay cached", 
+				cache.getElementInfo(TEST_BASELINE_ID, TEST_COMP_ID, "testtype2", IApiElement.TYPE));
+		assertEquals("Two types should have been evicted", 2, cache.getEvictionCount());
+	}
 }
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.model.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.model.ApiType;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiField;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMethod;
+
+/**
+ * Tests the member tables of {@link ApiType}
+ *
+ * @since 1.0.400
+ */
+public class ApiTypeTests extends TestCase {
+
+	/**
+	 * Creates a testing type
+	 *
+	 * @return a new {@link ApiType}
+	 */
+	private ApiType createType() {
+		return (ApiType) TestSuiteHelper.createTestingApiType("testbaseline-id", "testcomp-id", "a.b.C", "La/b/C;", null, 0, null);
+	}
+
+	/**
+	 * Tests that methods are returned in declaration order and can be looked up by name and signature
+	 *
+	 * @throws Exception
+	 */
+	public void testMethods() throws Exception {
+		ApiType type = createType();
+		String[] names = new String[] {"m3", "<init>", "m1", "m2", "m1", "m0"};
+		String[] sigs = new String[] {"()V", "()V", "(I)V", "()V", "()V", "()I"};
+		for (int i = 0; i < names.length; i++) {
+			type.addMethod(names[i], sigs[i], null, 0, null);
+		}
+		IApiMethod[] methods = type.getMethods();
+		assertEquals("Wrong number of methods", names.length, methods.length);
+		for (int i = 0; i < names.length; i++) {
+			assertEquals("Methods should be in declaration order", names[i], methods[i].getName());
+			assertEquals("Methods should be in declaration order", sigs[i], methods[i].getSignature());
+			assertSame("The method should be found", methods[i], type.getMethod(names[i], sigs[i]));
+		}
+		assertNull("No method should be found", type.getMethod("m1", "(J)V"));
+		assertNull("No method should be found", type.getMethod("m4", "()V"));
+		assertNull("No method should be found", type.getMethod("m1", null));
+	}
+
+	/**
+	 * Tests that fields can be looked up by name after more are added
+	 *
+	 * @throws Exception
+	 */
+	public void testFields() throws Exception {
+		ApiType type = createType();
+		assertEquals("There should be no fields", 0, type.getFields().length);
+		assertNull("No field should be found", type.getField("f"));
+		for (int i = 9; i >= 0; i--) {
+			type.addField("f" + i, "I", null, 0, null);
+		}
+		assertNotNull("The field should be found", type.getField("f5"));
+		type.addField("g", "Ljava/lang/String;", null, 0, "value");
+		IApiField[] fields = type.getFields();
+		assertEquals("Wrong number of fields", 11, fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			assertSame("The field should be found", fields[i], type.getField(fields[i].getName()));
+		}
+		assertEquals("Wrong constant value", "value", type.getField("g").getConstantValue());
+		assertNull("No field should be found", type.getField("f10"));
+	}
+
+	/**
+	 * Tests that names and signatures are shared between types
+	 *
+	 * @throws Exception
+	 */
+	public void testSharedSymbols() throws Exception {
+		ApiType type1 = createType();
+		ApiType type2 = createType();
+		IApiMethod m1 = type1.addMethod(new String("run"), new String("()V"), null, 0, null);
+		IApiMethod m2 = type2.addMethod(new String("run"), new String("()V"), null, 0, null);
+		assertSame("Method names should be shared", m1.getName(), m2.getName());
+		assertSame("Method signatures should be shared", m1.getSignature(), m2.getSignature());
+	}
+}
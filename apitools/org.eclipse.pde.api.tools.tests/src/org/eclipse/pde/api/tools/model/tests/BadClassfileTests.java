@@ -141,6 +141,7 @@ public class BadClassfileTests extends TestCase {
 		};
 		IApiSearchReporter reporter = new IApiSearchReporter() {
 			public void reportResults(IApiElement element, IReference[] references) {}
+			public void reportElementComplete(IApiElement element) {}
 			public void reportNotSearched(IApiElement[] elements) {}
 			public void reportMetadata(IMetadata data) {}
 			public void reportCounts() {}
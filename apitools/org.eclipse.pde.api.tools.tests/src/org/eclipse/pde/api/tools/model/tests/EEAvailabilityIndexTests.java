@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.model.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.pde.api.tools.internal.builder.Reference;
+import org.eclipse.pde.api.tools.internal.model.EEAvailabilityIndex;
+import org.eclipse.pde.api.tools.internal.model.StubApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.ProfileModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMethod;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Tests that {@link EEAvailabilityIndex} answers the same as resolving references against the
+ * type structures of the stub API components of each installed execution environment
+ *
+ * @since 1.0.400
+ */
+public class EEAvailabilityIndexTests extends TestCase {
+
+	/**
+	 * References covering declared, inherited, missing and polymorphic members
+	 */
+	private static final IReference[] REFERENCES = new IReference[] {
+		Reference.typeReference(null, "java.lang.String", IReference.REF_LOCALVARIABLE),
+		Reference.typeReference(null, "java.lang.CharSequence", IReference.REF_LOCALVARIABLE),
+		Reference.typeReference(null, "java.lang.StringBuilder", IReference.REF_LOCALVARIABLE),
+		Reference.typeReference(null, "java.util.concurrent.ConcurrentHashMap", IReference.REF_INSTANTIATE),
+		Reference.typeReference(null, "java.nio.file.Path", IReference.REF_LOCALVARIABLE),
+		Reference.typeReference(null, "a.b.c.DoesNotExist", IReference.REF_LOCALVARIABLE),
+		Reference.fieldReference(null, "java.lang.System", "out", IReference.REF_GETSTATIC),
+		Reference.fieldReference(null, "java.lang.Integer", "MAX_VALUE", IReference.REF_GETSTATIC),
+		Reference.fieldReference(null, "java.util.jar.JarFile", "OPEN_READ", IReference.REF_GETSTATIC),
+		Reference.fieldReference(null, "java.lang.Integer", "SIZE", IReference.REF_GETSTATIC),
+		Reference.fieldReference(null, "java.lang.String", "noSuchField", IReference.REF_GETFIELD),
+		Reference.methodReference(null, "java.lang.String", "length", "()I", IReference.REF_VIRTUALMETHOD),
+		Reference.methodReference(null, "java.lang.String", "isEmpty", "()Z", IReference.REF_VIRTUALMETHOD),
+		Reference.methodReference(null, "java.lang.StringBuffer", "append", "(Ljava/lang/CharSequence;)Ljava/lang/StringBuffer;", IReference.REF_VIRTUALMETHOD),
+		Reference.methodReference(null, "java.util.Stack", "size", "()I", IReference.REF_VIRTUALMETHOD),
+		Reference.methodReference(null, "java.util.Stack", "hashCode", "()I", IReference.REF_SPECIALMETHOD),
+		Reference.methodReference(null, "java.util.AbstractList", "size", "()I", IReference.REF_VIRTUALMETHOD),
+		Reference.methodReference(null, "java.util.AbstractSet", "iterator", "()Ljava/util/Iterator;", IReference.REF_VIRTUALMETHOD),
+		Reference.methodReference(null, "java.util.SortedSet", "size", "()I", IReference.REF_INTERFACEMETHOD),
+		Reference.methodReference(null, "java.util.List", "isEmpty", "()Z", IReference.REF_INTERFACEMETHOD),
+		Reference.methodReference(null, "java.lang.Integer", "valueOf", "(I)Ljava/lang/Integer;", IReference.REF_STATICMETHOD),
+		Reference.methodReference(null, "java.lang.Thread", "currentThread", "()Ljava/lang/Thread;", IReference.REF_STATICMETHOD),
+		Reference.methodReference(null, "java.lang.invoke.MethodHandle", "invokeExact", "(I)V", IReference.REF_VIRTUALMETHOD),
+		Reference.methodReference(null, "java.lang.String", "noSuchMethod", "()V", IReference.REF_VIRTUALMETHOD),
+	};
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		EEAvailabilityIndex.dispose();
+		super.tearDown();
+	}
+
+	/**
+	 * Tests that type, field and method references, declared or inherited, are reported available in
+	 * the same execution environments as when they are resolved against the stub type structures
+	 *
+	 * @throws Exception
+	 */
+	public void testSameAsStubResolution() throws Exception {
+		EEAvailabilityIndex index = EEAvailabilityIndex.getDefault();
+		int[] ids = ProfileModifiers.getAllIds();
+		for (int i = 0; i < REFERENCES.length; i++) {
+			int mask = index.getAvailableEEs(REFERENCES[i]);
+			for (int j = 0; j < ids.length; j++) {
+				assertEquals("Wrong availability of " + describe(REFERENCES[i]) + " in " + ProfileModifiers.getName(ids[j]),
+						resolve(REFERENCES[i], ids[j]),
+						(mask & ids[j]) != 0);
+			}
+			assertEquals("A repeated lookup should answer the same", mask, index.getAvailableEEs(REFERENCES[i]));
+		}
+	}
+
+	/**
+	 * Tests that concurrent lookups answer the same as a single thread
+	 *
+	 * @throws Exception
+	 */
+	public void testConcurrentLookups() throws Exception {
+		EEAvailabilityIndex index = EEAvailabilityIndex.getDefault();
+		final int[] expected = new int[REFERENCES.length];
+		for (int i = 0; i < REFERENCES.length; i++) {
+			expected[i] = index.getAvailableEEs(REFERENCES[i]);
+		}
+		EEAvailabilityIndex.dispose();
+		final EEAvailabilityIndex fresh = EEAvailabilityIndex.getDefault();
+		final int[][] actual = new int[4][REFERENCES.length];
+		Thread[] threads = new Thread[actual.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int[] results = actual[i];
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < REFERENCES.length; j++) {
+						results[j] = fresh.getAvailableEEs(REFERENCES[j]);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			for (int j = 0; j < REFERENCES.length; j++) {
+				assertEquals("Wrong availability of " + describe(REFERENCES[j]), expected[j], actual[i][j]);
+			}
+		}
+	}
+
+	/**
+	 * Returns a description of the given reference for failure messages. References without an origin
+	 * member cannot be printed with {@link Reference#toString()}.
+	 *
+	 * @param reference
+	 * @return the description
+	 */
+	private String describe(IReference reference) {
+		StringBuffer buffer = new StringBuffer(reference.getReferencedTypeName());
+		if (reference.getReferencedMemberName() != null) {
+			buffer.append('#').append(reference.getReferencedMemberName());
+		}
+		if (reference.getReferenceType() == IReference.T_METHOD_REFERENCE) {
+			buffer.append(reference.getReferencedSignature());
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Resolves the given reference against the type structures of the stub component of the given
+	 * execution environment
+	 *
+	 * @param reference
+	 * @param eeValue
+	 * @return whether the reference resolves, <code>true</code> if no stubs are installed
+	 * @throws CoreException
+	 */
+	private boolean resolve(IReference reference, int eeValue) throws CoreException {
+		IApiComponent component = StubApiComponent.getStubApiComponent(eeValue);
+		if (component == null) {
+			return true;
+		}
+		IApiType type = getType(component, reference.getReferencedTypeName());
+		if (type == null) {
+			return false;
+		}
+		switch (reference.getReferenceType()) {
+			case IReference.T_TYPE_REFERENCE :
+				return true;
+			case IReference.T_FIELD_REFERENCE :
+				return resolveField(component, type, reference.getReferencedMemberName());
+			case IReference.T_METHOD_REFERENCE :
+				return resolveMethod(component, type, reference.getReferencedMemberName(), reference.getReferencedSignature(), reference.getReferenceKind());
+		}
+		return false;
+	}
+
+	private IApiType getType(IApiComponent component, String typeName) throws CoreException {
+		if (typeName == null) {
+			return null;
+		}
+		IApiTypeRoot root = Util.getClassFile(new IApiComponent[] {component}, typeName);
+		return root == null ? null : root.getStructure();
+	}
+
+	private boolean resolveField(IApiComponent component, IApiType type, String name) throws CoreException {
+		if (type.getField(name) != null) {
+			return true;
+		}
+		IApiType superclass = getType(component, type.getSuperclassName());
+		return superclass != null && resolveField(component, superclass, name);
+	}
+
+	private boolean resolveMethod(IApiComponent component, IApiType type, String name, String signature, int kind) throws CoreException {
+		IApiMethod target = type.getMethod(name, signature);
+		if (target != null) {
+			return !target.isSynthetic();
+		}
+		switch (kind) {
+			case IReference.REF_INTERFACEMETHOD :
+				return resolveInInterfaces(component, type, name, signature, kind);
+			case IReference.REF_STATICMETHOD :
+				IApiType superclass = getType(component, type.getSuperclassName());
+				return superclass != null && resolveMethod(component, superclass, name, signature, kind);
+			case IReference.REF_VIRTUALMETHOD :
+			case IReference.REF_SPECIALMETHOD :
+				target = type.getMethod(name, "([Ljava/lang/Object;)Ljava/lang/Object;");
+				if (target != null && target.isPolymorphic()) {
+					return true;
+				}
+				superclass = getType(component, type.getSuperclassName());
+				if (superclass != null && resolveMethod(component, superclass, name, signature, kind)) {
+					return true;
+				}
+				return Flags.isAbstract(type.getModifiers()) && resolveInInterfaces(component, type, name, signature, kind);
+		}
+		return false;
+	}
+
+	private boolean resolveInInterfaces(IApiComponent component, IApiType type, String name, String signature, int kind) throws CoreException {
+		String[] names = type.getSuperInterfaceNames();
+		if (names == null) {
+			return false;
+		}
+		for (int i = 0; i < names.length; i++) {
+			IApiType superinterface = getType(component, names[i]);
+			if (superinterface != null && resolveMethod(component, superinterface, name, signature, kind)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
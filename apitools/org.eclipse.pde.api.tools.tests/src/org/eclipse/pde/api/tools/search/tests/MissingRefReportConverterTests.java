@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.search.tests;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.IApiXmlConstants;
+import org.eclipse.pde.api.tools.internal.problems.ApiProblemFactory;
+import org.eclipse.pde.api.tools.internal.provisional.problems.IApiProblem;
+import org.eclipse.pde.api.tools.internal.search.MissingRefReportConverter;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Tests that the missing references report written with several threads is the same as
+ * the report written with a single thread
+ *
+ * @since 1.0.400
+ */
+public class MissingRefReportConverterTests extends TestCase {
+
+	private static final int[] KINDS = new int[] {
+		IApiProblem.API_USE_SCAN_TYPE_PROBLEM,
+		IApiProblem.API_USE_SCAN_METHOD_PROBLEM,
+		IApiProblem.API_USE_SCAN_FIELD_PROBLEM
+	};
+
+	private File fRoot;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fRoot = File.createTempFile("missingref", ".test");
+		fRoot.delete();
+		File xml = new File(fRoot, "xml");
+		for (int i = 0; i < 8; i++) {
+			writeReport(new File(xml, "component" + i + " (1.0." + i + ")/report.xml"), i);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		Util.delete(fRoot);
+		super.tearDown();
+	}
+
+	/**
+	 * Writes the missing references report of a component with problems of every kind
+	 *
+	 * @param file
+	 * @param component index of the component
+	 * @throws Exception
+	 */
+	private void writeReport(File file, int component) throws Exception {
+		StringBuffer buffer = new StringBuffer("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buffer.append('<').append(IApiXmlConstants.ELEMENT_API_TOOL_REPORT).append(">\n");
+		buffer.append('<').append(IApiXmlConstants.ELEMENT_API_PROBLEMS).append(">\n");
+		for (int i = 0; i < KINDS.length; i++) {
+			for (int j = 0; j <= component; j++) {
+				int id = ApiProblemFactory.createProblemId(IApiProblem.CATEGORY_API_USE_SCAN_PROBLEM, 0, KINDS[i], 0);
+				String type = "p" + component + ".T" + (component + j) % 3;
+				buffer.append('<').append(IApiXmlConstants.ELEMENT_API_PROBLEM);
+				buffer.append(' ').append(IApiXmlConstants.ATTR_TYPE_NAME).append("=\"").append(type).append('"');
+				buffer.append(' ').append(IApiXmlConstants.ATTR_ID).append("=\"").append(id).append('"');
+				buffer.append(' ').append(IApiXmlConstants.ATTR_LINE_NUMBER).append("=\"").append(j + 1).append('"');
+				buffer.append(' ').append(IApiXmlConstants.ATTR_CHAR_START).append("=\"-1\"");
+				buffer.append(' ').append(IApiXmlConstants.ATTR_CHAR_END).append("=\"-1\">\n");
+				buffer.append('<').append(IApiXmlConstants.ELEMENT_PROBLEM_MESSAGE_ARGUMENTS).append(">\n");
+				String[] arguments = new String[] {type, "member" + j, "consumer" + j};
+				for (int k = 0; k < arguments.length; k++) {
+					buffer.append('<').append(IApiXmlConstants.ELEMENT_PROBLEM_MESSAGE_ARGUMENT).append(' ');
+					buffer.append(IApiXmlConstants.ATTR_VALUE).append("=\"").append(arguments[k]).append("\"/>\n");
+				}
+				buffer.append("</").append(IApiXmlConstants.ELEMENT_PROBLEM_MESSAGE_ARGUMENTS).append(">\n");
+				buffer.append("</").append(IApiXmlConstants.ELEMENT_API_PROBLEM).append(">\n");
+			}
+		}
+		buffer.append("</").append(IApiXmlConstants.ELEMENT_API_PROBLEMS).append(">\n");
+		buffer.append("</").append(IApiXmlConstants.ELEMENT_API_TOOL_REPORT).append(">\n");
+		file.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(buffer.toString().getBytes(IApiCoreConstants.UTF_8));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Converts the scan with the given number of threads
+	 *
+	 * @param threads
+	 * @return the HTML directory
+	 * @throws Exception
+	 */
+	private File convert(int threads) throws Exception {
+		File html = new File(fRoot, "html" + threads);
+		MissingRefReportConverter converter = new MissingRefReportConverter(html.getAbsolutePath(), new File(fRoot, "xml").getAbsolutePath());
+		converter.setThreads(threads);
+		converter.convert(null, new NullProgressMonitor());
+		return html;
+	}
+
+	private void collectFiles(File directory, String path, List files) {
+		File[] children = directory.listFiles();
+		for (int i = 0; i < children.length; i++) {
+			String name = path + children[i].getName();
+			if (children[i].isDirectory()) {
+				collectFiles(children[i], name + '/', files);
+			}
+			else {
+				files.add(name);
+			}
+		}
+	}
+
+	private byte[] getContents(File file) throws Exception {
+		InputStream stream = new FileInputStream(file);
+		try {
+			return Util.getInputStreamAsByteArray(stream, -1);
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Tests that the same pages are written with the same contents whatever the number of threads
+	 *
+	 * @throws Exception
+	 */
+	public void testParallelConversion() throws Exception {
+		File serial = convert(1);
+		File parallel = convert(4);
+		List expected = new ArrayList();
+		collectFiles(serial, "", expected);
+		Collections.sort(expected);
+		List actual = new ArrayList();
+		collectFiles(parallel, "", actual);
+		Collections.sort(actual);
+		assertTrue("the index and the pages of the components should have been written", expected.size() > 8);
+		assertEquals("the same pages should have been written", expected, actual);
+		for (int i = 0; i < expected.size(); i++) {
+			String name = (String) expected.get(i);
+			assertTrue("different contents for " + name, Arrays.equals(getContents(new File(serial, name)), getContents(new File(parallel, name))));
+		}
+	}
+}
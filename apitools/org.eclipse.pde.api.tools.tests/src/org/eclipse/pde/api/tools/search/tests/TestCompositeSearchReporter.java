@@ -86,6 +86,15 @@ public class TestCompositeSearchReporter implements IApiSearchReporter {
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter#reportElementComplete(org.eclipse.pde.api.tools.internal.provisional.model.IApiElement)
+	 */
+	public void reportElementComplete(IApiElement element) {
+		for (int i = 0; i < this.reporters.size(); i++) {
+			this.reporters.get(i).reportElementComplete(element);
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter#reportMetadata(org.eclipse.pde.api.tools.internal.provisional.search.IMetadata)
 	 */
@@ -173,6 +173,12 @@ public class TestReporter implements IApiSearchReporter {
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter#reportElementComplete(org.eclipse.pde.api.tools.internal.provisional.model.IApiElement)
+	 */
+	public void reportElementComplete(IApiElement element) {
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter#reportMetadata(org.eclipse.pde.api.tools.internal.provisional.search.IMetadata)
 	 */
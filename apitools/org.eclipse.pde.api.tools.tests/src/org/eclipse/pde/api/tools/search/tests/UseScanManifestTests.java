@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.search.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.search.UseScanManifest;
+import org.eclipse.pde.api.tools.internal.util.Util;
+import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
+
+/**
+ * Tests that an incremental API use scan only searches again the components whose results
+ * in the previous scan are stale
+ *
+ * @since 1.0.400
+ */
+public class UseScanManifestTests extends TestCase {
+
+	private static final String[] NAMES = new String[] {"a", "b", "c"};
+
+	private File fRoot;
+	private File fReport;
+	private IApiBaseline fBaseline;
+	private IApiComponent[] fComponents;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fRoot = File.createTempFile("usescan", ".test");
+		fRoot.delete();
+		for (int i = 0; i < NAMES.length; i++) {
+			File bundle = new File(fRoot, NAMES[i]);
+			// a optionally imports a package nobody exports yet
+			writeManifest(NAMES[i], i == 0 ? "Import-Package: p;resolution:=optional\n" : "");
+			write(new File(bundle, "data.txt"), NAMES[i]);
+		}
+		loadBaseline();
+		// a references b in the previous scan
+		fReport = new File(fRoot, "report");
+		write(new File(fReport, "b (1.0.0)/a (1.0.0)/type_references.xml"), "<references/>");
+		UseScanManifest previous = newManifest();
+		for (int i = 0; i < NAMES.length; i++) {
+			previous.setScanned(NAMES[i], new int[] {1, 0, 0});
+		}
+		previous.write(new File(fReport, UseScanManifest.MANIFEST_FILE_NAME));
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		fBaseline.dispose();
+		Util.delete(fRoot);
+		super.tearDown();
+	}
+
+	private void write(File file, String contents) throws Exception {
+		file.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(contents.getBytes());
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the manifest of the given bundle with the given additional headers
+	 *
+	 * @param name
+	 * @param headers manifest headers, each ending with a new line
+	 * @throws Exception
+	 */
+	private void writeManifest(String name, String headers) throws Exception {
+		write(new File(fRoot, name + '/' + JarFile.MANIFEST_NAME), "Manifest-Version: 1.0\nBundle-ManifestVersion: 2\nBundle-SymbolicName: "
+				+ name + "\nBundle-Version: 1.0.0\n" + headers);
+	}
+
+	/**
+	 * Creates the baseline of the bundles, disposing the previous one if any
+	 *
+	 * @throws Exception
+	 */
+	private void loadBaseline() throws Exception {
+		if (fBaseline != null) {
+			fBaseline.dispose();
+		}
+		fBaseline = TestSuiteHelper.newApiBaseline("usescan", TestSuiteHelper.getEEDescriptionFile());
+		fComponents = new IApiComponent[NAMES.length];
+		for (int i = 0; i < NAMES.length; i++) {
+			fComponents[i] = ApiModelFactory.newApiComponent(fBaseline, new File(fRoot, NAMES[i]).getAbsolutePath());
+		}
+		fBaseline.addApiComponents(fComponents);
+	}
+
+	private UseScanManifest newManifest() {
+		UseScanManifest manifest = new UseScanManifest("settings");
+		for (int i = 0; i < fComponents.length; i++) {
+			manifest.addComponent(fComponents[i]);
+		}
+		return manifest;
+	}
+
+	/**
+	 * Returns the components of the scan of the given components whose results in the previous scan are stale
+	 *
+	 * @param ids the components references are searched to
+	 * @param scope the components to search
+	 * @return the stale components
+	 * @throws Exception
+	 */
+	private Set getStaleComponents(String[] ids, String[] scope) throws Exception {
+		UseScanManifest previous = UseScanManifest.read(new File(fReport, UseScanManifest.MANIFEST_FILE_NAME));
+		assertNotNull("the manifest should have been read", previous);
+		return newManifest().getStaleComponents(previous, fReport.getAbsolutePath(), new HashSet(Arrays.asList(ids)), new HashSet(Arrays.asList(scope)));
+	}
+
+	/**
+	 * Changes the contents of the given component
+	 *
+	 * @param name
+	 * @throws Exception
+	 */
+	private void change(String name) throws Exception {
+		write(new File(fRoot, name + "/data.txt"), "changed " + name);
+	}
+
+	private Set set(String[] names) {
+		return new HashSet(Arrays.asList(names));
+	}
+
+	/**
+	 * Tests that nothing is searched again when no component changed
+	 *
+	 * @throws Exception
+	 */
+	public void testUnchanged() throws Exception {
+		assertEquals("no component should be searched again", set(new String[0]), getStaleComponents(new String[] {"b"}, NAMES));
+	}
+
+	/**
+	 * Tests that only a changed component that references nothing is searched again
+	 *
+	 * @throws Exception
+	 */
+	public void testChangedComponent() throws Exception {
+		change("c");
+		assertEquals("only the changed component should be searched again", set(new String[] {"c"}), getStaleComponents(new String[] {"b"}, NAMES));
+		change("a");
+		assertEquals("only the changed components should be searched again", set(new String[] {"a", "c"}), getStaleComponents(new String[] {"b"}, NAMES));
+	}
+
+	/**
+	 * Tests that the components that referenced a changed component are searched again
+	 *
+	 * @throws Exception
+	 */
+	public void testChangedReferencedComponent() throws Exception {
+		change("b");
+		assertEquals("the referencing component should be searched again", set(new String[] {"a", "b"}), getStaleComponents(new String[] {"b"}, NAMES));
+	}
+
+	/**
+	 * Tests that the results of a component no longer searched are stale
+	 *
+	 * @throws Exception
+	 */
+	public void testComponentNoLongerSearched() throws Exception {
+		assertEquals("the results of c should be stale", set(new String[] {"c"}), getStaleComponents(new String[] {"b"}, new String[] {"a", "b"}));
+	}
+
+	/**
+	 * Tests that an added component is searched, and that nothing is reused if references are searched to it
+	 *
+	 * @throws Exception
+	 */
+	public void testAddedComponent() throws Exception {
+		UseScanManifest previous = new UseScanManifest("settings");
+		previous.addComponent(fComponents[0]);
+		previous.addComponent(fComponents[1]);
+		previous.setScanned("a", null);
+		previous.setScanned("b", null);
+		previous.write(new File(fReport, UseScanManifest.MANIFEST_FILE_NAME));
+		assertEquals("only the added component should be searched", set(new String[] {"c"}), getStaleComponents(new String[] {"b"}, NAMES));
+		assertNull("the previous scan should not be reused", getStaleComponents(new String[] {"b", "c"}, NAMES));
+	}
+
+	/**
+	 * Tests that a component that did not reference a changed component is searched again when the
+	 * changed component now exports a package the component could not resolve in the previous scan
+	 *
+	 * @throws Exception
+	 */
+	public void testChangedExporter() throws Exception {
+		writeManifest("c", "Export-Package: p\n");
+		loadBaseline();
+		assertEquals("the component importing the package should be searched again", set(new String[] {"a", "c"}), getStaleComponents(new String[] {"b", "c"}, NAMES));
+	}
+
+	/**
+	 * Tests that a component is searched again when a component it resolves packages from changed,
+	 * even if only the types of the package changed
+	 *
+	 * @throws Exception
+	 */
+	public void testChangedProvider() throws Exception {
+		writeManifest("c", "Export-Package: p\n");
+		loadBaseline();
+		UseScanManifest previous = newManifest();
+		for (int i = 0; i < NAMES.length; i++) {
+			previous.setScanned(NAMES[i], new int[] {1, 0, 0});
+		}
+		previous.write(new File(fReport, UseScanManifest.MANIFEST_FILE_NAME));
+		assertEquals("no component should be searched again", set(new String[0]), getStaleComponents(new String[] {"b", "c"}, NAMES));
+		change("c");
+		assertEquals("the component importing from the changed component should be searched again", set(new String[] {"a", "c"}), getStaleComponents(new String[] {"b", "c"}, NAMES));
+	}
+}
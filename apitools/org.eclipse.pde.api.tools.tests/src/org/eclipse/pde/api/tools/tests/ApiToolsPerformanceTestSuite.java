@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 IBM Corporation and others.
+ * Copyright (c) 2008, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.pde.api.tools.tests;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.eclipse.pde.api.tools.builder.tests.performance.HotPathPerfTests;
 import org.eclipse.pde.api.tools.builder.tests.performance.PerformanceTest;
 
 
@@ -35,5 +36,6 @@ public class ApiToolsPerformanceTestSuite extends TestSuite {
 	 */
 	public ApiToolsPerformanceTestSuite() {
 		addTest(PerformanceTest.suite());
+		addTest(HotPathPerfTests.suite());
 	}
 }
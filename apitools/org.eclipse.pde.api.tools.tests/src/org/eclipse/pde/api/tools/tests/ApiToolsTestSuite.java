@@ -14,26 +14,38 @@ package org.eclipse.pde.api.tools.tests;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.eclipse.pde.api.tools.builder.tests.ApiFingerprintTests;
+import org.eclipse.pde.api.tools.builder.tests.MarkerSinkTests;
 import org.eclipse.pde.api.tools.builder.tests.OSGiLessAnalysisTests;
 import org.eclipse.pde.api.tools.comparator.tests.AllDeltaTests;
+import org.eclipse.pde.api.tools.model.tests.ApiBaselineSnapshotTests;
 import org.eclipse.pde.api.tools.model.tests.ApiBaselineTests;
+import org.eclipse.pde.api.tools.model.tests.ApiDescriptionIndexTests;
+import org.eclipse.pde.api.tools.model.tests.ApiDescriptionLogTests;
 import org.eclipse.pde.api.tools.model.tests.ApiDescriptionTests;
 import org.eclipse.pde.api.tools.model.tests.ApiModelCacheTests;
 import org.eclipse.pde.api.tools.model.tests.ApiTypeContainerTests;
+import org.eclipse.pde.api.tools.model.tests.ApiTypeTests;
 import org.eclipse.pde.api.tools.model.tests.BadClassfileTests;
 import org.eclipse.pde.api.tools.model.tests.CRCTests;
 import org.eclipse.pde.api.tools.model.tests.ClassFileScannerTests;
 import org.eclipse.pde.api.tools.model.tests.ComponentManifestTests;
+import org.eclipse.pde.api.tools.model.tests.EEAvailabilityIndexTests;
 import org.eclipse.pde.api.tools.model.tests.ElementDescriptorTests;
 import org.eclipse.pde.api.tools.model.tests.TagScannerTests;
 import org.eclipse.pde.api.tools.problems.tests.ApiFilterTests;
 import org.eclipse.pde.api.tools.problems.tests.ApiProblemFactoryTests;
 import org.eclipse.pde.api.tools.problems.tests.ApiProblemTests;
 import org.eclipse.pde.api.tools.reference.tests.SearchScopeTests;
+import org.eclipse.pde.api.tools.search.tests.MissingRefReportConverterTests;
 import org.eclipse.pde.api.tools.search.tests.SearchEngineTests;
 import org.eclipse.pde.api.tools.search.tests.SkippedComponentTests;
+import org.eclipse.pde.api.tools.search.tests.UseScanManifestTests;
 import org.eclipse.pde.api.tools.search.tests.UseSearchTests;
+import org.eclipse.pde.api.tools.util.tests.ArchiveManagerTests;
+import org.eclipse.pde.api.tools.util.tests.ExtractionCacheTests;
 import org.eclipse.pde.api.tools.util.tests.HeadlessApiBaselineManagerTests;
+import org.eclipse.pde.api.tools.util.tests.ParallelExecutorTests;
 import org.eclipse.pde.api.tools.util.tests.SignaturesTests;
 import org.eclipse.pde.api.tools.util.tests.TarEntryTests;
 import org.eclipse.pde.api.tools.util.tests.TarExceptionTests;
@@ -70,6 +82,7 @@ public class ApiToolsTestSuite extends TestSuite {
 		addTest(new TestSuite(SignaturesTests.class));
 		addTest(new TestSuite(ApiBaselineTests.class));
 		addTest(new TestSuite(ApiTypeContainerTests.class));
+		addTest(new TestSuite(ApiTypeTests.class));
 		addTest(new TestSuite(ClassFileScannerTests.class));
 		addTest(new TestSuite(ElementDescriptorTests.class));
 		addTest(new TestSuite(SearchScopeTests.class));
@@ -82,6 +95,17 @@ public class ApiToolsTestSuite extends TestSuite {
 		addTest(new TestSuite(ApiModelCacheTests.class));
 		addTest(new TestSuite(BadClassfileTests.class));
 		addTest(new TestSuite(CRCTests.class));
+		addTest(new TestSuite(ArchiveManagerTests.class));
+		addTest(new TestSuite(ApiBaselineSnapshotTests.class));
+		addTest(new TestSuite(EEAvailabilityIndexTests.class));
+		addTest(new TestSuite(MarkerSinkTests.class));
+		addTest(new TestSuite(ApiDescriptionLogTests.class));
+		addTest(new TestSuite(ExtractionCacheTests.class));
+		addTest(new TestSuite(ApiDescriptionIndexTests.class));
+		addTest(new TestSuite(ApiFingerprintTests.class));
+		addTest(new TestSuite(UseScanManifestTests.class));
+		addTest(new TestSuite(MissingRefReportConverterTests.class));
+		addTest(new TestSuite(ParallelExecutorTests.class));
 		addTest(new AllDeltaTests());
 	}	
 }
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.util.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.pde.api.tools.internal.model.ArchiveApiTypeContainer;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.ArchiveManager;
+import org.eclipse.pde.api.tools.model.tests.TestSuiteHelper;
+
+/**
+ * Tests the {@link ArchiveManager}
+ *
+ * @since 1.0.400
+ */
+public class ArchiveManagerTests extends TestCase {
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		ArchiveManager.getManager().closeAll();
+		ArchiveManager.getManager().resetCounters();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		ArchiveManager.getManager().closeAll();
+		ArchiveManager.getManager().setMaxSize(ArchiveManager.DEFAULT_MAX_SIZE);
+		super.tearDown();
+	}
+
+	/**
+	 * Creates a temporary archive with a single entry
+	 * @param name
+	 * @return the path to the new archive
+	 * @throws Exception
+	 */
+	private String createArchive(String name) throws Exception {
+		File file = File.createTempFile(name, ".jar");
+		file.deleteOnExit();
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			out.putNextEntry(new ZipEntry("a/A.class"));
+			out.write(new byte[] {1, 2, 3});
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+		return file.getAbsolutePath();
+	}
+
+	/**
+	 * Tests that an archive is only opened once while it is pooled
+	 *
+	 * @throws Exception
+	 */
+	public void testReuseOpenArchive() throws Exception {
+		String path = createArchive("reuse");
+		ArchiveManager manager = ArchiveManager.getManager();
+		ZipFile first = manager.acquire(path);
+		manager.release(first);
+		ZipFile second = manager.acquire(path);
+		manager.release(second);
+		assertSame("The same archive should have been returned", first, second);
+		assertEquals("The archive should have been opened once", 1, manager.getOpenCount());
+		assertEquals("There should have been one hit", 1, manager.getHitCount());
+	}
+
+	/**
+	 * Tests that the least recently used archive is evicted and closed
+	 *
+	 * @throws Exception
+	 */
+	public void testEviction() throws Exception {
+		ArchiveManager manager = ArchiveManager.getManager();
+		manager.setMaxSize(2);
+		String one = createArchive("one");
+		String two = createArchive("two");
+		String three = createArchive("three");
+		manager.release(manager.acquire(one));
+		manager.release(manager.acquire(two));
+		manager.release(manager.acquire(one));
+		manager.release(manager.acquire(three));
+		assertEquals("The pool should be bounded", 2, manager.getSize());
+		assertEquals("One archive should have been evicted", 1, manager.getEvictionCount());
+		manager.release(manager.acquire(one));
+		assertEquals("The most recently used archive should not have been evicted", 3, manager.getOpenCount());
+		manager.release(manager.acquire(two));
+		assertEquals("The least recently used archive should have been evicted", 4, manager.getOpenCount());
+	}
+
+	/**
+	 * Tests that an archive closed while in use stays readable until it is released
+	 *
+	 * @throws Exception
+	 */
+	public void testCloseWhileInUse() throws Exception {
+		ArchiveManager manager = ArchiveManager.getManager();
+		String path = createArchive("inuse");
+		ZipFile zip = manager.acquire(path);
+		manager.close(path);
+		assertEquals("The archive should have been removed from the pool", 0, manager.getSize());
+		assertNotNull("The archive should still be readable", zip.getEntry("a/A.class"));
+		manager.release(zip);
+		try {
+			zip.getEntry("a/A.class");
+			fail("The archive should have been closed when released");
+		}
+		catch(IllegalStateException e) {
+			//expected
+		}
+	}
+
+	/**
+	 * Tests that reading many class files from an archive container reuses the same handle
+	 *
+	 * @throws Exception
+	 */
+	public void testArchiveContainerReads() throws Exception {
+		IPath path = TestSuiteHelper.getPluginDirectoryPath().append("test-jars").append("sample.jar");
+		ArchiveApiTypeContainer container = new ArchiveApiTypeContainer(null, path.toOSString());
+		String[] names = container.getPackageNames();
+		assertTrue("There should be packages in the sample archive", names.length > 0);
+		IApiTypeRoot root = container.findTypeRoot("a.b.c.ClassC");
+		assertNotNull("ClassC should exist in the sample archive", root);
+		for (int i = 0; i < 10; i++) {
+			assertNotNull("The class file should be readable", root.getContents());
+		}
+		assertEquals("The archive should have been opened once", 1, ArchiveManager.getManager().getOpenCount());
+		container.close();
+		assertEquals("Closing the container should remove it from the pool", 0, ArchiveManager.getManager().getSize());
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.util.tests;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.pde.api.tools.internal.util.ExtractionCache;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Tests the {@link ExtractionCache}
+ *
+ * @since 1.0.400
+ */
+public class ExtractionCacheTests extends TestCase {
+
+	private File fRoot;
+	private File fArchive;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fRoot = File.createTempFile("extraction", ".cache");
+		fRoot.delete();
+		fArchive = File.createTempFile("extraction", ".jar");
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(fArchive));
+		try {
+			for (int i = 0; i < 4; i++) {
+				out.putNextEntry(new ZipEntry("lib" + i + ".jar"));
+				out.write(new byte[] {1, 2, 3, (byte) i});
+				out.closeEntry();
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		fArchive.delete();
+		Util.delete(fRoot);
+		super.tearDown();
+	}
+
+	/**
+	 * Extracts the given entry of the testing archive
+	 *
+	 * @param cache
+	 * @param name
+	 * @return the folder the entry was extracted to
+	 * @throws Exception
+	 */
+	private File extract(ExtractionCache cache, String name) throws Exception {
+		ZipFile zip = new ZipFile(fArchive);
+		try {
+			return cache.getExtractedEntry(zip, zip.getEntry(name));
+		}
+		finally {
+			zip.close();
+		}
+	}
+
+	/**
+	 * Tests that the same entry is extracted once, and that its extracted contents are found
+	 *
+	 * @throws Exception
+	 */
+	public void testExtractOnce() throws Exception {
+		ExtractionCache cache = new ExtractionCache(fRoot, Long.MAX_VALUE);
+		File folder = extract(cache, "lib0.jar");
+		File file = new File(folder, "lib0.jar");
+		assertTrue("the entry should have been extracted", file.isFile());
+		assertEquals("wrong extracted size", 4, file.length());
+		long stamp = file.lastModified() - 10000;
+		file.setLastModified(stamp);
+		assertEquals("the extracted entry should have been reused", folder, extract(cache, "lib0.jar"));
+		assertEquals("the entry should not have been extracted again", stamp, file.lastModified());
+		assertTrue("the cache should contain the extracted entry", cache.contains(file));
+		cache.dispose();
+	}
+
+	/**
+	 * Tests that the same entry is extracted again from another archive or from a modified archive,
+	 * entries with the same names, sizes and CRCs can still have different contents
+	 *
+	 * @throws Exception
+	 */
+	public void testArchiveIdentity() throws Exception {
+		ExtractionCache cache = new ExtractionCache(fRoot, Long.MAX_VALUE);
+		File folder = extract(cache, "lib0.jar");
+		File copy = File.createTempFile("extraction", ".jar");
+		try {
+			FileInputStream in = new FileInputStream(fArchive);
+			FileOutputStream out = new FileOutputStream(copy);
+			try {
+				out.write(Util.getInputStreamAsByteArray(in, -1));
+			}
+			finally {
+				in.close();
+				out.close();
+			}
+			ZipFile zip = new ZipFile(copy);
+			try {
+				assertFalse("the entry of another archive should have been extracted again", folder.equals(cache.getExtractedEntry(zip, zip.getEntry("lib0.jar"))));
+			}
+			finally {
+				zip.close();
+			}
+			fArchive.setLastModified(fArchive.lastModified() - 10000);
+			assertFalse("the entry of a modified archive should have been extracted again", folder.equals(extract(cache, "lib0.jar")));
+		}
+		finally {
+			copy.delete();
+			cache.dispose();
+		}
+	}
+
+	/**
+	 * Tests that threads extracting the same entries concurrently all get the same folders
+	 *
+	 * @throws Exception
+	 */
+	public void testConcurrentExtraction() throws Exception {
+		final ExtractionCache cache = new ExtractionCache(fRoot, Long.MAX_VALUE);
+		final File[][] folders = new File[8][4];
+		final Throwable[] errors = new Throwable[folders.length];
+		Thread[] threads = new Thread[folders.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < 4; j++) {
+							folders[index][j] = extract(cache, "lib" + ((index + j) % 4) + ".jar");
+						}
+					}
+					catch (Throwable t) {
+						errors[index] = t;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			assertNull("the extraction should not have failed", errors[i]);
+		}
+		for (int i = 0; i < threads.length; i++) {
+			for (int j = 0; j < 4; j++) {
+				int entry = (i + j) % 4;
+				assertEquals("wrong folder of lib" + entry, folders[0][entry], folders[i][j]);
+				assertTrue("the entry should have been extracted", new File(folders[i][j], "lib" + entry + ".jar").isFile());
+			}
+		}
+		cache.dispose();
+		String[] names = fRoot.list();
+		for (int i = 0; i < names.length; i++) {
+			assertFalse("no staging folder should be left: " + names[i], names[i].endsWith(".staging"));
+		}
+	}
+
+	/**
+	 * Tests that entries no longer used are evicted once the cache is too big, but not the entries in use
+	 * by another cache sharing the folder, as another process would
+	 *
+	 * @throws Exception
+	 */
+	public void testEviction() throws Exception {
+		ExtractionCache other = new ExtractionCache(fRoot, Long.MAX_VALUE);
+		File used = extract(other, "lib0.jar");
+		// an entry left by a previous run
+		File unused = new File(fRoot, "0123456789abcdef");
+		assertTrue("the entry should have been created", unused.mkdirs());
+		File marker = new File(fRoot, unused.getName() + ".entry");
+		FileOutputStream out = new FileOutputStream(marker);
+		try {
+			out.write("4".getBytes());
+		}
+		finally {
+			out.close();
+		}
+		long old = System.currentTimeMillis() - 2 * 60 * 60 * 1000;
+		marker.setLastModified(old);
+		new File(fRoot, used.getName() + ".entry").setLastModified(old);
+
+		ExtractionCache cache = new ExtractionCache(fRoot, 1);
+		try {
+			File folder = extract(cache, "lib1.jar");
+			assertTrue("the entry in use should have been kept", folder.isDirectory());
+			assertTrue("the entry used by the other cache should have been kept", new File(used, "lib0.jar").isFile());
+			assertFalse("the unused entry should have been evicted", unused.exists());
+			assertFalse("the unused entry should have been evicted", marker.exists());
+		}
+		finally {
+			cache.dispose();
+			other.dispose();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.util.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
+
+/**
+ * Tests the {@link ParallelExecutor}
+ *
+ * @since 1.0.400
+ */
+public class ParallelExecutorTests extends TestCase {
+
+	/**
+	 * Monitor recording the total work begun and the work reported
+	 */
+	static class RecordingMonitor extends NullProgressMonitor {
+		int total = 0;
+		double worked = 0;
+
+		@Override
+		public void beginTask(String name, int totalWork) {
+			total = totalWork;
+		}
+
+		@Override
+		public void internalWorked(double work) {
+			worked += work;
+		}
+
+		@Override
+		public void worked(int work) {
+			internalWorked(work);
+		}
+	}
+
+	/**
+	 * Runs ten units of work on the given number of threads, handing the executor a child
+	 * monitor no task has been started on, and checks all the work of the parent is reported
+	 *
+	 * @param threads
+	 * @throws Exception
+	 */
+	private void checkProgress(int threads) throws Exception {
+		RecordingMonitor monitor = new RecordingMonitor();
+		SubMonitor localmonitor = SubMonitor.convert(monitor, 1);
+		final boolean[] ran = new boolean[10];
+		ParallelExecutor.run(ran.length, threads, new ParallelExecutor.Task() {
+			@Override
+			public void run(int index) {
+				ran[index] = true;
+			}
+		}, localmonitor.newChild(1));
+		for (int i = 0; i < ran.length; i++) {
+			assertTrue("Unit " + i + " did not run", ran[i]);
+		}
+		assertTrue("Monitor was not begun", monitor.total > 0);
+		assertEquals("Wrong amount of work reported", monitor.total, monitor.worked, 0.01);
+	}
+
+	/**
+	 * Tests progress is reported on an unconverted child monitor when running on the calling thread
+	 *
+	 * @throws Exception
+	 */
+	public void testProgressSerial() throws Exception {
+		checkProgress(1);
+	}
+
+	/**
+	 * Tests progress is reported on an unconverted child monitor when running on worker threads
+	 *
+	 * @throws Exception
+	 */
+	public void testProgressParallel() throws Exception {
+		checkProgress(4);
+	}
+}
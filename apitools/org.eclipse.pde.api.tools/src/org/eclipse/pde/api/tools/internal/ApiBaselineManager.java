@@ -43,6 +43,7 @@ import org.eclipse.core.runtime.preferences.IPreferencesService;
 import org.eclipse.core.runtime.preferences.IScopeContext;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.pde.api.tools.internal.model.ApiBaseline;
+import org.eclipse.pde.api.tools.internal.model.ApiBaselineSnapshot;
 import org.eclipse.pde.api.tools.internal.model.ApiModelCache;
 import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
 import org.eclipse.pde.api.tools.internal.model.StubApiComponent;
@@ -101,6 +102,16 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 	 */
 	private static final String BASELINE_FILE_EXTENSION = ".profile"; //$NON-NLS-1$
 	
+	/**
+	 * The file extension for the binary snapshot of a baseline, stored next to its 
+	 * persisted XML description.
+	 * <br><br>
+	 * Value is: <code>.snapshot</code>
+	 * 
+	 * @see ApiBaselineSnapshot
+	 */
+	private static final String SNAPSHOT_FILE_EXTENSION = ".snapshot"; //$NON-NLS-1$
+	
 	/**
 	 * The main cache for the manager.
 	 * The form of the cache is: 
@@ -211,6 +222,10 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 				if(file.exists()) {
 					success &= file.delete();
 				}
+				file = savelocation.append(name+SNAPSHOT_FILE_EXTENSION).toFile();
+				if(file.exists()) {
+					success &= file.delete();
+				}
 				fNeedsSaving = true;
 				
 				//flush the model cache
@@ -235,10 +250,14 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 		if(filename != null) {
 			File file = new File(filename);
 			if(file.exists()) {
+				if(restoreSnapshot(baseline, file)) {
+					hasinfos.add(baseline.getName());
+					return;
+				}
 				FileInputStream inputStream = null;
 				try {
 					inputStream = new FileInputStream(file);
-					restoreBaseline(baseline, inputStream);
+					restoreBaseline(baseline, inputStream, getSnapshotFile(file));
 				} catch (IOException e) {
 					ApiPlugin.log(e);
 				} finally {
@@ -255,6 +274,50 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 		}
 	}
 	
+	/**
+	 * Returns the snapshot file for the given persisted baseline description
+	 * @param file the <code>.profile</code> file of a baseline
+	 * @return the snapshot file
+	 */
+	private File getSnapshotFile(File file) {
+		String name = file.getName();
+		return new File(file.getParentFile(), name.substring(0, name.length() - BASELINE_FILE_EXTENSION.length()) + SNAPSHOT_FILE_EXTENSION);
+	}
+	
+	/**
+	 * Restores the components of the given baseline from its binary snapshot, if there is one that is 
+	 * newer than the given baseline description and none of the recorded bundles have changed.
+	 * 
+	 * @param baseline the baseline to restore
+	 * @param file the <code>.profile</code> file of the baseline
+	 * @return <code>true</code> if the baseline was restored from its snapshot, <code>false</code> otherwise
+	 */
+	private boolean restoreSnapshot(IApiBaseline baseline, File file) {
+		long start = System.currentTimeMillis();
+		File snapshotfile = getSnapshotFile(file);
+		if(!snapshotfile.exists() || snapshotfile.lastModified() < file.lastModified()) {
+			return false;
+		}
+		try {
+			ApiBaselineSnapshot snapshot = ApiBaselineSnapshot.read(snapshotfile);
+			if(snapshot == null || !snapshot.isUpToDate()) {
+				return false;
+			}
+			if(snapshot.getLocation() != null) {
+				baseline.setLocation(snapshot.getLocation());
+			}
+			baseline.addApiComponents(snapshot.createComponents(baseline));
+		}
+		catch(CoreException e) {
+			ApiPlugin.log(e);
+			return false;
+		}
+		if(DEBUG) {
+			System.out.println("Time to restore a baseline snapshot : " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return true;
+	}
+	
 	/**
 	 * Initializes the baseline cache lazily. Only performs work
 	 * if the current cache has not been created yet
@@ -348,10 +411,52 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 				finally {
 					fout.close();
 				}
+				File snapshotfile = getSnapshotFile(file);
+				writeSnapshot(baseline.getLocation(), baseline.getApiComponents(), snapshotfile, readSnapshot(snapshotfile));
 			}
 		}
 	}	
 	
+	/**
+	 * Reads the given snapshot file, if any, so that the manifest headers it records can be written again
+	 * without reading the manifests of the bundles that did not change
+	 * 
+	 * @param file the snapshot file
+	 * @return the snapshot or <code>null</code> if there is no valid snapshot
+	 */
+	private ApiBaselineSnapshot readSnapshot(File file) {
+		if(!file.exists()) {
+			return null;
+		}
+		try {
+			return ApiBaselineSnapshot.read(file);
+		}
+		catch(CoreException e) {
+			ApiPlugin.log(e);
+		}
+		return null;
+	}
+	
+	/**
+	 * Writes a binary snapshot of the given baseline components to the given file. Failures are logged, 
+	 * the baseline is restored from its XML description when there is no usable snapshot.
+	 * 
+	 * @param location the location of the baseline or <code>null</code>
+	 * @param components the components of the baseline
+	 * @param file the snapshot file
+	 * @param previous the previous snapshot of the baseline or <code>null</code>
+	 */
+	private void writeSnapshot(String location, IApiComponent[] components, File file, ApiBaselineSnapshot previous) {
+		try {
+			if(!ApiBaselineSnapshot.write(location, components, file, previous) && file.exists()) {
+				file.delete();
+			}
+		}
+		catch(CoreException e) {
+			ApiPlugin.log(e);
+		}
+	}
+	
 	/**
 	 * Writes out the current state of the {@link IApiBaseline} as XML
 	 * to the given output stream
@@ -414,13 +519,16 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 	}	
 	
 	/**
-	 * Restore a baseline from the given input stream (persisted baseline).
+	 * Restore a baseline from the given input stream (persisted baseline). A binary snapshot of 
+	 * the restored baseline is written to the given snapshot file so that the next restore
+	 * does not have to read the bundles.
 	 * 
 	 * @param baseline the given baseline to restore
 	 * @param stream the given input stream
+	 * @param snapshotfile the file to write a snapshot of the baseline to or <code>null</code>
 	 * @throws CoreException if unable to restore the baseline
 	 */
-	private void restoreBaseline(IApiBaseline baseline, InputStream stream) throws CoreException {
+	private void restoreBaseline(IApiBaseline baseline, InputStream stream, File snapshotfile) throws CoreException {
 		long start = System.currentTimeMillis();
 		DocumentBuilder parser = null;
 		try {
@@ -480,7 +588,12 @@ public final class ApiBaselineManager implements IApiBaselineManager, ISaveParti
 						}
 					}
 				}
-				baseline.addApiComponents((IApiComponent[]) components.toArray(new IApiComponent[components.size()]));
+				IApiComponent[] result = (IApiComponent[]) components.toArray(new IApiComponent[components.size()]);
+				if(snapshotfile != null) {
+					// write the snapshot before the components are initialized, while their complete manifests are still available
+					writeSnapshot(baseline.getLocation(), result, snapshotfile, null);
+				}
+				baseline.addApiComponents(result);
 			}
 		} catch (IOException e) {
 			abort("Error restoring API baseline", e); //$NON-NLS-1$
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -349,6 +349,16 @@ public class ApiDescription implements IApiDescription {
 			fEmbeddedVersion = Float.parseFloat(IApiXmlConstants.API_DESCRIPTION_CURRENT_VERSION);
 		}
 	}
+
+	/**
+	 * Returns the embedded version that has been read from the API description
+	 *
+	 * @return the embedded version
+	 * @since 1.0.400
+	 */
+	protected float getEmbeddedVersion() {
+		return fEmbeddedVersion;
+	}
 	
 	/**
 	 * Visits a node and its children.
@@ -550,7 +560,7 @@ public class ApiDescription implements IApiDescription {
 				buffer.append(RestrictionModifiers.getRestrictionText(restrictions));
 				System.out.println(buffer.toString());
 			}
-			modified();
+			modified(node);
 			node.restrictions = restrictions;
 			return Status.OK_STATUS;
 		}
@@ -573,7 +583,7 @@ public class ApiDescription implements IApiDescription {
 				buffer.append(VisibilityModifiers.getVisibilityName(visibility));
 				System.out.println(buffer.toString());
 			}
-			modified();
+			modified(node);
 			node.visibility = visibility;
 			return Status.OK_STATUS;
 		}
@@ -632,6 +642,25 @@ public class ApiDescription implements IApiDescription {
 	protected synchronized void modified() {
 		fModified = true;
 	}
+
+	/**
+	 * Marks the description as modified because the given node changed.
+	 * <p>
+	 * Default implementation calls {@link #modified()}. Subclasses that persist
+	 * changes incrementally should override this method as required.
+	 * </p>
+	 * @param node the node that changed
+	 */
+	protected void modified(ManifestNode node) {
+		modified();
+	}
+
+	/**
+	 * Marks the description as saved
+	 */
+	protected synchronized void saved() {
+		fModified = false;
+	}
 	
 	/**
 	 * Returns whether this description has been modified.
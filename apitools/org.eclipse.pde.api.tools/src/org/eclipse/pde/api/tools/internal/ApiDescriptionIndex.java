@@ -0,0 +1,540 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.pde.api.tools.internal.ApiDescription.ManifestNode;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IFieldDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMethodDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IPackageDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
+import org.eclipse.pde.api.tools.internal.util.ArchiveManager;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Package indexed form of a bundle's <code>.api_description</code> file.
+ * <p>
+ * The XML file is parsed once and the visibility and restrictions it describes are
+ * stored in a binary file, grouped by package, under the state location. There is one
+ * index file per bundle location, which records a stamp of the XML file it was built from:
+ * a bundle whose description did not change reuses it without parsing the XML again, and
+ * the index of a changed description replaces the previous one. Index files not used for
+ * {@link #PRUNE_AGE} are deleted. Packages are only decoded when they are applied to an
+ * API description, see {@link BundleApiDescription}.
+ * </p>
+ * <p>
+ * When not running in the framework, and no location is set with {@link #INDEX_LOCATION}, the
+ * index files are kept in a temporary folder deleted when the virtual machine exits.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public final class ApiDescriptionIndex {
+
+	/**
+	 * System property used to override the location of the index files
+	 */
+	public static final String INDEX_LOCATION = "org.eclipse.pde.api.tools.descriptionIndex"; //$NON-NLS-1$
+
+	private static final int MAGIC = 0x41504449;
+	private static final int VERSION = 2;
+	private static final String INDEX_SUFFIX = ".index"; //$NON-NLS-1$
+
+	/**
+	 * Time in milliseconds after its last use before an index file is deleted
+	 */
+	static final long PRUNE_AGE = 30L * 24 * 60 * 60 * 1000;
+
+	/**
+	 * Kinds of the records of a package
+	 */
+	private static final byte TYPE = 1;
+	private static final byte METHOD = 2;
+	private static final byte FIELD = 3;
+
+	/**
+	 * The folder holding the index files
+	 */
+	private static File fgLocation = null;
+
+	/**
+	 * Whether unused index files have been deleted in this session
+	 */
+	private static boolean fgPruned = false;
+
+	/**
+	 * The version embedded in the XML file
+	 */
+	private final float fVersion;
+
+	/**
+	 * Map of package name to the offset and length of its records in {@link #fData}
+	 */
+	private final HashMap fPackages;
+
+	/**
+	 * The encoded records of all packages
+	 */
+	private final byte[] fData;
+
+	/**
+	 * Constructor
+	 * @param version the version embedded in the XML file
+	 * @param packages map of package name to <code>int[] {offset, length}</code>
+	 * @param data the encoded records
+	 */
+	private ApiDescriptionIndex(float version, HashMap packages, byte[] data) {
+		fVersion = version;
+		fPackages = packages;
+		fData = data;
+	}
+
+	/**
+	 * Returns the index of the <code>.api_description</code> file of the bundle at the given location,
+	 * building it if needed.
+	 *
+	 * @param bundleLocation root location of the bundle, a jar or a directory
+	 * @return the index or <code>null</code> if the bundle has no <code>.api_description</code> file
+	 * @throws CoreException if the file cannot be read or parsed
+	 */
+	public static ApiDescriptionIndex getIndex(File bundleLocation) throws CoreException {
+		ZipFile jarFile = null;
+		InputStream stream = null;
+		try {
+			File indexFile = getIndexFile(bundleLocation);
+			String stamp = null;
+			String extension = new Path(bundleLocation.getName()).getFileExtension();
+			if (extension != null && extension.equals("jar") && bundleLocation.isFile()) { //$NON-NLS-1$
+				jarFile = ArchiveManager.getManager().acquire(bundleLocation.getAbsolutePath());
+				ZipEntry entry = jarFile.getEntry(IApiCoreConstants.API_DESCRIPTION_XML_NAME);
+				if (entry == null) {
+					return null;
+				}
+				stamp = entry.getName() + '\0' + entry.getSize() + '\0' + entry.getCrc();
+				ApiDescriptionIndex index = read(indexFile, stamp);
+				if (index != null) {
+					return index;
+				}
+				stream = jarFile.getInputStream(entry);
+			}
+			else {
+				File file = new File(bundleLocation, IApiCoreConstants.API_DESCRIPTION_XML_NAME);
+				if (!file.isFile()) {
+					return null;
+				}
+				stamp = file.getAbsolutePath() + '\0' + file.length() + '\0' + file.lastModified();
+				ApiDescriptionIndex index = read(indexFile, stamp);
+				if (index != null) {
+					return index;
+				}
+				stream = new FileInputStream(file);
+			}
+			char[] contents = Util.getInputStreamAsCharArray(stream, -1, IApiCoreConstants.UTF_8);
+			return build(indexFile, stamp, new String(contents));
+		}
+		catch (IOException e) {
+			abort("Unable to load .api_description file ", e); //$NON-NLS-1$
+		}
+		finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				}
+				catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+			ArchiveManager.getManager().release(jarFile);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the file holding the index of the <code>.api_description</code> file of the bundle
+	 * at the given location. The file may not exist.
+	 *
+	 * @param bundleLocation root location of the bundle, a jar or a directory
+	 * @return the index file
+	 * @throws IOException if the name of the file cannot be computed
+	 */
+	public static File getIndexFile(File bundleLocation) throws IOException {
+		return new File(getLocation(), computeKey(bundleLocation.getAbsolutePath()) + INDEX_SUFFIX);
+	}
+
+	/**
+	 * Builds the index of the given XML and writes it to the given index file
+	 *
+	 * @param file the index file
+	 * @param stamp the stamp of the XML
+	 * @param xml the contents of the <code>.api_description</code> file
+	 * @return the new index
+	 * @throws CoreException if the XML cannot be parsed
+	 */
+	private static ApiDescriptionIndex build(File file, String stamp, String xml) throws CoreException {
+		ApiDescription description = new ApiDescription(null);
+		ApiDescriptionProcessor.annotateApiSettings(null, description, xml);
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		HashMap packages = new HashMap();
+		try {
+			DataOutputStream out = new DataOutputStream(data);
+			List nodes = new ArrayList(description.fPackageMap.values());
+			Collections.sort(nodes);
+			for (Iterator iterator = nodes.iterator(); iterator.hasNext();) {
+				ManifestNode node = (ManifestNode) iterator.next();
+				List records = new ArrayList();
+				collectRecords(node, records);
+				if (records.isEmpty()) {
+					continue;
+				}
+				int offset = out.size();
+				out.writeInt(records.size());
+				for (Iterator iter = records.iterator(); iter.hasNext();) {
+					writeRecord(out, (ManifestNode) iter.next());
+				}
+				out.flush();
+				packages.put(((IPackageDescriptor) node.element).getName(), new int[] {offset, out.size() - offset});
+			}
+			out.close();
+		}
+		catch (IOException e) {
+			// cannot happen when writing to memory
+			abort("Unable to index .api_description file", e); //$NON-NLS-1$
+		}
+		ApiDescriptionIndex index = new ApiDescriptionIndex(description.getEmbeddedVersion(), packages, data.toByteArray());
+		try {
+			index.write(file, stamp);
+		}
+		catch (IOException e) {
+			// the index still serves this session
+			ApiPlugin.log(e);
+		}
+		return index;
+	}
+
+	/**
+	 * Collects the descendants of the given node, parents before their children
+	 *
+	 * @param node
+	 * @param records the list to add the nodes to
+	 */
+	private static void collectRecords(ManifestNode node, List records) {
+		List children = new ArrayList(node.children.values());
+		Collections.sort(children);
+		for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+			ManifestNode child = (ManifestNode) iterator.next();
+			records.add(child);
+			collectRecords(child, records);
+		}
+	}
+
+	/**
+	 * Writes the record of the given type, method or field node
+	 *
+	 * @param out
+	 * @param node
+	 * @throws IOException
+	 */
+	private static void writeRecord(DataOutputStream out, ManifestNode node) throws IOException {
+		IElementDescriptor element = node.element;
+		switch (element.getElementType()) {
+			case IElementDescriptor.TYPE: {
+				out.writeByte(TYPE);
+				out.writeUTF(((IReferenceTypeDescriptor) element).getQualifiedName());
+				break;
+			}
+			case IElementDescriptor.METHOD: {
+				IMethodDescriptor method = (IMethodDescriptor) element;
+				out.writeByte(METHOD);
+				out.writeUTF(method.getEnclosingType().getQualifiedName());
+				out.writeUTF(method.getName());
+				out.writeUTF(method.getSignature());
+				break;
+			}
+			case IElementDescriptor.FIELD: {
+				IFieldDescriptor field = (IFieldDescriptor) element;
+				out.writeByte(FIELD);
+				out.writeUTF(field.getEnclosingType().getQualifiedName());
+				out.writeUTF(field.getName());
+				break;
+			}
+			default: {
+				throw new IOException("Unexpected element " + element); //$NON-NLS-1$
+			}
+		}
+		out.writeInt(node.visibility);
+		out.writeInt(node.restrictions);
+	}
+
+	/**
+	 * Returns the version embedded in the <code>.api_description</code> file
+	 *
+	 * @return the embedded version
+	 */
+	public String getEmbeddedVersion() {
+		return String.valueOf(fVersion);
+	}
+
+	/**
+	 * Returns the names of the packages that have settings in this index
+	 *
+	 * @return the package names
+	 */
+	public Set getPackageNames() {
+		return Collections.unmodifiableSet(fPackages.keySet());
+	}
+
+	/**
+	 * Applies the settings of the given package to the given API description
+	 *
+	 * @param description the description to annotate
+	 * @param packageName the name of the package
+	 * @throws CoreException if the records of the package are corrupt
+	 */
+	public void annotate(IApiDescription description, String packageName) throws CoreException {
+		int[] range = (int[]) fPackages.get(packageName);
+		if (range == null) {
+			return;
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(fData, range[0], range[1]));
+		try {
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				IElementDescriptor element = null;
+				byte kind = in.readByte();
+				switch (kind) {
+					case TYPE: {
+						element = Factory.typeDescriptor(in.readUTF());
+						break;
+					}
+					case METHOD: {
+						element = Factory.methodDescriptor(in.readUTF(), in.readUTF(), in.readUTF());
+						break;
+					}
+					case FIELD: {
+						element = Factory.fieldDescriptor(in.readUTF(), in.readUTF());
+						break;
+					}
+					default: {
+						throw new IOException("Unexpected record kind " + kind); //$NON-NLS-1$
+					}
+				}
+				int visibility = in.readInt();
+				int restrictions = in.readInt();
+				if (visibility != ApiDescription.VISIBILITY_INHERITED) {
+					description.setVisibility(element, visibility);
+				}
+				description.setRestrictions(element, restrictions);
+			}
+		}
+		catch (IOException e) {
+			abort("Corrupt .api_description index", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Reads the given index file, marking it as used
+	 *
+	 * @param file the index file
+	 * @param stamp the stamp of the current XML
+	 * @return the index or <code>null</code> if it does not exist, cannot be read or was built from another XML
+	 */
+	private static ApiDescriptionIndex read(File file, String stamp) {
+		if (!file.isFile()) {
+			return null;
+		}
+		InputStream stream = null;
+		try {
+			stream = new FileInputStream(file);
+			byte[] bytes = Util.getInputStreamAsByteArray(stream, (int) file.length());
+			ByteArrayInputStream bytesIn = new ByteArrayInputStream(bytes);
+			DataInputStream in = new DataInputStream(bytesIn);
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !stamp.equals(in.readUTF())) {
+				return null;
+			}
+			float version = in.readFloat();
+			int count = in.readInt();
+			HashMap packages = new HashMap(count * 2);
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				packages.put(name, new int[] {in.readInt(), in.readInt()});
+			}
+			int start = bytes.length - bytesIn.available();
+			byte[] data = new byte[bytes.length - start];
+			System.arraycopy(bytes, start, data, 0, data.length);
+			for (Iterator iterator = packages.values().iterator(); iterator.hasNext();) {
+				int[] range = (int[]) iterator.next();
+				if (range[0] < 0 || range[1] < 0 || range[0] + range[1] > data.length) {
+					return null;
+				}
+			}
+			file.setLastModified(System.currentTimeMillis());
+			return new ApiDescriptionIndex(version, packages, data);
+		}
+		catch (IOException e) {
+			// rebuilt from the XML
+			return null;
+		}
+		finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				}
+				catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes this index to the given index file, replacing the previous index of the bundle
+	 *
+	 * @param file the index file
+	 * @param stamp the stamp of the XML the index was built from
+	 * @throws IOException
+	 */
+	private void write(File file, String stamp) throws IOException {
+		File folder = file.getParentFile();
+		folder.mkdirs();
+		prune(folder);
+		File staging = new File(folder, file.getName() + '.' + System.currentTimeMillis() + '.' + System.identityHashCode(this));
+		OutputStream stream = new FileOutputStream(staging);
+		try {
+			DataOutputStream out = new DataOutputStream(stream);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(stamp);
+			out.writeFloat(fVersion);
+			out.writeInt(fPackages.size());
+			for (Iterator iterator = fPackages.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry entry = (Map.Entry) iterator.next();
+				int[] range = (int[]) entry.getValue();
+				out.writeUTF((String) entry.getKey());
+				out.writeInt(range[0]);
+				out.writeInt(range[1]);
+			}
+			out.write(fData);
+			out.flush();
+		}
+		finally {
+			stream.close();
+		}
+		if (!staging.renameTo(file)) {
+			// the platform does not rename over existing files
+			file.delete();
+			if (!staging.renameTo(file)) {
+				// another process may have written the index in the meantime
+				staging.delete();
+			}
+		}
+	}
+
+	/**
+	 * Deletes the index files of the given folder not used for {@link #PRUNE_AGE}, once per session
+	 *
+	 * @param folder the index folder
+	 */
+	private static void prune(File folder) {
+		synchronized (ApiDescriptionIndex.class) {
+			if (fgPruned) {
+				return;
+			}
+			fgPruned = true;
+		}
+		File[] files = folder.listFiles();
+		if (files == null) {
+			return;
+		}
+		long limit = System.currentTimeMillis() - PRUNE_AGE;
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].isFile() && files[i].lastModified() < limit) {
+				files[i].delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the folder holding the index files
+	 *
+	 * @return the index folder
+	 */
+	private static synchronized File getLocation() {
+		if (fgLocation == null) {
+			String location = System.getProperty(INDEX_LOCATION);
+			if (location != null) {
+				fgLocation = new File(location);
+			}
+			else if (ApiPlugin.isRunningInFramework()) {
+				fgLocation = ApiPlugin.getDefault().getStateLocation().append(".api_description_index").toFile(); //$NON-NLS-1$
+			}
+			else {
+				try {
+					fgLocation = Util.createTempDirectory("api_tools_description_index"); //$NON-NLS-1$
+				}
+				catch (IOException e) {
+					ApiPlugin.log(e);
+					fgLocation = new File(System.getProperty("java.io.tmpdir"), "api_tools_description_index" + System.currentTimeMillis()); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		}
+		return fgLocation;
+	}
+
+	/**
+	 * Returns the hexadecimal SHA-1 digest of the given string
+	 *
+	 * @param value
+	 * @return the key
+	 * @throws IOException if the algorithm is not available
+	 */
+	private static String computeKey(String value) throws IOException {
+		return Util.toHex(Util.newDigest().digest(value.getBytes(IApiCoreConstants.UTF_8)));
+	}
+
+	/**
+	 * Throws an exception with the given message and underlying exception.
+	 *
+	 * @param message error message
+	 * @param exception underlying exception, or <code>null</code>
+	 * @throws CoreException
+	 */
+	private static void abort(String message, Throwable exception) throws CoreException {
+		IStatus status = new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, message, exception);
+		throw new CoreException(status);
+	}
+}
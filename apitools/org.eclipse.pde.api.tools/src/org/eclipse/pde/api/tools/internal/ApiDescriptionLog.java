@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.pde.api.tools.internal.ApiDescription.ManifestNode;
+import org.eclipse.pde.api.tools.internal.ProjectApiDescription.PackageNode;
+import org.eclipse.pde.api.tools.internal.ProjectApiDescription.TypeNode;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.RestrictionModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IFieldDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMethodDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IPackageDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.scanner.ScannerMessages;
+
+/**
+ * Persists a {@link ProjectApiDescription} as a binary log of package records.
+ * <p>
+ * A package record holds the complete state of one package node and its children, the same
+ * state {@link ProjectApiDescription#getXML()} writes for the package. Saving a description
+ * appends a record for each package that changed since the description was last saved, or a
+ * removal record for a package that no longer has API visibility. Restoring a description replays
+ * the records in order, later records replacing earlier ones. A last record that was not completely
+ * written is ignored and cut off the log, so that the next records are appended after the last complete one.
+ * </p>
+ * <p>
+ * The log is compacted, i.e. rewritten with a single record per package, when the description
+ * has to be saved completely or when the log holds more than {@link #COMPACT_RATIO} times as many
+ * package records as the description has packages. The compacted log is written to a temporary file
+ * that then replaces the log. Where the platform cannot rename over an existing file, the log is
+ * first moved to a backup file, which is read instead of the log if the replacement did not complete.
+ * </p>
+ * The format of the file is:
+ * <pre>
+ * int magic, int version, UTF description version, records
+ * record: int length, byte kind, data
+ * STAMP: long package time stamp
+ * PACKAGE: UTF name, int visibility, int fragment count, fragment count * UTF handle, children
+ * REMOVE: UTF name
+ * children: int count, count * (byte kind, data)
+ * TYPE: UTF handle, int visibility, int restrictions, long time stamp, children
+ * FIELD: UTF name, int visibility, int restrictions
+ * METHOD: UTF name, UTF signature, int visibility, int restrictions
+ * </pre>
+ *
+ * @since 1.0.400
+ */
+final class ApiDescriptionLog {
+
+	/**
+	 * The name of the log file in the state location of a project
+	 */
+	static final String LOG_NAME = ".api_description.log"; //$NON-NLS-1$
+
+	/**
+	 * Magic number identifying a log file
+	 */
+	private static final int MAGIC = 0x4150444C;
+
+	/**
+	 * Current version of the log format
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Ratio of package records in the log to packages in the description above which the log is compacted
+	 */
+	private static final int COMPACT_RATIO = 2;
+
+	/**
+	 * Number of package records always allowed in the log before it is compacted
+	 */
+	private static final int COMPACT_SLACK = 16;
+
+	/**
+	 * Record and node kinds
+	 */
+	private static final byte STAMP = 1;
+	private static final byte PACKAGE = 2;
+	private static final byte REMOVE = 3;
+	private static final byte TYPE = 4;
+	private static final byte FIELD = 5;
+	private static final byte METHOD = 6;
+
+	/**
+	 * Constructor
+	 * no instantiation
+	 */
+	private ApiDescriptionLog() {}
+
+	/**
+	 * Returns the backup of the given log file, only present while a compacted log replaces it
+	 *
+	 * @param file the log file
+	 * @return the backup file
+	 */
+	private static File getBackupFile(File file) {
+		return new File(file.getParentFile(), file.getName() + ".bak"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns whether a log exists for the given log file, i.e. the file itself or a backup
+	 * left by a compaction that did not complete
+	 *
+	 * @param file the log file
+	 * @return whether a log can be restored from the file
+	 */
+	static boolean exists(File file) {
+		return file.exists() || getBackupFile(file).exists();
+	}
+
+	/**
+	 * Deletes the given log file and its backup, if any
+	 *
+	 * @param file the log file
+	 */
+	static void delete(File file) {
+		if (file.exists()) {
+			file.delete();
+		}
+		File backup = getBackupFile(file);
+		if (backup.exists()) {
+			backup.delete();
+		}
+	}
+
+	/**
+	 * Replaces the given log file with the given compacted log
+	 *
+	 * @param temp the compacted log
+	 * @param file the log file
+	 * @throws IOException if the log cannot be replaced
+	 */
+	private static void replace(File temp, File file) throws IOException {
+		File backup = getBackupFile(file);
+		if (!file.exists() && backup.exists()) {
+			// a previous replacement did not complete, the backup is the log
+			backup.renameTo(file);
+		}
+		if (temp.renameTo(file)) {
+			// replaced in a single step
+			if (backup.exists()) {
+				backup.delete();
+			}
+			return;
+		}
+		if (backup.exists() && !backup.delete()) {
+			throw new IOException("Unable to replace API description log: " + file); //$NON-NLS-1$
+		}
+		if (file.exists() && !file.renameTo(backup)) {
+			throw new IOException("Unable to replace API description log: " + file); //$NON-NLS-1$
+		}
+		if (!temp.renameTo(file)) {
+			// keep the previous log
+			backup.renameTo(file);
+			throw new IOException("Unable to replace API description log: " + file); //$NON-NLS-1$
+		}
+		backup.delete();
+	}
+
+	/**
+	 * Saves the given description to the given log file. The caller must hold the lock of the description.
+	 *
+	 * @param description the description to save
+	 * @param file the log file
+	 * @throws IOException if the log cannot be written
+	 */
+	static void save(ProjectApiDescription description, File file) throws IOException {
+		if (!file.exists() && getBackupFile(file).exists()) {
+			// a previous compaction did not complete, the backup is the log
+			getBackupFile(file).renameTo(file);
+		}
+		boolean compact = description.fAllDirty || !file.exists() ||
+			description.fLogRecords + description.fDirtyPackages.size() > COMPACT_RATIO * description.fPackageMap.size() + COMPACT_SLACK;
+		if (compact) {
+			File temp = new File(file.getParentFile(), file.getName() + ".tmp"); //$NON-NLS-1$
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			int records = 0;
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(IApiXmlConstants.API_DESCRIPTION_CURRENT_VERSION);
+				writeStamp(out, description);
+				ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+				for (Iterator iter = description.fPackageMap.values().iterator(); iter.hasNext();) {
+					ManifestNode node = (ManifestNode) iter.next();
+					if (node.hasApiVisibility(node)) {
+						record.reset();
+						writePackage(new DataOutputStream(record), (PackageNode) node);
+						writeRecord(out, record);
+						records++;
+					}
+				}
+				out.flush();
+			} finally {
+				out.close();
+			}
+			replace(temp, file);
+			description.fLogRecords = records;
+		} else {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+			try {
+				writeStamp(out, description);
+				ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+				for (Iterator iter = description.fDirtyPackages.iterator(); iter.hasNext();) {
+					IPackageDescriptor pkg = (IPackageDescriptor) iter.next();
+					ManifestNode node = (ManifestNode) description.fPackageMap.get(pkg);
+					record.reset();
+					DataOutputStream recordOut = new DataOutputStream(record);
+					if (node != null && node.hasApiVisibility(node)) {
+						writePackage(recordOut, (PackageNode) node);
+					} else {
+						recordOut.writeByte(REMOVE);
+						recordOut.writeUTF(pkg.getName());
+						recordOut.flush();
+					}
+					writeRecord(out, record);
+				}
+				out.flush();
+			} finally {
+				out.close();
+			}
+			description.fLogRecords += description.fDirtyPackages.size();
+		}
+	}
+
+	/**
+	 * Restores the given description from the given log file. The caller must hold the lock of the description.
+	 *
+	 * @param description the description to restore
+	 * @param file the log file
+	 * @return <code>true</code> if the description was restored, <code>false</code> if the file is not a log of the current version
+	 * @throws CoreException if the log is corrupt
+	 * @throws IOException if the log cannot be read
+	 */
+	static boolean restore(ProjectApiDescription description, File file) throws CoreException, IOException {
+		File log = file.exists() ? file : getBackupFile(file);
+		long length = log.length();
+		long complete = 0;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return false;
+			}
+			String version = in.readUTF();
+			if (!IApiXmlConstants.API_DESCRIPTION_CURRENT_VERSION.equals(version)) {
+				return false;
+			}
+			complete = 8 + getUTFLength(version);
+			int records = 0;
+			while (complete < length) {
+				byte[] bytes = null;
+				try {
+					int size = in.readInt();
+					if (size < 0 || size > length - complete - 4) {
+						// a record that was not completely written
+						break;
+					}
+					bytes = new byte[size];
+					in.readFully(bytes);
+				} catch (EOFException e) {
+					// a record that was not completely written
+					break;
+				}
+				complete += 4 + bytes.length;
+				DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+				switch (record.readByte()) {
+					case STAMP:
+						description.fPackageTimeStamp = record.readLong();
+						break;
+					case PACKAGE:
+						readPackage(description, record);
+						records++;
+						break;
+					case REMOVE:
+						description.fPackageMap.remove(Factory.packageDescriptor(record.readUTF()));
+						records++;
+						break;
+					default:
+						abort(ScannerMessages.ApiDescriptionManager_4, null);
+				}
+			}
+			description.fLogRecords = records;
+			description.setEmbeddedVersion(IApiXmlConstants.API_DESCRIPTION_CURRENT_VERSION);
+		} catch (EOFException e) {
+			// truncated header
+			return false;
+		} finally {
+			in.close();
+		}
+		if (complete < length) {
+			// cut off the incomplete record, later records are appended after the last complete one
+			try {
+				RandomAccessFile raf = new RandomAccessFile(log, "rw"); //$NON-NLS-1$
+				try {
+					raf.setLength(complete);
+				} finally {
+					raf.close();
+				}
+			} catch (IOException e) {
+				// rewrite the whole log on the next save instead
+				description.fAllDirty = true;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of bytes {@link DataOutputStream#writeUTF(String)} writes for the given string
+	 *
+	 * @param string
+	 * @return the number of bytes, including the length prefix
+	 * @throws IOException
+	 */
+	private static int getUTFLength(String string) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(string.length() + 2);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeUTF(string);
+		out.flush();
+		return bytes.size();
+	}
+
+	/**
+	 * Writes a record with the package time stamp of the given description
+	 *
+	 * @param out
+	 * @param description
+	 * @throws IOException
+	 */
+	private static void writeStamp(DataOutputStream out, ProjectApiDescription description) throws IOException {
+		out.writeInt(9);
+		out.writeByte(STAMP);
+		out.writeLong(description.fPackageTimeStamp);
+	}
+
+	/**
+	 * Writes the given record bytes prefixed by their length
+	 *
+	 * @param out
+	 * @param record
+	 * @throws IOException
+	 */
+	private static void writeRecord(DataOutputStream out, ByteArrayOutputStream record) throws IOException {
+		out.writeInt(record.size());
+		record.writeTo(out);
+	}
+
+	/**
+	 * Writes a package record for the given node
+	 *
+	 * @param out
+	 * @param node
+	 * @throws IOException
+	 */
+	private static void writePackage(DataOutputStream out, PackageNode node) throws IOException {
+		out.writeByte(PACKAGE);
+		out.writeUTF(((IPackageDescriptor) node.element).getName());
+		out.writeInt(node.visibility);
+		out.writeInt(node.fFragments.length);
+		for (int i = 0; i < node.fFragments.length; i++) {
+			out.writeUTF(node.fFragments[i].getHandleIdentifier());
+		}
+		writeChildren(out, node.children);
+		out.flush();
+	}
+
+	/**
+	 * Writes the children of a node that are persisted, the same ones the XML form of the description holds
+	 *
+	 * @param out
+	 * @param children
+	 * @throws IOException
+	 */
+	private static void writeChildren(DataOutputStream out, Map children) throws IOException {
+		List persisted = new ArrayList(children.size());
+		for (Iterator iter = children.values().iterator(); iter.hasNext();) {
+			ManifestNode node = (ManifestNode) iter.next();
+			if (node instanceof TypeNode) {
+				if (node.hasApiVisibility(node)) {
+					persisted.add(node);
+				}
+			} else if (!RestrictionModifiers.isUnrestricted(node.restrictions)) {
+				int kind = node.element.getElementType();
+				if (kind == IElementDescriptor.METHOD || kind == IElementDescriptor.FIELD) {
+					persisted.add(node);
+				}
+			}
+		}
+		out.writeInt(persisted.size());
+		for (Iterator iter = persisted.iterator(); iter.hasNext();) {
+			ManifestNode node = (ManifestNode) iter.next();
+			switch (node.element.getElementType()) {
+				case IElementDescriptor.TYPE: {
+					TypeNode type = (TypeNode) node;
+					out.writeByte(TYPE);
+					out.writeUTF(type.fType.getHandleIdentifier());
+					out.writeInt(type.visibility);
+					out.writeInt(type.restrictions);
+					out.writeLong(type.fTimeStamp);
+					writeChildren(out, type.children);
+					break;
+				}
+				case IElementDescriptor.FIELD: {
+					out.writeByte(FIELD);
+					out.writeUTF(((IFieldDescriptor) node.element).getName());
+					out.writeInt(node.visibility);
+					out.writeInt(node.restrictions);
+					break;
+				}
+				case IElementDescriptor.METHOD: {
+					IMethodDescriptor method = (IMethodDescriptor) node.element;
+					out.writeByte(METHOD);
+					out.writeUTF(method.getName());
+					out.writeUTF(method.getSignature());
+					out.writeInt(node.visibility);
+					out.writeInt(node.restrictions);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a package record and replaces the package node of the description with it
+	 *
+	 * @param description
+	 * @param in
+	 * @throws CoreException
+	 * @throws IOException
+	 */
+	private static void readPackage(ProjectApiDescription description, DataInputStream in) throws CoreException, IOException {
+		IPackageDescriptor pkg = Factory.packageDescriptor(in.readUTF());
+		int vis = in.readInt();
+		IPackageFragment[] fragments = new IPackageFragment[in.readInt()];
+		if (fragments.length == 0) {
+			abort(ScannerMessages.ApiDescriptionManager_2, null);
+		}
+		for (int i = 0; i < fragments.length; i++) {
+			String handle = in.readUTF();
+			IJavaElement element = JavaCore.create(handle);
+			if (element == null || element.getElementType() != IJavaElement.PACKAGE_FRAGMENT) {
+				abort(ScannerMessages.ApiDescriptionManager_2 + handle, null);
+			}
+			fragments[i] = (IPackageFragment) element;
+		}
+		ManifestNode node = description.newPackageNode(fragments, null, pkg, vis, RestrictionModifiers.NO_RESTRICTIONS);
+		readChildren(description, in, node);
+		description.fPackageMap.put(pkg, node);
+	}
+
+	/**
+	 * Reads the children of the given node
+	 *
+	 * @param description
+	 * @param in
+	 * @param parent
+	 * @throws CoreException
+	 * @throws IOException
+	 */
+	private static void readChildren(ProjectApiDescription description, DataInputStream in, ManifestNode parent) throws CoreException, IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			byte kind = in.readByte();
+			switch (kind) {
+				case TYPE: {
+					String handle = in.readUTF();
+					int vis = in.readInt();
+					int res = in.readInt();
+					long stamp = in.readLong();
+					IJavaElement element = JavaCore.create(handle);
+					if (element == null || element.getElementType() != IJavaElement.TYPE) {
+						abort(ScannerMessages.ApiDescriptionManager_3 + handle, null);
+					}
+					IType type = (IType) element;
+					IElementDescriptor desc = Factory.typeDescriptor(type.getFullyQualifiedName('$'));
+					TypeNode node = description.newTypeNode(type, parent, desc, vis, res);
+					node.fTimeStamp = stamp;
+					parent.children.put(desc, node);
+					readChildren(description, in, node);
+					break;
+				}
+				case FIELD:
+				case METHOD: {
+					if (!(parent.element instanceof IReferenceTypeDescriptor)) {
+						abort(ScannerMessages.ApiDescriptionManager_4, null);
+					}
+					IReferenceTypeDescriptor type = (IReferenceTypeDescriptor) parent.element;
+					String name = in.readUTF();
+					IElementDescriptor desc = kind == FIELD ? (IElementDescriptor) type.getField(name) : type.getMethod(name, in.readUTF());
+					int vis = in.readInt();
+					int res = in.readInt();
+					parent.children.put(desc, description.newNode(parent, desc, vis, res));
+					break;
+				}
+				default:
+					abort(ScannerMessages.ApiDescriptionManager_4, null);
+			}
+		}
+	}
+
+	/**
+	 * Throws an exception with the given message and underlying exception.
+	 *
+	 * @param message error message
+	 * @param exception underlying exception, or <code>null</code>
+	 * @throws CoreException
+	 */
+	private static void abort(String message, Throwable exception) throws CoreException {
+		IStatus status = new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, message, exception);
+		throw new CoreException(status);
+	}
+}
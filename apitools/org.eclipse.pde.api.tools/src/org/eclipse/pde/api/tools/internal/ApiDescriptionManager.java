@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -155,6 +155,9 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 			if (file.exists()) {
 				file.delete();
 			}
+			file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName())
+				.append(ApiDescriptionLog.LOG_NAME).toFile();
+			ApiDescriptionLog.delete(file);
 			file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).toFile();
 			if(file.exists() && file.isDirectory()) {
 				file.delete();
@@ -245,19 +248,23 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 			if (desc.isModified()) {
 				File dir = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).toFile();
 				dir.mkdirs();
-				String xml = desc.getXML();
 				try {
-					Util.saveFile(new File(dir,  IApiCoreConstants.API_DESCRIPTION_XML_NAME), xml);
+					desc.save(new File(dir, ApiDescriptionLog.LOG_NAME));
 				} catch (IOException e) {
 					abort(MessageFormat.format(ScannerMessages.ApiDescriptionManager_0, new String[]{project.getElementName()}), e);
 				}
+				// the log supersedes a description saved as XML by a previous version
+				File xml = new File(dir, IApiCoreConstants.API_DESCRIPTION_XML_NAME);
+				if (xml.exists()) {
+					xml.delete();
+				}
 			}
 		}
 	}	
 	
 	/**
-	 * Restores the API description from its saved file, if any and returns
-	 * true if successful.
+	 * Restores the API description from its saved log, or from the XML file
+	 * saved by a previous version, if any and returns true if successful.
 	 * 
 	 * @param project
 	 * @param description
@@ -265,6 +272,19 @@ public final class ApiDescriptionManager implements ISaveParticipant {
 	 * @throws CoreException 
 	 */
 	private boolean restoreDescription(IJavaProject project, ProjectApiDescription description) throws CoreException {
+		File log = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).
+			append(ApiDescriptionLog.LOG_NAME).toFile();
+		if (ApiDescriptionLog.exists(log)) {
+			try {
+				if (description.restore(log)) {
+					description.fManifestFile = project.getProject().getFile(JarFile.MANIFEST_NAME);
+					return true;
+				}
+			} catch (IOException e) {
+				abort(MessageFormat.format(ScannerMessages.ApiDescriptionManager_1,
+						new String[]{project.getElementName()}), e);
+			}
+		}
 		File file = API_DESCRIPTIONS_CONTAINER_PATH.append(project.getElementName()).
 			append(IApiCoreConstants.API_DESCRIPTION_XML_NAME).toFile();
 		if (file.exists()) {
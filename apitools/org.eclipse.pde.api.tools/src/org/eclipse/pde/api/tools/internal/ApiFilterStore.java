@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.pde.api.tools.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -91,6 +92,16 @@ public class ApiFilterStore implements IApiFilterStore, IResourceChangeListener
 	 */
 	private HashMap fFilterMap = null;
 	
+	/**
+	 * Index of the filters of this store by the identity of their underlying problem, 
+	 * rebuilt from the filter map the first time it is needed after the map has changed.
+	 * The index is replaced, never modified, so it can be read without holding the lock of the store.
+	 * <pre>
+	 * HashMap<ProblemKey, IApiProblemFilter>
+	 * </pre>
+	 */
+	private volatile HashMap fFilterIndex = null;
+	
 	/**
 	 * Map used to collect unused {@link IApiProblemFilter}s
 	 */
@@ -233,6 +244,7 @@ public class ApiFilterStore implements IApiFilterStore, IResourceChangeListener
 			}
 			fNeedsSaving |= pfilters.add(filters[i]);
 		}
+		fFilterIndex = null;
 		persistApiFilters();
 	}
 
@@ -276,41 +288,66 @@ public class ApiFilterStore implements IApiFilterStore, IResourceChangeListener
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.IApiFilterStore#isFiltered(org.eclipse.pde.api.tools.internal.provisional.IApiProblem)
 	 */
-	public synchronized boolean isFiltered(IApiProblem problem) {
-		initializeApiFilters();
+	public boolean isFiltered(IApiProblem problem) {
 		String resourcePath = problem.getResourcePath();
 		if (resourcePath == null) {
 			return false;
 		}
-		IResource resource = fProject.getProject().findMember(new Path(resourcePath));
-		if(resource == null) {
+		IApiProblemFilter filter = (IApiProblemFilter) getFilterIndex().get(new ProblemKey(problem));
+		if(filter == null) {
 			if(DEBUG) {
-				System.out.println("no resource exists: ["+resourcePath+"]"); //$NON-NLS-1$ //$NON-NLS-2$
+				System.out.println("no filter defined for problem: ["+problem.toString()+"]"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			return false;
 		}
-		IApiProblemFilter[] filters = this.getFilters(resource);
-		if(filters == null) {
+		IResource resource = fProject.getProject().findMember(new Path(resourcePath));
+		if(resource == null) {
 			if(DEBUG) {
-				System.out.println("no filters defined for ["+resourcePath+"] return not filtered"); //$NON-NLS-1$ //$NON-NLS-2$
+				System.out.println("no resource exists: ["+resourcePath+"]"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			return false;
 		}
-		IApiProblemFilter filter = null;
-		for(int i = 0, max = filters.length; i < max; i++) {
-			filter = filters[i];
-			if(filter.getUnderlyingProblem().equals(problem)) {
-				if(DEBUG) {
-					System.out.println("recording filter used: ["+filter.toString()+"]"); //$NON-NLS-1$ //$NON-NLS-2$
+		if(DEBUG) {
+			System.out.println("recording filter used: ["+filter.toString()+"]"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		synchronized (this) {
+			recordFilterUsed(resource, filter);
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the index of the filters of this store, building it if the filters have 
+	 * changed since it was last built.
+	 * 
+	 * @return the index of filters by {@link ProblemKey}, must not be modified
+	 */
+	private HashMap getFilterIndex() {
+		HashMap index = fFilterIndex;
+		if(index == null) {
+			synchronized (this) {
+				initializeApiFilters();
+				index = fFilterIndex;
+				if(index == null) {
+					index = new HashMap();
+					for (Iterator iter = fFilterMap.values().iterator(); iter.hasNext();) {
+						Map pTypeNames = (Map) iter.next();
+						for (Iterator iter2 = pTypeNames.values().iterator(); iter2.hasNext();) {
+							Set pfilters = (Set) iter2.next();
+							for (Iterator iter3 = pfilters.iterator(); iter3.hasNext();) {
+								IApiProblemFilter filter = (IApiProblemFilter) iter3.next();
+								ProblemKey key = new ProblemKey(filter.getUnderlyingProblem());
+								if(!index.containsKey(key)) {
+									index.put(key, filter);
+								}
+							}
+						}
+					}
+					fFilterIndex = index;
 				}
-				recordFilterUsed(resource, filter);
-				return true;
 			}
 		}
-		if(DEBUG) {
-			System.out.println("no filter defined for problem: ["+problem.toString()+"]"); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-		return false;
+		return index;
 	}
 	
 	/* (non-Javadoc)
@@ -389,6 +426,7 @@ public class ApiFilterStore implements IApiFilterStore, IResourceChangeListener
 				success &= false;
 			}
 		}
+		fFilterIndex = null;
 		persistApiFilters();
 		return success;
 	}
@@ -693,6 +731,7 @@ public class ApiFilterStore implements IApiFilterStore, IResourceChangeListener
 			}
 			fNeedsSaving |= filters.add(filter);
 		}
+		fFilterIndex = null;
 		if(persist) {
 			persistApiFilters();
 		}
@@ -913,6 +952,7 @@ public class ApiFilterStore implements IApiFilterStore, IResourceChangeListener
 				}
 				if(fFilterMap != null) {
 					fFilterMap.clear();
+					fFilterIndex = null;
 					needsbuild = fProject.getProject().isAccessible();
 				}
 			}
@@ -953,5 +993,64 @@ public class ApiFilterStore implements IApiFilterStore, IResourceChangeListener
 			fFilterMap.clear();
 			fFilterMap = null; 
 		}
+		fFilterIndex = null;
+	}
+	
+	/**
+	 * The identity of an {@link IApiProblem} as used to match problems against filters: 
+	 * the resource path, type name, problem id and message arguments of the problem.
+	 * Two keys are equal if their problems are equal.
+	 * 
+	 * @since 1.0.400
+	 */
+	static final class ProblemKey {
+		private final IPath fPath;
+		private final String fTypeName;
+		private final int fId;
+		private final String[] fArguments;
+		private final int fHashCode;
+		
+		/**
+		 * Constructor
+		 * @param problem
+		 */
+		ProblemKey(IApiProblem problem) {
+			String resourcePath = problem.getResourcePath();
+			fPath = (resourcePath == null ? null : new Path(resourcePath));
+			fTypeName = problem.getTypeName();
+			fId = problem.getId();
+			fArguments = problem.getMessageArguments();
+			int hash = fId;
+			hash = 31 * hash + (fPath == null ? 0 : fPath.hashCode());
+			hash = 31 * hash + (fTypeName == null ? 0 : fTypeName.hashCode());
+			if(fArguments != null) {
+				for (int i = 0; i < fArguments.length; i++) {
+					hash = 31 * hash + (fArguments[i] == null ? 0 : fArguments[i].hashCode());
+				}
+			}
+			fHashCode = hash;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			return fHashCode;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object obj) {
+			if(obj instanceof ProblemKey) {
+				ProblemKey key = (ProblemKey) obj;
+				return key.fHashCode == fHashCode
+						&& key.fId == fId
+						&& (fPath == null ? key.fPath == null : fPath.equals(key.fPath))
+						&& (fTypeName == null ? key.fTypeName == null : fTypeName.equals(key.fTypeName))
+						&& Arrays.equals(fArguments, key.fArguments);
+			}
+			return false;
+		}
 	}
 }
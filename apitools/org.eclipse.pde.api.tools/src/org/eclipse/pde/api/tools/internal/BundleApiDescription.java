@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.pde.api.tools.internal.provisional.ApiDescriptionVisitor;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IPackageDescriptor;
+
+/**
+ * API description of a bundle whose <code>.api_description</code> settings are loaded
+ * one package at a time, the first time an element of the package is looked up.
+ * <p>
+ * The description is first initialized from the bundle manifest, then an
+ * {@link ApiDescriptionIndex} is attached to it. Lookups are serialized until every
+ * package of the index has been loaded.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public class BundleApiDescription extends ApiDescription {
+
+	/**
+	 * The index settings are loaded from or <code>null</code> if none
+	 */
+	private ApiDescriptionIndex fIndex = null;
+
+	/**
+	 * Names of the packages of the index not loaded yet, or <code>null</code> once all are loaded
+	 */
+	private volatile HashSet fPending = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param owningComponentId API component identifier
+	 */
+	public BundleApiDescription(String owningComponentId) {
+		super(owningComponentId);
+	}
+
+	/**
+	 * Attaches the index of the bundle's <code>.api_description</code> file. Its settings
+	 * are applied on top of the ones already in this description when their package is first
+	 * looked up.
+	 *
+	 * @param index the index
+	 */
+	public synchronized void setIndex(ApiDescriptionIndex index) {
+		fIndex = index;
+		setEmbeddedVersion(index.getEmbeddedVersion());
+		HashSet pending = new HashSet(index.getPackageNames());
+		fPending = pending.isEmpty() ? null : pending;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.ApiDescription#accept(org.eclipse.pde.api.tools.internal.provisional.ApiDescriptionVisitor, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public void accept(ApiDescriptionVisitor visitor, IProgressMonitor monitor) {
+		if (fPending != null) {
+			synchronized (this) {
+				HashSet pending = fPending;
+				if (pending != null) {
+					for (Iterator iterator = new ArrayList(pending).iterator(); iterator.hasNext();) {
+						loadPackage((String) iterator.next());
+					}
+				}
+			}
+		}
+		super.accept(visitor, monitor);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.ApiDescription#findNode(org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor, boolean)
+	 */
+	protected ManifestNode findNode(IElementDescriptor element, boolean write) {
+		if (fPending == null) {
+			return super.findNode(element, write);
+		}
+		synchronized (this) {
+			if (fPending != null) {
+				IElementDescriptor[] path = element.getPath();
+				if (path.length > 0 && path[0].getElementType() == IElementDescriptor.PACKAGE) {
+					loadPackage(((IPackageDescriptor) path[0]).getName());
+				}
+			}
+			return super.findNode(element, write);
+		}
+	}
+
+	/**
+	 * Applies the settings of the given package from the index if not done yet.
+	 * Must be called while holding the lock of this description.
+	 *
+	 * @param packageName
+	 */
+	private void loadPackage(String packageName) {
+		HashSet pending = fPending;
+		if (pending == null || !pending.remove(packageName)) {
+			return;
+		}
+		try {
+			fIndex.annotate(this, packageName);
+		}
+		catch (CoreException e) {
+			ApiPlugin.log(e);
+		}
+		finally {
+			if (pending.isEmpty()) {
+				// lookups no longer need the lock once the last package is in place
+				fPending = null;
+			}
+		}
+	}
+}
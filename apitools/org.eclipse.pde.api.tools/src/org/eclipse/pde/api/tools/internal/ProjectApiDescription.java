@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -86,6 +89,23 @@ public class ProjectApiDescription extends ApiDescription {
 	 * the java model elements (effectively building the cache).
 	 */
 	private boolean fInSynch = false;
+
+	/**
+	 * Descriptors of the packages whose nodes changed since this description was last saved
+	 */
+	HashSet fDirtyPackages = new HashSet();
+
+	/**
+	 * Whether all packages have to be saved, rather than only the dirty ones. This is the
+	 * case until the description has been saved or restored from its log once, and after
+	 * the description has been cleaned.
+	 */
+	boolean fAllDirty = true;
+
+	/**
+	 * The number of package records in the log this description was last saved to
+	 */
+	int fLogRecords = 0;
 			
 	/**
 	 * A node for a package.
@@ -113,7 +133,7 @@ public class ProjectApiDescription extends ApiDescription {
 			refreshPackages();
 			for (int i = 0; i < fFragments.length; i++) {
 				if (!fFragments[i].exists()) {
-					modified();
+					modified(this);
 					return null;
 				}
 			}
@@ -243,7 +263,7 @@ public class ProjectApiDescription extends ApiDescription {
 									buffer.append(')');
 									System.out.println(buffer.toString());
 								}
-								modified();
+								modified(this);
 								children.clear();
 								restrictions = RestrictionModifiers.NO_RESTRICTIONS;
 								fTimeStamp = resource.getModificationStamp();
@@ -280,7 +300,7 @@ public class ProjectApiDescription extends ApiDescription {
 								System.out.println(buffer.toString());
 							}
 							// element has been removed
-							modified();
+							modified(this);
 							parent.children.remove(element);
 							return null;
 						}
@@ -423,6 +443,14 @@ public class ProjectApiDescription extends ApiDescription {
 		visitor.endVisitElement(node.element, annotations);
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.ApiDescription#findNode(org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor, boolean)
+	 */
+	protected synchronized ManifestNode findNode(IElementDescriptor element, boolean write) {
+		// resolving inserts nodes, and the builder resolves annotations from several threads
+		return super.findNode(element, write);
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.ApiDescription#isInsertOnResolve(org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor)
 	 */
@@ -580,14 +608,21 @@ public class ProjectApiDescription extends ApiDescription {
 		}
 		// check if in synch
 		if (fManifestFile == null || (fManifestFile.getModificationStamp() != fPackageTimeStamp)) {
+			HashSet dirty = null;
+			HashMap visibilities = null;
 			try {
 				modified();
 				fRefreshingInProgress = true;
+				// remember the current visibilities, only packages whose visibility
+				// changes need to be saved again
+				dirty = new HashSet(fDirtyPackages);
+				visibilities = new HashMap(fPackageMap.size());
 				// set all existing packages to PRIVATE (could clear
 				// the map, but it would be less efficient)
 				Iterator iterator = fPackageMap.values().iterator();
 				while (iterator.hasNext()) {
 					PackageNode node = (PackageNode) iterator.next();
+					visibilities.put(node.element, new Integer(node.visibility));
 					node.visibility = VisibilityModifiers.PRIVATE;
 				}
 				fManifestFile = getJavaProject().getProject().getFile(JarFile.MANIFEST_NAME);
@@ -607,6 +642,18 @@ public class ProjectApiDescription extends ApiDescription {
 				}
 			} finally {
 				fRefreshingInProgress = false;
+				if (visibilities != null) {
+					Iterator iterator = fPackageMap.values().iterator();
+					while (iterator.hasNext()) {
+						ManifestNode node = (ManifestNode) iterator.next();
+						Integer visibility = (Integer) visibilities.get(node.element);
+						if (visibility == null || visibility.intValue() != node.visibility) {
+							dirty.add(node.element);
+						}
+					}
+					fDirtyPackages.clear();
+					fDirtyPackages.addAll(dirty);
+				}
 			}
 		}
 	}
@@ -711,8 +758,55 @@ public class ProjectApiDescription extends ApiDescription {
 		fPackageMap.clear();
 		fPackageTimeStamp = -1L;
 		fInSynch = false;
+		fAllDirty = true;
 		modified();
 	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.ApiDescription#modified(org.eclipse.pde.api.tools.internal.ApiDescription.ManifestNode)
+	 */
+	protected synchronized void modified(ManifestNode node) {
+		super.modified(node);
+		ManifestNode root = node;
+		while (root.parent != null) {
+			root = root.parent;
+		}
+		if (root.element.getElementType() == IElementDescriptor.PACKAGE) {
+			fDirtyPackages.add(root.element);
+		}
+	}
+
+	/**
+	 * Saves this API description to the given log file. Only the packages that changed since
+	 * the description was last saved or restored are written, unless the log needs compacting.
+	 * 
+	 * @param file the log file
+	 * @throws IOException if the log cannot be written
+	 */
+	public synchronized void save(File file) throws IOException {
+		ApiDescriptionLog.save(this, file);
+		fDirtyPackages.clear();
+		fAllDirty = false;
+		saved();
+	}
+
+	/**
+	 * Restores this API description from the given log file.
+	 * 
+	 * @param file the log file
+	 * @return whether the restore succeeded
+	 * @throws CoreException if the log is corrupt
+	 * @throws IOException if the log cannot be read
+	 */
+	public synchronized boolean restore(File file) throws CoreException, IOException {
+		fDirtyPackages.clear();
+		fAllDirty = false;
+		if (ApiDescriptionLog.restore(this, file)) {
+			return true;
+		}
+		fAllDirty = true;
+		return false;
+	}
 	
 	/**
 	 * Notes that the underlying project has changed in some way and that the
@@ -51,7 +51,7 @@ import org.eclipse.pde.api.tools.internal.util.Util;
 /**
  * @since 1.1
  */
-public abstract class AbstractProblemDetector implements IApiProblemDetector {
+public abstract class AbstractProblemDetector implements IApiProblemDetector, Cloneable {
 
 	/**
 	 * Constant used for controlling tracing in the problem detectors
@@ -88,6 +88,29 @@ public abstract class AbstractProblemDetector implements IApiProblemDetector {
 		return fPotentialProblems;
 	}
 	
+	/**
+	 * Returns a detector with the same settings as this one and no retained references, used to
+	 * consider references on another thread. The copy shares the settings of this detector, which
+	 * must not change once references are being considered.
+	 * <p>
+	 * Subclasses whose results depend on the order references are considered in return <code>null</code>,
+	 * in which case this detector has to consider all references itself.
+	 * </p>
+	 * 
+	 * @return a copy of this detector or <code>null</code> if it cannot be copied
+	 * @since 1.0.400
+	 */
+	AbstractProblemDetector copy() {
+		try {
+			AbstractProblemDetector copy = (AbstractProblemDetector) clone();
+			copy.fPotentialProblems = new LinkedList();
+			return copy;
+		}
+		catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.builder.IApiProblemDetector#considerReference(org.eclipse.pde.api.tools.internal.provisional.builder.IReference)
 	 */
@@ -62,6 +62,7 @@ import org.eclipse.pde.api.tools.internal.provisional.builder.IApiAnalyzer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.problems.IApiProblem;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.eclipse.pde.api.tools.internal.util.Util;
 import org.eclipse.pde.core.build.IBuild;
 import org.eclipse.pde.core.build.IBuildEntry;
@@ -705,11 +706,12 @@ public class ApiAnalysisBuilder extends IncrementalProjectBuilder {
 	 */
 	void buildAll(IApiBaseline baseline, IApiBaseline wbaseline, IProgressMonitor monitor) throws CoreException {
 		SubMonitor localMonitor = SubMonitor.convert(monitor, BuilderMessages.api_analysis_on_0, 4);
+		boolean markersCreated = false;
 		try {
 			BuildState.setLastBuiltState(this.currentproject, null);
 			this.buildstate = new BuildState();
 			localMonitor.subTask(NLS.bind(BuilderMessages.ApiAnalysisBuilder_initializing_analyzer, currentproject.getName()));
-			cleanupMarkers(this.currentproject);
+			// existing markers are replaced once the analysis is done, see createMarkers(boolean)
 			IPluginModelBase currentModel = getCurrentModel();
 			if (currentModel != null) {
 				localMonitor.subTask(BuilderMessages.building_workspace_profile);
@@ -720,12 +722,16 @@ public class ApiAnalysisBuilder extends IncrementalProjectBuilder {
 				if(apiComponent != null) {
 					getAnalyzer().analyzeComponent(this.buildstate, null, null, baseline, apiComponent, new BuildContext(), localMonitor.newChild(1));
 					Util.updateMonitor(localMonitor, 1);
-					createMarkers();
+					createMarkers(true);
+					markersCreated = true;
 					Util.updateMonitor(localMonitor, 1);
 				}
 			}
 		}
 		finally {
+			if(!markersCreated) {
+				cleanupMarkers(this.currentproject);
+			}
 			if(localMonitor != null) {
 				localMonitor.done();
 			}
@@ -738,15 +744,44 @@ public class ApiAnalysisBuilder extends IncrementalProjectBuilder {
 	 * no work is done.
 	 */
 	protected void createMarkers() {
-		try {
-			IResource manifest = Util.getManifestFile(this.currentproject);
-			if(manifest != null)  {
-				manifest.deleteMarkers(IApiMarkerConstants.VERSION_NUMBERING_PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
+		createMarkers(false);
+	}
+	
+	/**
+	 * Creates new markers for the listing of problems added to this reporter, in a single
+	 * workspace operation.
+	 * <p>
+	 * On a full build the existing API Tools markers of the project are not removed before the analysis, 
+	 * instead they are replaced here: markers that are the same as the new ones are left alone, 
+	 * and only the markers that changed are deleted or created.
+	 * </p>
+	 * @param full whether all the existing API Tools markers of the project are replaced
+	 */
+	void createMarkers(boolean full) {
+		MarkerSink sink = new MarkerSink(this.currentproject);
+		if(full) {
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.UNUSED_FILTER_PROBLEM_MARKER, false, IResource.DEPTH_INFINITE);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.API_USAGE_PROBLEM_MARKER, false, IResource.DEPTH_INFINITE);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.COMPATIBILITY_PROBLEM_MARKER, false, IResource.DEPTH_INFINITE);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.SINCE_TAGS_PROBLEM_MARKER, false, IResource.DEPTH_INFINITE);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.VERSION_NUMBERING_PROBLEM_MARKER, false, IResource.DEPTH_INFINITE);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.DEFAULT_API_BASELINE_PROBLEM_MARKER, true, IResource.DEPTH_ZERO);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.API_COMPONENT_RESOLUTION_PROBLEM_MARKER, true, IResource.DEPTH_ZERO);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.UNSUPPORTED_TAG_PROBLEM_MARKER, false, IResource.DEPTH_INFINITE);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.API_USESCAN_PROBLEM_MARKER, true, IResource.DEPTH_INFINITE);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.FATAL_PROBLEM_MARKER, false, IResource.DEPTH_INFINITE);
+		}
+		else {
+			try {
+				IResource manifest = Util.getManifestFile(this.currentproject);
+				if(manifest != null)  {
+					sink.replaceMarkers(manifest, IApiMarkerConstants.VERSION_NUMBERING_PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
+				}
+			} catch (CoreException e) {
+				ApiPlugin.log(e);
 			}
-			this.currentproject.deleteMarkers(IApiMarkerConstants.DEFAULT_API_BASELINE_PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
-			this.currentproject.deleteMarkers(IApiMarkerConstants.API_COMPONENT_RESOLUTION_PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
-		} catch (CoreException e) {
-			ApiPlugin.log(e);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.DEFAULT_API_BASELINE_PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
+			sink.replaceMarkers(this.currentproject, IApiMarkerConstants.API_COMPONENT_RESOLUTION_PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
 		}
 		IApiProblem[] problems = getAnalyzer().getProblems();
 		String type = null;
@@ -759,7 +794,12 @@ public class ApiAnalysisBuilder extends IncrementalProjectBuilder {
 			if(DEBUG) {
 				System.out.println("creating marker for: " + problems[i].toString()); //$NON-NLS-1$
 			}
-			createMarkerForProblem(category, type, problems[i]);
+			addMarkerForProblem(sink, category, type, problems[i], !full);
+		}
+		try {
+			sink.apply(null);
+		} catch (CoreException e) {
+			ApiPlugin.log(e);
 		}
 	}
 	
@@ -812,77 +852,98 @@ public class ApiAnalysisBuilder extends IncrementalProjectBuilder {
 	 * @param problem the problem to create a marker from
 	 */
 	void createMarkerForProblem(int category, String type, IApiProblem problem) {
+		MarkerSink sink = new MarkerSink(this.currentproject);
+		addMarkerForProblem(sink, category, type, problem, true);
+		try {
+			sink.apply(null);
+		} catch (CoreException e) {
+			ApiPlugin.log(e);
+		}
+	}
+	
+	/**
+	 * Adds the {@link IMarker} to create on the resource specified in the problem (via its path) 
+	 * with the given problem attributes to the given sink
+	 * @param sink the sink to add the marker to
+	 * @param category the category of the problem - see {@link IApiProblem} for categories
+	 * @param type the marker type to create - see {@link IApiMarkerConstants} for types
+	 * @param problem the problem to create a marker from
+	 * @param checkexisting whether existing API use scan markers on the resource must be checked, 
+	 * <code>false</code> if the sink replaces them
+	 */
+	void addMarkerForProblem(MarkerSink sink, int category, String type, IApiProblem problem, boolean checkexisting) {
 		IResource resource = resolveResource(problem);
 		if(resource == null) {
 			return;
 		}
-		try {
-			if (category == IApiProblem.CATEGORY_API_USE_SCAN_PROBLEM) {
+		int severity = ApiPlugin.getDefault().getSeverityLevel(ApiProblemFactory.getProblemSeverityId(problem), this.currentproject);
+		if (checkexisting && category == IApiProblem.CATEGORY_API_USE_SCAN_PROBLEM) {
+			try {
 				IMarker[] markers = resource.findMarkers(type, true, IResource.DEPTH_ZERO);
 				for (int i = 0; i < markers.length; i++) {
 					String msg = markers[i].getAttribute(IMarker.MESSAGE, null);
 					if (msg == null || msg.equalsIgnoreCase(problem.getMessage())){
 						int markerSeverity = markers[i].getAttribute(IMarker.SEVERITY, 0);
-						int problemSeverity = ApiPlugin.getDefault().getSeverityLevel(ApiProblemFactory.getProblemSeverityId(problem), this.currentproject);
-						if (markerSeverity == problemSeverity) {
+						if (markerSeverity == severity) {
 							return; // Marker already exists
 						}
 					} else {
 						markers[i].delete(); // create the marker afresh
 					}
 				}
-			}			
-			IMarker marker = resource.createMarker(type);
-			int line = problem.getLineNumber();
-			switch(category) {
-				case IApiProblem.CATEGORY_VERSION :
-				case IApiProblem.CATEGORY_API_BASELINE :
-				case IApiProblem.CATEGORY_API_COMPONENT_RESOLUTION : 
-				case IApiProblem.CATEGORY_API_USE_SCAN_PROBLEM : {
-					break;
-				}
-				default : {
-					line++;
-				}
-			}
-			marker.setAttributes(
-					new String[] {
-							IMarker.MESSAGE,
-							IMarker.SEVERITY,
-							IMarker.LINE_NUMBER,
-							IMarker.CHAR_START,
-							IMarker.CHAR_END,
-							IMarker.SOURCE_ID,
-							IApiMarkerConstants.MARKER_ATTR_PROBLEM_ID},
-					new Object[] {
-							problem.getMessage(),
-							new Integer(ApiPlugin.getDefault().getSeverityLevel(ApiProblemFactory.getProblemSeverityId(problem), this.currentproject)),
-							new Integer(line),
-							new Integer(problem.getCharStart()),
-							new Integer(problem.getCharEnd()),
-							ApiAnalysisBuilder.SOURCE,
-							new Integer(problem.getId())
-					}
-				);
-			//add message arguments, if any
-			String[] args = problem.getMessageArguments();
-			if(args.length > 0) {
-				marker.setAttribute(IApiMarkerConstants.MARKER_ATTR_MESSAGE_ARGUMENTS, createArgAttribute(args));
+			} catch (CoreException e) {
+				//ignore and continue
+				return;
 			}
-			String typeName = problem.getTypeName();
-			if (typeName != null) {
-				marker.setAttribute(IApiMarkerConstants.MARKER_ATTR_PROBLEM_TYPE_NAME, typeName);
+		}
+		int line = problem.getLineNumber();
+		switch(category) {
+			case IApiProblem.CATEGORY_VERSION :
+			case IApiProblem.CATEGORY_API_BASELINE :
+			case IApiProblem.CATEGORY_API_COMPONENT_RESOLUTION : 
+			case IApiProblem.CATEGORY_API_USE_SCAN_PROBLEM : {
+				break;
 			}
-			//add all other extra arguments, if any
-			if(problem.getExtraMarkerAttributeIds().length > 0) {
-				marker.setAttributes(problem.getExtraMarkerAttributeIds(), problem.getExtraMarkerAttributeValues());
+			default : {
+				line++;
 			}
-			if (DEBUG) {
-				System.out.println("Created the marker: " + marker.getId() + " - " + marker.getAttributes().entrySet()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		HashMap attributes = new HashMap(16);
+		String message = problem.getMessage();
+		if(message != null) {
+			attributes.put(IMarker.MESSAGE, message);
+		}
+		attributes.put(IMarker.SEVERITY, new Integer(severity));
+		attributes.put(IMarker.LINE_NUMBER, new Integer(line));
+		attributes.put(IMarker.CHAR_START, new Integer(problem.getCharStart()));
+		attributes.put(IMarker.CHAR_END, new Integer(problem.getCharEnd()));
+		attributes.put(IMarker.SOURCE_ID, ApiAnalysisBuilder.SOURCE);
+		attributes.put(IApiMarkerConstants.MARKER_ATTR_PROBLEM_ID, new Integer(problem.getId()));
+		//add message arguments, if any
+		String[] args = problem.getMessageArguments();
+		if(args.length > 0) {
+			attributes.put(IApiMarkerConstants.MARKER_ATTR_MESSAGE_ARGUMENTS, createArgAttribute(args));
+		}
+		String typeName = problem.getTypeName();
+		if (typeName != null) {
+			attributes.put(IApiMarkerConstants.MARKER_ATTR_PROBLEM_TYPE_NAME, typeName);
+		}
+		//add all other extra arguments, if any
+		String[] ids = problem.getExtraMarkerAttributeIds();
+		if(ids.length > 0) {
+			Object[] values = problem.getExtraMarkerAttributeValues();
+			for (int i = 0; i < ids.length; i++) {
+				if(values[i] == null) {
+					attributes.remove(ids[i]);
+				}
+				else {
+					attributes.put(ids[i], values[i]);
+				}
 			}
-		} catch (CoreException e) {
-			//ignore and continue
-			return;
+		}
+		sink.addMarker(resource, type, attributes);
+		if (DEBUG) {
+			System.out.println("Added the marker: " + type + " - " + attributes.entrySet()); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 	}
 	
@@ -1031,7 +1092,9 @@ public class ApiAnalysisBuilder extends IncrementalProjectBuilder {
 	 */
 	protected synchronized IApiAnalyzer getAnalyzer() {
 		if(this.analyzer == null) {
-			this.analyzer = new BaseApiAnalyzer();
+			BaseApiAnalyzer baseanalyzer = new BaseApiAnalyzer();
+			baseanalyzer.setThreadCount(ParallelExecutor.getDefaultThreadCount());
+			this.analyzer = baseanalyzer;
 		}
 		return this.analyzer;
 	}
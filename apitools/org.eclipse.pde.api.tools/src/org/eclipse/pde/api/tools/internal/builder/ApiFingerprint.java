@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.builder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
+import org.eclipse.pde.api.tools.internal.provisional.IApiDescription;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiField;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMember;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiMethod;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
+
+/**
+ * Computes a fingerprint of the API surface of a type: everything about the type that the
+ * class file comparator looks at, and nothing else. Two versions of a type that only differ
+ * in method bodies or private implementation details have the same fingerprint as long as
+ * their signatures, modifiers, constant values and API restrictions are the same.
+ * <p>
+ * The fingerprint covers the type, its fields, methods and the API surface of its member types,
+ * the API description annotations of all of them, and the same information for the superclass and super interfaces
+ * of the type, since changes in a super type change the result of a comparison too.
+ * </p>
+ * <p>
+ * Fingerprints are 64-bit FNV-1a hashes. Members are combined independently of their order.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public final class ApiFingerprint {
+
+	private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long PRIME = 0x100000001b3L;
+
+	/**
+	 * Constant used for types that cannot be found
+	 */
+	public static final long NO_TYPE = 0L;
+
+	/**
+	 * Constructor, no instantiation
+	 */
+	private ApiFingerprint() {}
+
+	/**
+	 * Computes the fingerprint of the API surface of the given type and of its super types
+	 *
+	 * @param type the type or <code>null</code>
+	 * @return the fingerprint or {@link #NO_TYPE} if the type is <code>null</code>
+	 * @throws CoreException
+	 */
+	public static long compute(IApiType type) throws CoreException {
+		if(type == null) {
+			return NO_TYPE;
+		}
+		long hash = OFFSET_BASIS;
+		HashSet visited = new HashSet();
+		List queue = new ArrayList();
+		queue.add(type);
+		for (int i = 0; i < queue.size(); i++) {
+			IApiType current = (IApiType) queue.get(i);
+			if(!visited.add(current.getName())) {
+				continue;
+			}
+			hash = mix(hash, typeHash(current));
+			IApiType superclass = current.getSuperclass();
+			if(superclass != null) {
+				queue.add(superclass);
+			}
+			IApiType[] interfaces = current.getSuperInterfaces();
+			for (int j = 0; j < interfaces.length; j++) {
+				queue.add(interfaces[j]);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the hash of the API surface of a single type and of its member types, not including its super types
+	 *
+	 * @param type
+	 * @return the hash
+	 * @throws CoreException
+	 */
+	private static long typeHash(IApiType type) throws CoreException {
+		IApiDescription description = null;
+		IApiComponent component = type.getApiComponent();
+		if(component != null) {
+			description = component.getApiDescription();
+		}
+		long hash = memberHash(type, description);
+		hash = mix(hash, type.getSuperclassName());
+		String[] names = type.getSuperInterfaceNames();
+		if(names != null) {
+			for (int i = 0; i < names.length; i++) {
+				hash = mix(hash, names[i]);
+			}
+		}
+		long members = 0;
+		IApiField[] fields = type.getFields();
+		for (int i = 0; i < fields.length; i++) {
+			long field = memberHash(fields[i], description);
+			Object value = fields[i].getConstantValue();
+			field = mix(field, (value == null ? null : value.toString()));
+			members += field;
+		}
+		IApiMethod[] methods = type.getMethods();
+		for (int i = 0; i < methods.length; i++) {
+			long method = memberHash(methods[i], description);
+			method = mix(method, methods[i].getDefaultValue());
+			String[] exceptions = methods[i].getExceptionNames();
+			if(exceptions != null) {
+				for (int j = 0; j < exceptions.length; j++) {
+					method = mix(method, exceptions[j]);
+				}
+			}
+			members += method;
+		}
+		IApiType[] types = type.getMemberTypes();
+		for (int i = 0; i < types.length; i++) {
+			// the comparator compares member types member by member
+			members += typeHash(types[i]);
+		}
+		return mix(hash, members);
+	}
+
+	/**
+	 * Returns the hash of the name, signatures, modifiers and API annotations of the given member
+	 *
+	 * @param member
+	 * @param description the API description of the component of the member or <code>null</code>
+	 * @return the hash
+	 */
+	private static long memberHash(IApiMember member, IApiDescription description) {
+		long hash = mix(OFFSET_BASIS, member.getName());
+		hash = mix(hash, member.getSignature());
+		hash = mix(hash, member.getGenericSignature());
+		hash = mix(hash, member.getModifiers());
+		if(description != null) {
+			IApiAnnotations annotations = description.resolveAnnotations(member.getHandle());
+			if(annotations != null) {
+				hash = mix(hash, annotations.getVisibility());
+				hash = mix(hash, annotations.getRestrictions());
+			}
+			else {
+				hash = mix(hash, -1);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Mixes the given string, which may be <code>null</code>, into the given hash
+	 *
+	 * @param hash
+	 * @param value
+	 * @return the new hash
+	 */
+	static long mix(long hash, String value) {
+		if(value == null) {
+			return mix(hash, -1);
+		}
+		long result = hash;
+		for (int i = 0, max = value.length(); i < max; i++) {
+			result ^= value.charAt(i);
+			result *= PRIME;
+		}
+		return mix(result, value.length());
+	}
+
+	/**
+	 * Mixes the given value into the given hash
+	 *
+	 * @param hash
+	 * @param value
+	 * @return the new hash
+	 */
+	static long mix(long hash, long value) {
+		long result = hash;
+		for (int i = 0; i < 8; i++) {
+			result ^= (value >>> (i * 8)) & 0xFF;
+			result *= PRIME;
+		}
+		return result;
+	}
+}
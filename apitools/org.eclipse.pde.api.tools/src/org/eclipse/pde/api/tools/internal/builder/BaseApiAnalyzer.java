@@ -162,6 +162,10 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 	 * The current preferences to use when the platform is not running.
 	 */
 	private Properties fPreferences = null;
+	/**
+	 * The maximum number of threads to use when scanning for API use
+	 */
+	private int fThreads = 1;
 	/**
 	 * Method used for initializing tracing in the API tool builder
 	 */
@@ -175,6 +179,16 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 	public BaseApiAnalyzer() {
 	}
 	
+	/**
+	 * Sets the maximum number of threads used to extract and resolve references
+	 * when checking API use. The default is to use the calling thread only.
+	 * 
+	 * @param threads the maximum number of threads to use
+	 */
+	public void setThreadCount(int threads) {
+		fThreads = threads;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.builder.IApiAnalyzer#analyzeComponent(..)
 	 */
@@ -1162,7 +1176,7 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 			scope = getSearchScope(component, null); // entire component
 		}
 		SubMonitor localMonitor = SubMonitor.convert(monitor, MessageFormat.format(BuilderMessages.checking_api_usage, new String[] {component.getSymbolicName()}), 2);
-		ReferenceAnalyzer analyzer = new ReferenceAnalyzer();
+		ReferenceAnalyzer analyzer = new ReferenceAnalyzer(fThreads);
 		try {
 			long start = System.currentTimeMillis();
 			IApiProblem[] illegal = analyzer.analyze(component, scope, localMonitor.newChild(2));
@@ -1283,7 +1297,9 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 				provider = component;
 			}
 			Util.updateMonitor(localmonitor, 1);
+			List allDeltas = null;
 			if (classFile == null) {
+				fBuildState.removeTypeComparison(typeName);
 				// this indicates a removed type
 				// we should try to get the class file from the reference
 				IApiTypeRoot referenceClassFile = null;
@@ -1337,26 +1353,56 @@ public class BaseApiAnalyzer implements IApiAnalyzer {
 			} else {
 				fBuildState.cleanup(typeName);
 				long time = System.currentTimeMillis();
+				long fingerprint = ApiFingerprint.NO_TYPE;
+				long referenceFingerprint = ApiFingerprint.NO_TYPE;
+				boolean fingerprinted = false;
 				try {
-					IApiComponent exporter = null;
-					if (reexported) {
-						exporter = component;
-					}
-					delta = ApiComparator.compare(classFile, reference, provider, exporter, reference.getBaseline(), provider.getBaseline(), VisibilityModifiers.API, localmonitor.newChild(1));
-				} catch(Exception e) {
+					// skip the comparison if neither API surface changed since the type was last compared
+					fingerprint = ApiFingerprint.mix(ApiFingerprint.compute(classFile.getStructure()), provider.getSymbolicName());
+					fingerprint = ApiFingerprint.mix(fingerprint, reexported ? 1 : 0);
+					IApiTypeRoot referenceClassFile = reference.findTypeRoot(typeName);
+					referenceFingerprint = ApiFingerprint.compute(referenceClassFile == null ? null : referenceClassFile.getStructure());
+					fingerprinted = true;
+				} catch(CoreException e) {
 					ApiPlugin.log(e);
-				} finally {
+				}
+				IDelta[] deltas = fingerprinted ? fBuildState.getTypeComparison(typeName, fingerprint, referenceFingerprint) : null;
+				if (deltas != null) {
 					if (DEBUG) {
-						System.out.println("Time spent for " + typeName + " : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						System.out.println("API surface of " + typeName + " is unchanged, reusing the last comparison"); //$NON-NLS-1$ //$NON-NLS-2$
 					}
 					fPendingDeltaInfos.clear();
+					allDeltas = Arrays.asList(deltas);
+					Util.updateMonitor(localmonitor, 1);
+				}
+				else {
+					try {
+						IApiComponent exporter = null;
+						if (reexported) {
+							exporter = component;
+						}
+						delta = ApiComparator.compare(classFile, reference, provider, exporter, reference.getBaseline(), provider.getBaseline(), VisibilityModifiers.API, localmonitor.newChild(1));
+					} catch(Exception e) {
+						ApiPlugin.log(e);
+					} finally {
+						if (DEBUG) {
+							System.out.println("Time spent for " + typeName + " : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						}
+						fPendingDeltaInfos.clear();
+					}
+					if (delta != null && fingerprinted) {
+						allDeltas = (delta == ApiComparator.NO_DELTA ? new ArrayList(0) : Util.collectAllDeltas(delta));
+						fBuildState.setTypeComparison(typeName, fingerprint, referenceFingerprint, (IDelta[]) allDeltas.toArray(new IDelta[allDeltas.size()]));
+					}
 				}
 			}
-			if (delta == null) {
-				return;
+			if (allDeltas == null) {
+				if (delta == null) {
+					return;
+				}
+				allDeltas = (delta == ApiComparator.NO_DELTA ? new ArrayList(0) : Util.collectAllDeltas(delta));
 			}
-			if (delta != ApiComparator.NO_DELTA) {
-				List allDeltas = Util.collectAllDeltas(delta);
+			if (!allDeltas.isEmpty()) {
 				localmonitor.subTask(BuilderMessages.BaseApiAnalyzer_processing_deltas);
 				for (Iterator iterator = allDeltas.iterator(); iterator.hasNext();) {
 					processDelta((IDelta) iterator.next(), reference, component);
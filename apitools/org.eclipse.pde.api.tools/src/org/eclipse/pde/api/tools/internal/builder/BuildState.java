@@ -57,7 +57,7 @@ import org.eclipse.pde.core.build.IBuildModel;
 public class BuildState {
 	private static final IDelta[] EMPTY_DELTAS = new IDelta[0];
 	private static final String[] NO_REEXPORTED_COMPONENTS = new String[0];
-	private static final int VERSION = 0x20;
+	private static final int VERSION = 0x21;
 	
 	private Map compatibleChanges;
 	private Map breakingChanges;
@@ -74,15 +74,39 @@ public class BuildState {
 	private String[] reexportedComponents;
 	private Set apiToolingDependentProjects;
 	private long buildpathCRC = -1L;
+	/**
+	 * Map of type name to the {@link TypeComparison} last computed for the type
+	 * @since 1.0.400
+	 */
+	private Map typeComparisons;
+	
+	/**
+	 * The result of the last comparison of a type with its reference, along with the
+	 * API fingerprints of both types at the time of the comparison
+	 * 
+	 * @since 1.0.400
+	 */
+	static final class TypeComparison {
+		final long fingerprint;
+		final long referenceFingerprint;
+		final IDelta[] deltas;
+		
+		TypeComparison(long fingerprint, long referenceFingerprint, IDelta[] deltas) {
+			this.fingerprint = fingerprint;
+			this.referenceFingerprint = referenceFingerprint;
+			this.deltas = deltas;
+		}
+	}
 	
 	/**
 	 * Constructor
 	 */
-	BuildState() {
+	public BuildState() {
 		this.compatibleChanges = new HashMap();
 		this.breakingChanges = new HashMap();
 		this.manifestChanges = new HashMap();
 		this.buildPropChanges = new HashMap();
+		this.typeComparisons = new HashMap();
 	}
 	
 	/**
@@ -153,6 +177,21 @@ public class BuildState {
 					state.setBuildPropertiesState(map);
 				}
 			}
+			if(in.available() > 0) {
+				count = in.readInt();
+				// read the last type comparisons
+				for (int i = 0; i < count; i++) {
+					String typeName = in.readUTF();
+					long fingerprint = in.readLong();
+					long referenceFingerprint = in.readLong();
+					int length = in.readInt();
+					IDelta[] deltas = new IDelta[length];
+					for (int j = 0; j < length; j++) {
+						deltas[j] = readDelta(in);
+					}
+					state.typeComparisons.put(typeName, new TypeComparison(fingerprint, referenceFingerprint, deltas));
+				}
+			}
 			return state;
 		}
 		return null;
@@ -210,6 +249,19 @@ public class BuildState {
 			out.writeUTF((String) entry.getKey());
 			out.writeUTF((String) entry.getValue());
 		}
+		map = state.typeComparisons;
+		out.writeInt(map.size());
+		for (Iterator i = map.entrySet().iterator(); i.hasNext();) {
+			entry = (Entry) i.next();
+			TypeComparison comparison = (TypeComparison) entry.getValue();
+			out.writeUTF((String) entry.getKey());
+			out.writeLong(comparison.fingerprint);
+			out.writeLong(comparison.referenceFingerprint);
+			out.writeInt(comparison.deltas.length);
+			for (int j = 0; j < comparison.deltas.length; j++) {
+				writeDelta(comparison.deltas[j], out);
+			}
+		}
 	}
 	
 	/**
@@ -222,7 +274,7 @@ public class BuildState {
 		// decode the delta from the build state
 		boolean hasComponentID = in.readBoolean();
 		String componentID = null;
-		if (hasComponentID) in.readUTF(); // delta.getComponentID()
+		if (hasComponentID) componentID = in.readUTF(); // delta.getComponentID()
 		int elementType = in.readInt(); // delta.getElementType()
 		int kind = in.readInt(); // delta.getKind()
 		int flags = in.readInt(); // delta.getFlags()
@@ -268,7 +320,8 @@ public class BuildState {
 		out.writeInt(delta.getElementType());
 		out.writeInt(delta.getKind());
 		out.writeInt(delta.getFlags());
-		out.writeInt(delta.getCurrentRestrictions());
+		int restrictions = (delta.getPreviousRestrictions() << Delta.PREVIOUS_RESTRICTIONS_OFFSET) | delta.getCurrentRestrictions();
+		out.writeInt(restrictions);
 		int modifiers = (delta.getNewModifiers() << Delta.NEW_MODIFIERS_OFFSET) | delta.getOldModifiers();
 		out.writeInt(modifiers);
 		out.writeUTF(delta.getTypeName());
@@ -368,6 +421,49 @@ public class BuildState {
 		this.reexportedComponents = null;
 	}
 
+	/**
+	 * Returns the deltas found by the last comparison of the given type, if the API fingerprints
+	 * of the type and of its reference are still the same as they were at the time of the comparison.
+	 * 
+	 * @param typeName the name of the type
+	 * @param fingerprint the current API fingerprint of the type
+	 * @param referenceFingerprint the current API fingerprint of the reference type
+	 * @return the deltas of the last comparison, or <code>null</code> if the type must be compared again
+	 * @since 1.0.400
+	 */
+	public IDelta[] getTypeComparison(String typeName, long fingerprint, long referenceFingerprint) {
+		TypeComparison comparison = (TypeComparison) this.typeComparisons.get(typeName);
+		if (comparison == null
+				|| comparison.fingerprint != fingerprint
+				|| comparison.referenceFingerprint != referenceFingerprint) {
+			return null;
+		}
+		return comparison.deltas;
+	}
+	
+	/**
+	 * Records the deltas found by comparing the given type with its reference
+	 * 
+	 * @param typeName the name of the type
+	 * @param fingerprint the API fingerprint of the type
+	 * @param referenceFingerprint the API fingerprint of the reference type
+	 * @param deltas the deltas of the comparison, an empty array if there were no changes
+	 * @since 1.0.400
+	 */
+	public void setTypeComparison(String typeName, long fingerprint, long referenceFingerprint, IDelta[] deltas) {
+		this.typeComparisons.put(typeName, new TypeComparison(fingerprint, referenceFingerprint, deltas));
+	}
+	
+	/**
+	 * Removes the last comparison of the given type
+	 * 
+	 * @param typeName the name of the type
+	 * @since 1.0.400
+	 */
+	void removeTypeComparison(String typeName) {
+		this.typeComparisons.remove(typeName);
+	}
+
 	/**
 	 * Sets the current list if re-exported {@link IApiComponent}s for this build state
 	 * @param components
@@ -58,6 +58,14 @@ public class IllegalImplementsProblemDetector extends AbstractIllegalTypeReferen
 		return IApiProblemTypes.ILLEGAL_IMPLEMENT;
 	}	
 	
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.builder.AbstractProblemDetector#copy()
+	 */
+	AbstractProblemDetector copy() {
+		// the first reference found for an interface is the one mapped to its restricted super-interface
+		return null;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.search.AbstractIllegalTypeReference#considerReference(org.eclipse.pde.api.tools.internal.provisional.model.IReference)
 	 */
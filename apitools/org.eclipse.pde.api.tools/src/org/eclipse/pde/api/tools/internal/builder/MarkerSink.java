@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Collects the markers to create for the problems found by a build and applies them
+ * to the workspace in a single workspace operation, so that one resource delta is
+ * reported for all of them.
+ * <p>
+ * Markers already present in the scopes registered with {@link #replaceMarkers(IResource, String, boolean, int)}
+ * are compared with the collected markers: a marker whose resource, type and attributes are the same as
+ * a collected one is kept as is, the others are deleted, and only the collected markers that have
+ * no equivalent are created.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public final class MarkerSink {
+
+	/**
+	 * A scope of existing markers to replace
+	 */
+	static final class Scope {
+		final IResource resource;
+		final String type;
+		final boolean includeSubtypes;
+		final int depth;
+
+		Scope(IResource resource, String type, boolean includeSubtypes, int depth) {
+			this.resource = resource;
+			this.type = type;
+			this.includeSubtypes = includeSubtypes;
+			this.depth = depth;
+		}
+	}
+
+	/**
+	 * The resource, type and attributes of a marker
+	 */
+	static final class MarkerKey {
+		final IResource resource;
+		final String type;
+		final Map attributes;
+		private final int hashCode;
+
+		MarkerKey(IResource resource, String type, Map attributes) {
+			this.resource = resource;
+			this.type = type;
+			this.attributes = attributes;
+			this.hashCode = resource.hashCode() * 31 + type.hashCode() * 17 + attributes.hashCode();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object obj) {
+			if(obj instanceof MarkerKey) {
+				MarkerKey key = (MarkerKey) obj;
+				return this.hashCode == key.hashCode
+						&& this.resource.equals(key.resource)
+						&& this.type.equals(key.type)
+						&& this.attributes.equals(key.attributes);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The project the markers belong to
+	 */
+	private final IProject fProject;
+
+	/**
+	 * The scopes of existing markers to replace
+	 */
+	private final List fScopes = new ArrayList();
+
+	/**
+	 * The collected markers, as {@link MarkerKey}s
+	 */
+	private final List fMarkers = new ArrayList();
+
+	/**
+	 * Constructor
+	 * @param project the project the markers belong to
+	 */
+	public MarkerSink(IProject project) {
+		fProject = project;
+	}
+
+	/**
+	 * Registers a scope of existing markers that the collected markers replace. When the sink is
+	 * applied, the markers found in the scope that have no equivalent in the collected markers are deleted.
+	 *
+	 * @param resource the resource to look for markers on
+	 * @param type the type of markers
+	 * @param includeSubtypes whether markers of subtypes of the given type are included
+	 * @param depth the depth to look for markers at, one of the {@link IResource} depth constants
+	 */
+	public void replaceMarkers(IResource resource, String type, boolean includeSubtypes, int depth) {
+		fScopes.add(new Scope(resource, type, includeSubtypes, depth));
+	}
+
+	/**
+	 * Adds a marker to create on the given resource
+	 *
+	 * @param resource the resource
+	 * @param type the marker type
+	 * @param attributes the attributes of the marker, must not contain <code>null</code> values
+	 */
+	public void addMarker(IResource resource, String type, Map attributes) {
+		fMarkers.add(new MarkerKey(resource, type, new HashMap(attributes)));
+	}
+
+	/**
+	 * Returns the number of markers collected so far
+	 *
+	 * @return the number of markers
+	 */
+	int size() {
+		return fMarkers.size();
+	}
+
+	/**
+	 * Deletes the replaced markers and creates the collected markers in a single workspace operation
+	 *
+	 * @param monitor
+	 * @throws CoreException
+	 */
+	public void apply(IProgressMonitor monitor) throws CoreException {
+		if(fScopes.isEmpty() && fMarkers.isEmpty()) {
+			return;
+		}
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor pm) throws CoreException {
+				applyChanges(pm);
+			}
+		}, workspace.getRuleFactory().markerRule(fProject), IWorkspace.AVOID_UPDATE, monitor);
+	}
+
+	/**
+	 * Computes and performs the marker changes, must be called within a workspace operation
+	 *
+	 * @param monitor
+	 * @throws CoreException
+	 */
+	void applyChanges(IProgressMonitor monitor) throws CoreException {
+		SubMonitor localmonitor = SubMonitor.convert(monitor, fMarkers.size() + 1);
+		HashMap existing = new HashMap();
+		for (Iterator iter = fScopes.iterator(); iter.hasNext();) {
+			Scope scope = (Scope) iter.next();
+			if(!scope.resource.isAccessible()) {
+				continue;
+			}
+			IMarker[] markers = scope.resource.findMarkers(scope.type, scope.includeSubtypes, scope.depth);
+			for (int i = 0; i < markers.length; i++) {
+				Map attributes = markers[i].getAttributes();
+				// copy the attributes: the map of the platform does not hash like the maps of the collected markers
+				MarkerKey key = new MarkerKey(markers[i].getResource(), markers[i].getType(), (attributes == null ? new HashMap(0) : new HashMap(attributes)));
+				List same = (List) existing.get(key);
+				if(same == null) {
+					same = new ArrayList(1);
+					existing.put(key, same);
+				}
+				if(!same.contains(markers[i])) {
+					same.add(markers[i]);
+				}
+			}
+		}
+		int kept = 0;
+		for (Iterator iter = fMarkers.iterator(); iter.hasNext();) {
+			MarkerKey key = (MarkerKey) iter.next();
+			List same = (List) existing.get(key);
+			if(same != null) {
+				same.remove(same.size() - 1);
+				if(same.isEmpty()) {
+					existing.remove(key);
+				}
+				kept++;
+			}
+			else if(key.resource.isAccessible()) {
+				try {
+					IMarker marker = key.resource.createMarker(key.type);
+					marker.setAttributes(key.attributes);
+				}
+				catch(CoreException e) {
+					//ignore and continue
+				}
+			}
+			localmonitor.worked(1);
+		}
+		ArrayList deleted = new ArrayList();
+		for (Iterator iter = existing.values().iterator(); iter.hasNext();) {
+			deleted.addAll((List) iter.next());
+		}
+		if(!deleted.isEmpty()) {
+			ResourcesPlugin.getWorkspace().deleteMarkers((IMarker[]) deleted.toArray(new IMarker[deleted.size()]));
+		}
+		if(ApiAnalysisBuilder.DEBUG) {
+			System.out.println("Markers for " + fProject.getName() + ": " + (fMarkers.size() - kept) + " created, " + kept + " kept, " + deleted.size() + " deleted"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+		localmonitor.worked(1);
+	}
+}
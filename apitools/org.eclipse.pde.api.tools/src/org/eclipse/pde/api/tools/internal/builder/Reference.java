@@ -14,8 +14,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.core.Flags;
-import org.eclipse.pde.api.tools.internal.model.StubApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.Factory;
 import org.eclipse.pde.api.tools.internal.provisional.IApiAccess;
 import org.eclipse.pde.api.tools.internal.provisional.IApiAnnotations;
@@ -313,31 +311,6 @@ public class Reference implements IReference {
 		}
 		// TODO: throw exception on failure
 	}
-	public boolean resolve(int eeValue) throws CoreException {
-		IApiComponent sourceComponent = StubApiComponent.getStubApiComponent(eeValue);
-		if (sourceComponent == null) {
-			// if there is no source component for the ee value, the reference is considered as resolved
-			return true;
-		}
-		IApiTypeRoot result = Util.getClassFile(
-				new IApiComponent[] { sourceComponent },
-				getReferencedTypeName());
-		if(result != null) {
-			IApiType type = result.getStructure();
-			if(type == null) {
-				return false;
-			}
-			switch (getReferenceType()) {
-			case IReference.T_TYPE_REFERENCE:
-				return true;
-			case IReference.T_FIELD_REFERENCE:
-				return resolveField(type, getReferencedMemberName());
-			case IReference.T_METHOD_REFERENCE:
-				return resolveMethod(sourceComponent, type, getReferencedMemberName(), getReferencedSignature());
-			}
-		}
-		return false;
-	}	
 	/**
 	 * Resolves the field in the parent class hierarchy
 	 * @param type the initial type to search
@@ -400,94 +373,6 @@ public class Reference implements IReference {
 		return false;
 	}		
 
-	/**
-	 * Resolves a method and returns whether the method lookup was successful.
-	 * We need to resolve the actual type that implements the method - i.e. do the virtual
-	 * method lookup.
-	 * 
-	 * @param callSiteComponent the component where the method call site was located
-	 * @param typeName referenced type name
-	 * @param methodName referenced method name
-	 * @param methodSignature referenced method signature
-	 * @returns whether the lookup succeeded
-	 * @throws CoreException if something goes terribly wrong
-	 */
-	private boolean resolveMethod(IApiComponent sourceComponent, IApiType type, String methodName, String methodSignature) throws CoreException {
-		IApiMethod target = type.getMethod(methodName, methodSignature);
-		if (target != null) {
-			if (target.isSynthetic()) {
-				// don't resolve references to synthetic methods
-				return false;
-			} else {
-				return true;
-			}
-		}
-		switch(this.fKind) {
-			case IReference.REF_INTERFACEMETHOD : 
-				// resolve method in super interfaces rather than class
-				String[] interfacesNames = type.getSuperInterfaceNames();
-				if (interfacesNames != null) {
-					for (int i = 0, max = interfacesNames.length; i < max; i++) {
-						IApiTypeRoot classFile = Util.getClassFile(
-								new IApiComponent[] { sourceComponent },
-								interfacesNames[i]);
-						IApiType superinterface = classFile.getStructure();
-						if (superinterface != null && resolveMethod(sourceComponent, superinterface, methodName, methodSignature)) {
-							return true;
-						}
-					}
-				}
-				break;
-			case IReference.REF_STATICMETHOD :
-				String superclassName = type.getSuperclassName();
-				if (superclassName != null) {
-					IApiTypeRoot classFile = Util.getClassFile(
-							new IApiComponent[] { sourceComponent },
-							superclassName);
-					IApiType superclass = classFile.getStructure();
-					boolean resolved = resolveMethod(sourceComponent, superclass, methodName, methodSignature);
-					if (resolved) {
-						return resolved;
-					}
-				}
-				break;
-			case IReference.REF_VIRTUALMETHOD :
-			case IReference.REF_SPECIALMETHOD :
-				// check polymorphic methods: polymorphic method signature is ([Ljava/lang/Object;)Ljava/lang/Object;
-				target = type.getMethod(methodName, "([Ljava/lang/Object;)Ljava/lang/Object;"); //$NON-NLS-1$
-				if (target != null) {
-					if (methodName.equals(target.getName()) && target.isPolymorphic()) {
-						return true;
-					}
-				}
-				superclassName = type.getSuperclassName();
-				if (superclassName != null) {
-					IApiTypeRoot classFile = Util.getClassFile(
-							new IApiComponent[] { sourceComponent },
-							superclassName);
-					IApiType superclass = classFile.getStructure();
-					boolean resolved = resolveMethod(sourceComponent, superclass, methodName, methodSignature);
-					if (resolved) {
-						return resolved;
-					}
-				}
-				if (Flags.isAbstract(type.getModifiers())) {
-					interfacesNames = type.getSuperInterfaceNames();
-					if (interfacesNames != null) {
-						for (int i = 0, max = interfacesNames.length; i < max; i++) {
-							IApiTypeRoot classFile = Util.getClassFile(
-									new IApiComponent[] { sourceComponent },
-									interfacesNames[i]);
-							IApiType superinterface = classFile.getStructure();
-							if (superinterface != null && resolveMethod(sourceComponent, superinterface, methodName, methodSignature)) {
-								return true;
-							}
-						}
-					}
-				}
-		}
-		return false;
-	}
 	/**
 	 * Used by the search engine when resolving multiple references.
 	 * 
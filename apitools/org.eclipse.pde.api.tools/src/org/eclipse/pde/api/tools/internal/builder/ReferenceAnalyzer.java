@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,16 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.builder;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.pde.api.tools.internal.provisional.ApiDescriptionVisitor;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
@@ -32,6 +35,7 @@ import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
 import org.eclipse.pde.api.tools.internal.provisional.problems.IApiProblem;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.eclipse.pde.api.tools.internal.util.Util;
 
 import com.ibm.icu.text.MessageFormat;
@@ -94,27 +98,7 @@ public class ReferenceAnalyzer {
 					if(type.isMemberType() || type.isLocal() || type.isAnonymous()) {
 						return;
 					}
-					List references = type.extractReferences(fAllReferenceKinds, null);
-					// keep potential matches
-					Iterator iterator = references.iterator();
-					while (iterator.hasNext()) {
-						IReference ref = (IReference) iterator.next();
-						// compute index of interested problem detectors
-						int index = getLog2(ref.getReferenceKind());
-						IApiProblemDetector[] detectors = fIndexedDetectors[index];
-						boolean added = false;
-						if (detectors != null) {
-							for (int i = 0; i < detectors.length; i++) {
-								IApiProblemDetector detector = detectors[i];
-								if (detector.considerReference(ref)) {
-									if (!added) {
-										fReferences.add(ref);
-										added = true;
-									}
-								}
-							}
-						}
-					}
+					considerReferences(type.extractReferences(fAllReferenceKinds, null));
 				} catch (CoreException e) {
 					fStatus.add(e.getStatus());
 				}
@@ -122,6 +106,86 @@ public class ReferenceAnalyzer {
 		}
 	}
 	
+	/**
+	 * Collects the class files of a scope in visiting order
+	 */
+	static class Collector extends ApiTypeContainerVisitor {
+		
+		List fTypeRoots = new ArrayList();
+		
+		/* (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor#visit(java.lang.String, org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot)
+		 */
+		public void visit(String packageName, IApiTypeRoot typeroot) {
+			fTypeRoots.add(typeroot);
+		}
+	}
+	
+	/**
+	 * The problem detectors and kept references of one thread of a parallel scan
+	 */
+	class Worker {
+		
+		/**
+		 * Copies of the problem detectors, at the index of the detector they copy, or <code>null</code>
+		 * for the detectors that have to consider every reference themselves
+		 */
+		IApiProblemDetector[] fCopies;
+		
+		/**
+		 * The copies indexed by the reference kinds they are interested in
+		 */
+		IApiProblemDetector[][] fIndexedCopies = new IApiProblemDetector[32][];
+		
+		/**
+		 * References kept by at least one of the copies
+		 */
+		List fKept = new LinkedList();
+		
+		/**
+		 * Constructor
+		 * @param detectors the problem detectors to copy
+		 */
+		Worker(IApiProblemDetector[] detectors) {
+			fCopies = new IApiProblemDetector[detectors.length];
+			for (int i = 0; i < detectors.length; i++) {
+				if (detectors[i] instanceof AbstractProblemDetector) {
+					fCopies[i] = ((AbstractProblemDetector) detectors[i]).copy();
+				}
+			}
+			indexProblemDetectors(fCopies, fIndexedCopies);
+		}
+		
+		/**
+		 * Hands the given references to the copies. The references that the detectors 
+		 * in {@link ReferenceAnalyzer#fOrderedDetectors} are interested in are also added to
+		 * <code>kept</code> or <code>unkept</code>, depending on whether a copy kept them.
+		 * 
+		 * @param references the {@link IReference}s extracted from a type
+		 * @param kept the list to add the references kept by a copy to
+		 * @param unkept the list to add the references no copy kept to
+		 */
+		void considerReferences(List references, List kept, List unkept) {
+			Iterator iterator = references.iterator();
+			while (iterator.hasNext()) {
+				IReference ref = (IReference) iterator.next();
+				int index = getLog2(ref.getReferenceKind());
+				boolean added = considerReference(ref, fIndexedCopies[index]);
+				if (added) {
+					fKept.add(ref);
+				}
+				if (fOrderedDetectors[index] != null) {
+					if (added) {
+						kept.add(ref);
+					}
+					else {
+						unkept.add(ref);
+					}
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Scan status
 	 */
@@ -143,6 +207,44 @@ public class ReferenceAnalyzer {
 	 * problem detectors.
 	 */
 	IApiProblemDetector[][] fIndexedDetectors;
+	
+	/**
+	 * The problem detectors, in the order they were built
+	 */
+	IApiProblemDetector[] fDetectors = NO_PROBLEM_DETECTORS;
+	
+	/**
+	 * The problem detectors that cannot be copied, indexed like {@link #fIndexedDetectors}. During a parallel
+	 * scan these consider the references of each class file in the same order as a serial scan would.
+	 */
+	IApiProblemDetector[][] fOrderedDetectors;
+	
+	/**
+	 * The {@link Worker}s of the last parallel scan, whose copies of the problem detectors
+	 * hold the references they kept
+	 */
+	List fWorkers = new ArrayList();
+	
+	/**
+	 * The maximum number of threads used to extract and resolve references
+	 */
+	int fThreads = 1;
+	
+	/**
+	 * Constructor
+	 */
+	public ReferenceAnalyzer() {
+	}
+	
+	/**
+	 * Constructor
+	 * @param threads the maximum number of threads to use to extract and resolve references.
+	 * A value of one or less extracts and resolves references on the calling thread.
+	 * @since 1.0.400
+	 */
+	public ReferenceAnalyzer(int threads) {
+		fThreads = threads;
+	}
 
 	/**
 	 * Method used for initializing tracing
@@ -161,22 +263,40 @@ public class ReferenceAnalyzer {
 	 * @param detectors problem detectors
 	 */
 	void indexProblemDetectors(IApiProblemDetector[] detectors) {
+		fDetectors = detectors;
 		fIndexedDetectors = new IApiProblemDetector[32][];
+		for (int i = 0; i < detectors.length; i++) {
+			fAllReferenceKinds |= detectors[i].getReferenceKinds();
+		}
+		indexProblemDetectors(detectors, fIndexedDetectors);
+	}
+	
+	/**
+	 * Adds the given problem detectors to the given index by the reference kinds they are interested in.
+	 * <code>null</code> detectors are skipped.
+	 * 
+	 * @param detectors problem detectors
+	 * @param indexedDetectors the index to add them to
+	 * @since 1.0.400
+	 */
+	static void indexProblemDetectors(IApiProblemDetector[] detectors, IApiProblemDetector[][] indexedDetectors) {
 		for (int i = 0; i < detectors.length; i++) {
 			IApiProblemDetector detector = detectors[i];
+			if (detector == null) {
+				continue;
+			}
 			int kinds = detector.getReferenceKinds();
-			fAllReferenceKinds |= kinds;
 			int mask = 0x1;
 			for (int bit = 0; bit < 32; bit++) {
 				if ((mask & kinds) > 0) {
-					IApiProblemDetector[] indexed = fIndexedDetectors[bit];
+					IApiProblemDetector[] indexed = indexedDetectors[bit];
 					if (indexed == null) {
-						fIndexedDetectors[bit] = new IApiProblemDetector[]{detector};
+						indexedDetectors[bit] = new IApiProblemDetector[]{detector};
 					} else {
 						IApiProblemDetector[] next = new IApiProblemDetector[indexed.length + 1];
 						System.arraycopy(indexed, 0, next, 0, indexed.length);
 						next[indexed.length] = detector;
-						fIndexedDetectors[bit] = next;
+						indexedDetectors[bit] = next;
 					}
 				}
 				mask = mask << 1;
@@ -196,6 +316,56 @@ public class ReferenceAnalyzer {
 		return (int)Math.round(pow);
 	}	
 	
+	/**
+	 * Hands the given references to the interested problem detectors, keeping
+	 * the references that are potential matches.
+	 * 
+	 * @param references the {@link IReference}s extracted from a type
+	 */
+	void considerReferences(List references) {
+		considerReferences(references, fIndexedDetectors, fReferences);
+	}
+	
+	/**
+	 * Hands the given references to the interested problem detectors of the given index.
+	 * 
+	 * @param references the {@link IReference}s extracted from a type
+	 * @param indexedDetectors the problem detectors indexed by the reference kinds they are interested in
+	 * @param kept the list to add the references that are potential matches to or <code>null</code>
+	 * @since 1.0.400
+	 */
+	void considerReferences(List references, IApiProblemDetector[][] indexedDetectors, List kept) {
+		Iterator iterator = references.iterator();
+		while (iterator.hasNext()) {
+			IReference ref = (IReference) iterator.next();
+			// compute index of interested problem detectors
+			int index = getLog2(ref.getReferenceKind());
+			if (considerReference(ref, indexedDetectors[index]) && kept != null) {
+				kept.add(ref);
+			}
+		}
+	}
+	
+	/**
+	 * Hands the given reference to each of the given problem detectors
+	 * 
+	 * @param ref the reference
+	 * @param detectors the problem detectors interested in the kind of the reference or <code>null</code>
+	 * @return whether at least one of the detectors kept the reference
+	 * @since 1.0.400
+	 */
+	boolean considerReference(IReference ref, IApiProblemDetector[] detectors) {
+		boolean added = false;
+		if (detectors != null) {
+			for (int i = 0; i < detectors.length; i++) {
+				if (detectors[i].considerReference(ref)) {
+					added = true;
+				}
+			}
+		}
+		return added;
+	}
+	
 	/**
 	 * Scans the given scope extracting all reference information.
 	 * 
@@ -205,6 +375,10 @@ public class ReferenceAnalyzer {
 	 */
 	void extractReferences(IApiTypeContainer scope, IProgressMonitor monitor) throws CoreException {
 		fStatus = new MultiStatus(ApiPlugin.PLUGIN_ID, 0, BuilderMessages.ReferenceAnalyzer_api_analysis_error, null); 
+		if (fThreads > 1) {
+			extractReferencesInParallel(scope, monitor);
+			return;
+		}
 		String[] packageNames = scope.getPackageNames();
 		SubMonitor localMonitor = SubMonitor.convert(monitor, packageNames.length);
 		ApiTypeContainerVisitor visitor = new Visitor(localMonitor);
@@ -224,6 +398,134 @@ public class ReferenceAnalyzer {
 		}
 	}	
 
+	/**
+	 * Scans the given scope extracting all reference information, reading and extracting the 
+	 * class files on up to {@link #fThreads} threads. Each thread hands the references it extracts
+	 * to its own {@link Worker} copies of the problem detectors. The detectors that cannot be copied are
+	 * handed the references of each class file as soon as the class files before it have been handed, 
+	 * one class file at a time and in the same order as a serial scan would.
+	 * 
+	 * @param scope scope to scan
+	 * @param monitor progress monitor
+	 * @exception CoreException if the scan fails
+	 */
+	void extractReferencesInParallel(IApiTypeContainer scope, IProgressMonitor monitor) throws CoreException {
+		long start = System.currentTimeMillis();
+		Collector collector = new Collector();
+		try {
+			scope.accept(collector);
+		} catch (CoreException e) {
+			fStatus.add(e.getStatus());
+			throw new CoreException(fStatus);
+		}
+		final IApiTypeRoot[] roots = (IApiTypeRoot[]) collector.fTypeRoots.toArray(new IApiTypeRoot[collector.fTypeRoots.size()]);
+		final List[] kept = new List[roots.length];
+		final List[] unkept = new List[roots.length];
+		final IStatus[] errors = new IStatus[roots.length];
+		final boolean[] extracted = new boolean[roots.length];
+		Worker first = new Worker(fDetectors);
+		IApiProblemDetector[] ordered = new IApiProblemDetector[fDetectors.length];
+		for (int i = 0; i < fDetectors.length; i++) {
+			if (first.fCopies[i] == null) {
+				ordered[i] = fDetectors[i];
+			}
+		}
+		fOrderedDetectors = new IApiProblemDetector[32][];
+		indexProblemDetectors(ordered, fOrderedDetectors);
+		fWorkers.clear();
+		fWorkers.add(first);
+		SubMonitor localMonitor = SubMonitor.convert(monitor, roots.length);
+		try {
+			ParallelExecutor.run(roots.length, fThreads, new ParallelExecutor.Task() {
+				/**
+				 * The index of the next class file whose references are to be considered
+				 * by the ordered problem detectors
+				 */
+				private int fNext = 0;
+				
+				/**
+				 * The number of {@link Worker}s handed out to threads
+				 */
+				private int fAssigned = 0;
+				
+				/**
+				 * The {@link Worker} of the current thread
+				 */
+				private ThreadLocal fWorker = new ThreadLocal();
+
+				public void run(int index) throws CoreException {
+					List references = null;
+					try {
+						IApiType type = roots[index].getStructure();
+						//don't process bad class files or inner/anonymous/local types, this is done in the extractor
+						if(type != null && !type.isMemberType() && !type.isLocal() && !type.isAnonymous()) {
+							references = type.extractReferences(fAllReferenceKinds, null);
+						}
+					} catch (CoreException e) {
+						errors[index] = e.getStatus();
+					}
+					if (references != null) {
+						kept[index] = new ArrayList();
+						unkept[index] = new ArrayList();
+						getWorker().considerReferences(references, kept[index], unkept[index]);
+					}
+					synchronized (this) {
+						extracted[index] = true;
+						while (fNext < roots.length && extracted[fNext]) {
+							int next = fNext++;
+							if (errors[next] != null) {
+								fStatus.add(errors[next]);
+							}
+							else if (kept[next] != null) {
+								considerReferences(kept[next], fOrderedDetectors, null);
+								considerReferences(unkept[next], fOrderedDetectors, fReferences);
+								kept[next] = null;
+								unkept[next] = null;
+							}
+						}
+					}
+				}
+				
+				/**
+				 * Returns the {@link Worker} of the current thread, handing one out the first time
+				 * 
+				 * @return the {@link Worker} of the current thread
+				 */
+				private Worker getWorker() {
+					Worker worker = (Worker) fWorker.get();
+					if (worker == null) {
+						synchronized (this) {
+							if (fAssigned < fWorkers.size()) {
+								worker = (Worker) fWorkers.get(fAssigned);
+							}
+							else {
+								worker = new Worker(fDetectors);
+								fWorkers.add(worker);
+							}
+							fAssigned++;
+						}
+						fWorker.set(worker);
+					}
+					return worker;
+				}
+			}, localMonitor);
+		} catch (OperationCanceledException e) {
+			//same as the serial scan, the caller checks the monitor
+			return;
+		}
+		for (Iterator iterator = fWorkers.iterator(); iterator.hasNext();) {
+			fReferences.addAll(((Worker) iterator.next()).fKept);
+		}
+		long end = System.currentTimeMillis();
+		if (!fStatus.isOK()) {
+			throw new CoreException(fStatus);
+		}
+		localMonitor.done();
+		if (DEBUG) {
+			System.out.println("Reference Analyzer: extracted " + fReferences.size() + " references in " + (end - start) + "ms using " + fThreads + " threads"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+	
 	/**
 	 * Analyzes the given {@link IApiComponent} within the given {@link IApiTypeContainer} (scope) and returns 
 	 * a collection of detected {@link IApiProblem}s or an empty collection, never <code>null</code>
@@ -249,7 +551,7 @@ public class ReferenceAnalyzer {
 			// 2. resolve problematic references
 			localMonitor.subTask(BuilderMessages.ReferenceAnalyzer_analyzing_api_checking_use);
 			if (fReferences.size() != 0) {
-				ReferenceResolver.resolveReferences(fReferences, localMonitor);
+				ReferenceResolver.resolveReferences(fReferences, fThreads, localMonitor);
 			}
 			localMonitor.worked(1);
 			if (localMonitor.isCanceled()) {
@@ -262,6 +564,13 @@ public class ReferenceAnalyzer {
 				IApiProblemDetector detector = detectors[i];
 				List problems = detector.createProblems();
 				allProblems.addAll(problems);
+				// merge the problems of the copies made for a parallel scan
+				for (Iterator iterator = fWorkers.iterator(); iterator.hasNext();) {
+					IApiProblemDetector copy = ((Worker) iterator.next()).fCopies[i];
+					if (copy != null) {
+						allProblems.addAll(copy.createProblems());
+					}
+				}
 				if (localMonitor.isCanceled()) {
 					return EMPTY_RESULT;
 				}
@@ -273,6 +582,9 @@ public class ReferenceAnalyzer {
 		} finally {
 			// clean up
 			fIndexedDetectors = null;
+			fOrderedDetectors = null;
+			fDetectors = NO_PROBLEM_DETECTORS;
+			fWorkers.clear();
 			fReferences.clear();
 		}
 	}
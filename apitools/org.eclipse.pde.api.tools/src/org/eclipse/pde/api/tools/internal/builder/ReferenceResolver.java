@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,8 +18,11 @@ import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiMember;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.eclipse.pde.api.tools.internal.util.Util;
 
 /**
@@ -56,6 +59,20 @@ public final class ReferenceResolver {
 	 * @throws CoreException if something goes wrong
 	 */
 	public static void resolveReferences(List/*<IReference>*/ references, IProgressMonitor monitor) throws CoreException {
+		resolveReferences(references, 1, monitor);
+	}
+	
+	/**
+	 * Resolves retained references using at most the given number of threads. References
+	 * that share the same target are still resolved only once.
+	 * 
+	 * @param references list of {@link IReference} to resolve
+	 * @param threads the maximum number of threads to use
+	 * @param progress monitor
+	 * @throws CoreException if something goes wrong
+	 * @since 1.0.400
+	 */
+	public static void resolveReferences(List/*<IReference>*/ references, int threads, final IProgressMonitor monitor) throws CoreException {
 		// sort references by target type for 'shared' resolution
 		int refcount = references.size();
 		Map sigtoref = new HashMap(refcount);
@@ -89,17 +106,32 @@ public final class ReferenceResolver {
 		}
 		// resolve references
 		start = System.currentTimeMillis();
-		resolveReferenceSets(sigtoref, monitor);
+		resolveReferenceSets(sigtoref, threads, monitor);
 		end = System.currentTimeMillis();
 		if (DEBUG) {
 			System.out.println("Reference resolver: resolved unique references in " + (end - start) + "ms");  //$NON-NLS-1$//$NON-NLS-2$
 		}
 		// resolve method overrides
 		start = System.currentTimeMillis();
-		iterator = methodDecls.iterator();
-		while (iterator.hasNext()) {
-			Reference reference = (Reference) iterator.next();
-			reference.resolve();
+		if (threads > 1) {
+			final Reference[] overrides = (Reference[]) methodDecls.toArray(new Reference[methodDecls.size()]);
+			try {
+				ParallelExecutor.run(overrides.length, threads, new ParallelExecutor.Task() {
+					public void run(int index) throws CoreException {
+						overrides[index].resolve();
+					}
+				}, cancelOnly(monitor));
+			}
+			catch (OperationCanceledException e) {
+				return;
+			}
+		}
+		else {
+			iterator = methodDecls.iterator();
+			while (iterator.hasNext()) {
+				Reference reference = (Reference) iterator.next();
+				reference.resolve();
+			}
 		}
 		end = System.currentTimeMillis();
 		if (DEBUG) {
@@ -112,28 +144,63 @@ public final class ReferenceResolver {
 	 * @param map the mapping of keys to sets of {@link IReference}s
 	 * @throws CoreException if something bad happens
 	 */
-	private static void resolveReferenceSets(Map map, IProgressMonitor monitor) throws CoreException {
+	private static void resolveReferenceSets(Map map, int threads, IProgressMonitor monitor) throws CoreException {
+		if (threads > 1) {
+			final List[] sets = (List[]) map.values().toArray(new List[map.size()]);
+			try {
+				ParallelExecutor.run(sets.length, threads, new ParallelExecutor.Task() {
+					public void run(int index) throws CoreException {
+						resolveReferenceSet(sets[index]);
+					}
+				}, cancelOnly(monitor));
+			}
+			catch (OperationCanceledException e) {
+				//same as the serial case, the caller checks the monitor
+			}
+			return;
+		}
 		Iterator iterator = map.values().iterator();
-		List refs = null;
-		IReference ref= null;
 		while (iterator.hasNext()) {
 			if (monitor.isCanceled()) {
 				return;
 			}
-			refs = (List) iterator.next();
-			ref = (IReference) refs.get(0);
-			((Reference)ref).resolve();
-			IApiMember resolved = ref.getResolvedReference();
-			if (resolved != null) {
-				Iterator iterator2 = refs.iterator();
-				while (iterator2.hasNext()) {
-					Reference ref2 = (Reference) iterator2.next();
-					ref2.setResolution(resolved);
-				}
+			resolveReferenceSet((List) iterator.next());
+		}
+	}
+	
+	/**
+	 * Resolves the first reference of the given set and shares its resolution with the 
+	 * rest of the set
+	 * @param refs a list of {@link IReference}s to the same target
+	 * @throws CoreException if something bad happens
+	 */
+	private static void resolveReferenceSet(List refs) throws CoreException {
+		IReference ref = (IReference) refs.get(0);
+		((Reference)ref).resolve();
+		IApiMember resolved = ref.getResolvedReference();
+		if (resolved != null) {
+			Iterator iterator = refs.iterator();
+			while (iterator.hasNext()) {
+				Reference ref2 = (Reference) iterator.next();
+				ref2.setResolution(resolved);
 			}
 		}
 	}
 	
+	/**
+	 * Returns a monitor that only forwards cancellation to the given monitor, so that 
+	 * resolving many references does not consume the work of the caller's monitor
+	 * @param monitor
+	 * @return a cancellation-only monitor
+	 */
+	private static IProgressMonitor cancelOnly(final IProgressMonitor monitor) {
+		return new NullProgressMonitor() {
+			public boolean isCanceled() {
+				return monitor != null && monitor.isCanceled();
+			}
+		};
+	}
+	
 	/**
 	 * Creates a unique string key for a given reference.
 	 * The key is of the form "component X references type/member"
@@ -27,6 +27,7 @@ import org.eclipse.jface.text.Position;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.osgi.service.resolver.ImportPackageSpecification;
 import org.eclipse.pde.api.tools.internal.model.BundleComponent;
+import org.eclipse.pde.api.tools.internal.model.EEAvailabilityIndex;
 import org.eclipse.pde.api.tools.internal.model.ProjectComponent;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.ProfileModifiers;
@@ -343,13 +344,14 @@ public class SystemApiDetector extends AbstractProblemDetector {
 				// this should not be true for Eclipse bundle as they should always have a EE set
 				return false;
 			}
+			EEAvailabilityIndex eeIndex = EEAvailabilityIndex.getDefault();
 			loop: for (int i = 0, max = lowestEEs.length; i < max; i++) {
 				String lowestEE = lowestEEs[i];
 				int eeValue = ProfileModifiers.getValue(lowestEE); 
 				if (eeValue == ProfileModifiers.NO_PROFILE_VALUE) {
 					return false;
 				}
-				if (!((Reference) reference).resolve(eeValue)) {
+				if ((eeIndex.getAvailableEEs(reference) & eeValue) == 0) {
 					/*
 					 * Make sure that the resolved reference doesn't below to one of the imported package of
 					 * the current component
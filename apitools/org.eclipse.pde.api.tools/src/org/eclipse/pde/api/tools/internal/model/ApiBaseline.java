@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -46,11 +46,13 @@ import org.eclipse.jdt.launching.VMStandin;
 import org.eclipse.jdt.launching.environments.ExecutionEnvironmentDescription;
 import org.eclipse.jdt.launching.environments.IExecutionEnvironment;
 import org.eclipse.jdt.launching.environments.IExecutionEnvironmentsManager;
+import org.eclipse.osgi.service.resolver.BundleDelta;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.osgi.service.resolver.ExportPackageDescription;
 import org.eclipse.osgi.service.resolver.HostSpecification;
 import org.eclipse.osgi.service.resolver.ResolverError;
 import org.eclipse.osgi.service.resolver.State;
+import org.eclipse.osgi.service.resolver.StateDelta;
 import org.eclipse.osgi.service.resolver.StateHelper;
 import org.eclipse.osgi.service.resolver.StateObjectFactory;
 import org.eclipse.pde.api.tools.internal.AnyValue;
@@ -93,6 +95,11 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	 */
 	private IApiComponent fSystemLibraryComponent;
 	
+	/**
+	 * The system library component alone, as returned when resolving system packages
+	 */
+	private IApiComponent[] fSystemLibraryComponents;
+	
 	/**
 	 * Whether an execution environment should be automatically resolved 
 	 * as API components are added.
@@ -114,12 +121,9 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	private AnyValue ANY_VALUE = new AnyValue("*"); //$NON-NLS-1$
 	
 	/**
-	 * Cache of resolved packages. 
-	 * <p>Map of <code>PackageName -> Map(componentName -> IApiComponent[])</code></p>
-	 * For each package the cache contains a map of API components that provide that package,
-	 * by source component name (including the <code>null</code> component name).
+	 * Index of the packages resolved by each component, used to resolve packages without locking the baseline
 	 */
-	private HashMap fComponentsProvidingPackageCache = null;
+	private final PackageVisibilityIndex fPackageIndex = new PackageVisibilityIndex();
 	
 	/**
 	 * Maps component id's to components.
@@ -132,9 +136,9 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	 */
 	private HashMap fComponentsByProjectNames = null;
 	/**
-	 * Cache of system package names
+	 * Cache of system package names. The set is replaced, never modified.
 	 */
-	private HashSet fSystemPackageNames = null;
+	private volatile HashSet fSystemPackageNames = null;
 	
 	/**
 	 * The VM install this baseline is bound to for system libraries or <code>null</code>.
@@ -280,24 +284,19 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 		if (fSystemLibraryComponent != null && fComponentsById != null) {
 			fComponentsById.remove(fSystemLibraryComponent.getSymbolicName());
 		}
-		if(fSystemPackageNames != null) {
-			fSystemPackageNames.clear();
-			fSystemPackageNames = null;
-		}
+		fSystemPackageNames = null;
 		clearComponentsCache();
 		// set new system library
 		fSystemLibraryComponent = new SystemLibraryApiComponent(this, description, systemPackages);
+		fSystemLibraryComponents = new IApiComponent[] { fSystemLibraryComponent };
 		addComponent(fSystemLibraryComponent);
 	}
 
 	/**
-	 * Clears the package -> components cache and sets it to <code>null</code>
+	 * Clears the package visibility index
 	 */
-	private synchronized void clearComponentsCache() {
-		if(fComponentsProvidingPackageCache != null) {
-			fComponentsProvidingPackageCache.clear();
-			fComponentsProvidingPackageCache = null;
-		}
+	private void clearComponentsCache() {
+		fPackageIndex.clear();
 	}
 	
 	/**
@@ -326,6 +325,7 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	 */
 	public void addApiComponents(IApiComponent[] components) throws CoreException {
 		HashSet ees = new HashSet();
+		boolean replaced = false;
 		for (int i = 0; i < components.length; i++) {
 			BundleComponent component = (BundleComponent) components[i];
 			if (component.isSourceComponent()) {
@@ -333,11 +333,59 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 			}
 			BundleDescription description = component.getBundleDescription();
 			getState().addBundle(description);
+			if (fComponentsById != null && fComponentsById.containsKey(component.getSymbolicName())) {
+				replaced = true;
+			}
 			addComponent(component);
 			ees.addAll(Arrays.asList(component.getExecutionEnvironments()));
 		}
 		resolveSystemLibrary(ees);
-		getState().resolve();
+		StateDelta delta = getState().resolve();
+		if (replaced) {
+			// other components may see packages exported by the replaced components
+			clearComponentsCache();
+		} else {
+			updatePackageIndex(delta);
+		}
+	}
+
+	/**
+	 * Removes the resolved packages of the components whose bundles changed in the given
+	 * resolver delta, and of the fragments of those bundles, from the package index.
+	 * The resolved packages of the other components are not affected by an incremental resolve.
+	 * 
+	 * @param delta the delta of the last resolve
+	 */
+	private void updatePackageIndex(StateDelta delta) {
+		BundleDelta[] changes = delta.getChanges();
+		if (changes.length == 0) {
+			return;
+		}
+		HashSet changed = new HashSet(changes.length * 2);
+		for (int i = 0; i < changes.length; i++) {
+			BundleDescription bundle = changes[i].getBundle();
+			addComponent(changed, bundle);
+			BundleDescription[] fragments = bundle.getFragments();
+			for (int j = 0; j < fragments.length; j++) {
+				addComponent(changed, fragments[j]);
+			}
+		}
+		fPackageIndex.removeResolvedPackages(changed);
+	}
+
+	/**
+	 * Adds the component of the given bundle, if any, to the given set
+	 * 
+	 * @param components
+	 * @param bundle
+	 */
+	private void addComponent(Set components, BundleDescription bundle) {
+		if (bundle.getSymbolicName() != null) {
+			IApiComponent component = getApiComponent(bundle.getSymbolicName());
+			if (component != null) {
+				components.add(component);
+			}
+		}
 	}
 
 	/**
@@ -475,95 +523,119 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	/* (non-Javadoc)
 	 * @see IApiBaseline#resolvePackage(IApiComponent, String)
 	 */
-	public synchronized IApiComponent[] resolvePackage(IApiComponent sourceComponent, String packageName) throws CoreException {
-		HashMap componentsForPackage = null;
-		if(fComponentsProvidingPackageCache != null){
-			componentsForPackage = (HashMap) fComponentsProvidingPackageCache.get(packageName);
-		}
-		else {
-			fComponentsProvidingPackageCache = new HashMap(8);
-		}
-		IApiComponent[] cachedComponents = null;
-		if (componentsForPackage != null) {
-			cachedComponents = (IApiComponent[]) componentsForPackage.get(sourceComponent);
-			if (cachedComponents != null && cachedComponents.length > 0) {
-				return cachedComponents;
-			}
-		} else {
-			componentsForPackage = new HashMap(8);
-			fComponentsProvidingPackageCache.put(packageName, componentsForPackage);
-		}
+	public IApiComponent[] resolvePackage(IApiComponent sourceComponent, String packageName) throws CoreException {
 		// check system packages first
 		if (isSystemPackage(packageName)) {
-			if (fSystemLibraryComponent != null) {
-				cachedComponents = new IApiComponent[] { fSystemLibraryComponent };
-			} else {
-				return EMPTY_COMPONENTS;
-			}
-		} else {
-			if (sourceComponent != null) {
-				List componentsList = new ArrayList();
-				resolvePackage0(sourceComponent, packageName, componentsList);
-				if (componentsList.size() != 0) {
-					cachedComponents = new IApiComponent[componentsList.size()];
-					componentsList.toArray(cachedComponents);
-				}
+			IApiComponent[] system = fSystemLibraryComponents;
+			if (system != null) {
+				return system;
 			}
+			return EMPTY_COMPONENTS;
 		}
-		if (cachedComponents == null) {
-			cachedComponents = EMPTY_COMPONENTS;
+		if (sourceComponent == null) {
+			return EMPTY_COMPONENTS;
 		}
-		if(cachedComponents.length == 0) {
+		IApiComponent[] components = (IApiComponent[]) getResolvedPackages(sourceComponent).get(packageName);
+		if (components == null) {
 			return EMPTY_COMPONENTS;
 		}
-		componentsForPackage.put(sourceComponent, cachedComponents);
-		return cachedComponents;
+		return components;
 	}
 
 	/**
-	 * Resolves the listing of {@link IApiComponent}s that export the given package name. The collection 
-	 * of {@link IApiComponent}s is written into the specified list <code>componentList</code> 
+	 * Returns the packages the given component resolves from the current state, computing
+	 * and indexing them the first time they are asked for. A package is provided by the components
+	 * exporting it to the given component, then by the hosts of a fragment, then by the component itself.
+	 * 
 	 * @param component
-	 * @param packageName
-	 * @param componentsList
+	 * @return map of package name to the array of {@link IApiComponent}s providing it, must not be modified
 	 * @throws CoreException
 	 */
-	private void resolvePackage0(IApiComponent component, String packageName, List componentsList) throws CoreException {
-		if (component instanceof BundleComponent) {
-			BundleDescription bundle = ((BundleComponent)component).getBundleDescription();
-			if (bundle != null) {
-				StateHelper helper = getState().getStateHelper();
-				ExportPackageDescription[] visiblePackages = helper.getVisiblePackages(bundle);
-				for (int i = 0, max = visiblePackages.length; i < max; i++) {
-					ExportPackageDescription pkg = visiblePackages[i];
-					if (packageName.equals(pkg.getName())) {
+	private HashMap getResolvedPackages(IApiComponent component) throws CoreException {
+		HashMap resolved = fPackageIndex.getResolvedPackages(component);
+		if (resolved == null) {
+			int generation = fPackageIndex.getGeneration();
+			resolved = new HashMap();
+			if (component instanceof BundleComponent) {
+				BundleDescription bundle = ((BundleComponent)component).getBundleDescription();
+				if (bundle != null) {
+					StateHelper helper = getState().getStateHelper();
+					ExportPackageDescription[] visiblePackages = helper.getVisiblePackages(bundle);
+					for (int i = 0, max = visiblePackages.length; i < max; i++) {
+						ExportPackageDescription pkg = visiblePackages[i];
 						BundleDescription bundleDescription = pkg.getExporter();
 						IApiComponent exporter = getApiComponent(bundleDescription.getSymbolicName());
 						if (exporter != null) {
-							componentsList.add(exporter);
+							addProviders(resolved, pkg.getName(), new IApiComponent[] { exporter });
 						}
 					}
-				}
-				if (component.isFragment()) {
-					// a fragment can see all the packages from the host
-					HostSpecification host = bundle.getHost();
-					BundleDescription[] hosts = host.getHosts();
-					for (int i = 0, max = hosts.length; i < max; i++) {
-						BundleDescription currentHost = hosts[i];
-						IApiComponent apiComponent = component.getBaseline().getApiComponent(currentHost.getName());
-						if (apiComponent != null) {
-							resolvePackage0(apiComponent, packageName, componentsList);
+					if (component.isFragment()) {
+						// a fragment can see all the packages from the host
+						HostSpecification host = bundle.getHost();
+						BundleDescription[] hosts = host.getHosts();
+						for (int i = 0, max = hosts.length; i < max; i++) {
+							BundleDescription currentHost = hosts[i];
+							IApiComponent apiComponent = component.getBaseline().getApiComponent(currentHost.getName());
+							if (apiComponent != null) {
+								HashMap hostPackages = getResolvedPackages(apiComponent);
+								for (Iterator iter = hostPackages.entrySet().iterator(); iter.hasNext();) {
+									Entry entry = (Entry) iter.next();
+									addProviders(resolved, (String) entry.getKey(), (IApiComponent[]) entry.getValue());
+								}
+							}
 						}
 					}
-				}
-				// check for package within the source component
-				String[] packageNames = component.getPackageNames();
-				int index = Arrays.binarySearch(packageNames, packageName, null);
-				if (index >= 0) {
-					componentsList.add(component);
+					// packages within the component itself
+					String[] packageNames = getPackageNames(component);
+					IApiComponent[] self = new IApiComponent[] { component };
+					for (int i = 0; i < packageNames.length; i++) {
+						addProviders(resolved, packageNames[i], self);
+					}
 				}
 			}
+			fPackageIndex.putResolvedPackages(component, resolved, generation);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Appends the given providers to the providers of the given package in the given map.
+	 * The arrays of the map are replaced, never modified, so they can be shared between maps.
+	 * 
+	 * @param resolved map of package name to providing {@link IApiComponent}s
+	 * @param packageName
+	 * @param providers
+	 */
+	private static void addProviders(HashMap resolved, String packageName, IApiComponent[] providers) {
+		IApiComponent[] components = (IApiComponent[]) resolved.get(packageName);
+		if (components == null) {
+			components = providers;
+		}
+		else {
+			IApiComponent[] temp = new IApiComponent[components.length + providers.length];
+			System.arraycopy(components, 0, temp, 0, components.length);
+			System.arraycopy(providers, 0, temp, components.length, providers.length);
+			components = temp;
+		}
+		resolved.put(packageName, components);
+	}
+
+	/**
+	 * Returns the sorted names of the packages contained in the given component, computing
+	 * and indexing them the first time they are asked for.
+	 * 
+	 * @param component
+	 * @return the package names, must not be modified
+	 * @throws CoreException
+	 */
+	private String[] getPackageNames(IApiComponent component) throws CoreException {
+		String[] names = fPackageIndex.getPackageNames(component);
+		if (names == null) {
+			int generation = fPackageIndex.getGeneration();
+			names = component.getPackageNames();
+			fPackageIndex.putPackageNames(component, names, generation);
 		}
+		return names;
 	}
 	
 	/**
@@ -601,14 +673,16 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 		if (packageName.startsWith("java.")) { //$NON-NLS-1$
 			return true;
 		}
-		if (fSystemPackageNames == null) {
+		HashSet names = fSystemPackageNames;
+		if (names == null) {
 			ExportPackageDescription[] systemPackages = getState().getSystemPackages();
-			fSystemPackageNames = new HashSet(systemPackages.length);
+			names = new HashSet(systemPackages.length);
 			for (int i = 0; i < systemPackages.length; i++) {
-				fSystemPackageNames.add(systemPackages[i].getName());
+				names.add(systemPackages[i].getName());
 			}
+			fSystemPackageNames = names;
 		}
-		return fSystemPackageNames.contains(packageName);
+		return names.contains(packageName);
 	}
 	
 	/**
@@ -738,12 +812,11 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 			fComponentsByProjectNames.clear();
 			fComponentsByProjectNames = null;
 		}
-		if (fSystemPackageNames != null) {
-			fSystemPackageNames.clear();
-		}
+		fSystemPackageNames = null;
 		if(fSystemLibraryComponent != null) {
 			fSystemLibraryComponent.dispose();
 			fSystemLibraryComponent = null;
+			fSystemLibraryComponents = null;
 		}
 	}
 	
@@ -826,10 +899,9 @@ public class ApiBaseline extends ApiElement implements IApiBaseline, IVMInstallC
 	 * @noreference This method is not intended to be referenced by clients.
 	 * @nooverride This method is not intended to be re-implemented or extended by clients.
 	 */
-	public synchronized void clearPackage(String packageName) {
-		if(fComponentsProvidingPackageCache != null) {
-			fComponentsProvidingPackageCache.remove(packageName);
-		}
+	public void clearPackage(String packageName) {
+		// the package may have been added to or removed from any component
+		fPackageIndex.clearPackageNames();
 	}
 	
 	/* (non-Javadoc)
@@ -0,0 +1,513 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.osgi.util.ManifestElement;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+/**
+ * A compact binary snapshot of the components of an {@link IApiBaseline}.
+ * <p>
+ * The snapshot records, for each component of the baseline, its location, a size and time stamp
+ * of the bundle at that location and the complete set of its manifest headers. Restoring a baseline
+ * from an up-to-date snapshot creates its components without opening any of the bundles.
+ * The size and time stamp of a jar bundle are the ones of the jar. The ones of a directory bundle
+ * are computed from its manifest and the directories and jars on its class path, see
+ * {@link #computeStamp(File, Dictionary)}.
+ * </p>
+ * <p>
+ * The snapshot file is read into memory at once. Only the component table is decoded up front,
+ * the manifest headers of a component are decoded when the component is created.
+ * </p>
+ * The format of the file is:
+ * <pre>
+ * int magic, int version, string baseline location, int component count,
+ * component count * (string location, long size, long time stamp, int header block length, header block)
+ * header block: int header count, header count * (string key, string value)
+ * </pre>
+ * where strings are written as an int byte length followed by the UTF-8 encoded bytes.
+ *
+ * @since 1.0.400
+ */
+public final class ApiBaselineSnapshot {
+
+	/**
+	 * Magic number identifying a snapshot file
+	 */
+	private static final int MAGIC = 0x41504953;
+
+	/**
+	 * Current version of the snapshot format
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The location of the baseline or <code>null</code>
+	 */
+	private String fLocation;
+
+	/**
+	 * Component locations
+	 */
+	private String[] fComponentLocations;
+
+	/**
+	 * Recorded sizes of the components
+	 */
+	private long[] fSizes;
+
+	/**
+	 * Recorded time stamps of the components
+	 */
+	private long[] fTimeStamps;
+
+	/**
+	 * Offsets of the header blocks of the components in the buffer
+	 */
+	private int[] fOffsets;
+
+	/**
+	 * The contents of the snapshot file
+	 */
+	private ByteBuffer fBuffer;
+
+	/**
+	 * Constructor
+	 * @param buffer the snapshot contents
+	 */
+	private ApiBaselineSnapshot(ByteBuffer buffer) {
+		fBuffer = buffer;
+	}
+
+	/**
+	 * Writes a snapshot of the given components to the given file. Nothing is written if one of the
+	 * components is not a bundle component or has no manifest.
+	 *
+	 * @param location the location of the baseline or <code>null</code>
+	 * @param components the components to record
+	 * @param file the file to write to
+	 * @return <code>true</code> if the snapshot was written, <code>false</code> otherwise
+	 * @throws CoreException if the snapshot cannot be written
+	 */
+	public static boolean write(String location, IApiComponent[] components, File file) throws CoreException {
+		return write(location, components, file, null);
+	}
+
+	/**
+	 * Writes a snapshot of the given components to the given file, taking the manifest headers of
+	 * the bundles that did not change since the given previous snapshot from that snapshot rather than
+	 * from the bundles. Nothing is written if one of the components is not a bundle component or has
+	 * no manifest.
+	 *
+	 * @param location the location of the baseline or <code>null</code>
+	 * @param components the components to record
+	 * @param file the file to write to
+	 * @param previous a previous snapshot of the components or <code>null</code>
+	 * @return <code>true</code> if the snapshot was written, <code>false</code> otherwise
+	 * @throws CoreException if the snapshot cannot be written
+	 */
+	public static boolean write(String location, IApiComponent[] components, File file, ApiBaselineSnapshot previous) throws CoreException {
+		Map recorded = (previous == null ? null : previous.getLocationIndex());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(components.length * 1024);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, location == null ? "" : location); //$NON-NLS-1$
+			int count = 0;
+			for (int i = 0; i < components.length; i++) {
+				if (!components[i].isSystemComponent()) {
+					count++;
+				}
+			}
+			out.writeInt(count);
+			ByteArrayOutputStream block = new ByteArrayOutputStream(1024);
+			for (int i = 0; i < components.length; i++) {
+				if (components[i].isSystemComponent()) {
+					continue;
+				}
+				if (!(components[i] instanceof BundleComponent)) {
+					return false;
+				}
+				BundleComponent component = (BundleComponent) components[i];
+				File bundle = new File(component.getLocation());
+				Dictionary manifest = null;
+				long[] stamp = null;
+				Integer index = (recorded == null ? null : (Integer) recorded.get(component.getLocation()));
+				if (index != null) {
+					// the headers of an unchanged bundle are the recorded ones
+					Dictionary headers = previous.readHeaders(index.intValue());
+					stamp = computeStamp(bundle, headers);
+					if (stamp[0] == previous.fSizes[index.intValue()] && stamp[1] == previous.fTimeStamps[index.intValue()]) {
+						manifest = headers;
+					}
+				}
+				if (manifest == null) {
+					manifest = component.getManifestHeaders();
+					if (manifest == null) {
+						return false;
+					}
+					stamp = computeStamp(bundle, manifest);
+				}
+				writeString(out, component.getLocation());
+				out.writeLong(stamp[0]);
+				out.writeLong(stamp[1]);
+				block.reset();
+				DataOutputStream blockOut = new DataOutputStream(block);
+				blockOut.writeInt(manifest.size());
+				for (Enumeration keys = manifest.keys(); keys.hasMoreElements();) {
+					Object key = keys.nextElement();
+					writeString(blockOut, key.toString());
+					writeString(blockOut, manifest.get(key).toString());
+				}
+				blockOut.flush();
+				out.writeInt(block.size());
+				block.writeTo(out);
+			}
+			out.flush();
+		} catch (IOException e) {
+			abort("Unable to write API baseline snapshot", e); //$NON-NLS-1$
+		}
+		BufferedOutputStream stream = null;
+		try {
+			stream = new BufferedOutputStream(new FileOutputStream(file));
+			bytes.writeTo(stream);
+			stream.flush();
+		} catch (IOException e) {
+			abort("Unable to write API baseline snapshot: " + file, e); //$NON-NLS-1$
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the given snapshot file into memory and reads its component table. The file is
+	 * closed when this method returns.
+	 *
+	 * @param file the snapshot file
+	 * @return the snapshot or <code>null</code> if the file is not a snapshot of the current version
+	 * @throws CoreException if the file cannot be read
+	 */
+	public static ApiBaselineSnapshot read(File file) throws CoreException {
+		byte[] bytes = null;
+		DataInputStream stream = null;
+		try {
+			stream = new DataInputStream(new FileInputStream(file));
+			bytes = new byte[(int) file.length()];
+			stream.readFully(bytes);
+		} catch (IOException e) {
+			abort("Unable to read API baseline snapshot: " + file, e); //$NON-NLS-1$
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+		}
+		ApiBaselineSnapshot snapshot = new ApiBaselineSnapshot(ByteBuffer.wrap(bytes));
+		try {
+			if (snapshot.readTable()) {
+				return snapshot;
+			}
+		} catch (IOException e) {
+			// corrupt snapshot, treat as invalid
+		} catch (RuntimeException e) {
+			// truncated or corrupt snapshot, treat as invalid
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the component table of the snapshot and checks that the header blocks are well formed,
+	 * without decoding them
+	 *
+	 * @return <code>true</code> if the buffer holds a valid snapshot of the current version
+	 * @throws IOException if the snapshot is corrupt
+	 */
+	private boolean readTable() throws IOException {
+		if (fBuffer.getInt() != MAGIC || fBuffer.getInt() != VERSION) {
+			return false;
+		}
+		String location = readString(fBuffer);
+		fLocation = location.length() == 0 ? null : location;
+		// a component takes at least a string length, a size, a time stamp and a block length
+		int count = readLength(fBuffer, 24);
+		fComponentLocations = new String[count];
+		fSizes = new long[count];
+		fTimeStamps = new long[count];
+		fOffsets = new int[count];
+		for (int i = 0; i < count; i++) {
+			fComponentLocations[i] = readString(fBuffer);
+			fSizes[i] = fBuffer.getLong();
+			fTimeStamps[i] = fBuffer.getLong();
+			int length = readLength(fBuffer, 1);
+			fOffsets[i] = fBuffer.position();
+			if (!isValidBlock(fOffsets[i], length)) {
+				return false;
+			}
+			fBuffer.position(fOffsets[i] + length);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if the header block at the given offset holds exactly its headers
+	 *
+	 * @param offset the offset of the block in the buffer
+	 * @param length the length of the block
+	 * @return <code>true</code> if the block is well formed, <code>false</code> otherwise
+	 * @throws IOException if a length in the block is corrupt
+	 */
+	private boolean isValidBlock(int offset, int length) throws IOException {
+		ByteBuffer block = fBuffer.duplicate();
+		block.position(offset);
+		block.limit(offset + length);
+		// a header takes at least two string lengths
+		int count = readLength(block, 8);
+		for (int i = 0; i < count * 2; i++) {
+			int size = readLength(block, 1);
+			block.position(block.position() + size);
+		}
+		return !block.hasRemaining();
+	}
+
+	/**
+	 * @return map of recorded component location to its index in the component table
+	 */
+	private Map getLocationIndex() {
+		HashMap index = new HashMap(fComponentLocations.length * 2);
+		for (int i = 0; i < fComponentLocations.length; i++) {
+			index.put(fComponentLocations[i], new Integer(i));
+		}
+		return index;
+	}
+
+	/**
+	 * Returns if every recorded component still exists with the same size and time stamp.
+	 *
+	 * @return <code>true</code> if the snapshot is up to date, <code>false</code> otherwise
+	 */
+	public boolean isUpToDate() {
+		try {
+			for (int i = 0; i < fComponentLocations.length; i++) {
+				File bundle = new File(fComponentLocations[i]);
+				if (!bundle.exists()) {
+					return false;
+				}
+				long[] stamp = computeStamp(bundle, bundle.isDirectory() ? readHeaders(i) : null);
+				if (stamp[0] != fSizes[i] || stamp[1] != fTimeStamps[i]) {
+					return false;
+				}
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the size and time stamp recorded for the bundle at the given location. The ones of a jar
+	 * are the size and time stamp of the jar. The size of a directory bundle is the size of its manifest,
+	 * its time stamp the latest time stamp of its manifest, of the jars on its class path and of the
+	 * directories on its class path and all their sub directories. This way changing the manifest
+	 * and adding or removing class files or packages changes the time stamp, without reading every
+	 * file of the bundle.
+	 *
+	 * @param bundle the location of the bundle
+	 * @param manifest the manifest headers of the bundle, only used for directory bundles
+	 * @return the size and the time stamp
+	 */
+	static long[] computeStamp(File bundle, Dictionary manifest) {
+		if (!bundle.isDirectory()) {
+			return new long[] {bundle.length(), bundle.lastModified()};
+		}
+		File file = new File(bundle, JarFile.MANIFEST_NAME);
+		long[] stamp = new long[] {file.length(), file.lastModified()};
+		String[] entries = new String[] {"."}; //$NON-NLS-1$
+		if (manifest != null) {
+			try {
+				ManifestElement[] classpath = ManifestElement.parseHeader(Constants.BUNDLE_CLASSPATH, (String) manifest.get(Constants.BUNDLE_CLASSPATH));
+				if (classpath != null) {
+					entries = new String[classpath.length];
+					for (int i = 0; i < classpath.length; i++) {
+						entries[i] = classpath[i].getValue();
+					}
+				}
+			} catch (BundleException e) {
+				// stamp the default class path
+			}
+		}
+		for (int i = 0; i < entries.length; i++) {
+			File entry = new File(bundle, entries[i]);
+			if (entry.isDirectory()) {
+				stamp[1] = Math.max(stamp[1], getLatestTimeStamp(entry));
+			} else {
+				stamp[1] = Math.max(stamp[1], entry.lastModified());
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * Returns the latest time stamp of the given directory and all of its sub directories
+	 *
+	 * @param directory
+	 * @return the latest time stamp
+	 */
+	private static long getLatestTimeStamp(File directory) {
+		long stamp = directory.lastModified();
+		File[] children = directory.listFiles();
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				if (children[i].isDirectory()) {
+					stamp = Math.max(stamp, getLatestTimeStamp(children[i]));
+				}
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * @return the recorded location of the baseline or <code>null</code> if none
+	 */
+	public String getLocation() {
+		return fLocation;
+	}
+
+	/**
+	 * Creates the recorded components in the given baseline. The components are not added to the baseline.
+	 *
+	 * @param baseline the baseline to create the components in
+	 * @return the components
+	 * @throws CoreException if a component cannot be created
+	 */
+	public IApiComponent[] createComponents(IApiBaseline baseline) throws CoreException {
+		List components = new ArrayList(fComponentLocations.length);
+		try {
+			for (int i = 0; i < fComponentLocations.length; i++) {
+				IApiComponent component = ApiModelFactory.newApiComponent(baseline, fComponentLocations[i], readHeaders(i));
+				if (component != null) {
+					components.add(component);
+				}
+			}
+		} catch (IOException e) {
+			abort("Unable to read API baseline snapshot", e); //$NON-NLS-1$
+		}
+		return (IApiComponent[]) components.toArray(new IApiComponent[components.size()]);
+	}
+
+	/**
+	 * Decodes the manifest headers of the component at the given index
+	 *
+	 * @param index
+	 * @return the headers
+	 * @throws IOException
+	 */
+	private Dictionary readHeaders(int index) throws IOException {
+		fBuffer.position(fOffsets[index]);
+		int count = readLength(fBuffer, 8);
+		Hashtable headers = new Hashtable(count * 2);
+		for (int i = 0; i < count; i++) {
+			String key = readString(fBuffer);
+			headers.put(key, readString(fBuffer));
+		}
+		return headers;
+	}
+
+	/**
+	 * Writes a length prefixed UTF-8 string
+	 *
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(IApiCoreConstants.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a length prefixed UTF-8 string
+	 *
+	 * @param buffer
+	 * @return the string
+	 * @throws IOException
+	 */
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[readLength(buffer, 1)];
+		buffer.get(bytes);
+		return new String(bytes, IApiCoreConstants.UTF_8);
+	}
+
+	/**
+	 * Reads a length or count and checks that the remaining bytes of the buffer can hold it,
+	 * so that a corrupt value is reported before anything is allocated for it
+	 *
+	 * @param buffer
+	 * @param unit the least number of bytes each counted element takes
+	 * @return the length or count
+	 * @throws IOException if the value is negative or larger than the remaining bytes allow
+	 */
+	private static int readLength(ByteBuffer buffer, int unit) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining() / unit) {
+			throw new IOException("Corrupt API baseline snapshot"); //$NON-NLS-1$
+		}
+		return length;
+	}
+
+	/**
+	 * Throws a core exception with the given message and underlying exception
+	 *
+	 * @param message
+	 * @param e
+	 * @throws CoreException
+	 */
+	private static void abort(String message, Throwable e) throws CoreException {
+		throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, message, e));
+	}
+}
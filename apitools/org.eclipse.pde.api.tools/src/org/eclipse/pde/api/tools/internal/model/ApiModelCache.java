@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,69 +10,154 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.model;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.internal.core.OverflowingLRUCache;
-import org.eclipse.jdt.internal.core.util.LRUCache;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 
 /**
  * Manages the caches of {@link IApiElement}s
+ * <p>
+ * Cached types are spread over a fixed number of segments, each guarded by its own lock, so
+ * that concurrent lookups of different types rarely contend. Each segment is bounded by an
+ * estimate of the memory retained by its types rather than by an entry count, and evicts its
+ * least recently used types once it exceeds its share of {@link #getMaxWeight()}.
+ * </p>
+ * <p>
+ * A member type is stored in the same segment as its root type so that removing the root type
+ * also removes all of its member types without searching the other segments.
+ * </p>
  * 
  * @since 1.0.2
  */
 public final class ApiModelCache {
 
 	/**
-	 * Cache used for {@link IApiElement}s
+	 * Key of a cached type. The hash code only depends on the root type name so
+	 * that member types hash to the same segment as their root type.
 	 */
-	class Cache extends OverflowingLRUCache {
+	static final class TypeKey {
+		final String baseline;
+		final String component;
+		final String typename;
+		final int hash;
 
-		/**
-		 * Constructor
-		 * @param size
-		 * @param overflow
-		 */
-		public Cache(int size, int overflow) {
-			super(size, overflow);
+		TypeKey(String baseline, String component, String typename) {
+			this.baseline = baseline;
+			this.component = component;
+			this.typename = typename;
+			int h = 0;
+			for (int i = 0, max = typename.length(); i < max; i++) {
+				char c = typename.charAt(i);
+				if(c == '$') {
+					break;
+				}
+				h = 31 * h + c;
+			}
+			this.hash = (baseline.hashCode() * 31 + component.hashCode()) * 31 + h;
 		}
 
 		/* (non-Javadoc)
-		 * @see org.eclipse.jdt.internal.core.OverflowingLRUCache#close(org.eclipse.jdt.internal.core.util.LRUCache.LRUCacheEntry)
+		 * @see java.lang.Object#hashCode()
 		 */
-		protected boolean close(LRUCacheEntry entry) {
-			return true;
+		public int hashCode() {
+			return hash;
 		}
 
 		/* (non-Javadoc)
-		 * @see org.eclipse.jdt.internal.core.OverflowingLRUCache#newInstance(int, int)
+		 * @see java.lang.Object#equals(java.lang.Object)
 		 */
-		protected LRUCache newInstance(int size, int newOverflow) {
-			return new Cache(size, newOverflow);
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+			if(obj instanceof TypeKey) {
+				TypeKey key = (TypeKey) obj;
+				return hash == key.hash
+					&& typename.equals(key.typename)
+					&& component.equals(key.component)
+					&& baseline.equals(key.baseline);
+			}
+			return false;
 		}
-		
+	}
+
+	/**
+	 * A cached element and its estimated weight
+	 */
+	static final class Entry {
+		final IApiElement element;
+		final long weight;
+
+		Entry(IApiElement element, long weight) {
+			this.element = element;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * A lock-guarded portion of the cache
+	 */
+	static final class Segment {
 		/**
-		 * Returns if the cache has any elements in it or not
-		 * 
-		 * @return true if the cache has no entries, false otherwise
+		 * Cached entries keyed by {@link TypeKey}, in least recently used order
 		 */
-		public boolean isEmpty() {
-			return !keys().hasMoreElements();
-		}
+		final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+		/**
+		 * Keys of the cached member types, keyed by the {@link TypeKey} of their root type
+		 */
+		final HashMap members = new HashMap();
+		long weight = 0;
+		long hits = 0;
+		long misses = 0;
+		long evictions = 0;
 	}
-	
-	static final int DEFAULT_CACHE_SIZE = 100;
-	static final int DEFAULT_OVERFLOW = (int)(DEFAULT_CACHE_SIZE * 0.1f);
+
+	/**
+	 * Number of segments, must be a power of two
+	 */
+	static final int SEGMENT_COUNT = 16;
+
+	/**
+	 * Default upper bound of the estimated memory, in bytes, retained by cached elements
+	 */
+	public static final long DEFAULT_MAX_WEIGHT = 16 * 1024 * 1024;
+
+	/**
+	 * Estimated fixed cost, in bytes, of a cached type
+	 */
+	static final int TYPE_WEIGHT = 256;
+
+	/**
+	 * Estimated cost, in bytes, of each method or field of a cached type
+	 */
+	static final int MEMBER_WEIGHT = 128;
+
 	static ApiModelCache fInstance = null;
 	
-	Cache fRootCache = null;
-	Cache fMemberTypeCache = null;
+	final Segment[] fSegments;
+
+	/**
+	 * The maximum weight of a single segment
+	 */
+	private volatile long fSegmentMaxWeight = DEFAULT_MAX_WEIGHT / SEGMENT_COUNT;
 	
 	/**
 	 * Constructor - no instantiation
 	 */
-	private ApiModelCache() {}
+	private ApiModelCache() {
+		fSegments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			fSegments[i] = new Segment();
+		}
+	}
 	
 	/**
 	 * Returns the singleton instance of this cache
@@ -87,18 +172,14 @@ public final class ApiModelCache {
 	}
 	
 	/**
-	 * Returns the key to use in a cache. The key is of the form:
-	 * <code>[baselineid].[componentid].[typename]</code><br>
-	 * 
-	 * @param baseline
-	 * @param component
-	 * @param typename
-	 * @return the member type cache key to use
+	 * Returns the segment responsible for the given key
+	 * @param key
+	 * @return the segment
 	 */
-	private String getCacheKey(String baseline, String component, String typename) {
-		StringBuffer buffer = new StringBuffer();
-		buffer.append(baseline).append('.').append(component).append('.').append(typename);
-		return buffer.toString();
+	private Segment segmentFor(TypeKey key) {
+		int h = key.hash;
+		h ^= (h >>> 16);
+		return fSegments[h & (SEGMENT_COUNT - 1)];
 	}
 	
 	/**
@@ -111,47 +192,87 @@ public final class ApiModelCache {
 	public void cacheElementInfo(IApiElement element) throws CoreException {
 		switch(element.getType()) {
 			case IApiElement.TYPE: {
-				if(fRootCache == null) {
-					fRootCache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-				}
 				IApiComponent comp = element.getApiComponent();
 				if(comp != null) {
 					IApiBaseline baseline = comp.getBaseline();
 					String id = comp.getSymbolicName();
-					if(id == null) {
+					if(id == null || baseline.getName() == null) {
 						return;
 					}
-					Cache compcache = (Cache) fRootCache.get(baseline.getName());
-					if(compcache == null) {
-						compcache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-						fRootCache.put(baseline.getName(), compcache);
-					}
-					Cache typecache = (Cache) compcache.get(id);
-					if(typecache == null) {
-						typecache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-						compcache.put(comp.getSymbolicName(), typecache);
-					}
 					ApiType type = (ApiType) element;
-					if(type.isMemberType() || isMemberType(type.getName()) /*cache even a root type with a '$' in its name here as well*/) {
-						if(this.fMemberTypeCache == null) {
-							this.fMemberTypeCache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
+					TypeKey key = new TypeKey(baseline.getName(), id, type.getName());
+					Entry entry = new Entry(type, getWeight(type));
+					Segment segment = segmentFor(key);
+					synchronized (segment) {
+						Entry old = (Entry) segment.entries.put(key, entry);
+						if(old != null) {
+							segment.weight -= old.weight;
 						}
-						String key = getCacheKey(baseline.getName(), id, getRootName(type.getName()));
-						Cache mcache = (Cache) this.fMemberTypeCache.get(key);
-						if(mcache == null) {
-							mcache = new Cache(DEFAULT_CACHE_SIZE, DEFAULT_OVERFLOW);
-							this.fMemberTypeCache.put(key, mcache);
+						segment.weight += entry.weight;
+						if(type.isMemberType() || isMemberType(type.getName()) /*track even a root type with a '$' in its name here as well*/) {
+							TypeKey rootkey = new TypeKey(key.baseline, key.component, getRootName(key.typename));
+							Set members = (Set) segment.members.get(rootkey);
+							if(members == null) {
+								members = new HashSet(4);
+								segment.members.put(rootkey, members);
+							}
+							members.add(key);
 						}
-						mcache.put(type.getName(), type);
-					}
-					else {
-						typecache.put(element.getName(), element);
+						evict(segment);
 					}
 				}
 				break;
 			}
 		}
 	}
+
+	/**
+	 * Returns the estimated weight of the given type
+	 * @param type
+	 * @return the estimated number of bytes retained by the type
+	 */
+	private long getWeight(ApiType type) {
+		return TYPE_WEIGHT + 2 * type.getName().length() + MEMBER_WEIGHT * type.getMemberCount();
+	}
+
+	/**
+	 * Evicts least recently used entries from the given segment until it is within its bounds.
+	 * Must be called while holding the lock of the segment.
+	 *
+	 * @param segment
+	 */
+	private void evict(Segment segment) {
+		long max = fSegmentMaxWeight;
+		Iterator iter = segment.entries.entrySet().iterator();
+		while(segment.weight > max && iter.hasNext()) {
+			Map.Entry mapentry = (Map.Entry) iter.next();
+			iter.remove();
+			segment.weight -= ((Entry) mapentry.getValue()).weight;
+			segment.evictions++;
+			forgetMember(segment, (TypeKey) mapentry.getKey());
+		}
+	}
+
+	/**
+	 * Removes the given key from the member type index of the segment.
+	 * Must be called while holding the lock of the segment.
+	 *
+	 * @param segment
+	 * @param key
+	 */
+	private void forgetMember(Segment segment, TypeKey key) {
+		if(!isMemberType(key.typename)) {
+			return;
+		}
+		TypeKey rootkey = new TypeKey(key.baseline, key.component, getRootName(key.typename));
+		Set members = (Set) segment.members.get(rootkey);
+		if(members != null) {
+			members.remove(key);
+			if(members.isEmpty()) {
+				segment.members.remove(rootkey);
+			}
+		}
+	}
 	
 	/**
 	 * Returns the root type name assuming that the '$' char is a member type boundary 
@@ -192,24 +313,18 @@ public final class ApiModelCache {
 		}
 		switch(type) {
 			case IApiElement.TYPE: {
-				if(isMemberType(identifier)) {
-					if(this.fMemberTypeCache != null) {
-						Cache mcache = (Cache) this.fMemberTypeCache.get(getCacheKey(baselineid, componentid, getRootName(identifier)));
-						if(mcache != null) {
-							return (IApiElement) mcache.get(identifier);
-						}
-					}
+				if(identifier == null) {
+					return null;
 				}
-				else {
-					if(this.fRootCache != null) {
-						Cache compcache = (Cache) fRootCache.get(baselineid);
-						if(compcache != null) {
-							Cache typecache = (Cache) compcache.get(componentid);
-							if(typecache != null && identifier != null) {
-								return (IApiElement) typecache.get(identifier);
-							}
-						}
+				TypeKey key = new TypeKey(baselineid, componentid, identifier);
+				Segment segment = segmentFor(key);
+				synchronized (segment) {
+					Entry entry = (Entry) segment.entries.get(key);
+					if(entry != null) {
+						segment.hits++;
+						return entry.element;
 					}
+					segment.misses++;
 				}
 				break;
 			}
@@ -234,66 +349,89 @@ public final class ApiModelCache {
 		switch(type) {
 			case IApiElement.TYPE: {
 				if(componentid != null && identifier != null) {
-					boolean removed = true;
-					//clean member type cache
-					if(this.fMemberTypeCache != null) {
+					TypeKey key = new TypeKey(baselineid, componentid, identifier);
+					Segment segment = segmentFor(key);
+					synchronized (segment) {
+						boolean removed = remove(segment, key);
 						if(isMemberType(identifier)) {
-							Cache mcache = (Cache) this.fMemberTypeCache.get(getCacheKey(baselineid, componentid, getRootName(identifier)));
-							if(mcache != null) {
-								return mcache.remove(identifier) != null;
-							}
+							forgetMember(segment, key);
 						}
 						else {
-							this.fMemberTypeCache.remove(getCacheKey(baselineid, componentid, getRootName(identifier)));
-						}
-					}
-					if(fRootCache != null) {
-						Cache compcache = (Cache) fRootCache.get(baselineid);
-						if(compcache != null) {
-							Cache typecache = (Cache) compcache.get(componentid);
-							if(typecache != null) {
-								removed &= typecache.remove(identifier) != null;
-								if(typecache.isEmpty()) {
-									removed &= compcache.remove(componentid) != null;
+							//removing a root type removes all of its member types
+							Set members = (Set) segment.members.remove(key);
+							if(members != null) {
+								for (Iterator iter = members.iterator(); iter.hasNext();) {
+									remove(segment, (TypeKey) iter.next());
 								}
-								if(compcache.isEmpty()) {
-									removed &= fRootCache.remove(baselineid) != null;
-								}
-								return removed;
 							}
-							
 						}
-					}
-					else {
-						return false;
+						return removed;
 					}
 				}
 				break;
 			}
 			case IApiElement.COMPONENT: {
-				flushMemberCache();
-				if(fRootCache != null && componentid != null) {
-					Cache compcache = (Cache) fRootCache.get(baselineid);
-					if(compcache != null) {
-						boolean removed = compcache.remove(componentid) != null;
-						if(compcache.isEmpty()) {
-							removed &= fRootCache.remove(baselineid) != null;
-						}
-						return removed;
-					}
+				if(componentid != null) {
+					return removeAll(baselineid, componentid);
 				}
 				break;
 			}
 			case IApiElement.BASELINE: {
-				flushMemberCache();
-				if(fRootCache != null) {
-					return fRootCache.remove(baselineid) != null;
-				}
-				break;
+				return removeAll(baselineid, null);
 			}
 		}
 		return false;
 	}
+
+	/**
+	 * Removes the entry with the given key from the segment.
+	 * Must be called while holding the lock of the segment.
+	 *
+	 * @param segment
+	 * @param key
+	 * @return true if an entry was removed, false otherwise
+	 */
+	private boolean remove(Segment segment, TypeKey key) {
+		Entry entry = (Entry) segment.entries.remove(key);
+		if(entry != null) {
+			segment.weight -= entry.weight;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all of the entries of the given baseline, or of one component of the given baseline
+	 *
+	 * @param baselineid the baseline to remove the entries of
+	 * @param componentid the component to remove the entries of or <code>null</code> to remove
+	 * all of the entries of the baseline
+	 * @return true if any entries were removed, false otherwise
+	 */
+	private boolean removeAll(String baselineid, String componentid) {
+		boolean removed = false;
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				for (Iterator iter = segment.entries.entrySet().iterator(); iter.hasNext();) {
+					Map.Entry mapentry = (Map.Entry) iter.next();
+					TypeKey key = (TypeKey) mapentry.getKey();
+					if(key.baseline.equals(baselineid) && (componentid == null || key.component.equals(componentid))) {
+						iter.remove();
+						segment.weight -= ((Entry) mapentry.getValue()).weight;
+						removed = true;
+					}
+				}
+				for (Iterator iter = segment.members.keySet().iterator(); iter.hasNext();) {
+					TypeKey key = (TypeKey) iter.next();
+					if(key.baseline.equals(baselineid) && (componentid == null || key.component.equals(componentid))) {
+						iter.remove();
+					}
+				}
+			}
+		}
+		return removed;
+	}
 	
 	/**
 	 * Removes the given {@link IApiElement} info from the cache and returns it if present
@@ -309,25 +447,19 @@ public final class ApiModelCache {
  		switch(element.getType()) {
 			case IApiElement.COMPONENT:
 			case IApiElement.TYPE: {
-				if(fRootCache != null) {
-					IApiComponent comp = element.getApiComponent();
-					if(comp != null) {
-						try {
-							IApiBaseline baseline = comp.getBaseline();
-							return removeElementInfo(baseline.getName(), comp.getSymbolicName(), element.getName(), element.getType());
-						}
-						catch(CoreException ce) {}
+				IApiComponent comp = element.getApiComponent();
+				if(comp != null) {
+					try {
+						IApiBaseline baseline = comp.getBaseline();
+						return removeElementInfo(baseline.getName(), comp.getSymbolicName(), element.getName(), element.getType());
 					}
+					catch(CoreException ce) {}
 				}
 				break;
 			}
 			case IApiElement.BASELINE: {
-				flushMemberCache();
-				if(fRootCache != null) {
-					IApiBaseline baseline = (IApiBaseline) element;
-					return fRootCache.remove(baseline.getName()) != null;
-				}
-				break;
+				IApiBaseline baseline = (IApiBaseline) element;
+				return removeElementInfo(baseline.getName(), null, null, IApiElement.BASELINE);
 			}
 		}
 		return false;
@@ -337,18 +469,13 @@ public final class ApiModelCache {
 	 * Clears out all cached information.
 	 */
 	public void flushCaches() {
-		if(fRootCache != null) {
-			fRootCache.flush();
-		}
-		flushMemberCache();
-	}
-	
-	/**
-	 * Flushes the cache of member types
-	 */
-	private void flushMemberCache() {
-		if(this.fMemberTypeCache != null) {
-			this.fMemberTypeCache.flush();
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				segment.entries.clear();
+				segment.members.clear();
+				segment.weight = 0;
+			}
 		}
 	}
 	
@@ -358,13 +485,109 @@ public final class ApiModelCache {
 	 * @return true if the cache has no entries, false otherwise
 	 */
 	public boolean isEmpty() {
-		boolean empty = true;
-		if(fRootCache != null) {
-			empty &= fRootCache.isEmpty();
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				if(!segment.entries.isEmpty()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the upper bound of the estimated memory, in bytes, retained by cached elements.
+	 * Values less than one are ignored.
+	 *
+	 * @param weight the new maximum weight
+	 */
+	public void setMaxWeight(long weight) {
+		if(weight > 0) {
+			fSegmentMaxWeight = Math.max(1, weight / SEGMENT_COUNT);
+			for (int i = 0; i < fSegments.length; i++) {
+				Segment segment = fSegments[i];
+				synchronized (segment) {
+					evict(segment);
+				}
+			}
 		}
-		if(this.fMemberTypeCache != null) {
-			empty &= this.fMemberTypeCache.isEmpty();
+	}
+
+	/**
+	 * @return the upper bound of the estimated memory, in bytes, retained by cached elements
+	 */
+	public long getMaxWeight() {
+		return fSegmentMaxWeight * SEGMENT_COUNT;
+	}
+
+	/**
+	 * @return the estimated memory, in bytes, currently retained by cached elements
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				weight += segment.weight;
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * @return the number of lookups that found a cached element
+	 */
+	public long getHitCount() {
+		long hits = 0;
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				hits += segment.hits;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that did not find a cached element
+	 */
+	public long getMissCount() {
+		long misses = 0;
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				misses += segment.misses;
+			}
+		}
+		return misses;
+	}
+
+	/**
+	 * @return the number of elements evicted from the cache to stay within its bounds
+	 */
+	public long getEvictionCount() {
+		long evictions = 0;
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				evictions += segment.evictions;
+			}
+		}
+		return evictions;
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counters
+	 */
+	public void resetCounters() {
+		for (int i = 0; i < fSegments.length; i++) {
+			Segment segment = fSegments[i];
+			synchronized (segment) {
+				segment.hits = 0;
+				segment.misses = 0;
+				segment.evictions = 0;
+			}
 		}
-		return empty;
 	}
 }
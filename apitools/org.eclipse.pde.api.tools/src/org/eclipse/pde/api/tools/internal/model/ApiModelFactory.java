@@ -13,6 +13,7 @@ package org.eclipse.pde.api.tools.internal.model;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.util.ArrayList;
+import java.util.Dictionary;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
@@ -88,6 +89,25 @@ public class ApiModelFactory {
 		return null;
 	}
 	
+	/**
+	 * Creates and returns a new API component for this baseline at the specified
+	 * location using the given, previously read, manifest headers or <code>null</code> if
+	 * the headers do not describe a valid API component. The component is not added to the baseline.
+	 * 
+	 * @param baseline the baseline to add the component to
+	 * @param location the location of the component
+	 * @param manifest the complete set of manifest headers of the component
+	 * @return API component or <code>null</code> if the headers do not describe a valid API component
+	 * @exception CoreException if unable to create the component
+	 */
+	public static IApiComponent newApiComponent(IApiBaseline baseline, String location, Dictionary manifest) throws CoreException {
+		BundleComponent component = new BundleComponent(baseline, location, manifest, getBundleID());
+		if(component.isValidBundle()) {
+			return component;
+		}
+		return null;
+	}
+	
 	/**
 	 * Creates and returns a new API component for this baseline based on the given
 	 * model or <code>null</code> if the given model cannot be resolved or does not contain
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 IBM Corporation and others.
+ * Copyright (c) 2008, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,11 @@
  *******************************************************************************/
 package org.eclipse.pde.api.tools.internal.model;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -57,6 +55,21 @@ public class ApiType extends ApiMember implements IApiType {
 	private static final IApiField[] EMPTY_FIELDS = new IApiField[0];
 	private static final IApiType[] EMPTY_TYPES = new IApiType[0];
 	
+	/**
+	 * Orders members by name, then by signature
+	 */
+	private static final Comparator MEMBER_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			ApiMember m1 = (ApiMember) o1;
+			ApiMember m2 = (ApiMember) o2;
+			int result = m1.getName().compareTo(m2.getName());
+			if (result == 0) {
+				result = compareSignatures(m1.getSignature(), m2.getSignature());
+			}
+			return result;
+		}
+	};
+	
 	/*
 	 * Use to tag fEnclosingMethodName and fEnclosingMethodSignature when there is no enclosing method
 	 * but the EnclosingMethodAttribute is set (anonymous type in a field initializer). 
@@ -64,18 +77,29 @@ public class ApiType extends ApiMember implements IApiType {
 	private static final String NO_ENCLOSING_METHOD = Util.EMPTY_STRING;
 	
 	/**
-	 * Maps field name to field element.
+	 * Fields in declaration order, the first {@link #fFieldCount} entries are used.
+	 */
+	private ApiField[] fFields;
+	private int fFieldCount = 0;
+	
+	/**
+	 * Methods in declaration order, the first {@link #fMethodCount} entries are used.
 	 */
-	private Map fFields;
+	private ApiMethod[] fMethods;
+	private int fMethodCount = 0;
+	
 	/**
-	 * Maps method name/signature pair to method element.
+	 * Fields and methods sorted with {@link #MEMBER_ORDER} for lookups, computed on demand
 	 */
-	private LinkedHashMap fMethods;
+	private volatile ApiField[] fSortedFields;
+	private volatile ApiMethod[] fSortedMethods;
 	
 	/**
-	 * Map of member type names to class file (or null until resolved)
+	 * Sorted simple names of member types and the class files of the member types, 
+	 * at the same index (or null until resolved)
 	 */
-	private Map fMemberTypes;
+	private String[] fMemberTypeNames;
+	private IApiTypeRoot[] fMemberTypeRoots;
 	
 	/**
 	 * Cached descriptor
@@ -166,8 +190,24 @@ public class ApiType extends ApiMember implements IApiType {
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiType#getField(java.lang.String)
 	 */
 	public IApiField getField(String name) {
-		if (fFields != null) {
-			return (IApiField) fFields.get(name);
+		if (fFieldCount == 0) {
+			return null;
+		}
+		ApiField[] sorted = getSortedFields();
+		int low = 0;
+		int high = sorted.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int result = sorted[mid].getName().compareTo(name);
+			if (result < 0) {
+				low = mid + 1;
+			}
+			else if (result > 0) {
+				high = mid - 1;
+			}
+			else {
+				return sorted[mid];
+			}
 		}
 		return null;
 	}
@@ -176,12 +216,30 @@ public class ApiType extends ApiMember implements IApiType {
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiType#getFields()
 	 */
 	public IApiField[] getFields() {
-		if (fFields != null) {
-			return (IApiField[]) fFields.values().toArray(new IApiField[fFields.size()]);
+		if (fFieldCount > 0) {
+			IApiField[] fields = new IApiField[fFieldCount];
+			System.arraycopy(fFields, 0, fields, 0, fFieldCount);
+			return fields;
 		}
 		return EMPTY_FIELDS;
 	}
 	
+	/**
+	 * Returns the fields of this type sorted by name, computing them if needed
+	 * 
+	 * @return the sorted fields
+	 */
+	private ApiField[] getSortedFields() {
+		ApiField[] sorted = fSortedFields;
+		if (sorted == null) {
+			sorted = new ApiField[fFieldCount];
+			System.arraycopy(fFields, 0, sorted, 0, fFieldCount);
+			Arrays.sort(sorted, MEMBER_ORDER);
+			fSortedFields = sorted;
+		}
+		return sorted;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiMember#getPackageName()
 	 */
@@ -199,11 +257,16 @@ public class ApiType extends ApiMember implements IApiType {
 	 * @param exceptions names of thrown exceptions
 	 */
 	public ApiMethod addMethod(String name, String signature, String genericSig, int modifiers, String[] exceptions) {
+		ApiMethod method = new ApiMethod(this, SymbolTable.intern(name), SymbolTable.intern(signature), 
+				SymbolTable.intern(genericSig), modifiers, SymbolTable.intern(exceptions));
 		if (fMethods == null) {
-			fMethods = new LinkedHashMap();
+			fMethods = new ApiMethod[4];
+		}
+		else if (fMethodCount == fMethods.length) {
+			System.arraycopy(fMethods, 0, fMethods = new ApiMethod[fMethodCount * 2], 0, fMethodCount);
 		}
-		ApiMethod method = new ApiMethod(this, name, signature, genericSig, modifiers, exceptions);
-		fMethods.put(new MethodKey(getName(), name, signature, true), method);
+		fMethods[fMethodCount++] = method;
+		fSortedMethods = null;
 		return method;
 	}
 
@@ -217,11 +280,16 @@ public class ApiType extends ApiMember implements IApiType {
 	 * @param value constant value or <code>null</code> if none
 	 */
 	public ApiField addField(String name, String signature, String genericSig, int modifiers, Object value) {
+		ApiField field = new ApiField(this, SymbolTable.intern(name), SymbolTable.intern(signature), 
+				SymbolTable.intern(genericSig), modifiers, value);
 		if (fFields == null) {
-			fFields = new HashMap();
+			fFields = new ApiField[4];
+		}
+		else if (fFieldCount == fFields.length) {
+			System.arraycopy(fFields, 0, fFields = new ApiField[fFieldCount * 2], 0, fFieldCount);
 		}
-		ApiField field = new ApiField(this, name, signature, genericSig, modifiers, value);
-		fFields.put(name, field);
+		fFields[fFieldCount++] = field;
+		fSortedFields = null;
 		return field;
 	}
 	
@@ -229,8 +297,27 @@ public class ApiType extends ApiMember implements IApiType {
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiType#getMethod(java.lang.String, java.lang.String)
 	 */
 	public IApiMethod getMethod(String name, String signature) {
-		if (fMethods != null) {
-			return (IApiMethod) fMethods.get(new MethodKey(getName(), name, signature, true));
+		if (fMethodCount == 0 || signature == null) {
+			return null;
+		}
+		ApiMethod[] sorted = getSortedMethods();
+		int low = 0;
+		int high = sorted.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int result = sorted[mid].getName().compareTo(name);
+			if (result == 0) {
+				result = compareSignatures(sorted[mid].getSignature(), signature);
+			}
+			if (result < 0) {
+				low = mid + 1;
+			}
+			else if (result > 0) {
+				high = mid - 1;
+			}
+			else {
+				return sorted[mid];
+			}
 		}
 		return null;
 	}
@@ -240,11 +327,52 @@ public class ApiType extends ApiMember implements IApiType {
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiType#getMethods()
 	 */
 	public IApiMethod[] getMethods() {
-		if (fMethods != null) {
-			return (IApiMethod[]) fMethods.values().toArray(new IApiMethod[fMethods.size()]);
+		if (fMethodCount > 0) {
+			IApiMethod[] methods = new IApiMethod[fMethodCount];
+			System.arraycopy(fMethods, 0, methods, 0, fMethodCount);
+			return methods;
 		}
 		return EMPTY_METHODS;
 	}
+	
+	/**
+	 * Returns the methods of this type sorted by name and signature, computing them if needed
+	 * 
+	 * @return the sorted methods
+	 */
+	private ApiMethod[] getSortedMethods() {
+		ApiMethod[] sorted = fSortedMethods;
+		if (sorted == null) {
+			sorted = new ApiMethod[fMethodCount];
+			System.arraycopy(fMethods, 0, sorted, 0, fMethodCount);
+			Arrays.sort(sorted, MEMBER_ORDER);
+			fSortedMethods = sorted;
+		}
+		return sorted;
+	}
+	
+	/**
+	 * Compares two signatures, where <code>null</code> comes first
+	 * 
+	 * @param sig1
+	 * @param sig2
+	 * @return the comparison result
+	 */
+	static int compareSignatures(String sig1, String sig2) {
+		if (sig1 == null) {
+			return sig2 == null ? 0 : -1;
+		}
+		return sig2 == null ? 1 : sig1.compareTo(sig2);
+	}
+
+	/**
+	 * Returns the number of methods and fields of this type without copying them
+	 *
+	 * @return the number of methods and fields
+	 */
+	int getMemberCount() {
+		return fMethodCount + fFieldCount;
+	}
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiType#getSuperInterfaceNames()
@@ -254,7 +382,7 @@ public class ApiType extends ApiMember implements IApiType {
 	}
 	
 	public void setSuperInterfaceNames(String[] names) {
-		fSuperInterfaceNames = names;
+		fSuperInterfaceNames = SymbolTable.intern(names);
 	}
 
 	/* (non-Javadoc)
@@ -346,7 +474,7 @@ public class ApiType extends ApiMember implements IApiType {
 	}
 	
 	public void setSuperclassName(String superName) {
-		fSuperclassName = superName;
+		fSuperclassName = SymbolTable.intern(superName);
 	}
 
 	public void setSimpleName(String simpleName) {
@@ -520,59 +648,85 @@ public class ApiType extends ApiMember implements IApiType {
 	 * @param name member type name
 	 */
 	public void addMemberType(String name, int modifiers) {
-		if (fMemberTypes == null) {
-			fMemberTypes = new HashMap();
-		} 
 		int index = name.lastIndexOf('$');
 		String simpleName = name.substring(index + 1);
-		fMemberTypes.put(simpleName, null);
+		if (fMemberTypeNames == null) {
+			fMemberTypeNames = new String[] {simpleName};
+			fMemberTypeRoots = new IApiTypeRoot[1];
+			return;
+		}
+		int position = Arrays.binarySearch(fMemberTypeNames, simpleName);
+		if (position >= 0) {
+			return;
+		}
+		position = -(position + 1);
+		int length = fMemberTypeNames.length;
+		String[] names = new String[length + 1];
+		System.arraycopy(fMemberTypeNames, 0, names, 0, position);
+		System.arraycopy(fMemberTypeNames, position, names, position + 1, length - position);
+		names[position] = simpleName;
+		fMemberTypeNames = names;
+		fMemberTypeRoots = new IApiTypeRoot[length + 1];
 	}
 	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiType#getMemberType(java.lang.String)
 	 */
 	public IApiType getMemberType(String simpleName) throws CoreException {
-		if (fMemberTypes == null) {
+		if (fMemberTypeNames == null) {
 			return null;
 		}
 		if (getApiComponent() == null) {
 			requiresApiComponent();
 		}
-		if (fMemberTypes.containsKey(simpleName)) {
-			IApiTypeRoot file =  (IApiTypeRoot) fMemberTypes.get(simpleName);
+		int index = Arrays.binarySearch(fMemberTypeNames, simpleName);
+		if (index >= 0) {
+			return getMemberType(index);
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the member type at the given index in {@link #fMemberTypeNames}, resolving
+	 * its class file if needed
+	 * 
+	 * @param index
+	 * @return the member type
+	 * @throws CoreException if the class file of the member type cannot be found
+	 */
+	private IApiType getMemberType(int index) throws CoreException {
+		IApiTypeRoot file = fMemberTypeRoots[index];
+		if (file == null) {
+			// resolve
+			String simpleName = fMemberTypeNames[index];
+			StringBuffer qName = new StringBuffer();
+			qName.append(getName());
+			qName.append('$');
+			qName.append(simpleName);
+			file = getApiComponent().findTypeRoot(qName.toString());
 			if (file == null) {
-				// resolve
-				StringBuffer qName = new StringBuffer();
-				qName.append(getName());
-				qName.append('$');
-				qName.append(simpleName);
-				file = getApiComponent().findTypeRoot(qName.toString());
-				if (file == null) {
-					throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID,
-							MessageFormat.format(Messages.ApiType_3,
-							new String[]{simpleName, getName()})));
-				}
-				fMemberTypes.put(simpleName, file);
+				throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID,
+						MessageFormat.format(Messages.ApiType_3,
+						new String[]{simpleName, getName()})));
 			}
-			return file.getStructure();
+			fMemberTypeRoots[index] = file;
 		}
-		return null;
+		return file.getStructure();
 	}
 	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.provisional.model.IApiType#getMemberTypes()
 	 */
 	public IApiType[] getMemberTypes() throws CoreException {
-		if (fMemberTypes == null) {
+		if (fMemberTypeNames == null) {
 			return EMPTY_TYPES;
 		}
-		IApiType[] members = new IApiType[fMemberTypes.size()];
-		Iterator iterator = fMemberTypes.keySet().iterator();
-		int index = 0;
-		while (iterator.hasNext()) {
-			String name = (String) iterator.next();
-			members[index] = getMemberType(name); 
-			index++;
+		if (getApiComponent() == null) {
+			requiresApiComponent();
+		}
+		IApiType[] members = new IApiType[fMemberTypeNames.length];
+		for (int i = 0; i < members.length; i++) {
+			members[i] = getMemberType(i); 
 		}
 		return members;
 	}
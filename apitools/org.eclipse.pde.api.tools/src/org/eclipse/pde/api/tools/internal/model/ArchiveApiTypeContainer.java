@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,7 @@ import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisi
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.ArchiveManager;
 import org.eclipse.pde.api.tools.internal.util.Util;
 
 import org.eclipse.core.runtime.CoreException;
@@ -98,13 +99,7 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 		 */
 		public byte[] getContents() throws CoreException {
 			ArchiveApiTypeContainer archive = (ArchiveApiTypeContainer) getParent();
-			ZipFile zipFile;
-			try {
-				zipFile= new ZipFile(archive.fLocation);
-			} catch (IOException e) {
-				abort("Failed to open archive: " + archive.fLocation, e); //$NON-NLS-1$
-				return null;
-			}
+			ZipFile zipFile = archive.open();
 			try {
 				ZipEntry entry = zipFile.getEntry(getName());
 				InputStream stream = null;
@@ -131,11 +126,7 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 					}
 				}
 			} finally {
-				try {
-					zipFile.close();
-				} catch (IOException e) {
-					abort("Failed to close class file archive", e); //$NON-NLS-1$
-				}
+				ArchiveManager.getManager().release(zipFile);
 			}
 			abort("Class file not found: " + getTypeName() + " in archive: " + archive.fLocation, null); //$NON-NLS-1$ //$NON-NLS-2$
 			return null;
@@ -224,6 +215,7 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 	 * @see org.eclipse.pde.api.tools.internal.AbstractApiTypeContainer#close()
 	 */
 	public synchronized void close() throws CoreException {
+		ArchiveManager.getManager().close(fLocation);
 	}
 
 	/**
@@ -271,13 +263,7 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 	private synchronized void init() throws CoreException {
 		if (fPackages == null) {
 			fPackages = new HashMap();
-			ZipFile zipFile;
-			try {
-				zipFile= new ZipFile(fLocation);
-			} catch (IOException e) {
-				abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
-				return;
-			}
+			ZipFile zipFile = open();
 			try {
 				Enumeration entries= zipFile.entries();
 				while (entries.hasMoreElements()) {
@@ -298,15 +284,27 @@ public class ArchiveApiTypeContainer extends ApiElement implements IApiTypeConta
 					}
 				}
 			} finally {
-				try {
-					zipFile.close();
-				} catch (IOException e) {
-					abort("Failed to close class file archive", e); //$NON-NLS-1$
-				}
+				ArchiveManager.getManager().release(zipFile);
 			}
 		}
 	}
 	
+	/**
+	 * Returns an open zip file for this archive from the shared {@link ArchiveManager}.
+	 * Callers must release the returned archive back to the manager once they are done with it.
+	 * 
+	 * @return zip file
+	 * @throws CoreException if unable to open the archive
+	 */
+	ZipFile open() throws CoreException {
+		try {
+			return ArchiveManager.getManager().acquire(fLocation);
+		} catch (IOException e) {
+			abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
+			return null;
+		}
+	}
+	
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
@@ -13,7 +13,6 @@ package org.eclipse.pde.api.tools.internal.model;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
@@ -21,7 +20,6 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Dictionary;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -52,8 +50,8 @@ import org.eclipse.osgi.service.resolver.StateObjectFactory;
 import org.eclipse.osgi.util.ManifestElement;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.api.tools.internal.ApiBaselineManager;
-import org.eclipse.pde.api.tools.internal.ApiDescription;
-import org.eclipse.pde.api.tools.internal.ApiDescriptionProcessor;
+import org.eclipse.pde.api.tools.internal.ApiDescriptionIndex;
+import org.eclipse.pde.api.tools.internal.BundleApiDescription;
 import org.eclipse.pde.api.tools.internal.BundleVersionRange;
 import org.eclipse.pde.api.tools.internal.CompositeApiDescription;
 import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
@@ -71,7 +69,8 @@ import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
-import org.eclipse.pde.api.tools.internal.util.FileManager;
+import org.eclipse.pde.api.tools.internal.util.ArchiveManager;
+import org.eclipse.pde.api.tools.internal.util.ExtractionCache;
 import org.eclipse.pde.api.tools.internal.util.SourceDefaultHandler;
 import org.eclipse.pde.api.tools.internal.util.Util;
 import org.eclipse.pde.internal.core.TargetWeaver;
@@ -88,9 +87,6 @@ import org.xml.sax.SAXException;
  */
 public class BundleComponent extends Component {
 	
-	static final String TMP_API_FILE_PREFIX = "api"; //$NON-NLS-1$
-	static final String TMP_API_FILE_POSTFIX = "tmp"; //$NON-NLS-1$
-	
 	/**
 	 * Dictionary parsed from MANIFEST.MF
 	 */
@@ -164,6 +160,22 @@ public class BundleComponent extends Component {
 		fWorkspaceBinary = isBinary() && ApiBaselineManager.WORKSPACE_API_BASELINE_ID.equals(baseline.getName());
 	}
 	
+	/**
+	 * Constructs a new API component from the specified location in the file system
+	 * in the given baseline, using the given manifest headers instead of reading the 
+	 * manifest from the bundle.
+	 * 
+	 * @param baseline owning API baseline
+	 * @param location directory or jar file
+	 * @param manifest the complete set of manifest headers of the bundle
+	 * @param bundleid
+	 * @exception CoreException if unable to create a component from the specified location
+	 */
+	BundleComponent(IApiBaseline baseline, String location, Dictionary manifest, long bundleid) throws CoreException {
+		this(baseline, location, bundleid);
+		fManifest = manifest;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.pde.api.tools.internal.descriptors.AbstractApiComponent#dispose()
 	 */
@@ -171,6 +183,7 @@ public class BundleComponent extends Component {
 		try {
 			super.dispose();
 		} finally {
+			ArchiveManager.getManager().close(fLocation);
 			synchronized(this) {
 				fManifest = null;
 				fBundleDescription = null;
@@ -195,6 +208,25 @@ public class BundleComponent extends Component {
 		return fManifest;
 	}
 
+	/**
+	 * Returns all of the headers of this bundle's manifest. If the manifest has already
+	 * been compacted it is read again from the bundle.
+	 * 
+	 * @return manifest dictionary or <code>null</code> if none
+	 * @throws CoreException if the manifest cannot be read
+	 */
+	synchronized Dictionary getManifestHeaders() throws CoreException {
+		if(fBundleDescription == null) {
+			return getManifest();
+		}
+		try {
+			return (Dictionary) loadManifest(new File(fLocation));
+		} catch (IOException e) {
+			abort("Unable to load manifest due to IO error", e); //$NON-NLS-1$
+		}
+		return null;
+	}
+
 	/**
 	 * Reduce the manifest to only contain required headers after {@link BundleDescription} creation.
 	 */
@@ -383,17 +415,14 @@ public class BundleComponent extends Component {
 	 * @throws CoreException if unable to initialize 
 	 */
 	protected IApiDescription createLocalApiDescription() throws CoreException {
-		IApiDescription apiDesc = new ApiDescription(getSymbolicName());
+		BundleApiDescription apiDesc = new BundleApiDescription(getSymbolicName());
 		// first mark all packages as internal
 		initializeApiDescription(apiDesc, getBundleDescription(), getLocalPackageNames());
-		try {
-			String xml = loadApiDescription(new File(fLocation));
-			setHasApiDescription(xml != null);
-			if (xml != null) {
-				ApiDescriptionProcessor.annotateApiSettings(null, apiDesc, xml);
-			}
-		} catch (IOException e) {
-			abort("Unable to load .api_description file ", e); //$NON-NLS-1$
+		// .api_description settings are loaded per package on first lookup
+		ApiDescriptionIndex index = ApiDescriptionIndex.getIndex(new File(fLocation));
+		setHasApiDescription(index != null);
+		if (index != null) {
+			apiDesc.setIndex(index);
 		}
 		return apiDesc;
 	}
@@ -663,122 +692,30 @@ public class BundleComponent extends Component {
 				} else {
 					//classpath element can be jar or folder
 					//https://bugs.eclipse.org/bugs/show_bug.cgi?id=279729
-					zip = new ZipFile(fLocation);
+					zip = ArchiveManager.getManager().acquire(fLocation);
 					ZipEntry entry = zip.getEntry(path);
 					if (entry != null) {
-						File tmpfolder = new File(System.getProperty("java.io.tmpdir")); //$NON-NLS-1$
+						File folder = ExtractionCache.getCache().getExtractedEntry(zip, entry);
 						if(entry.isDirectory()) {
-							//extract the dir and all children
-							File dir = Util.createTempFile(TMP_API_FILE_PREFIX, TMP_API_FILE_POSTFIX);
-							//hack to create a temp directory
-							// see http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4735419
-							if(dir.delete()) {
-								dir.mkdir();
-								FileManager.getManager().recordTempFileRoot(dir.getCanonicalPath());
-							}
-							extractDirectory(zip, entry.getName(), dir);
-							if(dir.isDirectory() && dir.exists()) {
-								return new DirectoryApiTypeContainer(this, dir.getCanonicalPath());
+							if(folder.isDirectory()) {
+								return new DirectoryApiTypeContainer(this, folder.getCanonicalPath());
 							}
 						}
 						else {
-							File file = extractEntry(zip, entry, tmpfolder);
+							File file = new File(folder, entry.getName());
 							if(Util.isArchive(file.getName())) {
-								File parent = file.getParentFile();
-								if(!parent.equals(tmpfolder)) {
-									FileManager.getManager().recordTempFileRoot(parent.getCanonicalPath());
-								}
-								else {
-									FileManager.getManager().recordTempFileRoot(file.getCanonicalPath());
-								}
 								return new ArchiveApiTypeContainer(this, file.getCanonicalPath());
 							}
 						}
 					}
 				}
 			} finally {
-				if (zip != null) {
-					zip.close();
-				}
+				ArchiveManager.getManager().release(zip);
 			}
 		}
 		return null;
 	}
 		
-	/**
-	 * Extracts a directory from the archive given a path prefix for entries to retrieve.
-	 * <code>null</code> can be passed in as a prefix, causing all entries to be be extracted from 
-	 * the archive.
-	 * 
-	 * @param zip the {@link ZipFile} to extract from
-	 * @param pathprefix the prefix'ing path to include for extraction
-	 * @param parent the parent directory to extract to
-	 * @throws IOException if the {@link ZipFile} cannot be read or extraction fails to write the file(s)
-	 */
-	void extractDirectory(ZipFile zip, String pathprefix, File parent) throws IOException {
-		Enumeration entries = zip.entries();
-		String prefix = (pathprefix == null ? Util.EMPTY_STRING : pathprefix);
-		ZipEntry entry = null;
-		File file = null;
-		while (entries.hasMoreElements()) {
-			entry = (ZipEntry) entries.nextElement();
-			if(entry.getName().startsWith(prefix)) {
-				file = new File(parent, entry.getName());
-				if (entry.isDirectory()) {
-					file.mkdir();
-					continue;
-				}
-				extractEntry(zip, entry, parent);
-			}
-		}
-	}
-	
-	/**
-	 * Extracts a non-directory entry from a zip file and returns the File handle
-	 * @param zip the zip to extract from
-	 * @param entry the entry to extract
-	 * @param parent the parent directory to add the extracted entry to
-	 * @return the file handle to the extracted entry, <code>null</code> otherwise
-	 * @throws IOException
-	 */
-	File extractEntry(ZipFile zip, ZipEntry entry, File parent) throws IOException {
-		InputStream inputStream = null;
-		File file;
-		FileOutputStream outputStream = null;
-		try {
-			inputStream = zip.getInputStream(entry);
-			file = new File(parent, entry.getName());
-			File lparent = file.getParentFile();
-			if(!lparent.exists()) {
-				lparent.mkdirs();
-			}
-			outputStream = new FileOutputStream(file);
-			byte[] bytes = new byte[8096];
-			while (inputStream.available() > 0) {
-				int read = inputStream.read(bytes);
-				if (read > 0) {
-					outputStream.write(bytes, 0, read);
-				}
-			}
-		} finally {
-			if (inputStream != null) {
-				try {
-					inputStream.close();
-				} catch(IOException e) {
-					ApiPlugin.log(e);
-				}
-			}
-			if (outputStream != null) {
-				try {
-					outputStream.close();
-				} catch(IOException e) {
-					ApiPlugin.log(e);
-				}
-			}
-		}
-		return file;
-	}
-	
 	/**
 	 * Parses a bunlde's manifest into a dictionary. The bundle may be in a jar
 	 * or in a directory at the specified location.
@@ -793,7 +730,7 @@ public class BundleComponent extends Component {
 		String extension = new Path(bundleLocation.getName()).getFileExtension();
 		try {
 			if (extension != null && extension.equals("jar") && bundleLocation.isFile()) { //$NON-NLS-1$
-				jarFile = new ZipFile(bundleLocation, ZipFile.OPEN_READ);
+				jarFile = ArchiveManager.getManager().acquire(bundleLocation.getAbsolutePath());
 				ZipEntry manifestEntry = jarFile.getEntry(JarFile.MANIFEST_NAME);
 				if (manifestEntry != null) {
 					manifestStream = jarFile.getInputStream(manifestEntry);
@@ -829,7 +766,7 @@ public class BundleComponent extends Component {
 		try {
 			String extension = new Path(bundleLocation.getName()).getFileExtension();
 			if (extension != null && extension.equals("jar") && bundleLocation.isFile()) { //$NON-NLS-1$
-				jarFile = new ZipFile(bundleLocation, ZipFile.OPEN_READ);
+				jarFile = ArchiveManager.getManager().acquire(bundleLocation.getAbsolutePath());
 				ZipEntry manifestEntry = jarFile.getEntry(JarFile.MANIFEST_NAME);
 				if (manifestEntry != null) {
 					manifestStream = jarFile.getInputStream(manifestEntry);
@@ -856,13 +793,7 @@ public class BundleComponent extends Component {
 		} catch (IOException e) {
 			ApiPlugin.log(e);
 		}
-		try {
-			if (jarFile != null) {
-				jarFile.close();
-			}
-		} catch (IOException e) {
-			ApiPlugin.log(e);
-		}
+		ArchiveManager.getManager().release(jarFile);
 	}
 	
 	/**
@@ -879,7 +810,7 @@ public class BundleComponent extends Component {
 		try {
 			String extension = new Path(bundleLocation.getName()).getFileExtension();
 			if (extension != null && extension.equals("jar") && bundleLocation.isFile()) { //$NON-NLS-1$
-				jarFile = new ZipFile(bundleLocation, ZipFile.OPEN_READ);
+				jarFile = ArchiveManager.getManager().acquire(bundleLocation.getAbsolutePath());
 				ZipEntry manifestEntry = jarFile.getEntry(xmlFileName);
 				if (manifestEntry != null) {
 					stream = jarFile.getInputStream(manifestEntry);
@@ -903,46 +834,6 @@ public class BundleComponent extends Component {
 		return null;
 	}
 
-	/**
-	 * Parses a bundle's .api_description XML into a string. The file may be in a jar
-	 * or in a directory at the specified location.
-	 * 
-	 * @param bundleLocation root location of the bundle
-	 * @return API description XML as a string or <code>null</code> if none
-	 * @throws IOException if unable to parse
-	 */
-	protected String loadApiDescription(File bundleLocation) throws IOException {
-		ZipFile jarFile = null;
-		InputStream stream = null;
-		String contents = null;
-		try {
-			String extension = new Path(bundleLocation.getName()).getFileExtension();
-			if (extension != null && extension.equals("jar") && bundleLocation.isFile()) { //$NON-NLS-1$
-				jarFile = new ZipFile(bundleLocation, ZipFile.OPEN_READ);
-				ZipEntry manifestEntry = jarFile.getEntry(IApiCoreConstants.API_DESCRIPTION_XML_NAME);
-				if (manifestEntry != null) {
-					// new file is present
-					stream = jarFile.getInputStream(manifestEntry);
-				}
-			} else {
-				File file = new File(bundleLocation, IApiCoreConstants.API_DESCRIPTION_XML_NAME);
-				if (file.exists()) {
-					// use new file
-					stream = new FileInputStream(file);
-				}
-			}
-			if (stream == null) {
-				return null;
-			}
-			char[] charArray = Util.getInputStreamAsCharArray(stream, -1, IApiCoreConstants.UTF_8);
-			contents = new String(charArray);
-		} finally {
-			closingZipFileAndStream(stream, jarFile);
-		}
-		return contents;
-	}
-	
-	
 	/**
 	 * Returns a URL describing a file inside a bundle.
 	 * 
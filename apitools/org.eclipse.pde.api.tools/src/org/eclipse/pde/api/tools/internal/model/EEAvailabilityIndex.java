@@ -0,0 +1,614 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.ProfileModifiers;
+import org.eclipse.pde.api.tools.internal.provisional.builder.IReference;
+import org.eclipse.pde.api.tools.internal.util.ArchiveManager;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * Index of the types, fields and methods available in the installed execution environment
+ * descriptions (the API stubs).
+ * <p>
+ * For a reference, the index answers the set of execution environments in which the reference
+ * resolves, as a bit mask of {@link ProfileModifiers} values, in a single lookup once the reference
+ * has been asked for. Execution environments without installed stubs are always part of the mask,
+ * since references cannot be checked against them.
+ * </p>
+ * <p>
+ * The index reads the stub entries directly: the entries of a type in all the stub archives are
+ * merged into one record holding, for each member, the mask of the execution environments
+ * declaring it. No {@link ApiType} structures are built. Records are created the first time a type
+ * is looked up.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public final class EEAvailabilityIndex {
+
+	/**
+	 * Signature of polymorphic methods
+	 */
+	private static final String POLYMORPHIC_SIGNATURE = "([Ljava/lang/Object;)Ljava/lang/Object;"; //$NON-NLS-1$
+
+	/**
+	 * The shared index or <code>null</code> if not created yet
+	 */
+	private static EEAvailabilityIndex fgDefault = null;
+
+	/**
+	 * The merged entries of a type in the stub archives
+	 */
+	static final class StubType {
+		/**
+		 * Mask of the execution environments containing the type
+		 */
+		int typeMask = 0;
+		/**
+		 * Mask of the execution environments in which the type is abstract
+		 */
+		int abstractMask = 0;
+		/**
+		 * Superclass and super interface names, by execution environment index
+		 */
+		String[] superclasses;
+		String[][] interfaces;
+		/**
+		 * Sorted field names and the masks of the execution environments declaring them
+		 */
+		String[] fieldNames;
+		int[] fieldMasks;
+		/**
+		 * Sorted method selectors followed by their signature, the masks of the execution
+		 * environments declaring them and of those in which they are polymorphic
+		 */
+		String[] methodKeys;
+		int[] methodMasks;
+		int[] polymorphicMasks;
+	}
+
+	/**
+	 * Marker for types not found in any stub archive
+	 */
+	private static final StubType NO_TYPE = new StubType();
+
+	/**
+	 * The installed execution environments and the paths of their stub archives, at the same index
+	 */
+	private final int[] fEEs;
+	private final String[] fStubs;
+
+	/**
+	 * Masks of the execution environments with and without installed stubs
+	 */
+	private final int fInstalledMask;
+	private final int fMissingMask;
+
+	/**
+	 * Maximum number of reference results remembered
+	 */
+	private static final int MAX_RESULTS = 10000;
+
+	/**
+	 * Map of type name to {@link StubType}, bounded by the number of types in the stub archives.
+	 * Guarded by itself.
+	 */
+	private final HashMap fTypes = new HashMap();
+
+	/**
+	 * Map of reference key to the mask of execution environments it resolves in, as an {@link Integer},
+	 * keeping the {@link #MAX_RESULTS} most recently used references. Guarded by itself.
+	 */
+	private final LinkedHashMap fResults = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_RESULTS;
+		}
+	};
+
+	/**
+	 * Returns the shared index, creating it if needed
+	 *
+	 * @return the shared index
+	 */
+	public static synchronized EEAvailabilityIndex getDefault() {
+		if (fgDefault == null) {
+			fgDefault = new EEAvailabilityIndex();
+		}
+		return fgDefault;
+	}
+
+	/**
+	 * Discards the shared index
+	 */
+	public static synchronized void dispose() {
+		fgDefault = null;
+	}
+
+	/**
+	 * Constructor
+	 */
+	private EEAvailabilityIndex() {
+		int[] ids = ProfileModifiers.getAllIds();
+		List ees = new ArrayList(ids.length);
+		List stubs = new ArrayList(ids.length);
+		int installed = 0;
+		int missing = 0;
+		for (int i = 0; i < ids.length; i++) {
+			File stub = StubApiComponent.getFileFor(ids[i], ProfileModifiers.getName(ids[i]));
+			if (stub == null) {
+				missing |= ids[i];
+			}
+			else {
+				installed |= ids[i];
+				ees.add(new Integer(ids[i]));
+				stubs.add(stub.getAbsolutePath());
+			}
+		}
+		fEEs = new int[ees.size()];
+		for (int i = 0; i < fEEs.length; i++) {
+			fEEs[i] = ((Integer) ees.get(i)).intValue();
+		}
+		fStubs = (String[]) stubs.toArray(new String[stubs.size()]);
+		fInstalledMask = installed;
+		fMissingMask = missing;
+	}
+
+	/**
+	 * Returns the mask of the execution environments, as {@link ProfileModifiers} values, in which the given
+	 * type, field or method reference resolves. Execution environments without installed stubs are always
+	 * part of the mask.
+	 * <p>
+	 * This method can be called concurrently. Stub types and results are only locked while they are
+	 * looked up or recorded; two threads may compute the same result at the same time.
+	 * </p>
+	 *
+	 * @param reference
+	 * @return the mask of execution environments
+	 */
+	public int getAvailableEEs(IReference reference) {
+		String typeName = reference.getReferencedTypeName();
+		int type = reference.getReferenceType();
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(type).append(':');
+		if (type == IReference.T_METHOD_REFERENCE) {
+			buffer.append(reference.getReferenceKind()).append(':');
+		}
+		buffer.append(typeName);
+		if (type != IReference.T_TYPE_REFERENCE) {
+			buffer.append('#').append(reference.getReferencedMemberName());
+			if (type == IReference.T_METHOD_REFERENCE) {
+				buffer.append(reference.getReferencedSignature());
+			}
+		}
+		String key = buffer.toString();
+		Integer result = null;
+		synchronized (fResults) {
+			result = (Integer) fResults.get(key);
+		}
+		if (result == null) {
+			int mask = 0;
+			switch (type) {
+				case IReference.T_TYPE_REFERENCE :
+					mask = getStubType(typeName).typeMask;
+					break;
+				case IReference.T_FIELD_REFERENCE :
+					mask = resolveField(typeName, reference.getReferencedMemberName(), fInstalledMask);
+					break;
+				case IReference.T_METHOD_REFERENCE :
+					mask = resolveMethod(typeName, reference.getReferencedMemberName(), reference.getReferencedSignature(), reference.getReferenceKind(), fInstalledMask);
+					break;
+			}
+			result = new Integer(mask | fMissingMask);
+			synchronized (fResults) {
+				fResults.put(key, result);
+			}
+		}
+		return result.intValue();
+	}
+
+	/**
+	 * Returns the mask of the execution environments among the given ones in which the given field
+	 * is declared by the type or one of its superclasses
+	 *
+	 * @param typeName
+	 * @param fieldName
+	 * @param candidates mask of execution environments to consider
+	 * @return the mask of execution environments the field resolves in
+	 */
+	private int resolveField(String typeName, String fieldName, int candidates) {
+		StubType type = getStubType(typeName);
+		int available = candidates & type.typeMask;
+		if (available == 0) {
+			return 0;
+		}
+		int resolved = available & getMask(type.fieldNames, type.fieldMasks, fieldName);
+		int rest = available & ~resolved;
+		for (int i = 0; rest != 0 && i < fEEs.length; i++) {
+			if ((rest & fEEs[i]) == 0 || type.superclasses[i] == null) {
+				continue;
+			}
+			int group = getSameSuperclass(type, i, rest);
+			resolved |= resolveField(type.superclasses[i], fieldName, group);
+			rest &= ~group;
+		}
+		return resolved;
+	}
+
+	/**
+	 * Returns the mask of the execution environments among the given ones in which the given
+	 * method resolves. The method is looked up in the type, then:
+	 * <ul>
+	 * <li>for interface method references, in the super interfaces</li>
+	 * <li>for static method references, in the superclass</li>
+	 * <li>for virtual and special method references, as a polymorphic method of the type, then in
+	 * the superclass and, for abstract types, in the super interfaces</li>
+	 * </ul>
+	 *
+	 * @param typeName
+	 * @param selector
+	 * @param signature
+	 * @param kind the kind of the method reference
+	 * @param candidates mask of execution environments to consider
+	 * @return the mask of execution environments the method resolves in
+	 */
+	private int resolveMethod(String typeName, String selector, String signature, int kind, int candidates) {
+		StubType type = getStubType(typeName);
+		int available = candidates & type.typeMask;
+		if (available == 0) {
+			return 0;
+		}
+		int resolved = available & getMask(type.methodKeys, type.methodMasks, selector + signature);
+		int rest = available & ~resolved;
+		switch (kind) {
+			case IReference.REF_INTERFACEMETHOD :
+				resolved |= resolveInInterfaces(type, selector, signature, kind, rest);
+				break;
+			case IReference.REF_STATICMETHOD :
+				resolved |= resolveInSuperclass(type, selector, signature, kind, rest);
+				break;
+			case IReference.REF_VIRTUALMETHOD :
+			case IReference.REF_SPECIALMETHOD :
+				int index = indexOf(type.methodKeys, selector + POLYMORPHIC_SIGNATURE);
+				if (index >= 0) {
+					resolved |= rest & type.polymorphicMasks[index];
+					rest &= ~resolved;
+				}
+				int superclass = resolveInSuperclass(type, selector, signature, kind, rest);
+				resolved |= superclass;
+				rest &= ~superclass;
+				resolved |= resolveInInterfaces(type, selector, signature, kind, rest & type.abstractMask);
+				break;
+		}
+		return resolved;
+	}
+
+	/**
+	 * Resolves the given method in the superclass of the type, grouping the execution environments
+	 * that agree on the superclass
+	 *
+	 * @return the mask of execution environments the method resolves in
+	 */
+	private int resolveInSuperclass(StubType type, String selector, String signature, int kind, int candidates) {
+		int resolved = 0;
+		int rest = candidates;
+		for (int i = 0; rest != 0 && i < fEEs.length; i++) {
+			if ((rest & fEEs[i]) == 0 || type.superclasses[i] == null) {
+				continue;
+			}
+			int group = getSameSuperclass(type, i, rest);
+			resolved |= resolveMethod(type.superclasses[i], selector, signature, kind, group);
+			rest &= ~group;
+		}
+		return resolved;
+	}
+
+	/**
+	 * Resolves the given method in the super interfaces of the type
+	 *
+	 * @return the mask of execution environments the method resolves in
+	 */
+	private int resolveInInterfaces(StubType type, String selector, String signature, int kind, int candidates) {
+		int resolved = 0;
+		for (int i = 0; i < fEEs.length; i++) {
+			int rest = candidates & fEEs[i] & ~resolved;
+			String[] interfaces = type.interfaces[i];
+			if (rest == 0 || interfaces == null) {
+				continue;
+			}
+			for (int j = 0; j < interfaces.length && rest != 0; j++) {
+				int found = resolveMethod(interfaces[j], selector, signature, kind, rest);
+				resolved |= found;
+				rest &= ~found;
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * Returns the mask of the execution environments among the given ones in which the type has
+	 * the same superclass as in the execution environment at the given index
+	 *
+	 * @param type
+	 * @param index
+	 * @param candidates
+	 * @return the mask
+	 */
+	private int getSameSuperclass(StubType type, int index, int candidates) {
+		String superclass = type.superclasses[index];
+		int group = 0;
+		for (int i = index; i < fEEs.length; i++) {
+			if ((candidates & fEEs[i]) != 0 && superclass.equals(type.superclasses[i])) {
+				group |= fEEs[i];
+			}
+		}
+		return group;
+	}
+
+	/**
+	 * Returns the mask recorded for the given key or <code>0</code> if the key is not found
+	 *
+	 * @param keys sorted keys or <code>null</code>
+	 * @param masks
+	 * @param key
+	 * @return the mask
+	 */
+	private static int getMask(String[] keys, int[] masks, String key) {
+		int index = indexOf(keys, key);
+		return index < 0 ? 0 : masks[index];
+	}
+
+	/**
+	 * Returns the index of the given key in the given sorted keys
+	 *
+	 * @param keys sorted keys or <code>null</code>
+	 * @param key
+	 * @return the index or <code>-1</code> if not found
+	 */
+	private static int indexOf(String[] keys, String key) {
+		if (keys == null) {
+			return -1;
+		}
+		int low = 0;
+		int high = keys.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int result = keys[mid].compareTo(key);
+			if (result < 0) {
+				low = mid + 1;
+			}
+			else if (result > 0) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the merged stub entries of the given type, reading them if needed
+	 *
+	 * @param typeName
+	 * @return the stub type, {@link #NO_TYPE} if the type is in no stub archive
+	 */
+	private StubType getStubType(String typeName) {
+		StubType type = null;
+		synchronized (fTypes) {
+			type = (StubType) fTypes.get(typeName);
+		}
+		if (type == null) {
+			// read outside of the lock, the archives are read concurrently by the other builder threads
+			type = readStubType(typeName);
+			synchronized (fTypes) {
+				StubType existing = (StubType) fTypes.get(typeName);
+				if (existing != null) {
+					return existing;
+				}
+				fTypes.put(typeName, type);
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * Reads and merges the entries of the given type in all the stub archives
+	 *
+	 * @param typeName
+	 * @return the stub type, {@link #NO_TYPE} if the type is in no stub archive
+	 */
+	private StubType readStubType(String typeName) {
+		String entryName = typeName.replace('.', '/');
+		StubType type = new StubType();
+		type.superclasses = new String[fEEs.length];
+		type.interfaces = new String[fEEs.length][];
+		TreeMap fields = new TreeMap();
+		TreeMap methods = new TreeMap();
+		TreeMap polymorphic = new TreeMap();
+		for (int i = 0; i < fEEs.length; i++) {
+			byte[] contents = readEntry(fStubs[i], entryName);
+			if (contents == null) {
+				continue;
+			}
+			try {
+				readStubEntry(contents, i, type, fields, methods, polymorphic);
+			}
+			catch (IOException e) {
+				ApiPlugin.log(e);
+			}
+		}
+		if (type.typeMask == 0) {
+			return NO_TYPE;
+		}
+		type.fieldNames = new String[fields.size()];
+		type.fieldMasks = toMasks(fields, type.fieldNames);
+		type.methodKeys = new String[methods.size()];
+		type.methodMasks = toMasks(methods, type.methodKeys);
+		type.polymorphicMasks = new int[type.methodKeys.length];
+		for (int i = 0; i < type.methodKeys.length; i++) {
+			Integer mask = (Integer) polymorphic.get(type.methodKeys[i]);
+			if (mask != null) {
+				type.polymorphicMasks[i] = mask.intValue();
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * Decodes a stub entry into the given type. See {@link TypeStructureBuilder#buildStubTypeStructure(byte[], org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent, org.eclipse.pde.api.tools.internal.model.StubArchiveApiTypeContainer.ArchiveApiTypeRoot)}
+	 * for the format of the entries.
+	 *
+	 * @param contents the contents of the entry
+	 * @param index the index of the execution environment of the entry
+	 * @param type the type to update
+	 * @param fields map of field name to the mask of the execution environments declaring it
+	 * @param methods map of method key to the mask of the execution environments declaring it
+	 * @param polymorphic map of method key to the mask of the execution environments in which it is polymorphic
+	 * @throws IOException
+	 */
+	private void readStubEntry(byte[] contents, int index, StubType type, Map fields, Map methods, Map polymorphic) throws IOException {
+		int ee = fEEs[index];
+		DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(contents));
+		try {
+			HashMap pool = new HashMap();
+			short currentVersion = inputStream.readShort();
+			short poolSize = inputStream.readShort();
+			for (int i = 0; i < poolSize; i++) {
+				String readUtf = inputStream.readUTF();
+				int poolIndex = inputStream.readShort();
+				pool.put(new Integer(poolIndex), SymbolTable.intern(readUtf));
+			}
+			int access = 0;
+			if (currentVersion >= 2) {
+				access = inputStream.readChar();
+			}
+			inputStream.readShort(); // class name
+			int superclassNameIndex = inputStream.readShort();
+			if (superclassNameIndex != -1) {
+				String superclassName = (String) pool.get(new Integer(superclassNameIndex));
+				type.superclasses[index] = SymbolTable.intern(superclassName.replace('/', '.'));
+			}
+			int interfacesLength = inputStream.readShort();
+			if (interfacesLength != 0) {
+				String[] names = new String[interfacesLength];
+				for (int i = 0; i < names.length; i++) {
+					String interfaceName = (String) pool.get(new Integer(inputStream.readShort()));
+					names[i] = SymbolTable.intern(interfaceName.replace('/', '.'));
+				}
+				type.interfaces[index] = names;
+			}
+			int fieldsLength = inputStream.readShort();
+			for (int i = 0; i < fieldsLength; i++) {
+				addMask(fields, pool.get(new Integer(inputStream.readShort())), ee);
+			}
+			int methodsLength = inputStream.readShort();
+			for (int i = 0; i < methodsLength; i++) {
+				String methodSelector = (String) pool.get(new Integer(inputStream.readShort()));
+				String methodSignature = (String) pool.get(new Integer(inputStream.readShort()));
+				String key = SymbolTable.intern(methodSelector + methodSignature);
+				addMask(methods, key, ee);
+				if (currentVersion == 3 && inputStream.readByte() == 1) {
+					addMask(polymorphic, key, ee);
+				}
+			}
+			type.typeMask |= ee;
+			if (Flags.isAbstract(access)) {
+				type.abstractMask |= ee;
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Adds the given execution environment to the mask recorded for the given key
+	 *
+	 * @param masks
+	 * @param key
+	 * @param ee
+	 */
+	private static void addMask(Map masks, Object key, int ee) {
+		Integer mask = (Integer) masks.get(key);
+		masks.put(key, new Integer(mask == null ? ee : mask.intValue() | ee));
+	}
+
+	/**
+	 * Copies the sorted keys of the given map into the given array and returns the masks at the same index
+	 *
+	 * @param masks map of key to {@link Integer} mask
+	 * @param keys the array to fill
+	 * @return the masks
+	 */
+	private static int[] toMasks(TreeMap masks, String[] keys) {
+		int[] result = new int[keys.length];
+		int index = 0;
+		for (Iterator iter = masks.entrySet().iterator(); iter.hasNext(); index++) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			keys[index] = (String) entry.getKey();
+			result[index] = ((Integer) entry.getValue()).intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the contents of the given entry of the given stub archive
+	 *
+	 * @param archive the path of the stub archive
+	 * @param entryName
+	 * @return the contents or <code>null</code> if the entry does not exist or cannot be read
+	 */
+	private static byte[] readEntry(String archive, String entryName) {
+		ZipFile zipFile = null;
+		try {
+			zipFile = ArchiveManager.getManager().acquire(archive);
+			ZipEntry entry = zipFile.getEntry(entryName);
+			if (entry == null) {
+				return null;
+			}
+			InputStream stream = zipFile.getInputStream(entry);
+			try {
+				return Util.getInputStreamAsByteArray(stream, (int) entry.getSize());
+			}
+			finally {
+				stream.close();
+			}
+		}
+		catch (IOException e) {
+			ApiPlugin.log(e);
+			return null;
+		}
+		finally {
+			if (zipFile != null) {
+				ArchiveManager.getManager().release(zipFile);
+			}
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+
+/**
+ * Index of the packages visible to the components of an {@link ApiBaseline}.
+ * <p>
+ * For each component the index holds a table mapping the name of each package the component
+ * can resolve to the components providing it: the exporters visible through the resolved OSGi
+ * state, the hosts of a fragment and the component itself. It also holds the sorted names of
+ * the packages the component contains. Both are computed once per component by the baseline
+ * and never modified afterwards, so the arrays of the tables are handed out to clients as is.
+ * </p>
+ * <p>
+ * Components are spread over a fixed number of stripes. Each stripe publishes immutable
+ * maps through volatile fields, so lookups take no lock. Adding or removing entries copies
+ * the maps of a single stripe while holding the lock of that stripe only.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+final class PackageVisibilityIndex {
+
+	/**
+	 * Number of stripes, must be a power of two
+	 */
+	private static final int STRIPE_COUNT = 16;
+
+	/**
+	 * A stripe of the index. The maps are replaced, never modified.
+	 */
+	static final class Stripe {
+		/**
+		 * Map of {@link IApiComponent} to a map of package name to providing {@link IApiComponent}s
+		 */
+		volatile HashMap resolved = new HashMap(0);
+		/**
+		 * Map of {@link IApiComponent} to the sorted names of its packages
+		 */
+		volatile HashMap packages = new HashMap(0);
+	}
+
+	/**
+	 * The stripes
+	 */
+	private final Stripe[] fStripes = new Stripe[STRIPE_COUNT];
+
+	/**
+	 * Incremented each time entries are removed, so that tables computed from a state
+	 * that changed in the meantime are not recorded
+	 */
+	private volatile int fGeneration = 0;
+
+	/**
+	 * Constructor
+	 */
+	PackageVisibilityIndex() {
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			fStripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Returns the stripe the given component belongs to
+	 *
+	 * @param component
+	 * @return the stripe
+	 */
+	private Stripe getStripe(IApiComponent component) {
+		int hash = component.hashCode();
+		hash ^= (hash >>> 16);
+		return fStripes[hash & (STRIPE_COUNT - 1)];
+	}
+
+	/**
+	 * Returns the resolved packages of the given component
+	 *
+	 * @param component
+	 * @return map of package name to providing components or <code>null</code> if not indexed yet
+	 */
+	HashMap getResolvedPackages(IApiComponent component) {
+		return (HashMap) getStripe(component).resolved.get(component);
+	}
+
+	/**
+	 * Returns the current generation of the index. Callers computing an entry read the generation
+	 * before they start and pass it when recording the entry.
+	 *
+	 * @return the generation
+	 */
+	int getGeneration() {
+		return fGeneration;
+	}
+
+	/**
+	 * Records the resolved packages of the given component. Neither the map nor its arrays
+	 * must be modified afterwards. Nothing is recorded if entries have been removed since
+	 * the given generation.
+	 *
+	 * @param component
+	 * @param resolved map of package name to providing components
+	 * @param generation the generation of the index when the map was computed
+	 */
+	void putResolvedPackages(IApiComponent component, HashMap resolved, int generation) {
+		Stripe stripe = getStripe(component);
+		synchronized (stripe) {
+			if (generation != fGeneration) {
+				return;
+			}
+			HashMap map = new HashMap(stripe.resolved);
+			map.put(component, resolved);
+			stripe.resolved = map;
+		}
+	}
+
+	/**
+	 * Returns the names of the packages contained in the given component
+	 *
+	 * @param component
+	 * @return the sorted package names or <code>null</code> if not indexed yet
+	 */
+	String[] getPackageNames(IApiComponent component) {
+		return (String[]) getStripe(component).packages.get(component);
+	}
+
+	/**
+	 * Records the names of the packages contained in the given component.
+	 * Nothing is recorded if entries have been removed since the given generation.
+	 *
+	 * @param component
+	 * @param names the sorted package names
+	 * @param generation the generation of the index when the names were computed
+	 */
+	void putPackageNames(IApiComponent component, String[] names, int generation) {
+		Stripe stripe = getStripe(component);
+		synchronized (stripe) {
+			if (generation != fGeneration) {
+				return;
+			}
+			HashMap map = new HashMap(stripe.packages);
+			map.put(component, names);
+			stripe.packages = map;
+		}
+	}
+
+	/**
+	 * Removes the resolved packages recorded for the given components, for example after
+	 * the bundles of the components have been resolved again
+	 *
+	 * @param components collection of {@link IApiComponent}s
+	 */
+	void removeResolvedPackages(Collection components) {
+		nextGeneration();
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			Stripe stripe = fStripes[i];
+			synchronized (stripe) {
+				HashMap map = null;
+				for (Iterator iter = components.iterator(); iter.hasNext();) {
+					Object component = iter.next();
+					if (stripe.resolved.containsKey(component)) {
+						if (map == null) {
+							map = new HashMap(stripe.resolved);
+						}
+						map.remove(component);
+					}
+				}
+				if (map != null) {
+					stripe.resolved = map;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all recorded package names, and the resolved packages computed from them,
+	 * for example after packages have been added to or removed from a component
+	 */
+	void clearPackageNames() {
+		nextGeneration();
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			Stripe stripe = fStripes[i];
+			synchronized (stripe) {
+				stripe.resolved = new HashMap(0);
+				stripe.packages = new HashMap(0);
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries from the index
+	 */
+	void clear() {
+		nextGeneration();
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			Stripe stripe = fStripes[i];
+			synchronized (stripe) {
+				stripe.resolved = new HashMap(0);
+				stripe.packages = new HashMap(0);
+			}
+		}
+	}
+
+	/**
+	 * Starts a new generation of the index
+	 */
+	private synchronized void nextGeneration() {
+		fGeneration++;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -61,7 +61,14 @@ public class StubApiComponent extends SystemLibraryApiComponent {
 		return component;
 	}
 
-	private static File getFileFor(int eeValue, String name) {
+	/**
+	 * Returns the stub archive of the given execution environment
+	 * 
+	 * @param eeValue the execution environment, one of the {@link ProfileModifiers} values
+	 * @param name the name of the execution environment
+	 * @return the stub archive or <code>null</code> if none is installed
+	 */
+	static File getFileFor(int eeValue, String name) {
 		try {
 			String lname = name;
 			switch(eeValue) {
@@ -185,6 +192,7 @@ public class StubApiComponent extends SystemLibraryApiComponent {
 				apiComponent.dispose();
 			}
 		}
+		EEAvailabilityIndex.dispose();
 	}
 
 	public static boolean isInstalled(int eeValue) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.ArchiveManager;
 import org.eclipse.pde.api.tools.internal.util.Util;
 
 /**
@@ -105,29 +106,33 @@ public class StubArchiveApiTypeContainer extends ApiElement implements IApiTypeC
 		public byte[] getContents() throws CoreException {
 			StubArchiveApiTypeContainer archive = (StubArchiveApiTypeContainer) getParent();
 			ZipFile zipFile = archive.open();
-			ZipEntry entry = zipFile.getEntry(getName());
-			InputStream stream = null;
-			if (entry != null) {
-				try {
-					stream = zipFile.getInputStream(entry);
-				} catch (IOException e) {
-					abort("Failed to open class file: " + getTypeName() + " in archive: " + archive.fLocation, e); //$NON-NLS-1$ //$NON-NLS-2$
-					return null;
-				}
-				try {
-					return Util.getInputStreamAsByteArray(stream, -1);
-				}
-				catch(IOException ioe) {
-					abort("Unable to read class file: " + getTypeName(), ioe); //$NON-NLS-1$
-					return null; // never gets here
-				}
-				finally {
+			try {
+				ZipEntry entry = zipFile.getEntry(getName());
+				InputStream stream = null;
+				if (entry != null) {
 					try {
-						stream.close();
+						stream = zipFile.getInputStream(entry);
 					} catch (IOException e) {
-						ApiPlugin.log(e);
+						abort("Failed to open class file: " + getTypeName() + " in archive: " + archive.fLocation, e); //$NON-NLS-1$ //$NON-NLS-2$
+						return null;
+					}
+					try {
+						return Util.getInputStreamAsByteArray(stream, -1);
+					}
+					catch(IOException ioe) {
+						abort("Unable to read class file: " + getTypeName(), ioe); //$NON-NLS-1$
+						return null; // never gets here
+					}
+					finally {
+						try {
+							stream.close();
+						} catch (IOException e) {
+							ApiPlugin.log(e);
+						}
 					}
 				}
+			} finally {
+				ArchiveManager.getManager().release(zipFile);
 			}
 			abort("Class file not found: " + getTypeName() + " in archive: " + archive.fLocation, null); //$NON-NLS-1$ //$NON-NLS-2$
 			return null;
@@ -149,11 +154,6 @@ public class StubArchiveApiTypeContainer extends ApiElement implements IApiTypeC
 	 * Cache of package names in this archive.
 	 */
 	private String[] fPackageNames;
-	
-	/**
-	 * Open zip file, or <code>null</code> if file is currently closed.
-	 */
-	private ZipFile fZipFile = null;
 
 	/**
 	 * Constructs an {@link IApiTypeContainer} container for the given jar or zip file
@@ -213,14 +213,7 @@ public class StubArchiveApiTypeContainer extends ApiElement implements IApiTypeC
 	 * @see org.eclipse.pde.api.tools.internal.AbstractApiTypeContainer#close()
 	 */
 	public synchronized void close() throws CoreException {
-		if (fZipFile != null) {
-			try {
-				fZipFile.close();
-				fZipFile = null;
-			} catch (IOException e) {
-				abort("Failed to close class file archive", e); //$NON-NLS-1$
-			}
-		}
+		ArchiveManager.getManager().close(fLocation);
 	}
 
 	/**
@@ -266,43 +259,46 @@ public class StubArchiveApiTypeContainer extends ApiElement implements IApiTypeC
 	 * @throws CoreException
 	 */
 	private synchronized void init() throws CoreException {
-		ZipFile zipFile = open();
 		if (fPackages == null) {
 			fPackages = new HashMap();
-			Enumeration entries = zipFile.entries();
-			while (entries.hasMoreElements()) {
-				ZipEntry entry = (ZipEntry) entries.nextElement();
-				String name = entry.getName();
-				String pkg = Util.DEFAULT_PACKAGE_NAME;
-				int index = name.lastIndexOf('/');
-				if (index >= 0) {
-					pkg = name.substring(0, index).replace('/', '.');
-				}
-				Set fileNames = (Set) fPackages.get(pkg);
-				if (fileNames == null) {
-					fileNames = new HashSet();
-					fPackages.put(pkg, fileNames);
+			ZipFile zipFile = open();
+			try {
+				Enumeration entries = zipFile.entries();
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = (ZipEntry) entries.nextElement();
+					String name = entry.getName();
+					String pkg = Util.DEFAULT_PACKAGE_NAME;
+					int index = name.lastIndexOf('/');
+					if (index >= 0) {
+						pkg = name.substring(0, index).replace('/', '.');
+					}
+					Set fileNames = (Set) fPackages.get(pkg);
+					if (fileNames == null) {
+						fileNames = new HashSet();
+						fPackages.put(pkg, fileNames);
+					}
+					fileNames.add(name);
 				}
-				fileNames.add(name);
+			} finally {
+				ArchiveManager.getManager().release(zipFile);
 			}
 		}
 	}
 	
 	/**
-	 * Returns an open zip file for this archive.
+	 * Returns an open zip file for this archive from the shared {@link ArchiveManager}.
+	 * Callers must release the returned archive back to the manager once they are done with it.
 	 * 
 	 * @return zip file
-	 * @throws IOException if unable to open the archive
+	 * @throws CoreException if unable to open the archive
 	 */
-	synchronized ZipFile open() throws CoreException {
-		if (fZipFile == null) {
-			try {
-				fZipFile = new ZipFile(fLocation);
-			} catch (IOException e) {
-				abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
-			}
+	ZipFile open() throws CoreException {
+		try {
+			return ArchiveManager.getManager().acquire(fLocation);
+		} catch (IOException e) {
+			abort("Failed to open archive: " + fLocation, e); //$NON-NLS-1$
+			return null;
 		}
-		return fZipFile;
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.model;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Table of the names and signatures used by type structures, so that all the
+ * {@link ApiType}s, {@link ApiMethod}s and {@link ApiField}s built from class files
+ * share a single copy of each of them.
+ * <p>
+ * Symbols are held weakly: a symbol no longer referenced by any type structure is
+ * removed from the table by the garbage collector. The table is split in stripes
+ * that are locked independently so that type structures can be built concurrently.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+final class SymbolTable {
+
+	/**
+	 * Number of stripes, must be a power of two
+	 */
+	private static final int STRIPE_COUNT = 16;
+
+	/**
+	 * The table shared by all type structures
+	 */
+	private static final SymbolTable fgShared = new SymbolTable();
+
+	/**
+	 * The stripes, each one a map of symbol to a {@link WeakReference} on the same symbol
+	 */
+	private final WeakHashMap[] fStripes = new WeakHashMap[STRIPE_COUNT];
+
+	/**
+	 * Constructor
+	 */
+	private SymbolTable() {
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			fStripes[i] = new WeakHashMap();
+		}
+	}
+
+	/**
+	 * Returns the shared copy of the given symbol
+	 *
+	 * @param symbol the symbol or <code>null</code>
+	 * @return the shared copy or <code>null</code> if the given symbol is <code>null</code>
+	 */
+	static String intern(String symbol) {
+		if (symbol == null) {
+			return null;
+		}
+		return fgShared.internSymbol(symbol);
+	}
+
+	/**
+	 * Returns an array holding the shared copies of the given symbols. The given array is
+	 * updated in place and returned.
+	 *
+	 * @param symbols the symbols or <code>null</code>
+	 * @return the given array or <code>null</code>
+	 */
+	static String[] intern(String[] symbols) {
+		if (symbols == null) {
+			return null;
+		}
+		for (int i = 0; i < symbols.length; i++) {
+			symbols[i] = intern(symbols[i]);
+		}
+		return symbols;
+	}
+
+	/**
+	 * Returns the shared copy of the given symbol, adding it to the table if needed
+	 *
+	 * @param symbol
+	 * @return the shared copy
+	 */
+	private String internSymbol(String symbol) {
+		int hash = symbol.hashCode();
+		hash ^= (hash >>> 16);
+		WeakHashMap stripe = fStripes[hash & (STRIPE_COUNT - 1)];
+		synchronized (stripe) {
+			WeakReference ref = (WeakReference) stripe.get(symbol);
+			if (ref != null) {
+				String shared = (String) ref.get();
+				if (shared != null) {
+					return shared;
+				}
+			}
+			stripe.put(symbol, new WeakReference(symbol));
+			return symbol;
+		}
+	}
+}
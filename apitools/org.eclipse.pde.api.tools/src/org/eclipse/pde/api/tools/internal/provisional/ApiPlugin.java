@@ -50,6 +50,7 @@ import org.eclipse.pde.api.tools.internal.model.ProjectComponent;
 import org.eclipse.pde.api.tools.internal.provisional.comparator.ApiComparator;
 import org.eclipse.pde.api.tools.internal.provisional.problems.IApiProblemTypes;
 import org.eclipse.pde.api.tools.internal.provisional.scanner.TagScanner;
+import org.eclipse.pde.api.tools.internal.util.ArchiveManager;
 import org.eclipse.pde.api.tools.internal.util.FileManager;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
@@ -506,6 +507,7 @@ public class ApiPlugin extends Plugin implements ISaveParticipant {
 			ApiDescriptionManager.shutdown();
 			ApiBaselineManager.getManager().stop();
 			ResourcesPlugin.getWorkspace().removeSaveParticipant(PLUGIN_ID);
+			ArchiveManager.getManager().closeAll();
 			FileManager.getManager().deleteFiles();
 			fBundleContext = null;
 			if(deltaProcessor != null) {
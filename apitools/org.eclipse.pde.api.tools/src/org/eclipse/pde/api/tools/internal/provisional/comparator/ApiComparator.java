@@ -12,11 +12,13 @@ package org.eclipse.pde.api.tools.internal.provisional.comparator;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.pde.api.tools.internal.comparator.ClassFileComparator;
@@ -30,10 +32,12 @@ import org.eclipse.pde.api.tools.internal.provisional.VisibilityModifiers;
 import org.eclipse.pde.api.tools.internal.provisional.model.ApiTypeContainerVisitor;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiScope;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiType;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeContainer;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiTypeRoot;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.eclipse.pde.api.tools.internal.util.Util;
 import org.osgi.framework.Version;
 
@@ -135,53 +139,77 @@ public class ApiComparator {
 			final int visibilityModifiers,
 			final boolean force, 
 			final IProgressMonitor monitor) {
+		return compare(referenceBaseline, baseline, visibilityModifiers, force, 1, monitor);
+	}
+
+	/**
+	 * Returns a delta that corresponds to the difference between the given baseline and the reference.
+	 * <p>
+	 * The API components of the reference baseline are compared using at most <code>threads</code> 
+	 * worker threads. The resulting delta is the same as the one returned by a serial comparison, 
+	 * regardless of the number of threads used.
+	 * </p>
+	 * 
+	 * @param referenceBaseline the given API baseline which is used as the reference
+	 * @param baseline the given API baseline to compare with
+	 * @param visibilityModifiers the given visibility that triggers what visibility should be used for the comparison
+	 * @param force a flag to force the comparison of nested API components with the same versions 
+	 * @param threads the maximum number of threads to use for the comparison, a value of 1 or less compares serially
+	 * @param monitor
+	 *
+	 * @return a delta, an empty delta if no difference is found or null if the delta detection failed
+	 * @throws IllegalArgumentException if one of the two baselines is null
+	 * @since 1.0.400
+	 */
+	public static IDelta compare(
+			final IApiBaseline referenceBaseline,
+			final IApiBaseline baseline,
+			final int visibilityModifiers,
+			final boolean force,
+			final int threads,
+			final IProgressMonitor monitor) {
 		SubMonitor localmonitor = SubMonitor.convert(monitor, 2);
 		try {
 			if (referenceBaseline == null || baseline == null) {
 				throw new IllegalArgumentException("None of the baselines must be null"); //$NON-NLS-1$
 			}
-			IApiComponent[] apiComponents = referenceBaseline.getApiComponents();
+			final IApiComponent[] apiComponents = referenceBaseline.getApiComponents();
 			IApiComponent[] apiComponents2 = baseline.getApiComponents();
 			Set apiComponentsIds = new HashSet();
 			final Delta globalDelta = new Delta();
+			final IDelta[][] componentDeltas = new IDelta[apiComponents.length][];
+			if (threads > 1) {
+				final IProgressMonitor workerMonitor = localmonitor;
+				try {
+					ParallelExecutor.run(apiComponents.length, threads, new ParallelExecutor.Task() {
+						public void run(int index) {
+							if (workerMonitor.isCanceled()) {
+								return;
+							}
+							componentDeltas[index] = compareComponent(apiComponents[index], referenceBaseline, baseline, visibilityModifiers, force, null);
+						}
+					}, localmonitor.newChild(1));
+				} catch (CoreException e) {
+					ApiPlugin.log(e);
+					return null;
+				}
+			}
 			for (int i = 0, max = apiComponents.length; i < max; i++) {
 				Util.updateMonitor(localmonitor);
 				IApiComponent apiComponent = apiComponents[i];
 				if (!apiComponent.isSystemComponent()) {
 					String id = apiComponent.getSymbolicName();
-					IApiComponent apiComponent2 = baseline.getApiComponent(id);
-					IDelta delta = null;
-					if (apiComponent2 == null) {
-						// report removal of an API component
-						delta =
-							new Delta(
-									null,
-									IDelta.API_BASELINE_ELEMENT_TYPE,
-									IDelta.REMOVED,
-									IDelta.API_COMPONENT,
-									null,
-									id,
-									id);
-					} else {
+					IDelta[] deltas = componentDeltas[i];
+					if (deltas == null) {
+						deltas = compareComponent(apiComponent, referenceBaseline, baseline, visibilityModifiers, force, localmonitor);
+					}
+					if (baseline.getApiComponent(id) != null) {
 						apiComponentsIds.add(id);
-						String versionString = apiComponent.getVersion();
-						String versionString2 = apiComponent2.getVersion();
-						IDelta bundleVersionChangesDelta = checkBundleVersionChanges(apiComponent2, id, versionString, versionString2);
-						if (bundleVersionChangesDelta != null) {
-							globalDelta.add(bundleVersionChangesDelta);
-						}
-						if (!versionString.equals(versionString2)
-								|| force) {
-							long time = System.currentTimeMillis();
-							try {
-								delta = compare(apiComponent, apiComponent2, referenceBaseline, baseline, visibilityModifiers, localmonitor.newChild(1));
-							} finally {
-								if (DEBUG) {
-									System.out.println("Time spent for " + id+ " " + versionString + " : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-								}
-							}
-						}
 					}
+					if (deltas[0] != null) {
+						globalDelta.add(deltas[0]);
+					}
+					IDelta delta = deltas[1];
 					if (delta != null && delta != NO_DELTA) {
 						globalDelta.add(delta);
 					}
@@ -214,6 +242,61 @@ public class ApiComparator {
 		}
 	}
 
+	/**
+	 * Compares the given API component from the reference baseline with its counterpart in the given baseline.
+	 * 
+	 * @param apiComponent the API component from the reference baseline
+	 * @param referenceBaseline the given API baseline which is used as the reference
+	 * @param baseline the given API baseline to compare with
+	 * @param visibilityModifiers the given visibility that triggers what visibility should be used for the comparison
+	 * @param force a flag to force the comparison of nested API components with the same versions
+	 * @param monitor the monitor to report to, or <code>null</code>
+	 * @return a two element array holding the bundle version change delta and the component delta, 
+	 * either of which can be <code>null</code>. <code>null</code> is returned for system components
+	 */
+	static IDelta[] compareComponent(
+			final IApiComponent apiComponent,
+			final IApiBaseline referenceBaseline,
+			final IApiBaseline baseline,
+			final int visibilityModifiers,
+			final boolean force,
+			final SubMonitor monitor) {
+		if (apiComponent.isSystemComponent()) {
+			return null;
+		}
+		String id = apiComponent.getSymbolicName();
+		IApiComponent apiComponent2 = baseline.getApiComponent(id);
+		IDelta[] deltas = new IDelta[2];
+		if (apiComponent2 == null) {
+			// report removal of an API component
+			deltas[1] =
+				new Delta(
+						null,
+						IDelta.API_BASELINE_ELEMENT_TYPE,
+						IDelta.REMOVED,
+						IDelta.API_COMPONENT,
+						null,
+						id,
+						id);
+		} else {
+			String versionString = apiComponent.getVersion();
+			String versionString2 = apiComponent2.getVersion();
+			deltas[0] = checkBundleVersionChanges(apiComponent2, id, versionString, versionString2);
+			if (!versionString.equals(versionString2)
+					|| force) {
+				long time = System.currentTimeMillis();
+				try {
+					deltas[1] = compare(apiComponent, apiComponent2, referenceBaseline, baseline, visibilityModifiers, monitor == null ? null : monitor.newChild(1));
+				} finally {
+					if (DEBUG) {
+						System.out.println("Time spent for " + id+ " " + versionString + " : " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					}
+				}
+			}
+		}
+		return deltas;
+	}
+
 	/**
 	 * Returns a delta that corresponds to the difference between the given component and the reference baseline.
 	 * 
@@ -659,16 +742,74 @@ public class ApiComparator {
 			final int visibilityModifiers,
 			final boolean force,
 			final IProgressMonitor monitor) throws CoreException {
+		return compare(scope, baseline, visibilityModifiers, force, 1, monitor);
+	}
+
+	/**
+	 * Returns a delta that corresponds to the comparison of the given scope with the given API baseline. 
+	 * <p>
+	 * The elements of the scope are compared using at most <code>threads</code> worker threads. 
+	 * A scope made of a single baseline is compared component by component in parallel. The resulting 
+	 * delta is the same as the one returned by a serial comparison, regardless of the number of threads used.
+	 * </p>
+	 * 
+	 * @param scope the given scope for the comparison
+	 * @param baseline the given API baseline to compare with
+	 * @param visibilityModifiers the given visibility that triggers what visibility should be used for the comparison
+	 * @param force a flag to force the comparison of nested API components with the same versions 
+	 * @param threads the maximum number of threads to use for the comparison, a value of 1 or less compares serially
+	 * @param monitor the given progress monitor to report progress
+	 *
+	 * @return a delta, an empty delta if no difference is found or null if the delta detection failed
+	 * @throws IllegalArgumentException if one of the two baselines is null
+	 *         CoreException if one of the element in the scope cannot be visited
+	 * @since 1.0.400
+	 */
+	public static IDelta compare(
+			final IApiScope scope,
+			final IApiBaseline baseline,
+			final int visibilityModifiers,
+			final boolean force,
+			final int threads,
+			final IProgressMonitor monitor) throws CoreException {
 		if (scope == null || baseline == null) {
 			throw new IllegalArgumentException("None of the scope or the baseline must be null"); //$NON-NLS-1$
 		}
 		SubMonitor localmonitor = SubMonitor.convert(monitor, 2);
 		try {
 			final Set deltas = new HashSet();
-			final CompareApiScopeVisitor visitor = new CompareApiScopeVisitor(deltas, baseline, force, visibilityModifiers, localmonitor.newChild(1));
-			scope.accept(visitor);
-			if (visitor.containsError()) {
-				return null;
+			final IApiElement[] elements = scope.getApiElements();
+			if (threads <= 1 || elements.length <= 1) {
+				final CompareApiScopeVisitor visitor = new CompareApiScopeVisitor(deltas, baseline, force, visibilityModifiers, threads, localmonitor.newChild(1));
+				scope.accept(visitor);
+				if (visitor.containsError()) {
+					return null;
+				}
+			} else {
+				// each element collects its deltas in visit order so they can be replayed in the serial order
+				final Set[] elementDeltas = new Set[elements.length];
+				final boolean[] errors = new boolean[elements.length];
+				final IProgressMonitor workerMonitor = localmonitor;
+				ParallelExecutor.run(elements.length, threads, new ParallelExecutor.Task() {
+					public void run(int index) throws CoreException {
+						ApiScope elementScope = new ApiScope();
+						elementScope.addElement(elements[index]);
+						elementDeltas[index] = new LinkedHashSet();
+						CompareApiScopeVisitor visitor = new CompareApiScopeVisitor(elementDeltas[index], baseline, force, visibilityModifiers, 1, new NullProgressMonitor() {
+							public boolean isCanceled() {
+								return workerMonitor.isCanceled();
+							}
+						});
+						elementScope.accept(visitor);
+						errors[index] = visitor.containsError();
+					}
+				}, localmonitor.newChild(1));
+				for (int i = 0; i < elements.length; i++) {
+					if (errors[i]) {
+						return null;
+					}
+					deltas.addAll(elementDeltas[i]);
+				}
 			}
 			if (deltas.isEmpty()) {
 				return NO_DELTA;
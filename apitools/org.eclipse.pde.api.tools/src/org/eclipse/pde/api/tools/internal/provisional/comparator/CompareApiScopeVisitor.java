@@ -34,6 +34,7 @@ public class CompareApiScopeVisitor extends ApiScopeVisitor {
 	int visibilityModifiers;
 	boolean force;
 	boolean containsErrors = false;
+	int threads = 1;
 	IProgressMonitor monitor;
 
 	public CompareApiScopeVisitor(
@@ -42,17 +43,39 @@ public class CompareApiScopeVisitor extends ApiScopeVisitor {
 			final boolean force,
 			final int visibilityModifiers,
 			final IProgressMonitor monitor) {
+		this(deltas, baseline, force, visibilityModifiers, 1, monitor);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param deltas the set to collect the leaf deltas into
+	 * @param baseline the reference baseline
+	 * @param force a flag to force the comparison of nested API components with the same versions
+	 * @param visibilityModifiers the visibility to use for the comparison
+	 * @param threads the maximum number of threads to use when comparing a whole baseline
+	 * @param monitor
+	 * @since 1.0.400
+	 */
+	public CompareApiScopeVisitor(
+			final Set deltas,
+			final IApiBaseline baseline,
+			final boolean force,
+			final int visibilityModifiers,
+			final int threads,
+			final IProgressMonitor monitor) {
 		this.deltas = deltas;
 		this.referenceBaseline = baseline;
 		this.visibilityModifiers = visibilityModifiers;
 		this.force = force;
+		this.threads = threads;
 		this.monitor = monitor;
 	}
 	
 	public boolean visit(IApiBaseline baseline) throws CoreException {
 		try {
 			Util.updateMonitor(this.monitor);
-			IDelta delta = ApiComparator.compare(this.referenceBaseline, baseline, this.visibilityModifiers, this.force, null);
+			IDelta delta = ApiComparator.compare(this.referenceBaseline, baseline, this.visibilityModifiers, this.force, this.threads, null);
 			if (delta != null) {
 				delta.accept(new DeltaVisitor() {
 					public void endVisit(IDelta localDelta) {
@@ -54,6 +54,7 @@ public interface IApiBaseline extends IApiElement {
 	/**
 	 * Returns the API components that provides the specified package when referenced from
 	 * the specified source component or an empty array if none, never <code>null</code>.
+	 * The returned array is shared and must not be modified.
 	 * 
 	 * @param sourceComponent component referencing the package
 	 * @param packageName name of referenced package
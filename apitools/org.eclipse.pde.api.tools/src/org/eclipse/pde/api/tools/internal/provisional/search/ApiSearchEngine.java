@@ -324,6 +324,9 @@ public final class ApiSearchEngine {
 					}
 					mstatus.add(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, ce.getMessage(), ce));
 				}
+				finally {
+					reporter.reportElementComplete(scopeelements[i]);
+				}
 			}
 			if(DEBUG) {
 				System.out.println("Total Search Time: "+((System.currentTimeMillis()-start)/1000)+" seconds");  //$NON-NLS-1$//$NON-NLS-2$
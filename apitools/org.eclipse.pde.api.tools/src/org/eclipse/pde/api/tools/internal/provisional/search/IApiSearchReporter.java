@@ -29,6 +29,15 @@ public interface IApiSearchReporter {
 	 */
 	public void reportResults(IApiElement element, final IReference[] references);
 	
+	/**
+	 * Notifies the reporter that all of the results for the given element have been 
+	 * reported. Reporters that buffer results can write them out at this point.
+	 * 
+	 * @param element the element that was searched
+	 * @since 1.0.400
+	 */
+	public void reportElementComplete(IApiElement element);
+	
 	/**
 	 * Reports the current listing of objects that were not searched for whatever reason. 
 	 * @param notsearched array of elements not searched 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,15 +19,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
@@ -37,6 +39,7 @@ import org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDesc
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMemberDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.eclipse.pde.api.tools.internal.util.Signatures;
 
 /**
@@ -48,46 +51,6 @@ import org.eclipse.pde.api.tools.internal.util.Signatures;
  */
 public class ConsumerReportConvertor extends UseReportConverter {
 	
-	/**
-	 * Use scan visitor that collects a list of the bundles (as {@link IComponentDescriptor}s)
-	 * that consume api references.
-	 */
-	class ListConsumersVisitor extends UseScanVisitor{
-		/**
-		 * Set of {@link IComponentDescriptor}s representing the consumers of references
-		 */
-		Set consumers = new HashSet();
-		
-		/* (non-Javadoc)
-		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitComponent(org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor)
-		 */
-		public boolean visitComponent(IComponentDescriptor target) {
-			return true;
-		}
-		
-		/* (non-Javadoc)
-		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitReferencingComponent(org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor)
-		 */
-		public boolean visitReferencingComponent(IComponentDescriptor component) {
-			consumers.add(component);
-			return false;
-		}
-		
-		/* (non-Javadoc)
-		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitMember(org.eclipse.pde.api.tools.internal.provisional.descriptors.IMemberDescriptor)
-		 */
-		public boolean visitMember(IMemberDescriptor referencedMember) {
-			return false;
-		}
-		
-		/* (non-Javadoc)
-		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitReference(org.eclipse.pde.api.tools.internal.search.IReferenceDescriptor)
-		 */
-		public void visitReference(IReferenceDescriptor reference) {
-		}
-		
-	}
-	
 	/**
 	 * Use scan visitor that produces the report data for a single consumer bundle.  The visitor collects the
 	 * report data in a {@link Consumer}.
@@ -457,19 +420,56 @@ public class ConsumerReportConvertor extends UseReportConverter {
 	 */
 	protected List parse(IProgressMonitor monitor) throws Exception {
 		SubMonitor subMon = SubMonitor.convert(monitor, 20);
-		ListConsumersVisitor listVisitor = new ListConsumersVisitor();
+		// walk the scan once to collect the directories of the references made by each consumer
 		UseScanParser parser = new UseScanParser();
-		parser.parse(getXmlLocation(), subMon.newChild(5), listVisitor);
+		File[] referees = parser.getComponentDirectories(getXmlLocation());
+		Map origins = new TreeMap();
+		for (int i = 0; i < referees.length; i++) {
+			File[] directories = parser.getDirectories(referees[i]);
+			if (directories == null) {
+				continue;
+			}
+			for (int j = 0; j < directories.length; j++) {
+				List list = (List) origins.get(directories[j].getName());
+				if (list == null) {
+					list = new ArrayList();
+					origins.put(directories[j].getName(), list);
+				}
+				list.add(directories[j]);
+			}
+		}
+		subMon.worked(5);
 		List consumerReports = new ArrayList();
 		
-		IComponentDescriptor currentConsumer = null;
-		ConsumerReportVisitor visitor = null;
-		for (Iterator iterator = listVisitor.consumers.iterator(); iterator.hasNext();) {
-			currentConsumer = (IComponentDescriptor)iterator.next();
-			visitor = new ConsumerReportVisitor(currentConsumer);
-			parser.parse(getXmlLocation(), null, visitor);
-			if (visitor.consumer.counts.getTotalRefCount() > 0){
-				consumerReports.add(visitor.consumer);
+		// each consumer only parses its own references, the consumers are written concurrently
+		final File[][] consumers = new File[origins.size()][];
+		int count = 0;
+		for (Iterator iter = origins.values().iterator(); iter.hasNext();) {
+			List list = (List) iter.next();
+			consumers[count++] = (File[]) list.toArray(new File[list.size()]);
+		}
+		final Consumer[] results = new Consumer[consumers.length];
+		ParallelExecutor.run(consumers.length, getThreads(), new ParallelExecutor.Task() {
+			public void run(int index) throws CoreException {
+				UseScanParser parser = new UseScanParser();
+				ConsumerReportVisitor visitor = new ConsumerReportVisitor(parser.getComponentDescriptor(consumers[index][0]));
+				try {
+					parser.parseReferencingComponents(consumers[index], visitor);
+				}
+				catch(CoreException ce) {
+					throw ce;
+				}
+				catch(Exception e) {
+					throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, e.getMessage(), e));
+				}
+				if (visitor.consumer.counts.getTotalRefCount() > 0){
+					results[index] = visitor.consumer;
+				}
+			}
+		}, subMon.newChild(15));
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				consumerReports.add(results[i]);
 			}
 		}
 		return consumerReports;
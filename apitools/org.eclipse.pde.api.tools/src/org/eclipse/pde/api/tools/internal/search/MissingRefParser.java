@@ -21,7 +21,6 @@ import java.util.Map;
 
 import javax.xml.parsers.SAXParser;
 
-import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.api.tools.internal.IApiXmlConstants;
 import org.eclipse.pde.api.tools.internal.problems.ApiProblem;
 import org.eclipse.pde.api.tools.internal.provisional.Factory;
@@ -101,41 +100,57 @@ class MissingRefParser extends UseScanParser {
 	 * @throws Exception
 	 */
 	public void parse(String xmlLocation, MissingRefVisitor visitor) throws Exception {
-		if (xmlLocation == null) {
-			throw new Exception(SearchMessages.missing_xml_files_location);
-		}
-		File reportsRoot = new File(xmlLocation);
-		if (!reportsRoot.exists() || !reportsRoot.isDirectory()) {
-			throw new Exception(NLS.bind(SearchMessages.invalid_directory_name, xmlLocation));
-		}
-		File[] components = getDirectories(reportsRoot);
-		components = sort(components);
+		File[] components = getComponentDirectories(xmlLocation);
 
 		visitor.visitScan();
 		SAXParser parser = getParser();
 		// Treat each top level directory as a producer component
 		for (int i = 0; i < components.length; i++) {
-			if (components[i].isDirectory()) {
-				String[] idv = getIdVersion(components[i].getName());
-				IComponentDescriptor targetComponent = Factory.componentDescriptor(idv[0], idv[1]);
-				if (visitor.visitComponent(targetComponent)) {
-					File[] xmlfiles = Util.getAllFiles(components[i], filter);
-					if (xmlfiles != null && xmlfiles.length > 0) {
-						xmlfiles = sort(xmlfiles); // sort to visit in determined order
-						for (int k = 0; k < xmlfiles.length; k++) {
-							try {
-								MissingRefProblemHandler handler = new MissingRefProblemHandler();
-								parser.parse(xmlfiles[k], handler);
-								List apiProblems = handler.getProblems();
-								visitor.addToCurrentReport(apiProblems);
-							} catch (SAXException e) {
-							} catch (IOException e) {
-							}
+			parseComponent(components[i], parser, visitor);
+		}
+	}
+
+	/**
+	 * Visits the problems of the single component whose directory is given, as if the scan
+	 * only contained that component.
+	 * 
+	 * @param component the directory of the component, as returned by {@link #getComponentDirectories(String)}
+	 * @param visitor
+	 * @throws Exception
+	 */
+	void parseComponent(File component, MissingRefVisitor visitor) throws Exception {
+		visitor.visitScan();
+		parseComponent(component, getParser(), visitor);
+	}
+
+	/**
+	 * Visits the problems of the component whose directory is given
+	 * 
+	 * @param component
+	 * @param parser
+	 * @param visitor
+	 */
+	private void parseComponent(File component, SAXParser parser, MissingRefVisitor visitor) {
+		if (component.isDirectory()) {
+			String[] idv = getIdVersion(component.getName());
+			IComponentDescriptor targetComponent = Factory.componentDescriptor(idv[0], idv[1]);
+			if (visitor.visitComponent(targetComponent)) {
+				File[] xmlfiles = Util.getAllFiles(component, filter);
+				if (xmlfiles != null && xmlfiles.length > 0) {
+					xmlfiles = sort(xmlfiles); // sort to visit in determined order
+					for (int k = 0; k < xmlfiles.length; k++) {
+						try {
+							MissingRefProblemHandler handler = new MissingRefProblemHandler();
+							parser.parse(xmlfiles[k], handler);
+							List apiProblems = handler.getProblems();
+							visitor.addToCurrentReport(apiProblems);
+						} catch (SAXException e) {
+						} catch (IOException e) {
 						}
 					}
-					visitor.endVisitComponent();
 				}
+				visitor.endVisitComponent();
 			}
 		}
 	}
-}
\ No newline at end of file
+}
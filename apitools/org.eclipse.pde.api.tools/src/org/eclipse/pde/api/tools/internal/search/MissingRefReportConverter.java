@@ -23,7 +23,11 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
 import org.eclipse.pde.api.tools.internal.problems.ApiProblem;
@@ -31,12 +35,14 @@ import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.problems.IApiProblem;
 import org.eclipse.pde.api.tools.internal.provisional.search.IMetadata;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.osgi.framework.Version;
 
 public class MissingRefReportConverter extends UseReportConverter {
 
 	class MissingRefVisitor {
 		public List reports;
+		Report currentreport = null;
 
 		public void visitScan() {
 			reports = new ArrayList();
@@ -232,7 +238,6 @@ public class MissingRefReportConverter extends UseReportConverter {
 	private String htmlLocation = null;
 	private File reportsRoot = null;
 	private File htmlIndex = null;
-	Report currentreport = null;
 
 	static final Comparator compare = new Comparator() {
 		public int compare(Object o1, Object o2) {
@@ -333,7 +338,7 @@ public class MissingRefReportConverter extends UseReportConverter {
 			System.out.println("Parsing use scan..."); //$NON-NLS-1$
 			start = System.currentTimeMillis();
 		}
-		List result = parse();
+		List result = parse(monitor);
 		if (DEBUG) {
 			System.out.println("done in: " + (System.currentTimeMillis() - start) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
 			System.out.println("Sorting reports and writing index..."); //$NON-NLS-1$
@@ -535,14 +540,30 @@ public class MissingRefReportConverter extends UseReportConverter {
 		buffer.append("<meta name=\"").append("description").append("\" content=\"").append(SearchMessages.MissingRefReportConverter_IndexMetaTag).append("\">"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ 
 	}
 
-	/**
-	 * Parse the xml directories and report.xml and generate html for them
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.search.UseReportConverter#parse(org.eclipse.core.runtime.IProgressMonitor)
 	 */
-	protected List parse() throws Exception {
-		MissingRefParser parser = new MissingRefParser();
-		MissingRefVisitor visitor = new MissingRefVisitor();
-		parser.parse(getXmlLocation(), visitor);
-		return visitor.reports;
+	protected List parse(IProgressMonitor monitor) throws Exception {
+		final File[] components = new MissingRefParser().getComponentDirectories(getXmlLocation());
+		final List[] results = new List[components.length];
+		// components are parsed and written concurrently, each one with its own parser and visitor
+		ParallelExecutor.run(components.length, getThreads(), new ParallelExecutor.Task() {
+			public void run(int index) throws CoreException {
+				MissingRefVisitor visitor = new MissingRefVisitor();
+				try {
+					new MissingRefParser().parseComponent(components[index], visitor);
+				}
+				catch(Exception e) {
+					throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, e.getMessage(), e));
+				}
+				results[index] = visitor.reports;
+			}
+		}, SubMonitor.convert(monitor, SearchMessages.UseScanParser_parsing, components.length));
+		List reports = new ArrayList();
+		for (int i = 0; i < results.length; i++) {
+			reports.addAll(results[i]);
+		}
+		return reports;
 	}
 
 	/* (non-Javadoc)
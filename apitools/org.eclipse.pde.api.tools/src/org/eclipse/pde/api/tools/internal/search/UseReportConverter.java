@@ -45,7 +45,9 @@ import javax.xml.transform.stream.StreamSource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.Signature;
 import org.eclipse.osgi.util.NLS;
@@ -60,6 +62,7 @@ import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMemberDescrip
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMethodDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
 import org.eclipse.pde.api.tools.internal.provisional.search.IMetadata;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.eclipse.pde.api.tools.internal.util.Signatures;
 import org.eclipse.pde.api.tools.internal.util.Util;
 import org.osgi.framework.Version;
@@ -634,6 +637,7 @@ public class UseReportConverter extends HTMLConvertor {
 	private UseMetadata metadata = null;
 	Pattern[] topatterns = null;
 	Pattern[] frompatterns = null;
+	private int threads = 1;
 	
 	/**
 	 * Constructor
@@ -700,6 +704,26 @@ public class UseReportConverter extends HTMLConvertor {
 		return this.hasmissing;
 	}
 	
+	/**
+	 * Sets the maximum number of threads used to write the reports. Reports are written
+	 * by referenced component (or by consuming component), each one on its own thread.
+	 * The default is <code>1</code>.
+	 * 
+	 * @param threads the maximum number of threads
+	 * @since 1.0.400
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * @return the maximum number of threads used to write the reports
+	 * @since 1.0.400
+	 */
+	protected int getThreads() {
+		return this.threads;
+	}
+	
 	/**
 	 * Runs the converter on the given locations
 	 */
@@ -776,11 +800,37 @@ public class UseReportConverter extends HTMLConvertor {
 		}
 	}
 	
+	/**
+	 * Parses the use scan and writes the report of each referenced component. The referenced components
+	 * are parsed and written concurrently, each one with its own parser and visitor.
+	 * 
+	 * @param monitor
+	 * @return the list of {@link Report}s of the components that have references, in the order of the scan
+	 * @throws Exception
+	 */
 	protected List parse(IProgressMonitor monitor) throws Exception{
-		UseScanParser parser = new UseScanParser();
-		Visitor convertor = new Visitor();
-		parser.parse(getXmlLocation(), monitor, convertor);
-		return convertor.reports;
+		final File[] referees = new UseScanParser().getComponentDirectories(getXmlLocation());
+		final List[] results = new List[referees.length];
+		ParallelExecutor.run(referees.length, getThreads(), new ParallelExecutor.Task() {
+			public void run(int index) throws CoreException {
+				Visitor convertor = new Visitor();
+				try {
+					new UseScanParser().parseComponent(referees[index], convertor);
+				}
+				catch(CoreException ce) {
+					throw ce;
+				}
+				catch(Exception e) {
+					throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, e.getMessage(), e));
+				}
+				results[index] = convertor.reports;
+			}
+		}, SubMonitor.convert(monitor, SearchMessages.UseScanParser_parsing, referees.length));
+		List reports = new ArrayList();
+		for (int i = 0; i < results.length; i++) {
+			reports.addAll(results[i]);
+		}
+		return reports;
 	}
 	
 	/**
@@ -0,0 +1,717 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.Factory;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IElementDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMemberDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IMethodDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.descriptors.IReferenceTypeDescriptor;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+
+/**
+ * A binary index of an API use scan, stored next to the XML reports of the scan.
+ * <p>
+ * The index records, for each referenced component of the scan, the references made to it grouped by
+ * the root type of the referenced member. Answering which components use a given set of types only
+ * requires a lookup in the component and type tables and decoding the matching references, the XML
+ * reports are not parsed.
+ * </p>
+ * <p>
+ * The index file is read into memory at once, it is not kept open. Strings are decoded on first use.
+ * An index is considered up to date as long as the set of referenced component directories of the scan
+ * and their stamps have not changed. The stamp of a directory covers the names and time stamps of
+ * everything it contains, and the lengths of the report files, so that a report added, removed or rewritten
+ * in any referencing component directory makes the index out of date. Since every scan run writes a new
+ * index, the stamps only need to be checked once when the index is read, afterwards {@link #isCurrent()}
+ * only looks at the index file.
+ * </p>
+ * The format of the file is:
+ * <pre>
+ * int magic, int version, int directory count, directory count * (string name, long stamp),
+ * int string count, string count * string,
+ * int section count, section count * (int component id, int section offset), sections
+ * section: int component version, int type count, type count * (int root type name, int record offset, int record count), records
+ * record: int referencing component id, int referencing component version, target member, origin member,
+ *         int line number, int reference kind, int reference flags, int visibility
+ * member: int element type, int type name, int member name, int signature
+ * </pre>
+ * where strings are written as an int byte length followed by the UTF-8 encoded bytes, offsets are
+ * relative to the start of the first section and string references are indices into the string table,
+ * <code>-1</code> standing for <code>null</code>.
+ *
+ * @since 1.0.400
+ */
+public final class UseScanIndex {
+
+	/**
+	 * The name of the index file in the XML directory of a use scan
+	 */
+	public static final String INDEX_FILE_NAME = "use_scan.index"; //$NON-NLS-1$
+
+	/**
+	 * Magic number identifying an index file
+	 */
+	private static final int MAGIC = 0x41505549;
+
+	/**
+	 * Current version of the index format
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The number of ints in a reference record
+	 */
+	static final int RECORD_SIZE = 14;
+
+	/**
+	 * Filter for the component directories of a scan, matches the directories {@link UseScanParser} visits
+	 */
+	static final FileFilter DIRECTORY_FILTER = new FileFilter() {
+		public boolean accept(File pathname) {
+			return pathname.isDirectory() && !pathname.isHidden();
+		}
+	};
+
+	/**
+	 * Visitor collecting every reference of a scan into the sections of a new index
+	 */
+	static final class Builder extends UseScanVisitor {
+		Map strings = new HashMap();
+		List stringList = new ArrayList();
+		List sectionIds = new ArrayList();
+		List sectionOffsets = new ArrayList();
+		ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+		TreeMap records = null;
+		IComponentDescriptor referencing = null;
+		IMemberDescriptor member = null;
+		String rootType = null;
+		IOException error = null;
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitComponent(org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor)
+		 */
+		public boolean visitComponent(IComponentDescriptor component) {
+			records = new TreeMap();
+			return true;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitReferencingComponent(org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor)
+		 */
+		public boolean visitReferencingComponent(IComponentDescriptor component) {
+			referencing = component;
+			return true;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitMember(org.eclipse.pde.api.tools.internal.provisional.descriptors.IMemberDescriptor)
+		 */
+		public boolean visitMember(IMemberDescriptor referencedMember) {
+			member = referencedMember;
+			rootType = getRootType(referencedMember);
+			return true;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#visitReference(org.eclipse.pde.api.tools.internal.search.IReferenceDescriptor)
+		 */
+		public void visitReference(IReferenceDescriptor reference) {
+			List list = (List) records.get(rootType);
+			if (list == null) {
+				list = new ArrayList();
+				records.put(rootType, list);
+			}
+			list.add(toRecord(reference));
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.pde.api.tools.internal.search.UseScanVisitor#endVisitComponent(org.eclipse.pde.api.tools.internal.provisional.descriptors.IComponentDescriptor)
+		 */
+		public void endVisitComponent(IComponentDescriptor component) {
+			if (error != null || records == null || records.isEmpty()) {
+				return;
+			}
+			try {
+				sectionIds.add(new Integer(intern(component.getId())));
+				sectionOffsets.add(new Integer(body.size()));
+				DataOutputStream out = new DataOutputStream(body);
+				int offset = body.size() + 8 + records.size() * 12;
+				out.writeInt(intern(component.getVersion()));
+				out.writeInt(records.size());
+				for (Iterator iter = records.entrySet().iterator(); iter.hasNext();) {
+					Map.Entry entry = (Map.Entry) iter.next();
+					int count = ((List) entry.getValue()).size();
+					out.writeInt(intern((String) entry.getKey()));
+					out.writeInt(offset);
+					out.writeInt(count);
+					offset += count * RECORD_SIZE * 4;
+				}
+				for (Iterator iter = records.values().iterator(); iter.hasNext();) {
+					List list = (List) iter.next();
+					for (Iterator iter2 = list.iterator(); iter2.hasNext();) {
+						int[] record = (int[]) iter2.next();
+						for (int i = 0; i < record.length; i++) {
+							out.writeInt(record[i]);
+						}
+					}
+				}
+				out.flush();
+			} catch (IOException e) {
+				error = e;
+			}
+			records = null;
+		}
+
+		/**
+		 * Encodes the given reference made to the current member
+		 *
+		 * @param reference
+		 * @return the record
+		 */
+		int[] toRecord(IReferenceDescriptor reference) {
+			int[] record = new int[RECORD_SIZE];
+			record[0] = intern(referencing.getId());
+			record[1] = intern(referencing.getVersion());
+			encodeMember(member, record, 2);
+			encodeMember(reference.getMember(), record, 6);
+			record[10] = reference.getLineNumber();
+			record[11] = reference.getReferenceKind();
+			record[12] = reference.getReferenceFlags();
+			record[13] = reference.getVisibility();
+			return record;
+		}
+
+		/**
+		 * Encodes the element type, type name, member name and signature of the given member
+		 * into four consecutive slots of the given record
+		 *
+		 * @param desc
+		 * @param record
+		 * @param index
+		 */
+		void encodeMember(IMemberDescriptor desc, int[] record, int index) {
+			record[index] = desc.getElementType();
+			switch (desc.getElementType()) {
+				case IElementDescriptor.METHOD:
+					record[index + 1] = intern(desc.getEnclosingType().getQualifiedName());
+					record[index + 2] = intern(desc.getName());
+					record[index + 3] = intern(((IMethodDescriptor) desc).getSignature());
+					break;
+				case IElementDescriptor.FIELD:
+					record[index + 1] = intern(desc.getEnclosingType().getQualifiedName());
+					record[index + 2] = intern(desc.getName());
+					record[index + 3] = -1;
+					break;
+				default:
+					record[index + 1] = intern(((IReferenceTypeDescriptor) desc).getQualifiedName());
+					record[index + 2] = -1;
+					record[index + 3] = -1;
+			}
+		}
+
+		/**
+		 * Returns the index of the given string in the string table, adding it if required
+		 *
+		 * @param value
+		 * @return the index or <code>-1</code> for <code>null</code>
+		 */
+		int intern(String value) {
+			if (value == null) {
+				return -1;
+			}
+			Integer index = (Integer) strings.get(value);
+			if (index == null) {
+				index = new Integer(stringList.size());
+				strings.put(value, index);
+				stringList.add(value);
+			}
+			return index.intValue();
+		}
+	}
+
+	/**
+	 * Names of the recorded component directories, sorted
+	 */
+	private String[] fDirectories;
+
+	/**
+	 * Recorded stamps of the component directories
+	 */
+	private long[] fStamps;
+
+	/**
+	 * Offsets of the strings in the buffer
+	 */
+	private int[] fStringOffsets;
+
+	/**
+	 * Strings decoded so far
+	 */
+	private String[] fStrings;
+
+	/**
+	 * Map of component id to an {@link ArrayList} of section offsets
+	 */
+	private HashMap fSections;
+
+	/**
+	 * Position of the first section in the buffer
+	 */
+	private int fStart;
+
+	/**
+	 * The contents of the index file
+	 */
+	private ByteBuffer fBuffer;
+
+	/**
+	 * The index file this index was read from
+	 */
+	private File fFile;
+
+	/**
+	 * The time stamp of the index file when it was read
+	 */
+	private long fFileStamp;
+
+	/**
+	 * The length of the index file when it was read
+	 */
+	private long fFileLength;
+
+	/**
+	 * Constructor
+	 * @param buffer the index contents
+	 * @param file the index file
+	 * @param stamp the time stamp of the index file
+	 */
+	private UseScanIndex(ByteBuffer buffer, File file, long stamp) {
+		fBuffer = buffer;
+		fFile = file;
+		fFileStamp = stamp;
+		fFileLength = buffer.capacity();
+	}
+
+	/**
+	 * Parses the use scan in the given XML directory and writes its index to {@link #INDEX_FILE_NAME}
+	 * in the same directory. The index is written to a temporary file first, so that readers never see
+	 * a partially written index.
+	 *
+	 * @param xmlLocation the XML directory of the scan
+	 * @param monitor the monitor to report progress to or <code>null</code>
+	 * @throws CoreException if the scan cannot be parsed or the index cannot be written
+	 */
+	public static void build(String xmlLocation, IProgressMonitor monitor) throws CoreException {
+		File root = new File(xmlLocation);
+		File[] directories = getDirectories(root);
+		// stamp before parsing, a scan changing meanwhile is indexed again next time
+		long[] stamps = new long[directories.length];
+		for (int i = 0; i < directories.length; i++) {
+			stamps[i] = getStamp(directories[i]);
+		}
+		Builder builder = new Builder();
+		try {
+			new UseScanParser().parse(xmlLocation, monitor, builder);
+		} catch (CoreException e) {
+			throw e;
+		} catch (Exception e) {
+			abort("Unable to parse API use scan: " + xmlLocation, e); //$NON-NLS-1$
+		}
+		if (builder.error != null) {
+			abort("Unable to write API use scan index", builder.error); //$NON-NLS-1$
+		}
+		File file = new File(root, INDEX_FILE_NAME);
+		File staging = null;
+		BufferedOutputStream stream = null;
+		try {
+			staging = File.createTempFile(INDEX_FILE_NAME, ".tmp", root); //$NON-NLS-1$
+			stream = new BufferedOutputStream(new FileOutputStream(staging));
+			DataOutputStream out = new DataOutputStream(stream);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(directories.length);
+			for (int i = 0; i < directories.length; i++) {
+				writeString(out, directories[i].getName());
+				out.writeLong(stamps[i]);
+			}
+			out.writeInt(builder.stringList.size());
+			for (Iterator iter = builder.stringList.iterator(); iter.hasNext();) {
+				writeString(out, (String) iter.next());
+			}
+			out.writeInt(builder.sectionIds.size());
+			for (int i = 0; i < builder.sectionIds.size(); i++) {
+				out.writeInt(((Integer) builder.sectionIds.get(i)).intValue());
+				out.writeInt(((Integer) builder.sectionOffsets.get(i)).intValue());
+			}
+			builder.body.writeTo(out);
+			out.flush();
+			stream.close();
+			stream = null;
+			if (!staging.renameTo(file)) {
+				// the index of another thread or an out of date index
+				file.delete();
+				if (!staging.renameTo(file)) {
+					abort("Unable to write API use scan index: " + file, null); //$NON-NLS-1$
+				}
+			}
+			staging = null;
+		} catch (IOException e) {
+			abort("Unable to write API use scan index: " + file, e); //$NON-NLS-1$
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+			if (staging != null) {
+				staging.delete();
+			}
+		}
+	}
+
+	/**
+	 * Reads the given index file into memory and reads its tables. The file is not mapped, a mapped
+	 * file could not be replaced by a new index on all platforms while the index is in use.
+	 *
+	 * @param file the index file
+	 * @return the index or <code>null</code> if the file is not an index of the current version
+	 * @throws CoreException if the file cannot be read
+	 */
+	public static UseScanIndex read(File file) throws CoreException {
+		DataInputStream stream = null;
+		try {
+			long stamp = file.lastModified();
+			stream = new DataInputStream(new FileInputStream(file));
+			byte[] bytes = new byte[(int) file.length()];
+			stream.readFully(bytes);
+			UseScanIndex index = new UseScanIndex(ByteBuffer.wrap(bytes), file, stamp);
+			if (index.readTables()) {
+				return index;
+			}
+		} catch (IOException e) {
+			abort("Unable to read API use scan index: " + file, e); //$NON-NLS-1$
+		} catch (BufferUnderflowException e) {
+			// truncated index, treat as invalid
+		} catch (IndexOutOfBoundsException e) {
+			// corrupt index, treat as invalid
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the directory, string and section tables of the index. Strings are only located, not decoded.
+	 *
+	 * @return <code>true</code> if the buffer holds an index of the current version
+	 * @throws IOException
+	 */
+	private boolean readTables() throws IOException {
+		if (fBuffer.getInt() != MAGIC || fBuffer.getInt() != VERSION) {
+			return false;
+		}
+		int count = fBuffer.getInt();
+		fDirectories = new String[count];
+		fStamps = new long[count];
+		for (int i = 0; i < count; i++) {
+			fDirectories[i] = readString(fBuffer);
+			fStamps[i] = fBuffer.getLong();
+		}
+		count = fBuffer.getInt();
+		fStringOffsets = new int[count];
+		fStrings = new String[count];
+		for (int i = 0; i < count; i++) {
+			fStringOffsets[i] = fBuffer.position();
+			fBuffer.position(fBuffer.position() + 4 + fBuffer.getInt());
+		}
+		count = fBuffer.getInt();
+		int[] ids = new int[count];
+		int[] offsets = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = fBuffer.getInt();
+			offsets[i] = fBuffer.getInt();
+		}
+		fStart = fBuffer.position();
+		fSections = new HashMap(count * 2);
+		for (int i = 0; i < count; i++) {
+			String id = getString(ids[i]);
+			List sections = (List) fSections.get(id);
+			if (sections == null) {
+				sections = new ArrayList(1);
+				fSections.put(id, sections);
+			}
+			sections.add(new Integer(offsets[i]));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if the component directories of the scan in the given XML directory are the ones
+	 * recorded in this index and have not been modified since. Every report file of the scan
+	 * is looked at, which is still far cheaper than parsing the scan.
+	 *
+	 * @param xmlLocation the XML directory of the scan
+	 * @return <code>true</code> if the index is up to date, <code>false</code> otherwise
+	 */
+	public boolean isUpToDate(String xmlLocation) {
+		File[] directories = getDirectories(new File(xmlLocation));
+		if (directories.length != fDirectories.length) {
+			return false;
+		}
+		for (int i = 0; i < directories.length; i++) {
+			if (!directories[i].getName().equals(fDirectories[i]) || getStamp(directories[i]) != fStamps[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns if the index file this index was read from has not been replaced or modified since.
+	 * A scan run writes a new index once its reports are written, so as long as the file is unchanged
+	 * the stamps checked by {@link #isUpToDate(String)} when the index was read still hold and the
+	 * report files do not need to be looked at again.
+	 *
+	 * @return <code>true</code> if the index file is unchanged, <code>false</code> otherwise
+	 */
+	public boolean isCurrent() {
+		return fFile.lastModified() == fFileStamp && fFile.length() == fFileLength;
+	}
+
+	/**
+	 * Adds the references made to the given component to the given collection, keyed by the root type
+	 * of the referenced member, the same way {@link UseScanReferenceVisitor} does.
+	 *
+	 * @param component the referenced component
+	 * @param types the root types to collect references to or <code>null</code> or empty for all types
+	 * @param references the collection to add the references to
+	 */
+	public synchronized void collect(IApiComponent component, String[] types, IReferenceCollection references) {
+		List sections = (List) fSections.get(component.getSymbolicName());
+		if (sections == null) {
+			return;
+		}
+		HashSet lookup = types == null || types.length == 0 ? null : new HashSet(Arrays.asList(types));
+		for (Iterator iter = sections.iterator(); iter.hasNext();) {
+			int offset = fStart + ((Integer) iter.next()).intValue();
+			IComponentDescriptor target = Factory.componentDescriptor(component.getSymbolicName(), getString(fBuffer.getInt(offset)));
+			int count = fBuffer.getInt(offset + 4);
+			for (int i = 0; i < count; i++) {
+				int entry = offset + 8 + i * 12;
+				String type = getString(fBuffer.getInt(entry));
+				if (lookup == null || lookup.contains(type)) {
+					collect(target, type, fStart + fBuffer.getInt(entry + 4), fBuffer.getInt(entry + 8), references);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes the given number of records starting at the given position
+	 *
+	 * @param target the referenced component
+	 * @param type the root type the records are keyed by
+	 * @param start
+	 * @param count
+	 * @param references
+	 */
+	private void collect(IComponentDescriptor target, String type, int start, int count, IReferenceCollection references) {
+		int[] record = new int[RECORD_SIZE];
+		for (int i = 0; i < count; i++) {
+			int position = start + i * RECORD_SIZE * 4;
+			for (int j = 0; j < RECORD_SIZE; j++) {
+				record[j] = fBuffer.getInt(position + j * 4);
+			}
+			references.add(type, new ReferenceDescriptor(
+					Factory.componentDescriptor(getString(record[0]), getString(record[1])),
+					decodeMember(record, 6),
+					record[10],
+					target,
+					decodeMember(record, 2),
+					record[11],
+					record[12],
+					record[13],
+					null));
+		}
+	}
+
+	/**
+	 * Decodes the member encoded at the given slot of the given record
+	 *
+	 * @param record
+	 * @param index
+	 * @return the member descriptor
+	 */
+	private IMemberDescriptor decodeMember(int[] record, int index) {
+		String typename = getString(record[index + 1]);
+		switch (record[index]) {
+			case IElementDescriptor.METHOD:
+				return Factory.methodDescriptor(typename, getString(record[index + 2]), getString(record[index + 3]));
+			case IElementDescriptor.FIELD:
+				return Factory.fieldDescriptor(typename, getString(record[index + 2]));
+			default:
+				return Factory.typeDescriptor(typename);
+		}
+	}
+
+	/**
+	 * Returns the string at the given index of the string table, decoding it if required
+	 *
+	 * @param index
+	 * @return the string or <code>null</code> if the index is <code>-1</code>
+	 */
+	private String getString(int index) {
+		if (index == -1) {
+			return null;
+		}
+		String value = fStrings[index];
+		if (value == null) {
+			ByteBuffer buffer = fBuffer.duplicate();
+			buffer.position(fStringOffsets[index]);
+			try {
+				value = readString(buffer);
+			} catch (IOException e) {
+				// UTF-8 is always supported
+				ApiPlugin.log(e);
+				value = ""; //$NON-NLS-1$
+			}
+			fStrings[index] = value;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the name of the root type of the given member, the qualified name of its outermost enclosing type
+	 *
+	 * @param member
+	 * @return the root type name
+	 */
+	static String getRootType(IMemberDescriptor member) {
+		String name;
+		if (member instanceof IReferenceTypeDescriptor) {
+			name = ((IReferenceTypeDescriptor) member).getQualifiedName();
+		} else {
+			name = member.getEnclosingType().getQualifiedName();
+		}
+		int index = name.indexOf('$');
+		return index > -1 ? name.substring(0, index) : name;
+	}
+
+	/**
+	 * Returns the component directories of the scan in the given XML directory, sorted by name
+	 *
+	 * @param root
+	 * @return the directories, never <code>null</code>
+	 */
+	static File[] getDirectories(File root) {
+		File[] directories = root.listFiles(DIRECTORY_FILTER);
+		if (directories == null) {
+			return new File[0];
+		}
+		Arrays.sort(directories);
+		return directories;
+	}
+
+	/**
+	 * Returns a stamp of the given directory combining the names and time stamps of the directory and of
+	 * everything it contains, and the lengths of the files it contains
+	 *
+	 * @param directory
+	 * @return the stamp
+	 */
+	static long getStamp(File directory) {
+		long stamp = directory.lastModified();
+		File[] children = directory.listFiles();
+		if (children != null) {
+			Arrays.sort(children);
+			for (int i = 0; i < children.length; i++) {
+				File child = children[i];
+				stamp = 31 * stamp + child.getName().hashCode();
+				stamp = 31 * stamp + child.lastModified();
+				stamp = 31 * stamp + (child.isDirectory() ? getStamp(child) : child.length());
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * Writes a length prefixed UTF-8 string
+	 *
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(IApiCoreConstants.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a length prefixed UTF-8 string
+	 *
+	 * @param buffer
+	 * @return the string
+	 * @throws IOException
+	 */
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, IApiCoreConstants.UTF_8);
+	}
+
+	/**
+	 * Throws a core exception with the given message and underlying exception
+	 *
+	 * @param message
+	 * @param e
+	 * @throws CoreException
+	 */
+	private static void abort(String message, Throwable e) throws CoreException {
+		throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, message, e));
+	}
+}
@@ -15,11 +15,13 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
@@ -84,6 +86,17 @@ public class UseScanManager {
 
 	private String[] fLocations = null;
 
+	/**
+	 * Map of scan XML locations to the {@link UseScanIndex} of the scan, or to {@link Boolean#FALSE}
+	 * if the scan has no usable index
+	 */
+	private HashMap fIndexes = new HashMap();
+
+	/**
+	 * Map of scan XML locations to the lock guarding the loading of the index of the scan
+	 */
+	private HashMap fIndexLocks = new HashMap();
+
 	/**
 	 * {@link FileFilter} for finding use scan directories
 	 */
@@ -214,7 +227,14 @@ public class UseScanManager {
 							}
 							throw new Exception(message);
 						}
-						parser.parse(locations[i], localmonitor.newChild(2), visitor);
+						SubMonitor child = localmonitor.newChild(2);
+						UseScanIndex index = getIndex(locations[i], child);
+						if (index != null) {
+							index.collect(apiComponent, types, references);
+						}
+						else {
+							parser.parse(locations[i], child, visitor);
+						}
 						Util.updateMonitor(localmonitor);
 					} catch (Exception e) {
 						ApiPlugin.log(e); // log the exception and continue with next location
@@ -231,6 +251,71 @@ public class UseScanManager {
 		}
 	}
 
+	/**
+	 * Returns the index of the scan in the given XML location. The index is built the first time
+	 * the scan is loaded and rebuilt if the scan has changed since. The report files of the scan are
+	 * only checked when the index is loaded, afterwards only the index file is checked for a new scan run.
+	 * 
+	 * @param location the XML location of the scan
+	 * @param monitor
+	 * @return the index or <code>null</code> if the index cannot be read or written
+	 */
+	private UseScanIndex getIndex(String location, IProgressMonitor monitor) {
+		Object lock = null;
+		synchronized (fIndexes) {
+			lock = fIndexLocks.get(location);
+			if (lock == null) {
+				lock = new Object();
+				fIndexLocks.put(location, lock);
+			}
+		}
+		// only the threads asking for the same scan wait while its index is checked or built
+		synchronized (lock) {
+			Object index = null;
+			synchronized (fIndexes) {
+				index = fIndexes.get(location);
+			}
+			if (index instanceof UseScanIndex && !((UseScanIndex) index).isCurrent()) {
+				index = null;
+			}
+			if (index == null) {
+				index = loadIndex(location, monitor);
+				if (index == null) {
+					index = Boolean.FALSE;
+				}
+				synchronized (fIndexes) {
+					fIndexes.put(location, index);
+				}
+			}
+			return index instanceof UseScanIndex ? (UseScanIndex) index : null;
+		}
+	}
+
+	/**
+	 * Reads the index of the scan in the given XML location, building it if it does not exist or is out of date
+	 * 
+	 * @param location the XML location of the scan
+	 * @param monitor
+	 * @return the index or <code>null</code> if the index cannot be read or written
+	 */
+	private UseScanIndex loadIndex(String location, IProgressMonitor monitor) {
+		File file = new File(location, UseScanIndex.INDEX_FILE_NAME);
+		try {
+			if (file.exists()) {
+				UseScanIndex index = UseScanIndex.read(file);
+				if (index != null && index.isUpToDate(location)) {
+					return index;
+				}
+			}
+			UseScanIndex.build(location, monitor);
+			return UseScanIndex.read(file);
+		}
+		catch (CoreException e) {
+			ApiPlugin.log(e);
+		}
+		return null;
+	}
+
 	/**
 	 * Returns the scan 
 	 * @param location
@@ -391,5 +476,8 @@ public class UseScanManager {
 			reference.clear();
 		}
 		fApiComponentCache.flush();
+		synchronized (fIndexes) {
+			fIndexes.clear();
+		}
 	}
 }
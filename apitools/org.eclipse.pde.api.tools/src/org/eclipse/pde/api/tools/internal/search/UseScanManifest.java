@@ -0,0 +1,640 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.osgi.service.resolver.ExportPackageDescription;
+import org.eclipse.osgi.service.resolver.HostSpecification;
+import org.eclipse.osgi.service.resolver.State;
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.model.BundleComponent;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.util.Util;
+
+/**
+ * The manifest of an API use scan, stored next to the XML reports of the scan so that a
+ * later scan of the same output directory only has to search the components that changed.
+ * <p>
+ * The manifest records the settings of the scan and, for each component of the scanned
+ * baseline, its symbolic name, version and a hash of its contents, if the component was
+ * searched for references and the reference counts reported for it. Content hashes are
+ * computed from the entry names, sizes and CRCs of archives and from the file names, sizes
+ * and time stamps of directories, the class files are not read.
+ * </p>
+ * <p>
+ * The manifest also records, for each component, the components it resolves packages from in
+ * the resolved state of the baseline and a hash of that wiring, so that a component is searched
+ * again when the packages it sees are provided differently, even if it did not reference the
+ * components involved in the previous scan.
+ * </p>
+ * The format of the file is:
+ * <pre>
+ * int magic, int version, string settings, int component count,
+ * component count * (string symbolic name, string version, string hash, string wiring,
+ * 	int provider count, provider count * string provider, boolean scanned, int total, int illegal, int internal)
+ * </pre>
+ * where strings are written in modified UTF-8, <code>null</code> strings as empty strings, and
+ * the provider count is -1 if the wiring of the component is not known.
+ *
+ * @since 1.0.400
+ */
+public final class UseScanManifest {
+
+	/**
+	 * Name of the manifest file in the XML directory of a scan
+	 */
+	public static final String MANIFEST_FILE_NAME = "use_scan.manifest"; //$NON-NLS-1$
+
+	/**
+	 * Index of the total reference count in the counts of a component
+	 */
+	public static final int TOTAL = 0;
+
+	/**
+	 * Index of the illegal reference count in the counts of a component
+	 */
+	public static final int ILLEGAL = 1;
+
+	/**
+	 * Index of the internal reference count in the counts of a component
+	 */
+	public static final int INTERNAL = 2;
+
+	/**
+	 * Magic number of manifest files, 'APUM'
+	 */
+	private static final int MAGIC = 0x4150554D;
+
+	/**
+	 * Version of the manifest format
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Manifest record of a component
+	 */
+	static final class Entry {
+		String version;
+		String hash;
+		String wiring = null;
+		String[] providers = null;
+		boolean scanned = false;
+		int[] counts = new int[3];
+
+		Entry(String version, String hash) {
+			this.version = version;
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * The settings of the scan
+	 */
+	private String fSettings = null;
+
+	/**
+	 * Map of symbolic name to {@link Entry}, sorted so that manifests are written in a stable order
+	 */
+	private Map fEntries = new TreeMap();
+
+	/**
+	 * Constructor
+	 *
+	 * @param settings a description of the settings of the scan, scans with different settings
+	 * do not share results
+	 */
+	public UseScanManifest(String settings) {
+		fSettings = (settings == null ? Util.EMPTY_STRING : settings);
+	}
+
+	/**
+	 * Reads the manifest from the given file.
+	 *
+	 * @param file the manifest file
+	 * @return the manifest or <code>null</code> if the file does not exist or is not a manifest
+	 * of the current version
+	 * @throws CoreException if the file cannot be read
+	 */
+	public static UseScanManifest read(File file) throws CoreException {
+		if (!file.isFile()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			UseScanManifest manifest = new UseScanManifest(in.readUTF());
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String id = in.readUTF();
+				Entry entry = new Entry(in.readUTF(), readString(in));
+				entry.wiring = readString(in);
+				int providers = in.readInt();
+				if (providers >= 0) {
+					entry.providers = new String[providers];
+					for (int j = 0; j < providers; j++) {
+						entry.providers[j] = in.readUTF();
+					}
+				}
+				entry.scanned = in.readBoolean();
+				for (int j = 0; j < entry.counts.length; j++) {
+					entry.counts[j] = in.readInt();
+				}
+				manifest.fEntries.put(id, entry);
+			}
+			return manifest;
+		}
+		catch (EOFException e) {
+			// truncated manifest, treat as invalid
+			return null;
+		}
+		catch (IOException e) {
+			abort("Unable to read API use scan manifest: " + file, e); //$NON-NLS-1$
+		}
+		finally {
+			if (in != null) {
+				try {
+					in.close();
+				}
+				catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes this manifest to the given file.
+	 *
+	 * @param file the manifest file
+	 * @throws CoreException if the file cannot be written
+	 */
+	public void write(File file) throws CoreException {
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(fSettings);
+			out.writeInt(fEntries.size());
+			for (Iterator iter = fEntries.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry mapEntry = (Map.Entry) iter.next();
+				Entry entry = (Entry) mapEntry.getValue();
+				out.writeUTF((String) mapEntry.getKey());
+				out.writeUTF(entry.version);
+				out.writeUTF(entry.hash == null ? Util.EMPTY_STRING : entry.hash);
+				out.writeUTF(entry.wiring == null ? Util.EMPTY_STRING : entry.wiring);
+				if (entry.providers == null) {
+					out.writeInt(-1);
+				}
+				else {
+					out.writeInt(entry.providers.length);
+					for (int i = 0; i < entry.providers.length; i++) {
+						out.writeUTF(entry.providers[i]);
+					}
+				}
+				out.writeBoolean(entry.scanned);
+				for (int i = 0; i < entry.counts.length; i++) {
+					out.writeInt(entry.counts[i]);
+				}
+			}
+			out.flush();
+		}
+		catch (IOException e) {
+			abort("Unable to write API use scan manifest: " + file, e); //$NON-NLS-1$
+		}
+		finally {
+			if (out != null) {
+				try {
+					out.close();
+				}
+				catch (IOException e) {
+					ApiPlugin.log(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the settings of the scan
+	 */
+	public String getSettings() {
+		return fSettings;
+	}
+
+	/**
+	 * Adds the given component to the manifest, computing the hash of its contents and its wiring
+	 * in the resolved state of its baseline.
+	 *
+	 * @param component
+	 */
+	public void addComponent(IApiComponent component) {
+		Entry entry = new Entry(component.getVersion(), computeHash(component));
+		computeWiring(component, entry);
+		fEntries.put(component.getSymbolicName(), entry);
+	}
+
+	/**
+	 * @return the symbolic names of the components in this manifest, sorted
+	 */
+	public String[] getComponentIds() {
+		return (String[]) fEntries.keySet().toArray(new String[fEntries.size()]);
+	}
+
+	/**
+	 * Returns if the given component is in this manifest
+	 *
+	 * @param id the symbolic name of the component
+	 * @return <code>true</code> if the component is in this manifest, <code>false</code> otherwise
+	 */
+	public boolean contains(String id) {
+		return fEntries.containsKey(id);
+	}
+
+	/**
+	 * Returns if the given component has the same version and contents in this manifest and
+	 * in the given manifest. Components without a content hash are never the same.
+	 *
+	 * @param id the symbolic name of the component
+	 * @param other the manifest to compare with
+	 * @return <code>true</code> if the component is unchanged, <code>false</code> otherwise
+	 */
+	public boolean isUnchanged(String id, UseScanManifest other) {
+		Entry entry = (Entry) fEntries.get(id);
+		Entry otherEntry = (Entry) other.fEntries.get(id);
+		if (entry == null || otherEntry == null || entry.hash == null || otherEntry.hash == null) {
+			return false;
+		}
+		return entry.version.equals(otherEntry.version) && entry.hash.equals(otherEntry.hash);
+	}
+
+	/**
+	 * Returns if the given component was searched for references
+	 *
+	 * @param id the symbolic name of the component
+	 * @return <code>true</code> if the component was searched, <code>false</code> otherwise
+	 */
+	public boolean isScanned(String id) {
+		Entry entry = (Entry) fEntries.get(id);
+		return entry != null && entry.scanned;
+	}
+
+	/**
+	 * Returns the reference counts of the given component, indexed by {@link #TOTAL},
+	 * {@link #ILLEGAL} and {@link #INTERNAL}
+	 *
+	 * @param id the symbolic name of the component
+	 * @return the counts or <code>null</code> if the component was not searched
+	 */
+	public int[] getCounts(String id) {
+		Entry entry = (Entry) fEntries.get(id);
+		if (entry == null || !entry.scanned) {
+			return null;
+		}
+		return (int[]) entry.counts.clone();
+	}
+
+	/**
+	 * Records that the given component was searched for references.
+	 *
+	 * @param id the symbolic name of the component, which must be in this manifest
+	 * @param counts the reference counts of the component or <code>null</code> if none were reported
+	 */
+	public void setScanned(String id, int[] counts) {
+		Entry entry = (Entry) fEntries.get(id);
+		if (entry == null) {
+			return;
+		}
+		entry.scanned = true;
+		if (counts != null) {
+			System.arraycopy(counts, 0, entry.counts, 0, entry.counts.length);
+		}
+		else {
+			Arrays.fill(entry.counts, 0);
+		}
+	}
+
+	/**
+	 * Returns the symbolic names of the components that referenced the given components in the
+	 * scan this manifest describes, using the versions recorded in this manifest to locate the
+	 * reports of the referenced components.
+	 *
+	 * @param xmlLocation the XML directory of the scan
+	 * @param ids the symbolic names of the referenced components
+	 * @param referencing the set to add the symbolic names of the referencing components to
+	 */
+	public void collectReferencingComponents(String xmlLocation, Set ids, Set referencing) {
+		File root = new File(xmlLocation);
+		for (Iterator iter = ids.iterator(); iter.hasNext();) {
+			String id = (String) iter.next();
+			Entry entry = (Entry) fEntries.get(id);
+			if (entry == null) {
+				continue;
+			}
+			File[] directories = UseScanIndex.getDirectories(new File(root, getDirectoryName(id, entry.version)));
+			for (int i = 0; i < directories.length; i++) {
+				referencing.add(getSymbolicName(directories[i].getName()));
+			}
+		}
+	}
+
+	/**
+	 * Returns the symbolic names of the components whose results in the previous scan described by
+	 * the given manifest cannot be reused by the scan this manifest describes: the components that
+	 * changed or were added since, the components that referenced a changed component, the
+	 * components that resolve packages from a changed component or whose wiring changed, and the
+	 * components the previous scan searched that are no longer searched.
+	 *
+	 * @param previous the manifest of the previous scan, with the same settings as this manifest
+	 * @param xmlLocation the XML directory of the previous scan
+	 * @param ids the symbolic names of the components references are searched to
+	 * @param scope the symbolic names of the components to search
+	 * @return the symbolic names of the stale components or <code>null</code> if a component
+	 * references are searched to was added, as references to it were not resolved by the previous scan
+	 */
+	public Set getStaleComponents(UseScanManifest previous, String xmlLocation, Set ids, Set scope) {
+		Set changed = new HashSet();
+		for (Iterator iter = previous.fEntries.keySet().iterator(); iter.hasNext();) {
+			String id = (String) iter.next();
+			if (!isUnchanged(id, previous)) {
+				changed.add(id);
+			}
+		}
+		for (Iterator iter = fEntries.keySet().iterator(); iter.hasNext();) {
+			String id = (String) iter.next();
+			if (!previous.contains(id)) {
+				if (ids.contains(id)) {
+					return null;
+				}
+				changed.add(id);
+			}
+		}
+		Set stale = new HashSet(changed);
+		previous.collectReferencingComponents(xmlLocation, changed, stale);
+		// a changed component may now provide types a component could not resolve, or resolved
+		// from another component, in the previous scan
+		for (Iterator iter = fEntries.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry mapEntry = (Map.Entry) iter.next();
+			String id = (String) mapEntry.getKey();
+			if (stale.contains(id)) {
+				continue;
+			}
+			if (isWiringChanged((Entry) mapEntry.getValue(), (Entry) previous.fEntries.get(id), changed)) {
+				stale.add(id);
+			}
+		}
+		for (Iterator iter = previous.fEntries.keySet().iterator(); iter.hasNext();) {
+			String id = (String) iter.next();
+			if (previous.isScanned(id) && !scope.contains(id)) {
+				stale.add(id);
+			}
+		}
+		return stale;
+	}
+
+	/**
+	 * Returns if the packages visible to a component may be provided differently than in the
+	 * previous scan: its wiring is unknown or changed, or one of the components it resolves
+	 * packages from changed.
+	 *
+	 * @param entry the entry of the component in this manifest
+	 * @param previous the entry of the component in the previous manifest or <code>null</code>
+	 * @param changed the symbolic names of the changed components
+	 * @return <code>true</code> if the wiring of the component changed, <code>false</code> otherwise
+	 */
+	private static boolean isWiringChanged(Entry entry, Entry previous, Set changed) {
+		if (previous == null || entry.wiring == null || entry.providers == null || !entry.wiring.equals(previous.wiring)) {
+			return true;
+		}
+		for (int i = 0; i < entry.providers.length; i++) {
+			if (changed.contains(entry.providers[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Deletes the references made by the given components from the reports of the scan in the
+	 * given XML directory. Reports of referenced components that no longer contain any
+	 * references are deleted as well.
+	 *
+	 * @param xmlLocation the XML directory of the scan
+	 * @param ids the symbolic names of the referencing components
+	 */
+	public static void removeReferencingComponents(String xmlLocation, Set ids) {
+		File[] referenced = UseScanIndex.getDirectories(new File(xmlLocation));
+		for (int i = 0; i < referenced.length; i++) {
+			File[] referencing = UseScanIndex.getDirectories(referenced[i]);
+			int removed = 0;
+			for (int j = 0; j < referencing.length; j++) {
+				if (ids.contains(getSymbolicName(referencing[j].getName()))) {
+					Util.delete(referencing[j]);
+					removed++;
+				}
+			}
+			if (removed > 0 && removed == referencing.length) {
+				Util.delete(referenced[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the name of the report directory of the given component, the same name
+	 * {@link XmlReferenceDescriptorWriter} uses
+	 *
+	 * @param id
+	 * @param version
+	 * @return the directory name
+	 */
+	static String getDirectoryName(String id, String version) {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(id).append(" ").append('(').append(version).append(')'); //$NON-NLS-1$
+		return buffer.toString();
+	}
+
+	/**
+	 * Returns the symbolic name part of the given report directory name
+	 *
+	 * @param name
+	 * @return the symbolic name
+	 */
+	static String getSymbolicName(String name) {
+		int index = name.lastIndexOf(" ("); //$NON-NLS-1$
+		return (index < 0 ? name : name.substring(0, index));
+	}
+
+	/**
+	 * Computes the hash of the contents of the given component.
+	 *
+	 * @param component
+	 * @return the hash or <code>null</code> if the contents of the component cannot be read
+	 */
+	static String computeHash(IApiComponent component) {
+		String location = component.getLocation();
+		if (location == null) {
+			return null;
+		}
+		File file = new File(location);
+		try {
+			MessageDigest digest = Util.newDigest();
+			if (file.isDirectory()) {
+				updateDirectory(digest, file, Util.EMPTY_STRING);
+			}
+			else if (file.isFile()) {
+				ZipFile zip = new ZipFile(file);
+				try {
+					Util.updateDigest(digest, zip);
+				}
+				finally {
+					zip.close();
+				}
+			}
+			else {
+				return null;
+			}
+			return Util.toHex(digest.digest());
+		}
+		catch (IOException e) {
+			ApiPlugin.log(e);
+		}
+		return null;
+	}
+
+	/**
+	 * Records the components the given component resolves packages from, the exporters of
+	 * its visible packages and the hosts of a fragment, and a hash of the package names and
+	 * exporters in the given entry. Nothing is recorded if the component is not a bundle or
+	 * its wiring cannot be read.
+	 *
+	 * @param component
+	 * @param entry
+	 */
+	static void computeWiring(IApiComponent component, Entry entry) {
+		if (!(component instanceof BundleComponent)) {
+			return;
+		}
+		try {
+			BundleDescription bundle = ((BundleComponent) component).getBundleDescription();
+			State state = bundle.getContainingState();
+			if (state == null) {
+				return;
+			}
+			TreeSet wiring = new TreeSet();
+			TreeSet providers = new TreeSet();
+			ExportPackageDescription[] packages = state.getStateHelper().getVisiblePackages(bundle);
+			for (int i = 0; i < packages.length; i++) {
+				String exporter = packages[i].getExporter().getSymbolicName();
+				wiring.add(packages[i].getName() + '=' + exporter);
+				if (exporter != null) {
+					providers.add(exporter);
+				}
+			}
+			HostSpecification host = bundle.getHost();
+			if (host != null) {
+				BundleDescription[] hosts = host.getHosts();
+				for (int i = 0; i < hosts.length; i++) {
+					String name = hosts[i].getSymbolicName();
+					wiring.add("host=" + name); //$NON-NLS-1$
+					if (name != null) {
+						providers.add(name);
+					}
+				}
+			}
+			MessageDigest digest = Util.newDigest();
+			for (Iterator iter = wiring.iterator(); iter.hasNext();) {
+				digest.update(((String) iter.next()).getBytes(IApiCoreConstants.UTF_8));
+				digest.update((byte) 0);
+			}
+			entry.wiring = Util.toHex(digest.digest());
+			entry.providers = (String[]) providers.toArray(new String[providers.size()]);
+		}
+		catch (CoreException e) {
+			ApiPlugin.log(e);
+		}
+		catch (IOException e) {
+			ApiPlugin.log(e);
+		}
+	}
+
+	/**
+	 * Adds the names, sizes and time stamps of the files in the given directory to the digest
+	 *
+	 * @param digest
+	 * @param directory
+	 * @param path the path of the directory relative to the component location
+	 */
+	private static void updateDirectory(MessageDigest digest, File directory, String path) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		for (int i = 0; i < files.length; i++) {
+			String name = path + files[i].getName();
+			if (files[i].isDirectory()) {
+				updateDirectory(digest, files[i], name + '/');
+			}
+			else {
+				Util.updateDigest(digest, name, files[i].length(), files[i].lastModified());
+			}
+		}
+	}
+
+	/**
+	 * Reads a string written by {@link #write(File)}, where empty strings stand for <code>null</code>
+	 *
+	 * @param in
+	 * @return the string or <code>null</code>
+	 * @throws IOException
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		String value = in.readUTF();
+		return (value.length() == 0 ? null : value);
+	}
+
+	/**
+	 * Throws a new {@link CoreException} with the given message and cause
+	 *
+	 * @param message
+	 * @param e
+	 * @throws CoreException
+	 */
+	private static void abort(String message, Throwable e) throws CoreException {
+		throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, message, e));
+	}
+}
@@ -238,8 +238,6 @@ public class UseScanParser {
 		localmonitor.subTask(SearchMessages.UseReportConverter_collecting_dir_info);
 		File[] referees = getDirectories(reportsRoot);
 		Util.updateMonitor(localmonitor, 1);
-		File[] origins = null;
-		File[] xmlfiles = null;
 		localmonitor.setWorkRemaining(referees.length);
 		visitor.visitScan();
 		try {
@@ -247,47 +245,8 @@ public class UseScanParser {
 			// Treat each top level directory as a producer component
 			for (int i = 0; i < referees.length; i++) {
 				if (referees[i].isDirectory()){
-					String[] idv = getIdVersion(referees[i].getName());
-					IComponentDescriptor targetComponent = Factory.componentDescriptor(idv[0], idv[1]);
-					enterTargetComponent(targetComponent);
-					if (visitReferencingComponent){
-
-						// If the visitor returned true, treat sub-directories as consumer components
-						origins = getDirectories(referees[i]);
-						origins = sort(origins); // sort to visit in determined order
-						for (int j = 0; j < origins.length; j++) {
-							if (origins[j].isDirectory()){
-								idv = getIdVersion(origins[j].getName());
-								IComponentDescriptor referencingComponent = Factory.componentDescriptor(idv[0], idv[1]);
-								enterReferencingComponent(referencingComponent);
-								if (visitMembers){
-
-									// If the visitor returned true, open all xml files in the directory and process them to find members
-									localmonitor.subTask(NLS.bind(SearchMessages.UseScanParser_analyzing_references, new String[] {origins[j].getName()}));
-									xmlfiles = Util.getAllFiles(origins[j], new FileFilter() {
-										public boolean accept(File pathname) {
-											return pathname.isDirectory() || pathname.getName().endsWith(".xml"); //$NON-NLS-1$
-										}
-									});
-									if (xmlfiles != null && xmlfiles.length > 0) {
-										xmlfiles = sort(xmlfiles); // sort to visit in determined order
-										for (int k = 0; k < xmlfiles.length; k++) {
-											try {
-												ReferenceHandler handler = new ReferenceHandler(getTypeFromFileName(xmlfiles[k]));
-												parser.parse(xmlfiles[k], handler);
-											} 
-											catch (SAXException e) {}
-											catch (IOException e) {}
-										}
-									}
-									endMember();
-								}
-								endReferencingComponent();
-							}
-						}
-					}
+					parseComponent(referees[i], parser, localmonitor);
 					Util.updateMonitor(localmonitor, 1);
-					endComponent();
 				}
 			}
 		}
@@ -297,6 +256,147 @@ public class UseScanParser {
 		}		
 	}
 	
+	/**
+	 * Returns the directories of the referenced components of the use scan rooted at the specified location,
+	 * sorted by name. Each directory can be parsed independently with {@link #parseComponent(File, UseScanVisitor)}.
+	 * 
+	 * @param xmlLocation root of API use scan (XML directory)
+	 * @return the directories of the referenced components
+	 * @throws Exception if the location is not a directory
+	 * @since 1.0.400
+	 */
+	public File[] getComponentDirectories(String xmlLocation) throws Exception {
+		if (xmlLocation == null) {
+			throw new Exception(SearchMessages.missing_xml_files_location);
+		}
+		File reportsRoot = new File(xmlLocation);
+		if (!reportsRoot.exists() || !reportsRoot.isDirectory()) {
+			throw new Exception(NLS.bind(SearchMessages.invalid_directory_name, xmlLocation));
+		}
+		return sort(getDirectories(reportsRoot));
+	}
+	
+	/**
+	 * Visits the references made to the single referenced component whose directory is given, as if
+	 * the use scan only contained that component. Parsers are not thread safe, but several parsers can
+	 * parse different components of the same scan concurrently.
+	 * 
+	 * @param referee the directory of the referenced component, as returned by {@link #getComponentDirectories(String)}
+	 * @param usv the visitor
+	 * @throws Exception
+	 * @since 1.0.400
+	 */
+	public void parseComponent(File referee, UseScanVisitor usv) throws Exception {
+		visitor = usv;
+		visitor.visitScan();
+		try {
+			parseComponent(referee, getParser(), null);
+		}
+		finally {
+			visitor.endVisitScan();
+		}
+	}
+	
+	/**
+	 * Visits the references made by the referencing components whose directories are given, as if
+	 * the use scan only contained these references. Each referencing component is visited within its
+	 * own visit of the referenced component whose directory contains it.
+	 * 
+	 * @param origins the directories of the referencing components, children of directories
+	 * returned by {@link #getComponentDirectories(String)}
+	 * @param usv the visitor
+	 * @throws Exception
+	 * @since 1.0.400
+	 */
+	public void parseReferencingComponents(File[] origins, UseScanVisitor usv) throws Exception {
+		visitor = usv;
+		visitor.visitScan();
+		try {
+			SAXParser parser = getParser();
+			for (int i = 0; i < origins.length; i++) {
+				enterTargetComponent(getComponentDescriptor(origins[i].getParentFile()));
+				if (visitReferencingComponent) {
+					parseReferencingComponent(origins[i], parser, null);
+				}
+				endComponent();
+			}
+		}
+		finally {
+			visitor.endVisitScan();
+		}
+	}
+	
+	/**
+	 * Visits the references made to the referenced component whose directory is given
+	 * 
+	 * @param referee the directory of the referenced component
+	 * @param parser the parser to use
+	 * @param monitor the monitor to report sub tasks to or <code>null</code>
+	 */
+	private void parseComponent(File referee, SAXParser parser, IProgressMonitor monitor) {
+		enterTargetComponent(getComponentDescriptor(referee));
+		if (visitReferencingComponent){
+
+			// If the visitor returned true, treat sub-directories as consumer components
+			File[] origins = getDirectories(referee);
+			origins = sort(origins); // sort to visit in determined order
+			for (int j = 0; j < origins.length; j++) {
+				if (origins[j].isDirectory()){
+					parseReferencingComponent(origins[j], parser, monitor);
+				}
+			}
+		}
+		endComponent();
+	}
+	
+	/**
+	 * Visits the references made by the referencing component whose directory is given to the
+	 * referenced component being visited
+	 * 
+	 * @param origin the directory of the referencing component
+	 * @param parser the parser to use
+	 * @param monitor the monitor to report sub tasks to or <code>null</code>
+	 */
+	private void parseReferencingComponent(File origin, SAXParser parser, IProgressMonitor monitor) {
+		enterReferencingComponent(getComponentDescriptor(origin));
+		if (visitMembers){
+
+			// If the visitor returned true, open all xml files in the directory and process them to find members
+			if (monitor != null) {
+				monitor.subTask(NLS.bind(SearchMessages.UseScanParser_analyzing_references, new String[] {origin.getName()}));
+			}
+			File[] xmlfiles = Util.getAllFiles(origin, new FileFilter() {
+				public boolean accept(File pathname) {
+					return pathname.isDirectory() || pathname.getName().endsWith(".xml"); //$NON-NLS-1$
+				}
+			});
+			if (xmlfiles != null && xmlfiles.length > 0) {
+				xmlfiles = sort(xmlfiles); // sort to visit in determined order
+				for (int k = 0; k < xmlfiles.length; k++) {
+					try {
+						ReferenceHandler handler = new ReferenceHandler(getTypeFromFileName(xmlfiles[k]));
+						parser.parse(xmlfiles[k], handler);
+					} 
+					catch (SAXException e) {}
+					catch (IOException e) {}
+				}
+			}
+			endMember();
+		}
+		endReferencingComponent();
+	}
+	
+	/**
+	 * Returns the descriptor of the component whose report directory is given
+	 * 
+	 * @param directory
+	 * @return the component descriptor
+	 */
+	IComponentDescriptor getComponentDescriptor(File directory) {
+		String[] idv = getIdVersion(directory.getName());
+		return Factory.componentDescriptor(idv[0], idv[1]);
+	}
+	
 	/**
 	 * Returns a parser
 	 * @return default parser
@@ -17,10 +17,14 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -50,6 +54,12 @@ import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Writes reference descriptions to XML files.
+ * <p>
+ * References can either be written immediately with {@link #writeReferences(IReferenceDescriptor[])}
+ * or buffered with {@link #addReferences(IReferenceDescriptor[])} and written once with {@link #flush()}.
+ * Report files that do not exist yet are streamed straight to disk, with the targets of each file
+ * sorted by name. Only a report file that already exists is read back into a DOM to append to it.
+ * </p>
  * 
  * @since 1.0.1
  */
@@ -62,6 +72,10 @@ public class XmlReferenceDescriptorWriter {
 	public static final String METHOD_REFERENCES = "method_references"; //$NON-NLS-1$
 	public static final String FIELD_REFERENCES = "field_references"; //$NON-NLS-1$
 	private static final Integer V_ILLEGAL = new Integer(VisibilityModifiers.ILLEGAL_API);
+	/**
+	 * Indentation used for each level of the streamed XML, matching {@link Util#serializeDocument(Document)}
+	 */
+	private static final String INDENT = "    "; //$NON-NLS-1$
 	private String fLocation = null;
 	private HashMap fReferenceMap = null;
 	private DocumentBuilder parser = null;
@@ -119,6 +133,48 @@ public class XmlReferenceDescriptorWriter {
 		}
 	}
 	
+	/**
+	 * Buffers the given references until {@link #flush()} is called. References that
+	 * are added more than once are only written once.
+	 * 
+	 * @param references
+	 * @since 1.0.400
+	 */
+	public void addReferences(IReferenceDescriptor[] references) {
+		if(fLocation != null) {
+			try {
+				collateResults(references);
+			}
+			catch (CoreException e) {
+				ApiPlugin.log(e);
+			}
+		}
+	}
+	
+	/**
+	 * Writes all buffered references to XML files and clears the buffer.
+	 * 
+	 * @since 1.0.400
+	 */
+	public void flush() {
+		if(fLocation != null && fReferenceMap != null) {
+			try {
+				File parent = new File(fLocation);
+				if(!parent.exists()) {
+					parent.mkdirs();
+				}
+				writeXML(parent);
+			}
+			catch (Exception e) {
+				ApiPlugin.log(e);
+			}
+			finally {
+				fReferenceMap.clear();
+				fReferenceMap = null;
+			}
+		}
+	}
+	
 	/**
 	 * Collates the results into like reference kinds.  If two references have the same reference, referencer, type,
 	 * visibility, and member, one will be removed (even if the line numbers differ).  Updates {@link #fReferenceMap}
@@ -128,7 +184,7 @@ public class XmlReferenceDescriptorWriter {
 	 * rmap (Referencing Component ID -> mmap)
 	 * mmap (Visibility -> vmap)
 	 * vmap (Reference Type -> tmap)
-	 * tmap (Referenced Member -> Reference Descriptor) 
+	 * tmap (Referenced Member -> Reference Descriptor), sorted by referenced member
 	 * </pre>
 	 * @param references
 	 */
@@ -143,7 +199,7 @@ public class XmlReferenceDescriptorWriter {
 		HashMap rmap = null;
 		HashMap mmap = null;
 		HashMap vmap = null;
-		HashMap tmap = null;
+		TreeMap tmap = null;
 		HashSet reflist = null;
 		IComponentDescriptor rcomponent = null;
 		IComponentDescriptor mcomponent = null;
@@ -174,9 +230,9 @@ public class XmlReferenceDescriptorWriter {
 				mmap.put(visibility, vmap);
 			}
 			type = new Integer(references[i].getReferenceType());
-			tmap = (HashMap) vmap.get(type);
+			tmap = (TreeMap) vmap.get(type);
 			if(tmap == null) {
-				tmap = new HashMap();
+				tmap = new TreeMap();
 				vmap.put(type, tmap);
 			}
 			tname = getText(references[i].getReferencedMember());
@@ -243,7 +299,7 @@ public class XmlReferenceDescriptorWriter {
 	 */
 	private void writeXML(File parent) throws CoreException, FileNotFoundException, IOException {
 		HashMap vismap = null;
-		HashMap typemap = null;
+		TreeMap typemap = null;
 		HashMap rmap = null;
 		HashMap mmap = null;
 		Integer type = null;
@@ -281,7 +337,7 @@ public class XmlReferenceDescriptorWriter {
 					for(Iterator iter3 = vismap.entrySet().iterator(); iter3.hasNext();) {
 						Map.Entry entry4 = (Map.Entry) iter3.next();
 						type = (Integer) entry4.getKey();
-						typemap = (HashMap) entry4.getValue();
+						typemap = (TreeMap) entry4.getValue();
 						writeGroup(id, referee, location, getRefTypeName(type.intValue()), typemap, vis.intValue());
 					}
 				}
@@ -298,90 +354,280 @@ public class XmlReferenceDescriptorWriter {
 	 * @param map
 	 * @param visibility
 	 */
-	private void writeGroup(String origin, String referee, File parent, String name, HashMap map, int visibility) throws CoreException, FileNotFoundException, IOException {
+	private void writeGroup(String origin, String referee, File parent, String name, Map map, int visibility) throws CoreException, FileNotFoundException, IOException {
 		if(parent.exists()) {
-			BufferedWriter writer = null;
-			try {
-				Document doc = null;
-				Element root = null;
-				int count = 0;
-				File out = new File(parent, name+".xml"); //$NON-NLS-1$
-				if(out.exists()) {
-					try {
-						FileInputStream inputStream = null;
-						try {
-							inputStream = new FileInputStream(out);
-							doc = this.parser.parse(inputStream);
-						} catch (IOException e) {
-							e.printStackTrace();
-						} finally {
-							if (inputStream != null) {
-								inputStream.close();
-							}
+			File out = new File(parent, name+".xml"); //$NON-NLS-1$
+			if(out.exists()) {
+				mergeGroup(origin, referee, out, name, map, visibility);
+			}
+			else {
+				streamGroup(origin, referee, out, name, map, visibility);
+			}
+		}
+	}
+	
+	/**
+	 * Streams a group of references to a new report file without building a DOM. The output
+	 * has the same structure as a serialized report document: attributes are written in name
+	 * order and elements are indented by four spaces.
+	 * 
+	 * @param origin the name of the bundle that has the references in it
+	 * @param referee the name of the bundle that is referenced
+	 * @param out the file to write
+	 * @param name
+	 * @param map the references to write, keyed by referenced member
+	 * @param visibility
+	 */
+	private void streamGroup(String origin, String referee, File out, String name, Map map, int visibility) throws CoreException, IOException {
+		int count = 0;
+		for(Iterator iter = map.values().iterator(); iter.hasNext();) {
+			count += ((HashSet) iter.next()).size();
+		}
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(out), IApiCoreConstants.UTF_8));
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"); //$NON-NLS-1$
+			TreeMap attributes = new TreeMap();
+			if (alternate != null) {
+				attributes.put(IApiXmlConstants.ATTR_ALTERNATE, getId(alternate));
+			}
+			attributes.put(IApiXmlConstants.ATTR_NAME, getFormattedTypeName(name));
+			attributes.put(IApiXmlConstants.ATTR_ORIGIN, origin);
+			attributes.put(IApiXmlConstants.ATTR_REFEREE, referee);
+			attributes.put(IApiXmlConstants.ATTR_REFERENCE_COUNT, Integer.toString(count));
+			attributes.put(IApiXmlConstants.ATTR_REFERENCE_VISIBILITY, Integer.toString(visibility));
+			startElement(writer, 0, IApiXmlConstants.REFERENCES, attributes, false);
+			for(Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				HashSet refs = (HashSet) entry.getValue();
+				IReferenceDescriptor[] sorted = sortReferences(refs);
+				attributes.clear();
+				attributes.put(IApiXmlConstants.ATTR_NAME, entry.getKey());
+				if(sorted.length > 0) {
+					IMemberDescriptor resolved = sorted[sorted.length - 1].getReferencedMember();
+					if(resolved != null) {
+						addMemberDetails(attributes, resolved);
+					}
+				}
+				startElement(writer, 1, IApiXmlConstants.ELEMENT_TARGET, attributes, false);
+				int i = 0;
+				while(i < sorted.length) {
+					int kind = sorted[i].getReferenceKind();
+					int end = i;
+					boolean hasreferences = false;
+					while(end < sorted.length && sorted[end].getReferenceKind() == kind) {
+						hasreferences |= sorted[end].getReferencedMember() != null;
+						end++;
+					}
+					attributes.clear();
+					attributes.put(IApiXmlConstants.ATTR_FLAGS, Integer.toString(sorted[i].getReferenceFlags()));
+					attributes.put(IApiXmlConstants.ATTR_KIND, Integer.toString(kind));
+					attributes.put(IApiXmlConstants.ATTR_REFERENCE_KIND_NAME, Reference.getReferenceText(kind));
+					startElement(writer, 2, IApiXmlConstants.REFERENCE_KIND, attributes, !hasreferences);
+					for(; i < end; i++) {
+						if(sorted[i].getReferencedMember() == null) {
+							continue;
 						}
-						if (doc == null) {
-							return;
+						attributes.clear();
+						IMemberDescriptor member = sorted[i].getMember();
+						attributes.put(IApiXmlConstants.ATTR_ORIGIN, getText(member));
+						String[] messages = sorted[i].getProblemMessages();
+						if(messages != null) {
+							attributes.put(IApiXmlConstants.ELEMENT_PROBLEM_MESSAGE_ARGUMENTS, getText(messages));
 						}
-						root = doc.getDocumentElement();
-						String value = root.getAttribute(IApiXmlConstants.ATTR_REFERENCE_COUNT);
-						count = Integer.parseInt(value);
+						addMemberDetails(attributes, member);
+						attributes.put(IApiXmlConstants.ATTR_LINE_NUMBER, Integer.toString(sorted[i].getLineNumber()));
+						startElement(writer, 3, IApiXmlConstants.ATTR_REFERENCE, attributes, true);
 					}
-					catch(SAXException se) {
-						se.printStackTrace();
+					if(hasreferences) {
+						endElement(writer, 2, IApiXmlConstants.REFERENCE_KIND);
 					}
 				}
-				else {
-					doc = Util.newDocument();
-					root = doc.createElement(IApiXmlConstants.REFERENCES);
-					doc.appendChild(root);
-					root.setAttribute(IApiXmlConstants.ATTR_REFERENCE_VISIBILITY, Integer.toString(visibility));
-					root.setAttribute(IApiXmlConstants.ATTR_ORIGIN, origin);
-					root.setAttribute(IApiXmlConstants.ATTR_REFEREE, referee);
-					root.setAttribute(IApiXmlConstants.ATTR_NAME, getFormattedTypeName(name));
-					if (alternate != null) {
-						root.setAttribute(IApiXmlConstants.ATTR_ALTERNATE, getId(alternate));
+				endElement(writer, 1, IApiXmlConstants.ELEMENT_TARGET);
+			}
+			endElement(writer, 0, IApiXmlConstants.REFERENCES);
+			writer.flush();
+		}
+		finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the given references sorted by reference kind, then origin and line number
+	 * 
+	 * @param refs
+	 * @return the sorted references
+	 * @throws CoreException
+	 */
+	private IReferenceDescriptor[] sortReferences(HashSet refs) throws CoreException {
+		IReferenceDescriptor[] sorted = (IReferenceDescriptor[]) refs.toArray(new IReferenceDescriptor[refs.size()]);
+		final HashMap origins = new HashMap(sorted.length * 2);
+		for (int i = 0; i < sorted.length; i++) {
+			origins.put(sorted[i], getText(sorted[i].getMember()));
+		}
+		Arrays.sort(sorted, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				IReferenceDescriptor r1 = (IReferenceDescriptor) o1;
+				IReferenceDescriptor r2 = (IReferenceDescriptor) o2;
+				if(r1.getReferenceKind() != r2.getReferenceKind()) {
+					return r1.getReferenceKind() < r2.getReferenceKind() ? -1 : 1;
+				}
+				int result = ((String) origins.get(r1)).compareTo((String) origins.get(r2));
+				if(result == 0) {
+					result = r1.getLineNumber() - r2.getLineNumber();
+				}
+				return result;
+			}
+		});
+		return sorted;
+	}
+	
+	/**
+	 * Writes the start tag of an element at the given depth
+	 * 
+	 * @param writer
+	 * @param depth
+	 * @param name
+	 * @param attributes the attributes of the element in the order to write them
+	 * @param empty if the element has no children and should be closed immediately
+	 * @throws IOException
+	 */
+	private void startElement(Writer writer, int depth, String name, Map attributes, boolean empty) throws IOException {
+		for (int i = 0; i < depth; i++) {
+			writer.write(INDENT);
+		}
+		writer.write('<');
+		writer.write(name);
+		for(Iterator iter = attributes.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			writer.write(' ');
+			writer.write((String) entry.getKey());
+			writer.write("=\""); //$NON-NLS-1$
+			writeEscaped(writer, (String) entry.getValue());
+			writer.write('"');
+		}
+		writer.write(empty ? "/>\n" : ">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	/**
+	 * Writes the end tag of an element at the given depth
+	 * 
+	 * @param writer
+	 * @param depth
+	 * @param name
+	 * @throws IOException
+	 */
+	private void endElement(Writer writer, int depth, String name) throws IOException {
+		for (int i = 0; i < depth; i++) {
+			writer.write(INDENT);
+		}
+		writer.write("</"); //$NON-NLS-1$
+		writer.write(name);
+		writer.write(">\n"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Writes the given attribute value, escaping XML markup characters
+	 * 
+	 * @param writer
+	 * @param value
+	 * @throws IOException
+	 */
+	private void writeEscaped(Writer writer, String value) throws IOException {
+		for (int i = 0, max = value.length(); i < max; i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case '&': writer.write("&amp;"); break; //$NON-NLS-1$
+				case '<': writer.write("&lt;"); break; //$NON-NLS-1$
+				case '>': writer.write("&gt;"); break; //$NON-NLS-1$
+				case '"': writer.write("&quot;"); break; //$NON-NLS-1$
+				case '\n': writer.write("&#10;"); break; //$NON-NLS-1$
+				case '\r': writer.write("&#13;"); break; //$NON-NLS-1$
+				case '\t': writer.write("&#9;"); break; //$NON-NLS-1$
+				default: writer.write(c);
+			}
+		}
+	}
+	
+	/**
+	 * Appends a group of references to an existing report file
+	 * @param origin the name of the bundle that has the references in it
+	 * @param referee the name of the bundle that is referenced
+	 * @param out the existing file to append to
+	 * @param name
+	 * @param map
+	 * @param visibility
+	 */
+	private void mergeGroup(String origin, String referee, File out, String name, Map map, int visibility) throws CoreException, FileNotFoundException, IOException {
+		BufferedWriter writer = null;
+		try {
+			Document doc = null;
+			Element root = null;
+			int count = 0;
+			try {
+				FileInputStream inputStream = null;
+				try {
+					inputStream = new FileInputStream(out);
+					doc = this.parser.parse(inputStream);
+				} catch (IOException e) {
+					e.printStackTrace();
+				} finally {
+					if (inputStream != null) {
+						inputStream.close();
 					}
 				}
-				if(doc == null) {
+				if (doc == null) {
 					return;
 				}
-				String tname = null;
-				HashSet refs = null;
-				Element telement = null;
-				for(Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
-					Map.Entry entry = (Map.Entry) iter.next();
-					tname = (String) entry.getKey();
-					telement = findTypeElement(root, tname);
-					if(telement == null) {
-						telement = doc.createElement(IApiXmlConstants.ELEMENT_TARGET);
-						telement.setAttribute(IApiXmlConstants.ATTR_NAME, tname);
-						root.appendChild(telement);
-					}
-					refs = (HashSet) entry.getValue();
-					if(refs != null) {
-						for(Iterator iter2 = refs.iterator(); iter2.hasNext();) {
-							count++;
-							IReferenceDescriptor ref = (IReferenceDescriptor) iter2.next();
-							writeReference(doc, telement, ref);
-							if (!iter2.hasNext()) {
-								// set qualified referenced attributes
-								IMemberDescriptor resolved  = ref.getReferencedMember();
-								if (resolved != null) {
-									addMemberDetails(telement, resolved);
-								}
+				root = doc.getDocumentElement();
+				String value = root.getAttribute(IApiXmlConstants.ATTR_REFERENCE_COUNT);
+				count = Integer.parseInt(value);
+			}
+			catch(SAXException se) {
+				se.printStackTrace();
+			}
+			if(doc == null) {
+				return;
+			}
+			String tname = null;
+			HashSet refs = null;
+			Element telement = null;
+			for(Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				tname = (String) entry.getKey();
+				telement = findTypeElement(root, tname);
+				if(telement == null) {
+					telement = doc.createElement(IApiXmlConstants.ELEMENT_TARGET);
+					telement.setAttribute(IApiXmlConstants.ATTR_NAME, tname);
+					root.appendChild(telement);
+				}
+				refs = (HashSet) entry.getValue();
+				if(refs != null) {
+					for(Iterator iter2 = refs.iterator(); iter2.hasNext();) {
+						count++;
+						IReferenceDescriptor ref = (IReferenceDescriptor) iter2.next();
+						writeReference(doc, telement, ref);
+						if (!iter2.hasNext()) {
+							// set qualified referenced attributes
+							IMemberDescriptor resolved  = ref.getReferencedMember();
+							if (resolved != null) {
+								addMemberDetails(telement, resolved);
 							}
 						}
 					}
 				}
-				root.setAttribute(IApiXmlConstants.ATTR_REFERENCE_COUNT, Integer.toString(count));
-				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(out), IApiCoreConstants.UTF_8));
-				writer.write(Util.serializeDocument(doc));
-				writer.flush();
 			}
-			finally {
-				if (writer != null) {
-					writer.close();
-				}
+			root.setAttribute(IApiXmlConstants.ATTR_REFERENCE_COUNT, Integer.toString(count));
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(out), IApiCoreConstants.UTF_8));
+			writer.write(Util.serializeDocument(doc));
+			writer.flush();
+		}
+		finally {
+			if (writer != null) {
+				writer.close();
 			}
 		}
 	}
@@ -411,6 +657,31 @@ public class XmlReferenceDescriptorWriter {
 		}
 	}
 	
+	/**
+	 * Add member descriptor details to the given attribute map.
+	 * 
+	 * @param attributes attributes of the element being streamed
+	 * @param member member to add details for
+	 */
+	private void addMemberDetails(Map attributes, IMemberDescriptor member) {
+		switch (member.getElementType()) {
+		case IElementDescriptor.TYPE:
+			attributes.put(IApiXmlConstants.ATTR_TYPE, ((IReferenceTypeDescriptor)member).getQualifiedName());
+			break;
+		case IElementDescriptor.FIELD:
+			IReferenceTypeDescriptor encl = member.getEnclosingType();
+			attributes.put(IApiXmlConstants.ATTR_TYPE, encl.getQualifiedName());
+			attributes.put(IApiXmlConstants.ATTR_MEMBER_NAME, member.getName());
+			break;
+		case IElementDescriptor.METHOD:
+			encl = member.getEnclosingType();
+			attributes.put(IApiXmlConstants.ATTR_TYPE, encl.getQualifiedName());
+			attributes.put(IApiXmlConstants.ATTR_MEMBER_NAME, member.getName());
+			attributes.put(IApiXmlConstants.ATTR_SIGNATURE, ((IMethodDescriptor)member).getSignature());
+			break;
+		}
+	}
+	
 	/**
 	 * gets the root kind element
 	 * @param root
@@ -17,6 +17,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 
@@ -54,6 +55,15 @@ public class XmlSearchReporter implements IApiSearchReporter {
 	private int referenceCount = 0;
 	private int illegalCount = 0;
 	private int internalCount = 0;
+	/**
+	 * Writer buffering the references of the element currently being reported
+	 */
+	private XmlReferenceDescriptorWriter fWriter = null;
+	/**
+	 * Map of component symbolic name to the counts of the references reported for the component,
+	 * indexed as described in {@link UseScanManifest#getCounts(String)}
+	 */
+	private HashMap fComponentCounts = new HashMap();
 	
 	/**
 	 * Constructor
@@ -86,8 +96,11 @@ public class XmlSearchReporter implements IApiSearchReporter {
 		}
 		// Use a hashset for counting to remove any duplicate references that the writer would remove
 		HashSet writtenReferences = new HashSet();
-		XmlReferenceDescriptorWriter writer = new XmlReferenceDescriptorWriter(fLocation);
+		if(fWriter == null) {
+			fWriter = new XmlReferenceDescriptorWriter(fLocation);
+		}
 		List descriptors = new ArrayList(references.length + 1);
+		int[] counts = getComponentCounts(element);
 		for (int i = 0; i < references.length; i++) {
 			Reference reference = (Reference) references[i];
 			try {
@@ -97,12 +110,15 @@ public class XmlSearchReporter implements IApiSearchReporter {
 				// Update counters
 				if (!writtenReferences.contains(descriptor)){
 					referenceCount++;
+					counts[UseScanManifest.TOTAL]++;
 					if((references[i].getReferenceFlags() & IReference.F_ILLEGAL) > 0) {
 						illegalCount++;
+						counts[UseScanManifest.ILLEGAL]++;
 					}
 					// Though visibility is a bit flag, we want to match the xml output exactly, which separates into folders by visibility equality
 					if (descriptor.getVisibility() == VisibilityModifiers.PRIVATE){
 						internalCount++;
+						counts[UseScanManifest.INTERNAL]++;
 					}
 					writtenReferences.add(descriptor);
 				}
@@ -112,7 +128,67 @@ public class XmlSearchReporter implements IApiSearchReporter {
 			}
 		}
 		
-		writer.writeReferences((IReferenceDescriptor[]) descriptors.toArray(new IReferenceDescriptor[descriptors.size()]));
+		fWriter.addReferences((IReferenceDescriptor[]) descriptors.toArray(new IReferenceDescriptor[descriptors.size()]));
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter#reportElementComplete(org.eclipse.pde.api.tools.internal.provisional.model.IApiElement)
+	 */
+	public void reportElementComplete(IApiElement element) {
+		flushReferences();
+	}
+	
+	/**
+	 * Returns the live reference counts of the component of the given element
+	 * 
+	 * @param element
+	 * @return the counts of the component
+	 */
+	private int[] getComponentCounts(IApiElement element) {
+		IApiComponent component = element.getApiComponent();
+		String id = (component == null ? null : component.getSymbolicName());
+		int[] counts = (int[]) fComponentCounts.get(id);
+		if(counts == null) {
+			counts = new int[3];
+			fComponentCounts.put(id, counts);
+		}
+		return counts;
+	}
+	
+	/**
+	 * Returns the counts of the references reported for the given component so far, indexed
+	 * as described in {@link UseScanManifest#getCounts(String)}
+	 * 
+	 * @param id the symbolic name of the component
+	 * @return the counts or <code>null</code> if no references were reported for the component
+	 * @since 1.0.400
+	 */
+	public int[] getCounts(String id) {
+		int[] counts = (int[]) fComponentCounts.get(id);
+		return (counts == null ? null : (int[]) counts.clone());
+	}
+	
+	/**
+	 * Adds the given counts of references that were reported by an earlier search to the
+	 * totals written by {@link #reportCounts()}. Used when a search only updates part of an
+	 * existing report.
+	 * 
+	 * @param counts the counts, indexed as described in {@link UseScanManifest#getCounts(String)}
+	 * @since 1.0.400
+	 */
+	public void addCounts(int[] counts) {
+		referenceCount += counts[UseScanManifest.TOTAL];
+		illegalCount += counts[UseScanManifest.ILLEGAL];
+		internalCount += counts[UseScanManifest.INTERNAL];
+	}
+	
+	/**
+	 * Writes out any buffered references
+	 */
+	private void flushReferences() {
+		if(fWriter != null) {
+			fWriter.flush();
+		}
 	}
 		
 	/**
@@ -212,6 +288,7 @@ public class XmlSearchReporter implements IApiSearchReporter {
 	 * @see org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter#reportCounts()
 	 */
 	public void reportCounts(){
+		flushReferences();
 		BufferedWriter writer = null;
 		try {
 			if(this.debug) {
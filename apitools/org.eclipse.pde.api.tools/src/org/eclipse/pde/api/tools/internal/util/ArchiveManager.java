@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+
+/**
+ * Manager for shared {@link ZipFile} handles. Archives are opened once and handed out
+ * to callers via {@link #acquire(String)}; every successful acquire must be paired with
+ * a call to {@link #release(ZipFile)}.
+ * <p>
+ * The manager keeps at most {@link #getMaxSize()} archives open. When that bound is exceeded
+ * the least recently used archive is evicted from the pool; an evicted archive that is still
+ * in use is closed when its last reference is released.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public final class ArchiveManager {
+
+	/**
+	 * Default number of archives kept open by the manager
+	 */
+	public static final int DEFAULT_MAX_SIZE = 64;
+
+	/**
+	 * A reference counted handle to an open archive
+	 */
+	static final class ArchiveHandle {
+		String location;
+		ZipFile zipFile;
+		int references = 0;
+		boolean evicted = false;
+
+		ArchiveHandle(String location, ZipFile zipFile) {
+			this.location = location;
+			this.zipFile = zipFile;
+		}
+	}
+
+	private static ArchiveManager fInstance = null;
+
+	/**
+	 * Open archives keyed by location, in least recently used order
+	 */
+	private LinkedHashMap fHandles = new LinkedHashMap(16, 0.75f, true);
+
+	/**
+	 * Handles that are currently handed out, keyed by their {@link ZipFile}
+	 */
+	private Map fAcquired = new IdentityHashMap();
+
+	private int fMaxSize = DEFAULT_MAX_SIZE;
+
+	private long fOpens = 0;
+	private long fHits = 0;
+	private long fEvictions = 0;
+
+	/**
+	 * Constructor
+	 * private - no instantiation
+	 */
+	private ArchiveManager() {}
+
+	/**
+	 * Returns the singleton instance of the manager
+	 * @return the manager instance
+	 */
+	public synchronized static ArchiveManager getManager() {
+		if(fInstance == null) {
+			fInstance = new ArchiveManager();
+		}
+		return fInstance;
+	}
+
+	/**
+	 * Returns an open {@link ZipFile} for the archive at the given location, opening it
+	 * if it is not already pooled. Callers must call {@link #release(ZipFile)} once they are done
+	 * with the archive and must not close it themselves.
+	 *
+	 * @param location the absolute path of the archive in the local file system
+	 * @return the open archive, never <code>null</code>
+	 * @throws IOException if the archive could not be opened
+	 */
+	public synchronized ZipFile acquire(String location) throws IOException {
+		ArchiveHandle handle = (ArchiveHandle) fHandles.get(location);
+		if(handle != null) {
+			fHits++;
+		}
+		else {
+			handle = new ArchiveHandle(location, new ZipFile(location));
+			fOpens++;
+			fHandles.put(location, handle);
+			evict();
+		}
+		handle.references++;
+		fAcquired.put(handle.zipFile, handle);
+		return handle.zipFile;
+	}
+
+	/**
+	 * Releases a reference to an archive previously returned from {@link #acquire(String)}.
+	 * Passing <code>null</code> or an archive that was not handed out by this manager has no effect.
+	 *
+	 * @param zipFile the archive to release
+	 */
+	public synchronized void release(ZipFile zipFile) {
+		if(zipFile == null) {
+			return;
+		}
+		ArchiveHandle handle = (ArchiveHandle) fAcquired.get(zipFile);
+		if(handle == null) {
+			return;
+		}
+		handle.references--;
+		if(handle.references <= 0) {
+			fAcquired.remove(zipFile);
+			if(handle.evicted) {
+				closeHandle(handle);
+			}
+		}
+	}
+
+	/**
+	 * Removes the archive at the given location from the pool. The archive is closed
+	 * immediately if it is not in use, otherwise once its last reference is released.
+	 *
+	 * @param location the absolute path of the archive in the local file system
+	 */
+	public synchronized void close(String location) {
+		ArchiveHandle handle = (ArchiveHandle) fHandles.remove(location);
+		if(handle != null) {
+			discard(handle);
+		}
+	}
+
+	/**
+	 * Closes all of the pooled archives. Archives that are still in use are closed once
+	 * their last reference is released.
+	 */
+	public synchronized void closeAll() {
+		ArrayList handles = new ArrayList(fHandles.values());
+		fHandles.clear();
+		for (Iterator iter = handles.iterator(); iter.hasNext();) {
+			discard((ArchiveHandle) iter.next());
+		}
+	}
+
+	/**
+	 * Sets the maximum number of archives kept open by the manager. Values less than one
+	 * are ignored.
+	 *
+	 * @param size the new maximum size
+	 */
+	public synchronized void setMaxSize(int size) {
+		if(size > 0) {
+			fMaxSize = size;
+			evict();
+		}
+	}
+
+	/**
+	 * @return the maximum number of archives kept open by the manager
+	 */
+	public synchronized int getMaxSize() {
+		return fMaxSize;
+	}
+
+	/**
+	 * @return the number of archives currently held in the pool
+	 */
+	public synchronized int getSize() {
+		return fHandles.size();
+	}
+
+	/**
+	 * @return the number of times an archive had to be opened
+	 */
+	public synchronized long getOpenCount() {
+		return fOpens;
+	}
+
+	/**
+	 * @return the number of times an already open archive was reused
+	 */
+	public synchronized long getHitCount() {
+		return fHits;
+	}
+
+	/**
+	 * @return the number of archives evicted from the pool to stay within its bounds
+	 */
+	public synchronized long getEvictionCount() {
+		return fEvictions;
+	}
+
+	/**
+	 * Resets the open, hit and eviction counters
+	 */
+	public synchronized void resetCounters() {
+		fOpens = 0;
+		fHits = 0;
+		fEvictions = 0;
+	}
+
+	/**
+	 * Evicts least recently used archives until the pool is within its bounds
+	 */
+	private void evict() {
+		Iterator iter = fHandles.values().iterator();
+		while(fHandles.size() > fMaxSize && iter.hasNext()) {
+			ArchiveHandle handle = (ArchiveHandle) iter.next();
+			iter.remove();
+			fEvictions++;
+			discard(handle);
+		}
+	}
+
+	/**
+	 * Closes the given handle if it is not in use, otherwise marks it to be closed
+	 * when it is released
+	 *
+	 * @param handle
+	 */
+	private void discard(ArchiveHandle handle) {
+		if(handle.references > 0) {
+			handle.evicted = true;
+		}
+		else {
+			closeHandle(handle);
+		}
+	}
+
+	/**
+	 * Closes the underlying archive of the given handle
+	 *
+	 * @param handle
+	 */
+	private void closeHandle(ArchiveHandle handle) {
+		try {
+			handle.zipFile.close();
+		}
+		catch(IOException e) {
+			ApiPlugin.log(e);
+		}
+	}
+}
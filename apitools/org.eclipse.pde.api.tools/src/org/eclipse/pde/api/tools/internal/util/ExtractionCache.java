@@ -0,0 +1,857 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.pde.api.tools.internal.IApiCoreConstants;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+
+/**
+ * Shared cache of the contents extracted from archives: nested class path entries of
+ * bundles and the Eclipse installations used by the Ant tasks.
+ * <p>
+ * Extracted contents are stored under a key computed from the contents of what is extracted
+ * and from the path of the extracted entry, so the same contents are extracted only once, whatever
+ * baseline or session they come from. For zip files the key is computed from the names, sizes and CRCs
+ * of the zip entries, which are read from the central directory of the zip without decompressing anything,
+ * and from the path, length and time stamp of the zip: a CRC does not tell apart contents of the same size
+ * that were crafted to collide. Other archives are hashed.
+ * </p>
+ * <p>
+ * The cache lives in the state location of the plug-in when running in the framework. Otherwise it lives
+ * in a new folder of the temporary directory that is deleted when the virtual machine exits: a folder
+ * shared in the temporary directory could be filled with contents under predictable keys by other users.
+ * The location and maximum size, in megabytes, of the cache can be set with the {@link #CACHE_LOCATION}
+ * and {@link #CACHE_SIZE} system properties, to share extracted contents between runs.
+ * </p>
+ * <p>
+ * Once the maximum size is exceeded, the least recently used entries that are not in use are evicted.
+ * Each process holds a shared lock on the entry file of every entry it uses, so that processes sharing
+ * the cache do not evict the entries of each other. Entries used less than {@link #EVICTION_DELAY} ago
+ * are never evicted, for file systems that do not support locks.
+ * </p>
+ * <p>
+ * Extractions of different contents run concurrently, the same contents are only extracted once.
+ * </p>
+ * <p>
+ * The layout of the cache is as follows:
+ * <pre>
+ * &lt;cache&gt;/&lt;key&gt;/...       extracted contents
+ * &lt;cache&gt;/&lt;key&gt;.entry      size of the contents in bytes, last modified time is the last use
+ * </pre>
+ * Contents are extracted to a staging folder and renamed once complete, so that concurrent
+ * processes sharing the cache never see partial contents.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public final class ExtractionCache {
+
+	/**
+	 * System property to set the location of the cache
+	 */
+	public static final String CACHE_LOCATION = "org.eclipse.pde.api.tools.extractionCache"; //$NON-NLS-1$
+
+	/**
+	 * System property to set the maximum size of the cache in megabytes
+	 */
+	public static final String CACHE_SIZE = "org.eclipse.pde.api.tools.extractionCacheSize"; //$NON-NLS-1$
+
+	/**
+	 * Default maximum size of the cache in megabytes
+	 */
+	static final long DEFAULT_CACHE_SIZE = 1024;
+
+	private static final String ENTRY_SUFFIX = ".entry"; //$NON-NLS-1$
+	private static final String INSTALLATION_KEY = "installation"; //$NON-NLS-1$
+	private static final String PLUGINS_FOLDER = "eclipse/plugins/"; //$NON-NLS-1$
+	private static final String[] INSTALLATION_FOLDERS = new String[] {
+		PLUGINS_FOLDER,
+		"eclipse/dropins/", //$NON-NLS-1$
+		"eclipse/configuration/" //$NON-NLS-1$
+	};
+	private static final String SOURCE_BUNDLE_HEADER = "Eclipse-SourceBundle"; //$NON-NLS-1$
+	private static final String STAGING_SUFFIX = ".staging"; //$NON-NLS-1$
+
+	/**
+	 * Time in milliseconds after its last use before an entry can be evicted
+	 */
+	static final long EVICTION_DELAY = 60 * 60 * 1000;
+
+	private static ExtractionCache fInstance = null;
+
+	/**
+	 * The root folder of the cache
+	 */
+	private final File fRoot;
+
+	/**
+	 * The maximum size of the cache in bytes
+	 */
+	private final long fMaxSize;
+
+	/**
+	 * Map of the keys of the entries used in this session, never evicted, to the {@link RandomAccessFile}
+	 * holding the shared lock on their entry file, or <code>null</code> if the file could not be locked
+	 */
+	private final HashMap fInUse = new HashMap();
+
+	/**
+	 * Map of key to the {@link KeyLock} extractions of that key synchronize on, while
+	 * at least one extraction of that key is running
+	 */
+	private final HashMap fKeyLocks = new HashMap();
+
+	/**
+	 * The lock of a key, counting the extractions holding or waiting for it
+	 */
+	private static final class KeyLock {
+		int users = 0;
+	}
+
+	/**
+	 * Constructor, use {@link #getCache()} to get the shared cache
+	 * @param root the root folder of the cache
+	 * @param maxSize the maximum size of the cache in bytes
+	 */
+	public ExtractionCache(File root, long maxSize) {
+		fRoot = root;
+		fMaxSize = maxSize;
+	}
+
+	/**
+	 * Returns the shared cache
+	 * @return the cache
+	 */
+	public static synchronized ExtractionCache getCache() {
+		if (fInstance == null) {
+			File root = null;
+			String location = System.getProperty(CACHE_LOCATION);
+			if (location != null) {
+				root = new File(location);
+			}
+			else if (ApiPlugin.isRunningInFramework()) {
+				root = ApiPlugin.getDefault().getStateLocation().append(".extraction_cache").toFile(); //$NON-NLS-1$
+			}
+			else {
+				try {
+					root = Util.createTempDirectory("api_tools_extraction_cache"); //$NON-NLS-1$
+				}
+				catch (IOException e) {
+					ApiPlugin.log(e);
+					root = new File(System.getProperty("java.io.tmpdir"), "api_tools_extraction_cache" + System.currentTimeMillis()); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+			long size = DEFAULT_CACHE_SIZE;
+			String value = System.getProperty(CACHE_SIZE);
+			if (value != null) {
+				try {
+					size = Long.parseLong(value);
+				}
+				catch (NumberFormatException e) {
+					ApiPlugin.log(e);
+				}
+			}
+			fInstance = new ExtractionCache(root, size * 1024 * 1024);
+		}
+		return fInstance;
+	}
+
+	/**
+	 * Returns the root folder of the cache
+	 * @return the root folder
+	 */
+	public File getLocation() {
+		return fRoot;
+	}
+
+	/**
+	 * Returns whether the given file is part of the contents of the cache
+	 *
+	 * @param file
+	 * @return <code>true</code> if the file is in the cache folder, <code>false</code> otherwise
+	 */
+	public boolean contains(File file) {
+		try {
+			String root = fRoot.getCanonicalPath() + File.separatorChar;
+			return file.getCanonicalPath().startsWith(root);
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the folder the given entry of the given zip file is extracted to, extracting it if needed.
+	 * The entry is found in the returned folder under its own name. If the entry is a directory, all the
+	 * entries it contains are extracted.
+	 *
+	 * @param zip the zip file
+	 * @param entry the entry to extract
+	 * @return the folder containing the extracted entry
+	 * @throws IOException if the entry cannot be extracted
+	 */
+	public File getExtractedEntry(ZipFile zip, ZipEntry entry) throws IOException {
+		String name = entry.getName();
+		MessageDigest digest = Util.newDigest();
+		updateDigest(digest, new File(zip.getName()));
+		if (entry.isDirectory()) {
+			Enumeration entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry child = (ZipEntry) entries.nextElement();
+				if (child.getName().startsWith(name)) {
+					Util.updateDigest(digest, child.getName(), child.getSize(), child.getCrc());
+				}
+			}
+		}
+		else {
+			Util.updateDigest(digest, entry.getName(), entry.getSize(), entry.getCrc());
+		}
+		String key = Util.toHex(digest.digest());
+		KeyLock lock = acquireKeyLock(key);
+		try {
+			synchronized (lock) {
+				File folder = lookup(key);
+				if (folder == null) {
+					File staging = createStaging(key);
+					try {
+						if (entry.isDirectory()) {
+							Enumeration entries = zip.entries();
+							while (entries.hasMoreElements()) {
+								ZipEntry child = (ZipEntry) entries.nextElement();
+								if (child.getName().startsWith(name)) {
+									extract(zip, child, staging);
+								}
+							}
+						}
+						else {
+							extract(zip, entry, staging);
+						}
+						folder = commit(key, staging);
+					}
+					finally {
+						Util.delete(staging);
+					}
+				}
+				return folder;
+			}
+		}
+		finally {
+			releaseKeyLock(key, lock);
+		}
+	}
+
+	/**
+	 * Returns the folder the Eclipse installation contained in the given zip or tar.gz archive is
+	 * extracted to, extracting it if needed. The installation is expected in an <code>eclipse</code>
+	 * folder at the root of the archive.
+	 * <p>
+	 * Only what is needed to build a baseline from the installation is extracted: the <code>plugins</code>,
+	 * <code>dropins</code> and <code>configuration</code> folders. Source bundles are reduced to their
+	 * manifest, which is enough for them to be recognized and left out of baselines.
+	 * </p>
+	 *
+	 * @param archive the archive
+	 * @return the folder containing the extracted <code>eclipse</code> folder
+	 * @throws IOException if the archive cannot be extracted
+	 * @throws TarException if the tar archive cannot be read
+	 */
+	public File getExtractedInstallation(File archive) throws IOException, TarException {
+		String path = archive.getAbsolutePath();
+		boolean zip = Util.isZipJarFile(path);
+		MessageDigest digest = Util.newDigest();
+		digest.update(INSTALLATION_KEY.getBytes(IApiCoreConstants.UTF_8));
+		if (zip) {
+			updateDigest(digest, archive);
+			ZipFile zipFile = new ZipFile(archive);
+			try {
+				Util.updateDigest(digest, zipFile);
+			}
+			finally {
+				zipFile.close();
+			}
+		}
+		else {
+			byte[] buffer = new byte[8192];
+			InputStream stream = new BufferedInputStream(new FileInputStream(archive));
+			try {
+				int read = 0;
+				while ((read = stream.read(buffer)) >= 0) {
+					digest.update(buffer, 0, read);
+				}
+			}
+			finally {
+				stream.close();
+			}
+		}
+		String key = Util.toHex(digest.digest());
+		KeyLock lock = acquireKeyLock(key);
+		try {
+			synchronized (lock) {
+				File folder = lookup(key);
+				if (folder == null) {
+					File staging = createStaging(key);
+					try {
+						if (zip) {
+							extractInstallation(new ZipFile(archive), staging);
+						}
+						else {
+							extractInstallation(new TarFile(archive), staging);
+						}
+						folder = commit(key, staging);
+					}
+					finally {
+						Util.delete(staging);
+					}
+				}
+				return folder;
+			}
+		}
+		finally {
+			releaseKeyLock(key, lock);
+		}
+	}
+
+	/**
+	 * Updates the given digest with the identity of the given zip file: its canonical path, length
+	 * and time stamp
+	 *
+	 * @param digest
+	 * @param archive
+	 * @throws IOException
+	 */
+	private static void updateDigest(MessageDigest digest, File archive) throws IOException {
+		Util.updateDigest(digest, archive.getCanonicalPath(), archive.length(), archive.lastModified());
+	}
+
+	/**
+	 * Returns the lock extractions of the given key synchronize on, which must be released with
+	 * {@link #releaseKeyLock(String, KeyLock)} once the extraction is done
+	 *
+	 * @param key
+	 * @return the lock of the key
+	 */
+	private synchronized KeyLock acquireKeyLock(String key) {
+		KeyLock lock = (KeyLock) fKeyLocks.get(key);
+		if (lock == null) {
+			lock = new KeyLock();
+			fKeyLocks.put(key, lock);
+		}
+		lock.users++;
+		return lock;
+	}
+
+	/**
+	 * Releases the given lock of the given key, forgetting the lock once no extraction uses it
+	 *
+	 * @param key
+	 * @param lock
+	 */
+	private synchronized void releaseKeyLock(String key, KeyLock lock) {
+		lock.users--;
+		if (lock.users == 0) {
+			fKeyLocks.remove(key);
+		}
+	}
+
+	/**
+	 * Extracts the parts of the installation needed to build a baseline from the given zip file,
+	 * closing it once done
+	 *
+	 * @param zip
+	 * @param parent the folder to extract to
+	 * @throws IOException
+	 */
+	private static void extractInstallation(ZipFile zip, File parent) throws IOException {
+		try {
+			// map of bundle folder entry name to Boolean, whether it is a source bundle
+			HashMap sourceFolders = new HashMap();
+			Enumeration entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = (ZipEntry) entries.nextElement();
+				String name = entry.getName();
+				if (!isInstallationEntry(name)) {
+					continue;
+				}
+				String bundle = getBundleFolder(name);
+				if (bundle != null) {
+					Boolean source = (Boolean) sourceFolders.get(bundle);
+					if (source == null) {
+						source = Boolean.FALSE;
+						ZipEntry manifest = zip.getEntry(bundle + JarFile.MANIFEST_NAME);
+						if (manifest != null) {
+							InputStream stream = zip.getInputStream(manifest);
+							try {
+								source = Boolean.valueOf(isSourceBundle(new Manifest(stream)));
+							}
+							finally {
+								stream.close();
+							}
+						}
+						sourceFolders.put(bundle, source);
+					}
+					if (source.booleanValue() && !name.equals(bundle + JarFile.MANIFEST_NAME)) {
+						continue;
+					}
+				}
+				else if (isBundleJar(name) && !entry.isDirectory()) {
+					JarInputStream stream = new JarInputStream(zip.getInputStream(entry));
+					try {
+						Manifest manifest = stream.getManifest();
+						if (manifest != null && isSourceBundle(manifest)) {
+							writeManifestJar(manifest, new File(parent, name));
+							continue;
+						}
+					}
+					finally {
+						stream.close();
+					}
+				}
+				InputStream stream = zip.getInputStream(entry);
+				try {
+					extract(stream, name, entry.isDirectory(), parent);
+				}
+				finally {
+					stream.close();
+				}
+			}
+		}
+		finally {
+			zip.close();
+		}
+	}
+
+	/**
+	 * Extracts the parts of the installation needed to build a baseline from the given tar file
+	 * in a single pass, closing it once done
+	 *
+	 * @param tar
+	 * @param parent the folder to extract to
+	 * @throws IOException
+	 * @throws TarException
+	 */
+	private static void extractInstallation(TarFile tar, File parent) throws IOException, TarException {
+		try {
+			Enumeration entries = tar.entries();
+			while (entries.hasMoreElements()) {
+				TarEntry entry = (TarEntry) entries.nextElement();
+				String name = entry.getName();
+				if (!isInstallationEntry(name)) {
+					continue;
+				}
+				boolean directory = entry.getFileType() == TarEntry.DIRECTORY;
+				extract(tar.getInputStream(entry), name, directory, parent);
+				if (!directory && isBundleJar(name)) {
+					// the manifest is only known once the jar is read, shrink source bundles afterwards
+					File file = new File(parent, name);
+					JarFile jar = new JarFile(file);
+					Manifest manifest = null;
+					try {
+						manifest = jar.getManifest();
+					}
+					finally {
+						jar.close();
+					}
+					if (manifest != null && isSourceBundle(manifest)) {
+						writeManifestJar(manifest, file);
+					}
+				}
+			}
+		}
+		finally {
+			tar.close();
+		}
+	}
+
+	/**
+	 * Returns whether the given archive entry is needed to build a baseline from the installation
+	 *
+	 * @param name the entry name
+	 * @return <code>true</code> if the entry is needed, <code>false</code> otherwise
+	 */
+	private static boolean isInstallationEntry(String name) {
+		for (int i = 0; i < INSTALLATION_FOLDERS.length; i++) {
+			if (name.startsWith(INSTALLATION_FOLDERS[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the given archive entry is a jar'd bundle of the installation
+	 *
+	 * @param name the entry name
+	 * @return <code>true</code> if the entry is a bundle jar, <code>false</code> otherwise
+	 */
+	private static boolean isBundleJar(String name) {
+		return name.startsWith(PLUGINS_FOLDER) && name.indexOf('/', PLUGINS_FOLDER.length()) < 0 && name.endsWith(".jar"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the name of the folder bundle containing the given archive entry
+	 *
+	 * @param name the entry name
+	 * @return the name of the bundle folder, ending with a slash, or <code>null</code> if the entry is not in a bundle folder
+	 */
+	private static String getBundleFolder(String name) {
+		if (!name.startsWith(PLUGINS_FOLDER)) {
+			return null;
+		}
+		int index = name.indexOf('/', PLUGINS_FOLDER.length());
+		if (index < 0) {
+			return null;
+		}
+		return name.substring(0, index + 1);
+	}
+
+	/**
+	 * Returns whether the given manifest is the manifest of a source bundle
+	 *
+	 * @param manifest
+	 * @return <code>true</code> if it describes a source bundle, <code>false</code> otherwise
+	 */
+	private static boolean isSourceBundle(Manifest manifest) {
+		return manifest.getMainAttributes().getValue(SOURCE_BUNDLE_HEADER) != null;
+	}
+
+	/**
+	 * Writes a jar containing only the given manifest
+	 *
+	 * @param manifest
+	 * @param file the jar to write
+	 * @throws IOException
+	 */
+	private static void writeManifestJar(Manifest manifest, File file) throws IOException {
+		file.getParentFile().mkdirs();
+		JarOutputStream stream = new JarOutputStream(new FileOutputStream(file), manifest);
+		stream.close();
+	}
+
+	/**
+	 * Returns the folder of the given key if it is in the cache, marking it as used
+	 *
+	 * @param key
+	 * @return the folder or <code>null</code> if the key is not in the cache
+	 */
+	private synchronized File lookup(String key) {
+		File marker = new File(fRoot, key + ENTRY_SUFFIX);
+		File folder = new File(fRoot, key);
+		if (marker.isFile() && folder.isDirectory()) {
+			marker.setLastModified(System.currentTimeMillis());
+			use(key, marker);
+			return folder;
+		}
+		return null;
+	}
+
+	/**
+	 * Marks the entry of the given key as used by this session, locking its entry file so that other
+	 * processes sharing the cache do not evict it
+	 *
+	 * @param key
+	 * @param marker the entry file
+	 */
+	private synchronized void use(String key, File marker) {
+		if (fInUse.containsKey(key)) {
+			return;
+		}
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(marker, "r"); //$NON-NLS-1$
+			file.getChannel().lock(0, Long.MAX_VALUE, true);
+		}
+		catch (IOException e) {
+			// locks are not supported, only the eviction delay protects the entry
+			file = close(file);
+		}
+		catch (OverlappingFileLockException e) {
+			// another cache of this virtual machine on the same folder locked the entry
+			file = close(file);
+		}
+		fInUse.put(key, file);
+	}
+
+	/**
+	 * Releases the entries used by this session, so that they can be evicted. The locks of the entries
+	 * are otherwise released when the virtual machine exits.
+	 */
+	public synchronized void dispose() {
+		for (Iterator iter = fInUse.values().iterator(); iter.hasNext();) {
+			close((RandomAccessFile) iter.next());
+		}
+		fInUse.clear();
+	}
+
+	/**
+	 * Returns whether the entry of the given entry file is in use by another process sharing the cache
+	 *
+	 * @param marker the entry file
+	 * @return <code>true</code> if the entry is locked by another process, <code>false</code> otherwise
+	 */
+	private static boolean isLocked(File marker) {
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(marker, "rw"); //$NON-NLS-1$
+			FileLock lock = file.getChannel().tryLock();
+			if (lock == null) {
+				return true;
+			}
+			lock.release();
+			return false;
+		}
+		catch (IOException e) {
+			// locks are not supported
+			return false;
+		}
+		catch (OverlappingFileLockException e) {
+			// locked by another cache of this virtual machine on the same folder
+			return true;
+		}
+		finally {
+			close(file);
+		}
+	}
+
+	/**
+	 * Closes the given file, ignoring errors
+	 *
+	 * @param file the file or <code>null</code>
+	 * @return <code>null</code>
+	 */
+	private static RandomAccessFile close(RandomAccessFile file) {
+		if (file != null) {
+			try {
+				file.close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates an empty staging folder for the given key
+	 *
+	 * @param key
+	 * @return the staging folder
+	 * @throws IOException if the folder cannot be created
+	 */
+	private File createStaging(String key) throws IOException {
+		fRoot.mkdirs();
+		File staging = new File(fRoot, key + '.' + System.currentTimeMillis() + '.' + System.identityHashCode(this) + STAGING_SUFFIX);
+		Util.delete(staging);
+		if (!staging.mkdirs()) {
+			throw new IOException("Unable to create folder " + staging.getAbsolutePath()); //$NON-NLS-1$
+		}
+		return staging;
+	}
+
+	/**
+	 * Moves the given staging folder to the folder of the given key and records its size,
+	 * then evicts entries if the cache is too big
+	 *
+	 * @param key
+	 * @param staging
+	 * @return the folder of the key
+	 * @throws IOException if the contents cannot be recorded
+	 */
+	private File commit(String key, File staging) throws IOException {
+		File folder = new File(fRoot, key);
+		File marker = new File(fRoot, key + ENTRY_SUFFIX);
+		long size = sizeOf(staging);
+		if (!staging.renameTo(folder)) {
+			// another process may have extracted the same contents in the meantime
+			File existing = lookup(key);
+			if (existing != null) {
+				return existing;
+			}
+			Util.delete(folder);
+			if (!staging.renameTo(folder)) {
+				throw new IOException("Unable to create folder " + folder.getAbsolutePath()); //$NON-NLS-1$
+			}
+		}
+		OutputStream stream = new FileOutputStream(marker);
+		try {
+			stream.write(Long.toString(size).getBytes(IApiCoreConstants.UTF_8));
+		}
+		finally {
+			stream.close();
+		}
+		use(key, marker);
+		evict();
+		return folder;
+	}
+
+	/**
+	 * Evicts the least recently used entries not in use in this session or by another process until the
+	 * cache fits its maximum size
+	 */
+	private synchronized void evict() {
+		File[] markers = fRoot.listFiles();
+		if (markers == null) {
+			return;
+		}
+		long total = 0;
+		int count = 0;
+		for (int i = 0; i < markers.length; i++) {
+			if (markers[i].getName().endsWith(ENTRY_SUFFIX)) {
+				markers[count++] = markers[i];
+				total += readSize(markers[i]);
+			}
+		}
+		if (total <= fMaxSize) {
+			return;
+		}
+		File[] sorted = new File[count];
+		System.arraycopy(markers, 0, sorted, 0, count);
+		Arrays.sort(sorted, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				long t1 = ((File) o1).lastModified();
+				long t2 = ((File) o2).lastModified();
+				return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+			}
+		});
+		long recent = System.currentTimeMillis() - EVICTION_DELAY;
+		for (int i = 0; i < count && total > fMaxSize; i++) {
+			String name = sorted[i].getName();
+			String key = name.substring(0, name.length() - ENTRY_SUFFIX.length());
+			if (fInUse.containsKey(key) || sorted[i].lastModified() > recent || isLocked(sorted[i])) {
+				continue;
+			}
+			long size = readSize(sorted[i]);
+			if (sorted[i].delete()) {
+				Util.delete(new File(fRoot, key));
+				total -= size;
+			}
+		}
+	}
+
+	/**
+	 * Extracts the given entry of the zip file under the given folder
+	 *
+	 * @param zip
+	 * @param entry
+	 * @param parent
+	 * @throws IOException
+	 */
+	private static void extract(ZipFile zip, ZipEntry entry, File parent) throws IOException {
+		if (entry.isDirectory()) {
+			new File(parent, entry.getName()).mkdirs();
+			return;
+		}
+		InputStream inputStream = zip.getInputStream(entry);
+		try {
+			extract(inputStream, entry.getName(), false, parent);
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Writes the contents of the given stream to the file of the given name under the given folder,
+	 * or creates the folder of the given name. The stream is not closed.
+	 *
+	 * @param inputStream
+	 * @param name the entry name
+	 * @param directory whether the entry is a directory
+	 * @param parent
+	 * @throws IOException
+	 */
+	private static void extract(InputStream inputStream, String name, boolean directory, File parent) throws IOException {
+		File file = new File(parent, name);
+		if (directory) {
+			file.mkdirs();
+			return;
+		}
+		file.getParentFile().mkdirs();
+		OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			byte[] bytes = new byte[8192];
+			int read = 0;
+			while ((read = inputStream.read(bytes)) >= 0) {
+				outputStream.write(bytes, 0, read);
+			}
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Returns the size recorded in the given marker file
+	 *
+	 * @param marker
+	 * @return the size or <code>0</code> if it cannot be read
+	 */
+	private static long readSize(File marker) {
+		try {
+			InputStream stream = new FileInputStream(marker);
+			try {
+				return Long.parseLong(new String(Util.getInputStreamAsCharArray(stream, -1, IApiCoreConstants.UTF_8)).trim());
+			}
+			finally {
+				stream.close();
+			}
+		}
+		catch (IOException e) {
+			return 0;
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns the total size of the files under the given file
+	 *
+	 * @param file
+	 * @return the size in bytes
+	 */
+	private static long sizeOf(File file) {
+		if (file.isDirectory()) {
+			long size = 0;
+			File[] children = file.listFiles();
+			if (children != null) {
+				for (int i = 0; i < children.length; i++) {
+					size += sizeOf(children[i]);
+				}
+			}
+			return size;
+		}
+		return file.length();
+	}
+}
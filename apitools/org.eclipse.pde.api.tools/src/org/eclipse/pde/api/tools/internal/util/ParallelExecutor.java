@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.api.tools.internal.util;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
+
+/**
+ * Runs a number of independent, indexed units of work on a bounded set of worker threads.
+ * <p>
+ * Units are handed out to the workers in index order. The calling thread blocks until all units
+ * are done, reporting one tick of work on the given progress monitor per completed unit and
+ * polling it for cancellation. Callers that need deterministic results are expected to store
+ * the result of each unit by its index and merge them in index order once
+ * {@link #run(int, int, Task, IProgressMonitor)} returns.
+ * </p>
+ *
+ * @since 1.0.400
+ */
+public final class ParallelExecutor {
+
+	/**
+	 * A unit of work to run for each index
+	 */
+	public static abstract class Task {
+		/**
+		 * Runs the unit of work for the given index. This method is called concurrently
+		 * from several threads and must only touch state that is safe to share.
+		 *
+		 * @param index the index of the unit of work to run
+		 * @throws CoreException
+		 */
+		public abstract void run(int index) throws CoreException;
+	}
+
+	/**
+	 * The shared state of one execution
+	 */
+	static final class Execution {
+		final int count;
+		int next = 0;
+		int done = 0;
+		int reported = 0;
+		boolean canceled = false;
+		Throwable error = null;
+
+		Execution(int count) {
+			this.count = count;
+		}
+
+		synchronized int nextIndex() {
+			if(canceled || error != null || next >= count) {
+				return -1;
+			}
+			return next++;
+		}
+
+		synchronized void finished(Throwable throwable) {
+			done++;
+			if(throwable != null && error == null) {
+				error = throwable;
+			}
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Constructor
+	 * no instantiation
+	 */
+	private ParallelExecutor() {}
+
+	/**
+	 * Returns the default number of worker threads to use, which is the number of available processors
+	 *
+	 * @return the default number of worker threads
+	 */
+	public static int getDefaultThreadCount() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Runs the given task for the indices <code>0</code> to <code>count - 1</code> using at most
+	 * <code>threads</code> worker threads. If only one thread is requested, or there is only a single unit
+	 * of work, the task is run on the calling thread.
+	 *
+	 * @param count the number of units of work
+	 * @param threads the maximum number of worker threads to use
+	 * @param task the task to run for each index
+	 * @param monitor the monitor to report progress to and poll for cancellation, or <code>null</code>.
+	 * It is converted to <code>count</code> ticks of work, one reported per unit.
+	 * @throws CoreException the first {@link CoreException} thrown by a unit of work
+	 * @throws OperationCanceledException if the monitor was canceled
+	 */
+	public static void run(int count, int threads, final Task task, IProgressMonitor monitor) throws CoreException {
+		if(count <= 0) {
+			return;
+		}
+		// callers typically hand in a child monitor no task has been started on yet
+		SubMonitor localmonitor = SubMonitor.convert(monitor, count);
+		if(threads <= 1 || count == 1) {
+			for (int i = 0; i < count; i++) {
+				Util.updateMonitor(localmonitor);
+				task.run(i);
+				Util.updateMonitor(localmonitor, 1);
+			}
+			return;
+		}
+		final Execution execution = new Execution(count);
+		int workers = Math.min(threads, count);
+		for (int i = 0; i < workers; i++) {
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					int index = execution.nextIndex();
+					while(index != -1) {
+						Throwable error = null;
+						try {
+							task.run(index);
+						}
+						catch(Throwable t) {
+							error = t;
+						}
+						finally {
+							execution.finished(error);
+						}
+						index = execution.nextIndex();
+					}
+				}
+			}, "API Tools worker " + (i + 1)); //$NON-NLS-1$
+			thread.setDaemon(true);
+			thread.start();
+		}
+		synchronized (execution) {
+			while(execution.done < execution.next || (execution.next < count && !execution.canceled && execution.error == null)) {
+				if(localmonitor.isCanceled()) {
+					execution.canceled = true;
+				}
+				localmonitor.worked(execution.done - execution.reported);
+				execution.reported = execution.done;
+				try {
+					execution.wait(100);
+				}
+				catch(InterruptedException e) {
+					execution.canceled = true;
+				}
+			}
+			localmonitor.worked(execution.done - execution.reported);
+		}
+		if(execution.error != null) {
+			Throwable error = execution.error;
+			if(error instanceof CoreException) {
+				throw (CoreException) error;
+			}
+			if(error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			}
+			if(error instanceof Error) {
+				throw (Error) error;
+			}
+			throw new CoreException(new Status(IStatus.ERROR, ApiPlugin.PLUGIN_ID, error.getMessage(), error));
+		}
+		if(execution.canceled) {
+			throw new OperationCanceledException();
+		}
+	}
+}
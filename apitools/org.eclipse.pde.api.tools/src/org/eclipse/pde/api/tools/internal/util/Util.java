@@ -36,6 +36,8 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -1698,6 +1700,7 @@ public final class Util {
 				} catch (IOException ioe2) {
 				}
 			}
+			throw ioe;
 		} finally {
 			try {
 				zipIn.close();
@@ -1789,6 +1792,99 @@ public final class Util {
 		return file;
 	}
 	
+	/**
+	 * Creates a new directory in the users' <code>temp</code> directory, deleted with its contents
+	 * when the virtual machine exits. Caches use it when running outside of the framework rather
+	 * than a directory with a well known name, which other users of the machine could fill first.
+	 * 
+	 * @param prefix
+	 * @return the new directory
+	 * @throws IOException if the directory cannot be created
+	 * @since 1.0.400
+	 */
+	public static File createTempDirectory(String prefix) throws IOException {
+		final File directory = File.createTempFile(prefix, null);
+		if (!directory.delete() || !directory.mkdirs()) {
+			throw new IOException("Unable to create folder " + directory.getAbsolutePath()); //$NON-NLS-1$
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				delete(directory);
+			}
+		});
+		return directory;
+	}
+
+	/**
+	 * Returns a new SHA-1 digest, used to compute the content keys of cached and scanned archives
+	 *
+	 * @return the digest
+	 * @throws IOException if the algorithm is not available
+	 * @since 1.0.400
+	 */
+	public static MessageDigest newDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Updates the given digest with the description of a file: its name, size and CRC or time stamp
+	 *
+	 * @param digest
+	 * @param name
+	 * @param size
+	 * @param stamp the CRC or time stamp of the file
+	 * @since 1.0.400
+	 */
+	public static void updateDigest(MessageDigest digest, String name, long size, long stamp) {
+		StringBuffer buffer = new StringBuffer(name);
+		buffer.append('\0').append(size).append('\0').append(stamp).append('\n');
+		try {
+			digest.update(buffer.toString().getBytes(IApiCoreConstants.UTF_8));
+		}
+		catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+		}
+	}
+
+	/**
+	 * Updates the given digest with the names, sizes and CRCs of the entries of the given zip,
+	 * which are read from its central directory without inflating any entry
+	 *
+	 * @param digest
+	 * @param zip
+	 * @since 1.0.400
+	 */
+	public static void updateDigest(MessageDigest digest, ZipFile zip) {
+		for (Enumeration entries = zip.entries(); entries.hasMoreElements();) {
+			ZipEntry entry = (ZipEntry) entries.nextElement();
+			updateDigest(digest, entry.getName(), entry.getSize(), entry.getCrc());
+		}
+	}
+
+	/**
+	 * Returns the lower case hexadecimal representation of the given bytes
+	 *
+	 * @param bytes
+	 * @return the hexadecimal string
+	 * @since 1.0.400
+	 */
+	public static String toHex(byte[] bytes) {
+		StringBuffer buffer = new StringBuffer(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			int value = bytes[i] & 0xFF;
+			if (value < 0x10) {
+				buffer.append('0');
+			}
+			buffer.append(Integer.toHexString(value));
+		}
+		return buffer.toString();
+	}
+
 	/**
 	 * @return a string representation of all of the libraries from the bootpath 
 	 * of the current default system VM.
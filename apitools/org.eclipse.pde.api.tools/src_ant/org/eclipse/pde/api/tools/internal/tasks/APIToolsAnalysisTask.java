@@ -700,6 +700,7 @@ public class APIToolsAnalysisTask extends CommonUtilsTask {
 				}
 				allApiBundles.add(name);
 				BaseApiAnalyzer analyzer = new BaseApiAnalyzer();
+				analyzer.setThreadCount(this.threads);
 				try {
 					analyzer.analyzeComponent(null, getFilterStore(name), this.properties, referenceBaseline, apiComponent, new BuildContext(), new NullProgressMonitor());
 					IApiProblem[] problems = analyzer.getProblems();
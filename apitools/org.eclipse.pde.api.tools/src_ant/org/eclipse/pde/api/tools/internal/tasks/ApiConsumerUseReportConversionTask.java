@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -115,6 +115,7 @@ public class ApiConsumerUseReportConversionTask extends CommonUtilsTask {
 			Util.delete(new File(this.htmlReportsLocation));
 			ConsumerReportConvertor converter = new ConsumerReportConvertor(this.htmlReportsLocation, this.xmlReportsLocation, this.toPatterns, this.filterPatterns);
 			UseReportConverter.setDebug(this.debug);
+			converter.setThreads(this.threads);
 			converter.convert(this.xsltFileLocation, null);
 			File index = converter.getReportIndex();
 			System.out.println(NLS.bind(
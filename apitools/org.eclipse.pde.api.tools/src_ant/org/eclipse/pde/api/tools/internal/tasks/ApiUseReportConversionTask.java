@@ -114,6 +114,7 @@ public final class ApiUseReportConversionTask extends CommonUtilsTask {
 			Util.delete(new File(this.htmlReportsLocation));
 			UseReportConverter converter = new UseReportConverter(this.htmlReportsLocation, this.xmlReportsLocation, this.toPatterns, this.filterPatterns);
 			UseReportConverter.setDebug(this.debug);
+			converter.setThreads(this.threads);
 			converter.convert(this.xsltFileLocation, null);
 			File index = converter.getReportIndex();
 			System.out.println(NLS.bind(
@@ -16,6 +16,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Calendar;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
@@ -28,11 +29,12 @@ import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiElement;
 import org.eclipse.pde.api.tools.internal.provisional.search.ApiSearchEngine;
-import org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchReporter;
 import org.eclipse.pde.api.tools.internal.provisional.search.IApiSearchRequestor;
 import org.eclipse.pde.api.tools.internal.search.ApiDescriptionModifier;
 import org.eclipse.pde.api.tools.internal.search.SkippedComponent;
 import org.eclipse.pde.api.tools.internal.search.UseMetadata;
+import org.eclipse.pde.api.tools.internal.search.UseScanIndex;
+import org.eclipse.pde.api.tools.internal.search.UseScanManifest;
 import org.eclipse.pde.api.tools.internal.search.UseSearchRequestor;
 import org.eclipse.pde.api.tools.internal.search.XmlSearchReporter;
 import org.eclipse.pde.api.tools.internal.util.FilteredElements;
@@ -107,6 +109,12 @@ public final class ApiUseTask extends CommonUtilsTask {
 	 */
 	private FilteredElements includedElements = null;
 	
+	/**
+	 * If the results of the previous scan in the report location should be reused for
+	 * the components that did not change
+	 */
+	private boolean incremental = false;
+	
 	/**
 	 * Set the location of the current product you want to search.
 	 * 
@@ -227,6 +235,23 @@ public final class ApiUseTask extends CommonUtilsTask {
 		internalPatterns = parsePatterns(patterns);	
 	}
 	
+	/**
+	 * Sets if the scan should only search the components that changed since the previous
+	 * scan written to the report location.
+	 * <p>The report location keeps a manifest of the components of the scan with a hash of
+	 * their contents. When the scan settings are the same as the ones of the previous scan, only
+	 * the components that were added or changed and the components that referenced changed components
+	 * are searched again, and their results replace the previous ones in the report. Adding a
+	 * component that can be referenced triggers a complete scan.</p>
+	 * <p>The possible values are: <code>true</code>, <code>false</code></p>
+	 * <p>Default is <code>false</code>.</p>
+	 * 
+	 * @param incremental the given value
+	 */
+	public void setIncremental(String incremental) {
+		this.incremental = Boolean.toString(true).equals(incremental);
+	}
+	
 	/**
 	 * Sets any archive name patterns to not scan during the analysis.
 	 * 
@@ -272,7 +297,9 @@ public final class ApiUseTask extends CommonUtilsTask {
 	public void execute() throws BuildException {
 		assertParameters();
 		writeDebugHeader();
-		cleanReportLocation();
+		if(!this.incremental) {
+			cleanReportLocation();
+		}
 		UseMetadata data = new UseMetadata(
 				getSearchFlags(), 
 				this.scopepattern, 
@@ -285,16 +312,22 @@ public final class ApiUseTask extends CommonUtilsTask {
 				DateFormat.getDateTimeInstance().format(Calendar.getInstance().getTime()), 
 				getDescription());
 		IApiBaseline baseline = getBaseline(CURRENT_BASELINE_NAME, this.currentBaselineLocation);
-		IApiSearchReporter reporter = new XmlSearchReporter(this.reportLocation, this.debug);
+		XmlSearchReporter reporter = new XmlSearchReporter(this.reportLocation, this.debug);
 		
 		try {
 			Set ids = new HashSet();
 			TreeSet scope = new TreeSet(Util.componentsorter);
 			getContext(baseline, ids, scope);
+			UseScanManifest manifest = null;
+			if(this.incremental) {
+				manifest = new UseScanManifest(getSettings());
+				limitScope(baseline, ids, scope, manifest, reporter);
+			}
+			IApiComponent[] searched = (IApiComponent[]) scope.toArray(new IApiComponent[scope.size()]);
 			ApiSearchEngine engine = new ApiSearchEngine();
 			UseSearchRequestor requestor = new UseSearchRequestor(
 					ids,
-					(IApiElement[]) scope.toArray(new IApiElement[scope.size()]), 
+					searched, 
 					getSearchFlags());
 			requestor.setJarPatterns(archivePatterns);
 			// override API descriptions as required
@@ -313,6 +346,21 @@ public final class ApiUseTask extends CommonUtilsTask {
 			
 			ApiSearchEngine.setDebug(this.debug);
 			engine.search(baseline, requestor, reporter, null);
+			if(manifest != null) {
+				for (int i = 0; i < searched.length; i++) {
+					String id = searched[i].getSymbolicName();
+					manifest.setScanned(id, reporter.getCounts(id));
+				}
+				File root = new File(this.reportLocation);
+				if(!root.exists()) {
+					root.mkdirs();
+				}
+				manifest.write(new File(root, UseScanManifest.MANIFEST_FILE_NAME));
+			}
+			if (new File(this.reportLocation).isDirectory()) {
+				// index the scan so it can be consumed without parsing the XML reports
+				UseScanIndex.build(this.reportLocation, null);
+			}
 		}
 		catch(CoreException ce) {
 			throw new BuildException(Messages.ApiUseTask_search_engine_problem, ce);
@@ -328,6 +376,116 @@ public final class ApiUseTask extends CommonUtilsTask {
 		}
 	}
 	
+	/**
+	 * Removes the components whose results can be reused from the previous scan in the report location
+	 * from the given scope, and deletes the results of the components that will be searched again from
+	 * the report. If the previous scan cannot be reused, the report location is cleaned and the scope
+	 * is left unchanged.
+	 * 
+	 * @param baseline the baseline being scanned
+	 * @param ids the reference ids of the scan
+	 * @param scope the live set of components to search
+	 * @param manifest the manifest of this scan, populated with the components of the baseline
+	 * @param reporter the reporter to add the counts of the reused results to
+	 * @throws CoreException
+	 */
+	private void limitScope(IApiBaseline baseline, Set ids, Set scope, UseScanManifest manifest, XmlSearchReporter reporter) throws CoreException {
+		IApiComponent[] components = baseline.getApiComponents();
+		for (int i = 0; i < components.length; i++) {
+			if(!components[i].isSystemComponent()) {
+				manifest.addComponent(components[i]);
+			}
+		}
+		File file = new File(this.reportLocation, UseScanManifest.MANIFEST_FILE_NAME);
+		UseScanManifest previous = UseScanManifest.read(file);
+		// the previous manifest no longer describes the report once it is modified
+		file.delete();
+		if(previous == null || !previous.getSettings().equals(manifest.getSettings())) {
+			if(this.debug) {
+				System.out.println("No reusable scan in the report location, searching all components"); //$NON-NLS-1$
+			}
+			cleanReportLocation();
+			return;
+		}
+		Set scopeIds = new HashSet();
+		for (Iterator iter = scope.iterator(); iter.hasNext();) {
+			scopeIds.add(((IApiComponent) iter.next()).getSymbolicName());
+		}
+		// results of changed components, of components that referenced them or resolve packages
+		// from them, of components whose wiring changed and of components that are no longer searched are stale
+		Set stale = manifest.getStaleComponents(previous, this.reportLocation, ids, scopeIds);
+		if(stale == null) {
+			// references to an added component were not resolved by the previous scan
+			if(this.debug) {
+				System.out.println("A referenced component was added, searching all components"); //$NON-NLS-1$
+			}
+			cleanReportLocation();
+			return;
+		}
+		for (Iterator iter = scope.iterator(); iter.hasNext();) {
+			String id = ((IApiComponent) iter.next()).getSymbolicName();
+			if(previous.isScanned(id) && !stale.contains(id)) {
+				int[] counts = previous.getCounts(id);
+				manifest.setScanned(id, counts);
+				reporter.addCounts(counts);
+				iter.remove();
+			}
+		}
+		UseScanManifest.removeReferencingComponents(this.reportLocation, stale);
+		if(this.debug) {
+			System.out.println("Components searched again: " + stale); //$NON-NLS-1$
+			System.out.println("Components to search: " + scope.size()); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * Returns a description of the settings of this scan. Scans with different settings
+	 * do not share results.
+	 * 
+	 * @return the settings
+	 */
+	private String getSettings() {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(getSearchFlags()).append('|');
+		buffer.append(this.scopepattern).append('|');
+		buffer.append(this.referencepattern).append('|');
+		appendPatterns(buffer, this.apiPatterns);
+		appendPatterns(buffer, this.internalPatterns);
+		appendPatterns(buffer, this.archivePatterns);
+		appendList(buffer, this.excludeListLocation);
+		appendList(buffer, this.includeListLocation);
+		return buffer.toString();
+	}
+	
+	/**
+	 * Appends the given patterns to the settings
+	 * 
+	 * @param buffer
+	 * @param patterns the patterns or <code>null</code>
+	 */
+	private void appendPatterns(StringBuffer buffer, String[] patterns) {
+		if(patterns != null) {
+			for (int i = 0; i < patterns.length; i++) {
+				buffer.append(patterns[i]).append(',');
+			}
+		}
+		buffer.append('|');
+	}
+	
+	/**
+	 * Appends the given filter list location and its time stamp to the settings
+	 * 
+	 * @param buffer
+	 * @param location the location or <code>null</code>
+	 */
+	private void appendList(StringBuffer buffer, String location) {
+		buffer.append(location);
+		if(location != null) {
+			buffer.append('@').append(new File(location).lastModified());
+		}
+		buffer.append('|');
+	}
+	
 	/**
 	 * Returns if we should add the given component to our search scope
 	 * @param component
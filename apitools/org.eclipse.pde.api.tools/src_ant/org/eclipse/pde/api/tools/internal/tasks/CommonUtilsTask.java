@@ -25,7 +25,9 @@ import org.eclipse.pde.api.tools.internal.model.ApiModelFactory;
 import org.eclipse.pde.api.tools.internal.provisional.ApiPlugin;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiBaseline;
 import org.eclipse.pde.api.tools.internal.provisional.model.IApiComponent;
+import org.eclipse.pde.api.tools.internal.util.ExtractionCache;
 import org.eclipse.pde.api.tools.internal.util.FilteredElements;
+import org.eclipse.pde.api.tools.internal.util.ParallelExecutor;
 import org.eclipse.pde.api.tools.internal.util.TarException;
 import org.eclipse.pde.api.tools.internal.util.Util;
 
@@ -42,6 +44,7 @@ public abstract class CommonUtilsTask extends Task {
 	protected static final String CURRENT_BASELINE_NAME = "current_baseline"; //$NON-NLS-1$
 	protected static final String REFERENCE = "referenceBaseline"; //$NON-NLS-1$
 	protected static final String REFERENCE_BASELINE_NAME = "reference_baseline"; //$NON-NLS-1$
+	protected static final String THREADS_AUTO = "auto"; //$NON-NLS-1$
 
 	protected boolean debug;
 	protected String eeFileLocation;
@@ -52,6 +55,8 @@ public abstract class CommonUtilsTask extends Task {
 	
 	protected String reportLocation;
 	
+	protected int threads = 1;
+	
 	/**
 	 * Creates a baseline with the given name and EE file location in the given directory.  The installLocation
 	 * will be searched for bundles to add as API components.
@@ -84,19 +89,22 @@ public abstract class CommonUtilsTask extends Task {
 	}
 	
 	/**
-	 * Deletes an {@link IApiBaseline} from the given folder
+	 * Deletes an {@link IApiBaseline} from the given folder. Baselines extracted from
+	 * an archive belong to the shared {@link ExtractionCache} and are kept for later runs.
 	 * @param referenceLocation
 	 * @param folder
 	 */
 	protected void deleteBaseline(String referenceLocation, File folder) {
-		if (Util.isArchive(referenceLocation)) {
+		if (Util.isArchive(referenceLocation) && !ExtractionCache.getCache().contains(folder)) {
 			Util.delete(folder.getParentFile());
 		}
 	}
 	
 	/**
-	 * Extract extracts the SDK from the given location to the given directory name
-	 * @param installDirName
+	 * Extracts the SDK from the given location. Only the parts of archives needed to build a baseline
+	 * are extracted, once, into the shared {@link ExtractionCache} and reused by later runs as long as
+	 * their contents do not change.
+	 * @param installDirName the name of the SDK
 	 * @param location
 	 * @return the {@link File} handle to the extracted SDK
 	 */
@@ -107,36 +115,16 @@ public abstract class CommonUtilsTask extends Task {
 			throw new BuildException(NLS.bind(Messages.fileDoesnotExist, location));
 		}
 		if (Util.isArchive(location)) {
-			File tempDir = new File(System.getProperty("java.io.tmpdir")); //$NON-NLS-1$
-			File installDir = new File(tempDir, installDirName);
-			if (installDir.exists()) {
-				// delete existing folder
-				if (!Util.delete(installDir)) {
-					throw new BuildException(
-						NLS.bind(
-							Messages.couldNotDelete,
-							installDir.getAbsolutePath()));
-				}
-			}
-			if (!installDir.mkdirs()) {
-				throw new BuildException(
-						NLS.bind(
-								Messages.couldNotCreate,
-								installDir.getAbsolutePath()));
-			}
+			File installDir = null;
 			try {
-				if (Util.isZipJarFile(location)) {
-					Util.unzip(location, installDir.getAbsolutePath());
-				} else if (Util.isTGZFile(location)) {
-					Util.guntar(location, installDir.getAbsolutePath());
-				}
+				installDir = ExtractionCache.getCache().getExtractedInstallation(locationFile);
 			} catch (IOException e) {
 				throw new BuildException(
 					NLS.bind(
 						Messages.couldNotUnzip,
 						new String[] {
 								location,
-								installDir.getAbsolutePath()
+								ExtractionCache.getCache().getLocation().getAbsolutePath()
 						}));
 			} catch (TarException e) {
 				throw new BuildException(
@@ -144,7 +132,7 @@ public abstract class CommonUtilsTask extends Task {
 								Messages.couldNotUntar,
 								new String[] {
 										location,
-										installDir.getAbsolutePath()
+										ExtractionCache.getCache().getLocation().getAbsolutePath()
 								}));
 			}
 			return new File(installDir, ECLIPSE_FOLDER_NAME);
@@ -227,6 +215,34 @@ public abstract class CommonUtilsTask extends Task {
 		return (String[]) list.toArray(new String[list.size()]);
 	}
 
+	/**
+	 * Set the maximum number of threads the task can use.
+	 * 
+	 * <p>The value is either a positive number or <code>"auto"</code> to use one thread per
+	 * available processor. If the value cannot be parsed, a build exception is thrown.</p>
+	 * <p>Default is <code>1</code>.</p>
+	 * 
+	 * @param value the given number of threads
+	 * @throws BuildException if the given value is not a positive number or "auto"
+	 */
+	public void setThreads(String value) {
+		if (THREADS_AUTO.equals(value)) {
+			this.threads = ParallelExecutor.getDefaultThreadCount();
+			return;
+		}
+		int number = -1;
+		try {
+			number = Integer.parseInt(value);
+		}
+		catch(NumberFormatException nfe) {
+			// handled below
+		}
+		if (number < 1) {
+			throw new BuildException(NLS.bind(Messages.invalidThreadCount, value));
+		}
+		this.threads = number;
+	}
+
 	public static String convertToHtml(String s) {
 		char[] contents = s.toCharArray();
 		StringBuffer buffer = new StringBuffer();
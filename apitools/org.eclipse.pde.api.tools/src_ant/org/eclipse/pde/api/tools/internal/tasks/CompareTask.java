@@ -152,7 +152,7 @@ public class CompareTask extends CommonUtilsTask {
 			scope.addElement(currentBaseline);
 		}
 		try {
-			delta = ApiComparator.compare(scope, referenceBaseline, this.visibilityModifiers, false, null);
+			delta = ApiComparator.compare(scope, referenceBaseline, this.visibilityModifiers, false, this.threads, null);
 		} catch(CoreException e) {
 			// an error occurred during the comparison
 			throw new BuildException(NLS.bind(Messages.illegalElementInScope, e.getMessage()));
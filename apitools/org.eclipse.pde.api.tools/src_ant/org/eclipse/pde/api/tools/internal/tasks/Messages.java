@@ -74,6 +74,7 @@ public class Messages extends NLS {
 	public static String errorCreatingReportDirectory;
 	public static String directoryIsEmpty;
 	public static String fileDoesnotExist;
+	public static String invalidThreadCount;
 	public static String couldNotDelete;
 	public static String couldNotCreate;
 	public static String couldNotUnzip;
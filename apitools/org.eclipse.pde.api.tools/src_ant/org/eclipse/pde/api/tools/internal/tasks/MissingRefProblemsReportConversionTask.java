@@ -82,6 +82,7 @@ public final class MissingRefProblemsReportConversionTask extends CommonUtilsTas
 			Util.delete(new File(this.htmlReportsLocation));
 			MissingRefReportConverter converter = new MissingRefReportConverter(this.htmlReportsLocation, this.xmlReportsLocation);
 			UseReportConverter.setDebug(this.debug);
+			converter.setThreads(this.threads);
 			converter.convert(null, new NullProgressMonitor());
 			File index = converter.getReportIndex();
 			System.out.println(NLS.bind(Messages.ApiUseReportConversionTask_conversion_complete, index.getAbsolutePath()));
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -292,7 +292,7 @@ public class PluginRegistry {
 	 * @since 3.6
 	 */
 	public static IPluginModelBase[] findModels(String id, String version, int match, PluginFilter filter) {
-		IPluginModelBase[] models = PluginRegistry.getAllModels();
+		IPluginModelBase[] models = PDECore.getDefault().getModelManager().findModels(id);
 		List results = new ArrayList();
 		for (int i = 0; i < models.length; i++) {
 			IPluginModelBase model = models[i];
@@ -379,7 +379,7 @@ public class PluginRegistry {
 	 * @since 3.6
 	 */
 	public static IPluginModelBase[] findModels(String id, VersionRange range, PluginFilter filter) {
-		IPluginModelBase[] models = PluginRegistry.getAllModels();
+		IPluginModelBase[] models = PDECore.getDefault().getModelManager().findModels(id);
 		List results = new ArrayList();
 		for (int i = 0; i < models.length; i++) {
 			IPluginModelBase model = models[i];
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.internal.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Dictionary;
+
+/**
+ * Reads the manifests of a list of bundles ahead of the thread that adds them to a state.
+ * <p>
+ * Manifests are read and parsed by a bounded number of worker threads in list order, while the
+ * calling thread consumes them in the same order through {@link #getManifest(int)}, so the bundles
+ * end up in the state with the same ids as when they are read one at a time.
+ * </p>
+ */
+class ManifestPreloader {
+
+	/**
+	 * Marks a bundle whose manifest has been read but does not exist
+	 */
+	private static final Object NO_MANIFEST = new Object();
+
+	private final File[] fBundles;
+	private final Object[] fResults;
+	private int fNext = 0;
+	private boolean fCanceled = false;
+
+	/**
+	 * Creates a preloader for the given bundles and starts reading their manifests
+	 *
+	 * @param bundles locations of the bundles, <code>null</code> entries are skipped
+	 * @param threads maximum number of worker threads
+	 */
+	ManifestPreloader(File[] bundles, int threads) {
+		fBundles = bundles;
+		fResults = new Object[bundles.length];
+		int workers = Math.min(threads, bundles.length);
+		for (int i = 0; i < workers; i++) {
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					int index = nextIndex();
+					while (index != -1) {
+						Object result;
+						try {
+							Dictionary manifest = MinimalState.loadManifest(fBundles[index]);
+							result = manifest == null ? NO_MANIFEST : manifest;
+						} catch (Throwable e) {
+							// rethrown by getManifest(int), the worker goes on with the next bundles
+							result = e;
+						}
+						setResult(index, result);
+						index = nextIndex();
+					}
+				}
+			}, "PDE manifest reader " + (i + 1)); //$NON-NLS-1$
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Returns the default number of worker threads
+	 *
+	 * @return the number of available processors
+	 */
+	static int getDefaultThreadCount() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	private synchronized int nextIndex() {
+		while (!fCanceled && fNext < fBundles.length) {
+			int index = fNext++;
+			if (fBundles[index] != null)
+				return index;
+		}
+		return -1;
+	}
+
+	private synchronized void setResult(int index, Object result) {
+		fResults[index] = result;
+		notifyAll();
+	}
+
+	/**
+	 * Returns the manifest of the bundle at the given index, waiting for it to be read if needed
+	 *
+	 * @param index index of the bundle
+	 * @return the manifest or <code>null</code> if the bundle has none
+	 * @throws IOException if the manifest cannot be read
+	 * @throws RuntimeException or {@link Error} thrown while reading the manifest
+	 */
+	synchronized Dictionary getManifest(int index) throws IOException {
+		if (fBundles[index] == null)
+			return null;
+		while (fResults[index] == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted while reading manifest of " + fBundles[index].getAbsolutePath()); //$NON-NLS-1$
+			}
+		}
+		Object result = fResults[index];
+		// release the manifest once consumed
+		fResults[index] = NO_MANIFEST;
+		if (result instanceof IOException)
+			throw (IOException) result;
+		if (result instanceof RuntimeException)
+			throw (RuntimeException) result;
+		if (result instanceof Error)
+			throw (Error) result;
+		return result == NO_MANIFEST ? null : (Dictionary) result;
+	}
+
+	/**
+	 * Stops reading manifests not started yet
+	 */
+	synchronized void cancel() {
+		fCanceled = true;
+	}
+}
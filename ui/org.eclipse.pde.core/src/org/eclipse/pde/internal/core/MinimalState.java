@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -118,7 +118,19 @@ public class MinimalState {
 	}
 
 	public BundleDescription addBundle(File bundleLocation, long bundleId) throws PluginConversionException, CoreException, IOException {
-		Dictionary manifest = loadManifest(bundleLocation);
+		return addLoadedBundle(bundleLocation, loadManifest(bundleLocation), bundleId);
+	}
+
+	/**
+	 * Adds the bundle at the given location to the state, given the manifest already read from it
+	 * with {@link #loadManifest(File)}. Plug-ins without a bundle manifest are converted.
+	 * 
+	 * @param bundleLocation location of the bundle
+	 * @param manifest manifest read from the location or <code>null</code> if none
+	 * @param bundleId id of the bundle to update or <code>-1</code> to add a new bundle
+	 * @return the new bundle description or <code>null</code>
+	 */
+	protected BundleDescription addLoadedBundle(File bundleLocation, Dictionary manifest, long bundleId) throws PluginConversionException, CoreException {
 		// update for development mode
 		TargetWeaver.weaveManifest(manifest);
 		boolean hasBundleStructure = manifest != null && manifest.get(Constants.BUNDLE_SYMBOLICNAME) != null;
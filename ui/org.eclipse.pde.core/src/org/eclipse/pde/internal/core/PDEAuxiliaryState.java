@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -361,6 +361,18 @@ public class PDEAuxiliaryState {
 		fPluginInfos.put(Long.toString(desc.getBundleId()), info);
 	}
 
+	/**
+	 * Copies the auxiliary information of the given bundle from another state.
+	 * @param state state to copy the information from
+	 * @param bundleID id of the bundle in both states
+	 */
+	protected void copyAuxiliaryData(PDEAuxiliaryState state, long bundleID) {
+		String key = Long.toString(bundleID);
+		Object info = state.fPluginInfos.get(key);
+		if (info != null)
+			fPluginInfos.put(key, info);
+	}
+
 	/**
 	 * Retrieves the classpath entries from the manifest dictionary
 	 * @param manifest dictionary containing manifest headers
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,7 @@
  *******************************************************************************/
 package org.eclipse.pde.internal.core;
 
-import java.io.File;
+import java.io.*;
 import java.util.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.spi.RegistryContributor;
@@ -31,7 +31,34 @@ public class PDEExtensionRegistry {
 	private IPluginModelBase[] fModels = null;
 	private ArrayList fListeners = new ArrayList();
 
+	// Index of the models found for extension point ids and registry contributors, so that repeated queries
+	// do not walk the extensions of a point and look up the model of every contributor again.
+	// Entries are dropped as the registry and the plug-in models change.
+	private Object fIndexLock = new Object();
+	private HashMap fExtensionPlugins = new HashMap(); // extension point id -> IPluginModelBase[] of all contributing models
+	private HashMap fContributorModels = new HashMap(); // contributor bundle id -> IPluginModelBase or null, searching all models
+	private HashMap fContributorWorkspaceModels = new HashMap(); // contributor bundle id -> IPluginModelBase or null, not searching hidden target models
+	private int fIndexVersion = 0; // incremented every time entries are dropped from the index
+	// Index entries saved by the previous session, extension point id -> String[] of contributor bundle ids and names.
+	// Read on first use if the contributions did not change since they were saved, emptied on the first change.
+	private HashMap fSavedExtensionPlugins = null; // null until read
+
+	private IRegistryChangeListener fIndexListener = new IRegistryChangeListener() {
+		public void registryChanged(IRegistryChangeEvent event) {
+			IExtensionDelta[] deltas = event.getExtensionDeltas();
+			HashSet pointIds = new HashSet();
+			for (int i = 0; i < deltas.length; i++)
+				pointIds.add(deltas[i].getExtensionPoint().getUniqueIdentifier());
+			synchronized (fIndexLock) {
+				fExtensionPlugins.keySet().removeAll(pointIds);
+				fIndexVersion++;
+			}
+		}
+	};
+
 	private static final String EXTENSION_DIR = ".extensions"; //$NON-NLS-1$
+	private static final String EXTENSION_INDEX = ".extensionIndex"; //$NON-NLS-1$
+	private static final int EXTENSION_INDEX_VERSION = 1;
 
 	public PDEExtensionRegistry() {
 		if (fStrategy == null) {
@@ -67,14 +94,17 @@ public class PDEExtensionRegistry {
 	}
 
 	public void stop() {
-		if (fRegistry != null)
+		if (fRegistry != null) {
 			fRegistry.stop(fMasterKey);
+			saveIndex();
+		}
 		dispose();
 	}
 
 	protected synchronized IExtensionRegistry getRegistry() {
 		if (fRegistry == null) {
 			fRegistry = createRegistry();
+			fRegistry.addRegistryChangeListener(fIndexListener);
 			for (ListIterator li = fListeners.listIterator(); li.hasNext();)
 				fRegistry.addRegistryChangeListener((IRegistryChangeListener) li.next());
 		}
@@ -92,12 +122,216 @@ public class PDEExtensionRegistry {
 			fRegistry.stop(fMasterKey);
 		CoreUtility.deleteContent(new File(PDECore.getDefault().getStateLocation().toFile(), EXTENSION_DIR));
 		fRegistry = null;
+		clearIndex();
 	}
 
 	// dispose of registry without writing contents.
 	public void dispose() {
 		fStrategy.dispose();
 		fRegistry = null;
+		clearIndex();
+	}
+
+	/**
+	 * Drops the index entries that refer to the plug-ins of the given changed entries, along with
+	 * contributors that had no model and the extension points the added and changed models now
+	 * contribute extensions to.  Called by the registry strategy on the thread that updated the
+	 * registry for the changes, right after the update.
+	 * 
+	 * @param registry the updated registry
+	 * @param delta the changes made to the plug-in models
+	 */
+	void modelsChanged(IExtensionRegistry registry, PluginModelDelta delta) {
+		HashSet ids = new HashSet();
+		addIds(delta.getAddedEntries(), ids);
+		addIds(delta.getRemovedEntries(), ids);
+		addIds(delta.getChangedEntries(), ids);
+		HashSet pointIds = new HashSet();
+		addPointIds(registry, delta.getAddedEntries(), pointIds);
+		addPointIds(registry, delta.getChangedEntries(), pointIds);
+		dropIndexEntries(ids, pointIds);
+	}
+
+	/**
+	 * Drops the index entries that refer to the given models, along with contributors that had no model
+	 * and the extension points the models now contribute extensions to.  Called by the registry strategy
+	 * on the thread that updated the registry for the changes, right after the update.
+	 * 
+	 * @param registry the updated registry
+	 * @param models the removed, changed and added models
+	 */
+	void extensionsChanged(IExtensionRegistry registry, IPluginModelBase[] models) {
+		HashSet ids = new HashSet();
+		HashSet pointIds = new HashSet();
+		for (int i = 0; i < models.length; i++) {
+			ids.add(models[i].getPluginBase().getId());
+			addPointIds(registry, models[i], pointIds);
+		}
+		dropIndexEntries(ids, pointIds);
+	}
+
+	private void addPointIds(IExtensionRegistry registry, ModelEntry[] entries, Set pointIds) {
+		for (int i = 0; i < entries.length; i++) {
+			IPluginModelBase[] models = entries[i].getWorkspaceModels();
+			for (int j = 0; j < models.length; j++)
+				addPointIds(registry, models[j], pointIds);
+			models = entries[i].getExternalModels();
+			for (int j = 0; j < models.length; j++)
+				addPointIds(registry, models[j], pointIds);
+		}
+	}
+
+	private void addPointIds(IExtensionRegistry registry, IPluginModelBase model, Set pointIds) {
+		IContributor contributor = fStrategy.createContributor(model);
+		if (registry == null || contributor == null)
+			return;
+		IExtension[] extensions = registry.getExtensions(contributor);
+		for (int i = 0; i < extensions.length; i++)
+			pointIds.add(extensions[i].getExtensionPointUniqueIdentifier());
+	}
+
+	private void dropIndexEntries(Set ids, Set pointIds) {
+		synchronized (fIndexLock) {
+			fExtensionPlugins.keySet().removeAll(pointIds);
+			for (Iterator iter = fExtensionPlugins.values().iterator(); iter.hasNext();) {
+				IPluginModelBase[] models = (IPluginModelBase[]) iter.next();
+				for (int i = 0; i < models.length; i++) {
+					if (ids.contains(models[i].getPluginBase().getId())) {
+						iter.remove();
+						break;
+					}
+				}
+			}
+			removeModels(fContributorModels, ids);
+			removeModels(fContributorWorkspaceModels, ids);
+			fSavedExtensionPlugins = new HashMap();
+			fIndexVersion++;
+		}
+	}
+
+	private static void addIds(ModelEntry[] entries, Set ids) {
+		for (int i = 0; i < entries.length; i++)
+			ids.add(entries[i].getId());
+	}
+
+	private static void removeModels(Map contributorModels, Set ids) {
+		for (Iterator iter = contributorModels.values().iterator(); iter.hasNext();) {
+			IPluginModelBase model = (IPluginModelBase) iter.next();
+			// a contributor without model may have one once the workspace changes
+			if (model == null || ids.contains(model.getPluginBase().getId()))
+				iter.remove();
+		}
+	}
+
+	private void clearIndex() {
+		synchronized (fIndexLock) {
+			fExtensionPlugins.clear();
+			fContributorModels.clear();
+			fContributorWorkspaceModels.clear();
+			fSavedExtensionPlugins = new HashMap();
+			fIndexVersion++;
+		}
+	}
+
+	/**
+	 * Returns the index file of the registry contents cached in the state location
+	 * 
+	 * @return the index file
+	 */
+	private File getIndexFile() {
+		return new File(new File(PDECore.getDefault().getStateLocation().toFile(), EXTENSION_DIR), EXTENSION_INDEX);
+	}
+
+	/**
+	 * Saves the extension point entries of the index, along with the stamp of the contributions they
+	 * were computed from.  Only the registry of the workspace and target plug-ins is saved.
+	 */
+	private void saveIndex() {
+		if (fModels != null)
+			return;
+		HashMap entries = new HashMap();
+		synchronized (fIndexLock) {
+			if (fSavedExtensionPlugins != null)
+				entries.putAll(fSavedExtensionPlugins);
+			for (Iterator iter = fExtensionPlugins.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				IPluginModelBase[] models = (IPluginModelBase[]) entry.getValue();
+				String[] contributors = new String[models.length * 2];
+				for (int i = 0; i < models.length; i++) {
+					IContributor contributor = fStrategy.createContributor(models[i]);
+					if (!(contributor instanceof RegistryContributor)) {
+						contributors = null;
+						break;
+					}
+					contributors[i * 2] = ((RegistryContributor) contributor).getActualId();
+					contributors[i * 2 + 1] = ((RegistryContributor) contributor).getActualName();
+				}
+				if (contributors != null)
+					entries.put(entry.getKey(), contributors);
+			}
+		}
+		File file = getIndexFile();
+		file.getParentFile().mkdirs();
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(EXTENSION_INDEX_VERSION);
+			out.writeLong(fStrategy.getContributionsTimestamp());
+			out.writeInt(entries.size());
+			for (Iterator iter = entries.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				String[] contributors = (String[]) entry.getValue();
+				out.writeUTF((String) entry.getKey());
+				out.writeInt(contributors.length);
+				for (int i = 0; i < contributors.length; i++)
+					out.writeUTF(contributors[i]);
+			}
+		} catch (IOException e) {
+			PDECore.log(e);
+			file.delete();
+		} finally {
+			try {
+				if (out != null)
+					out.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Reads the extension point entries saved by the previous session
+	 * 
+	 * @return map of extension point id to contributor bundle ids and names, empty if the index was not
+	 * saved or the contributions changed since it was saved
+	 */
+	private HashMap readIndex() {
+		HashMap entries = new HashMap();
+		File file = getIndexFile();
+		if (fModels != null || !file.isFile())
+			return entries;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != EXTENSION_INDEX_VERSION || in.readLong() != fStrategy.getContributionsTimestamp())
+				return entries;
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String pointId = in.readUTF();
+				String[] contributors = new String[in.readInt()];
+				for (int j = 0; j < contributors.length; j++)
+					contributors[j] = in.readUTF();
+				entries.put(pointId, contributors);
+			}
+		} catch (IOException e) {
+			entries.clear();
+		} finally {
+			try {
+				if (in != null)
+					in.close();
+			} catch (IOException e) {
+			}
+		}
+		return entries;
 	}
 
 	// Methods to access data in Extension Registry
@@ -108,16 +342,67 @@ public class PDEExtensionRegistry {
 			// if extension point for extension does not exist, search all plug-ins manually
 			return activeOnly ? PluginRegistry.getActiveModels() : PluginRegistry.getAllModels();
 		}
-		IExtension[] exts = point.getExtensions();
-		HashSet plugins = new HashSet();
-		for (int i = 0; i < exts.length; i++) {
-			IPluginModelBase base = getPlugin(exts[i].getContributor(), false);
-			if (base != null && !plugins.contains(base) && (!activeOnly || base.isEnabled()))
-				plugins.add(base);
+		IPluginModelBase[] models = getExtensionPlugins(point);
+		if (!activeOnly)
+			return (IPluginModelBase[]) models.clone();
+		ArrayList plugins = new ArrayList(models.length);
+		for (int i = 0; i < models.length; i++) {
+			if (models[i].isEnabled())
+				plugins.add(models[i]);
 		}
 		return (IPluginModelBase[]) plugins.toArray(new IPluginModelBase[plugins.size()]);
 	}
 
+	/**
+	 * Returns the models contributing extensions to the given extension point, enabled or not,
+	 * from the index if possible.  The returned array is shared and must not be modified.
+	 * 
+	 * @param point extension point
+	 * @return the contributing models, without duplicates
+	 */
+	private IPluginModelBase[] getExtensionPlugins(IExtensionPoint point) {
+		String pointId = point.getUniqueIdentifier();
+		int version;
+		boolean read;
+		synchronized (fIndexLock) {
+			IPluginModelBase[] models = (IPluginModelBase[]) fExtensionPlugins.get(pointId);
+			if (models != null)
+				return models;
+			version = fIndexVersion;
+			read = fSavedExtensionPlugins != null;
+		}
+		HashMap index = read ? null : readIndex();
+		String[] saved = null;
+		synchronized (fIndexLock) {
+			if (fSavedExtensionPlugins == null && version == fIndexVersion)
+				fSavedExtensionPlugins = index;
+			if (fSavedExtensionPlugins != null && version == fIndexVersion)
+				saved = (String[]) fSavedExtensionPlugins.get(pointId);
+		}
+		HashSet plugins = new HashSet();
+		if (saved != null) {
+			for (int i = 0; i < saved.length; i += 2) {
+				IPluginModelBase base = getPlugin(new RegistryContributor(saved[i], saved[i + 1], null, null), false);
+				if (base != null)
+					plugins.add(base);
+			}
+		} else {
+			IExtension[] exts = point.getExtensions();
+			for (int i = 0; i < exts.length; i++) {
+				IPluginModelBase base = getPlugin(exts[i].getContributor(), false);
+				if (base != null)
+					plugins.add(base);
+			}
+		}
+		IPluginModelBase[] models = (IPluginModelBase[]) plugins.toArray(new IPluginModelBase[plugins.size()]);
+		synchronized (fIndexLock) {
+			// do not index what may have changed while it was computed
+			if (version == fIndexVersion)
+				fExtensionPlugins.put(pointId, models);
+		}
+		return models;
+	}
+
 	/*
 	 * Returns IPluginModelBase even if the model is not enabled
 	 */
@@ -233,6 +518,23 @@ public class PDEExtensionRegistry {
 		if (!(icontributor instanceof RegistryContributor))
 			return null;
 		RegistryContributor contributor = (RegistryContributor) icontributor;
+		String key = contributor.getActualId();
+		Map index = searchAll ? fContributorModels : fContributorWorkspaceModels;
+		int version;
+		synchronized (fIndexLock) {
+			if (index.containsKey(key))
+				return (IPluginModelBase) index.get(key);
+			version = fIndexVersion;
+		}
+		IPluginModelBase model = findPlugin(contributor, searchAll);
+		synchronized (fIndexLock) {
+			if (version == fIndexVersion)
+				index.put(key, model);
+		}
+		return model;
+	}
+
+	private IPluginModelBase findPlugin(RegistryContributor contributor, boolean searchAll) {
 		long bundleId = Long.parseLong(contributor.getActualId());
 		BundleDescription desc = PDECore.getDefault().getModelManager().getState().getState().getBundle(Long.parseLong(contributor.getActualId()));
 		if (desc != null)
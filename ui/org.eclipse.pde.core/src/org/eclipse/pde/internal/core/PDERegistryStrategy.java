@@ -11,6 +11,8 @@
 package org.eclipse.pde.internal.core;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import javax.xml.parsers.SAXParserFactory;
@@ -88,6 +90,7 @@ public class PDERegistryStrategy extends RegistryStrategy {
 			}
 			for (int i = 0; i < entries.length; i++)
 				addBundles(fRegistry, entries[i].getActiveModels());
+			fPDERegistry.modelsChanged(fRegistry, delta);
 		}
 
 	}
@@ -102,6 +105,10 @@ public class PDERegistryStrategy extends RegistryStrategy {
 			removeModels(event.getChangedModels(), false);
 			addBundles(fRegistry, event.getChangedModels());
 			addBundles(fRegistry, event.getAddedModels());
+			ArrayList models = new ArrayList();
+			models.addAll(Arrays.asList(bases));
+			models.addAll(Arrays.asList(event.getChangedModels()));
+			models.addAll(Arrays.asList(event.getAddedModels()));
 			// if we remove the last workspace model for a Bundle-SymbolicName, then refresh the external models by removing then adding them
 			for (int i = 0; i < bases.length; i++) {
 				ModelEntry entry = PluginRegistry.findEntry(bases[i].getPluginBase().getId());
@@ -109,8 +116,10 @@ public class PDERegistryStrategy extends RegistryStrategy {
 					IPluginModelBase[] externalModels = entry.getExternalModels();
 					removeModels(externalModels, false);
 					addBundles(fRegistry, externalModels);
+					models.addAll(Arrays.asList(externalModels));
 				}
 			}
+			fPDERegistry.extensionsChanged(fRegistry, (IPluginModelBase[]) models.toArray(new IPluginModelBase[models.size()]));
 		}
 
 	}
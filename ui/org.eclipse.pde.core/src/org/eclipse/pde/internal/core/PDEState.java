@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,6 +31,11 @@ import org.eclipse.pde.internal.core.util.CoreUtility;
 
 public class PDEState extends MinimalState {
 
+	/**
+	 * Name of the file recording the stamp of each bundle of a persisted target state
+	 */
+	private static final String BUNDLE_STAMPS = ".bundleStamps"; //$NON-NLS-1$
+
 	private PDEAuxiliaryState fAuxiliaryState;
 
 	private ArrayList fTargetModels = new ArrayList();
@@ -39,6 +44,11 @@ public class PDEState extends MinimalState {
 	private long fTargetTimestamp;
 	private boolean fNewState;
 
+	/**
+	 * Map of bundle location to the stamp the bundle had when its description was read
+	 */
+	private Map fBundleStamps = new HashMap();
+
 	/**
 	 * Creates a deep copy of the PDEState and its external models.  None of the workspace models are included in the copy.
 	 * @param state
@@ -47,6 +57,7 @@ public class PDEState extends MinimalState {
 		super(state);
 		fCombined = false;
 		fTargetTimestamp = state.fTargetTimestamp;
+		fBundleStamps.putAll(state.fBundleStamps);
 		// make sure to copy auxiliary state before trying to copy models, otherwise you will get NPEs.  Need auxiliary data to accurate create new models.
 		copyAuxiliaryState();
 		copyModels(state);
@@ -122,10 +133,13 @@ public class PDEState extends MinimalState {
 		}
 		File dir = new File(DIR, Long.toString(fTargetTimestamp) + ".target"); //$NON-NLS-1$
 		if ((fState = readStateCache(dir)) == null || !fAuxiliaryState.readPluginInfoCache(dir)) {
-			if (DEBUG) {
-				System.out.println("Creating new state, persisted state did not exist"); //$NON-NLS-1$
+			fAuxiliaryState.clear();
+			if (!updatePreviousTargetState(urls, monitor)) {
+				if (DEBUG) {
+					System.out.println("Creating new state, persisted state did not exist"); //$NON-NLS-1$
+				}
+				createNewTargetState(true, urls, monitor);
 			}
-			createNewTargetState(true, urls, monitor);
 			resolveState(false);
 		} else {
 			if (DEBUG) {
@@ -143,30 +157,243 @@ public class PDEState extends MinimalState {
 			if (propertiesChanged)
 				fState.resolve(false);
 			fId = fState.getHighestBundleId();
+			Map stamps = readBundleStamps(dir);
+			if (stamps != null)
+				fBundleStamps.putAll(stamps);
 		}
 	}
 
 	private void createNewTargetState(boolean resolve, URL[] urls, IProgressMonitor monitor) {
 		fState = stateObjectFactory.createState(resolve);
-		monitor.beginTask("", urls.length); //$NON-NLS-1$
+		File[] files = new File[urls.length];
+		for (int i = 0; i < urls.length; i++) {
+			files[i] = new File(urls[i].getFile());
+		}
+		if (addBundles(files, monitor))
+			fNewState = true;
+	}
+
+	/**
+	 * Adds the bundles at the given locations to the state, in order. Their manifests are
+	 * read ahead on worker threads. <code>null</code> locations are skipped.
+	 * 
+	 * @param files bundle locations
+	 * @param monitor progress monitor, one tick is reported per location
+	 * @return <code>true</code> if all bundles were added, <code>false</code> if canceled
+	 */
+	private boolean addBundles(File[] files, IProgressMonitor monitor) {
+		monitor.beginTask("", files.length); //$NON-NLS-1$
+		// stamp the bundles before their manifests are read, a bundle changing meanwhile is read again next time
+		long[] stamps = new long[files.length];
+		for (int i = 0; i < files.length; i++) {
+			if (files[i] != null)
+				stamps[i] = computeBundleStamp(files[i]);
+		}
+		ManifestPreloader preloader = new ManifestPreloader(files, ManifestPreloader.getDefaultThreadCount());
+		try {
+			for (int i = 0; i < files.length; i++) {
+				File file = files[i];
+				if (file == null) {
+					monitor.worked(1);
+					continue;
+				}
+				try {
+					if (monitor.isCanceled())
+						// if canceled, stop loading bundles
+						return false;
+					monitor.subTask(file.getName());
+					BundleDescription desc = addLoadedBundle(file, preloader.getManifest(i), -1);
+					if (desc != null && desc.getLocation() != null)
+						fBundleStamps.put(desc.getLocation(), new Long(stamps[i]));
+				} catch (PluginConversionException e) {
+				} catch (CoreException e) {
+				} catch (IOException e) {
+					PDECore.log(new Status(IStatus.ERROR, PDECore.PLUGIN_ID, IStatus.ERROR, "Invalid manifest format at " + file.getAbsolutePath(), //$NON-NLS-1$
+							null));
+				} finally {
+					monitor.worked(1);
+				}
+			}
+		} finally {
+			preloader.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the target state from the most recently persisted one, reusing the descriptions of the
+	 * bundles whose location and stamp did not change and reading the manifests of the others.
+	 * 
+	 * @param urls locations of the target bundles
+	 * @param monitor progress monitor
+	 * @return <code>true</code> if the state was built, <code>false</code> if there is no usable persisted state
+	 * or if canceled
+	 */
+	private boolean updatePreviousTargetState(URL[] urls, IProgressMonitor monitor) {
+		if ("true".equals(System.getProperty("pde.nocache"))) //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		File dir = findPreviousTargetDirectory();
+		if (dir == null)
+			return false;
+		Map stamps = readBundleStamps(dir);
+		State previous = stamps == null ? null : readStateCache(dir);
+		PDEAuxiliaryState auxiliaryState = new PDEAuxiliaryState();
+		if (previous == null || !auxiliaryState.readPluginInfoCache(dir))
+			return false;
+		if (DEBUG) {
+			System.out.println("Updating state persisted in: " + dir.getAbsolutePath()); //$NON-NLS-1$
+		}
+		BundleDescription[] bundles = previous.getBundles();
+		Map locations = new HashMap((4 / 3) * bundles.length + 1);
+		for (int i = 0; i < bundles.length; i++) {
+			if (bundles[i].getLocation() != null)
+				locations.put(bundles[i].getLocation(), bundles[i]);
+		}
+		if (previous.getPlatformProperties() != null && previous.getPlatformProperties().length > 0) {
+			String systemBundle = (String) previous.getPlatformProperties()[0].get(ICoreConstants.OSGI_SYSTEM_BUNDLE);
+			if (systemBundle != null)
+				fSystemBundle = systemBundle;
+		}
+
+		fState = stateObjectFactory.createState(true);
+		// new bundles are given ids above the reused ones
+		fId = previous.getHighestBundleId();
+		int reused = 0;
+		File[] changed = new File[urls.length];
 		for (int i = 0; i < urls.length; i++) {
 			File file = new File(urls[i].getFile());
+			String location = file.getAbsolutePath();
+			BundleDescription desc = (BundleDescription) locations.get(location);
+			Long stamp = (Long) stamps.get(location);
+			if (desc != null && stamp != null && stamp.longValue() == computeBundleStamp(file)) {
+				locations.remove(location);
+				if (fState.addBundle(stateObjectFactory.createBundleDescription(desc))) {
+					fAuxiliaryState.copyAuxiliaryData(auxiliaryState, desc.getBundleId());
+					fBundleStamps.put(location, stamp);
+					reused++;
+				}
+			} else {
+				changed[i] = file;
+			}
+		}
+		if (!addBundles(changed, monitor)) {
+			// do not leave a partial state to be persisted as the updated one
+			fAuxiliaryState.clear();
+			fBundleStamps.clear();
+			return false;
+		}
+		if (DEBUG) {
+			System.out.println("Reused " + reused + " of " + urls.length + " bundle descriptions"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		// bundle ids are not the ones of a persisted workspace state
+		fNewState = true;
+		return true;
+	}
+
+	/**
+	 * Returns the most recently persisted target state directory
+	 * 
+	 * @return the directory or <code>null</code> if none
+	 */
+	private File findPreviousTargetDirectory() {
+		File[] children = new File(DIR).listFiles();
+		File latest = null;
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				File child = children[i];
+				if (child.isDirectory() && child.getName().endsWith(".target") && new File(child, BUNDLE_STAMPS).isFile()) { //$NON-NLS-1$
+					if (latest == null || child.lastModified() > latest.lastModified())
+						latest = child;
+				}
+			}
+		}
+		return latest;
+	}
+
+	/**
+	 * Returns a stamp of the given bundle that changes when its manifest may have changed,
+	 * based on the size and modification time of the jar or of the manifest files of the directory
+	 * 
+	 * @param file bundle location
+	 * @return the stamp
+	 */
+	private static long computeBundleStamp(File file) {
+		if (file.isFile())
+			return 31 * file.lastModified() + file.length();
+		long stamp = 17;
+		String[] names = new String[] {ICoreConstants.BUNDLE_FILENAME_DESCRIPTOR, ICoreConstants.PLUGIN_FILENAME_DESCRIPTOR, ICoreConstants.FRAGMENT_FILENAME_DESCRIPTOR};
+		for (int i = 0; i < names.length; i++) {
+			File manifest = new File(file, names[i]);
+			stamp = 31 * stamp + manifest.lastModified();
+			stamp = 31 * stamp + manifest.length();
+		}
+		return stamp;
+	}
+
+	/**
+	 * Reads the stamps of the bundles of the target state persisted in the given directory
+	 * 
+	 * @param dir state directory
+	 * @return map of bundle location to stamp or <code>null</code> if they cannot be read
+	 */
+	private Map readBundleStamps(File dir) {
+		File file = new File(dir, BUNDLE_STAMPS);
+		if (!file.isFile())
+			return null;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			int count = in.readInt();
+			Map stamps = new HashMap((4 / 3) * count + 1);
+			for (int i = 0; i < count; i++) {
+				String location = in.readUTF();
+				stamps.put(location, new Long(in.readLong()));
+			}
+			return stamps;
+		} catch (IOException e) {
+			PDECore.log(e);
+		} finally {
 			try {
-				if (monitor.isCanceled())
-					// if canceled, stop loading bundles
-					return;
-				monitor.subTask(file.getName());
-				addBundle(file, -1);
-			} catch (PluginConversionException e) {
-			} catch (CoreException e) {
+				if (in != null)
+					in.close();
+			} catch (IOException e) {
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Records the stamps the given bundles had when their descriptions were read in the given state
+	 * directory. Bundles read by another state have no stamp and are read again next time.
+	 * 
+	 * @param bundles bundles of the persisted state
+	 * @param dir state directory
+	 */
+	private void saveBundleStamps(BundleDescription[] bundles, File dir) {
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, BUNDLE_STAMPS))));
+			ArrayList locations = new ArrayList(bundles.length);
+			for (int i = 0; i < bundles.length; i++) {
+				String location = bundles[i].getLocation();
+				if (location != null && fBundleStamps.containsKey(location))
+					locations.add(location);
+			}
+			out.writeInt(locations.size());
+			for (int i = 0; i < locations.size(); i++) {
+				String location = (String) locations.get(i);
+				out.writeUTF(location);
+				out.writeLong(((Long) fBundleStamps.get(location)).longValue());
+			}
+		} catch (IOException e) {
+			PDECore.log(e);
+		} finally {
+			try {
+				if (out != null)
+					out.close();
 			} catch (IOException e) {
-				PDECore.log(new Status(IStatus.ERROR, PDECore.PLUGIN_ID, IStatus.ERROR, "Invalid manifest format at " + file.getAbsolutePath(), //$NON-NLS-1$
-						null));
-			} finally {
-				monitor.worked(1);
 			}
 		}
-		fNewState = true;
 	}
 
 	protected void addAuxiliaryData(BundleDescription desc, Dictionary manifest, boolean hasBundleStructure) {
@@ -383,7 +610,8 @@ public class PDEState extends MinimalState {
 
 		boolean osgiStateExists = dir.exists() && dir.isDirectory();
 		boolean auxStateExists = fAuxiliaryState.exists(dir);
-		if (!osgiStateExists || !auxStateExists) {
+		boolean stampsExist = new File(dir, BUNDLE_STAMPS).isFile();
+		if (!osgiStateExists || !auxStateExists || !stampsExist) {
 			if (!dir.exists())
 				dir.mkdirs();
 			if (DEBUG) {
@@ -397,6 +625,7 @@ public class PDEState extends MinimalState {
 			}
 			fAuxiliaryState.savePluginInfo(dir);
 			saveState(state, dir);
+			saveBundleStamps(state.getBundles(), dir);
 		} else if (DEBUG) {
 			System.out.println("External state unchanged, save skipped."); //$NON-NLS-1$
 		}
@@ -518,9 +747,13 @@ public class PDEState extends MinimalState {
 		for (int i = 0; i < newBundleURLs.length; i++) {
 			File file = new File(newBundleURLs[i].getFile());
 			try {
+				long stamp = computeBundleStamp(file);
 				BundleDescription desc = addBundle(file, -1);
-				if (desc != null)
+				if (desc != null) {
 					descriptions.add(desc);
+					if (desc.getLocation() != null)
+						fBundleStamps.put(desc.getLocation(), new Long(stamp));
+				}
 			} catch (PluginConversionException e) {
 			} catch (CoreException e) {
 			} catch (IOException e) {
@@ -535,6 +768,7 @@ public class PDEState extends MinimalState {
 			dir.mkdirs();
 		fAuxiliaryState.savePluginInfo(dir);
 		saveState(dir);
+		saveBundleStamps(fState.getBundles(), dir);
 
 		// resolve state - same steps as when populating a new State
 		resolveState(false);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -61,7 +61,7 @@ public class PluginModelManager implements IModelProviderListener {
 						fProjects.clear();
 						fContainers.clear();
 					}
-					JavaCore.setClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, projects, containers, monitor);
+					setChangedContainers(projects, containers, monitor);
 					synchronized (fProjects) {
 						more = !fProjects.isEmpty();
 					}
@@ -150,6 +150,9 @@ public class PluginModelManager implements IModelProviderListener {
 	private PDEState fState; // keeps the combined view of the target and workspace
 
 	private Map fEntries; // a master table keyed by plugin ID and the value is a ModelEntry
+	private volatile PluginModelSnapshot fSnapshot; // read-only view of the master table, null when it needs to be recomputed
+	private int fVersion; // version of the master table, incremented on every batch of model changes
+	private Object fSnapshotLock = new Object(); // guards the version and the publication of snapshots
 	private ArrayList fListeners; // a list of listeners interested in changes to the plug-in models
 	private ArrayList fStateListeners; // a list of listeners interested in changes to the PDE/resolver State
 
@@ -257,6 +260,9 @@ public class PluginModelManager implements IModelProviderListener {
 				handleChange((IPluginModelBase) changed[i], delta);
 		}
 
+		// the master table is up to date, readers (including listeners) get a new snapshot
+		invalidateSnapshot();
+
 		if (fState != null) {
 			// if the target location has not changed, incrementally re-resolve the state after processing all the add/remove/modify changes
 			// Otherwise, the state is in a good resolved state
@@ -369,13 +375,59 @@ public class PluginModelManager implements IModelProviderListener {
 			} else {
 				// else update synchronously
 				try {
-					JavaCore.setClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, projects, containers, null);
+					setChangedContainers(projects, containers, null);
 				} catch (JavaModelException e) {
 				}
 			}
 		}
 	}
 
+	/**
+	 * Sets the given required plug-ins containers on their projects, leaving out the projects
+	 * whose current container already has the same classpath entries, access rules included.
+	 * Setting an identical container would still trigger a build of the project and of every
+	 * project that depends on it.
+	 * 
+	 * @param projects projects to update
+	 * @param containers the new container of each project
+	 * @param monitor progress monitor or <code>null</code>
+	 * @throws JavaModelException if the containers cannot be set
+	 */
+	private static void setChangedContainers(IJavaProject[] projects, IClasspathContainer[] containers, IProgressMonitor monitor) throws JavaModelException {
+		ArrayList changedProjects = new ArrayList(projects.length);
+		ArrayList changedContainers = new ArrayList(containers.length);
+		for (int i = 0; i < projects.length; i++) {
+			if (!hasSameEntries(projects[i], containers[i])) {
+				changedProjects.add(projects[i]);
+				changedContainers.add(containers[i]);
+			}
+		}
+		if (changedProjects.isEmpty())
+			return;
+		IJavaProject[] changed = (IJavaProject[]) changedProjects.toArray(new IJavaProject[changedProjects.size()]);
+		JavaCore.setClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, changed, (IClasspathContainer[]) changedContainers.toArray(new IClasspathContainer[changed.length]), monitor);
+	}
+
+	/**
+	 * Returns whether the required plug-ins container currently set on the given project
+	 * has the same classpath entries, in the same order, as the given container.  Classpath
+	 * entries are equal when their paths, source attachments, access rules and attributes are.
+	 * 
+	 * @param project the project
+	 * @param container the new container of the project
+	 * @return <code>true</code> if setting the container would not change the classpath of the project
+	 */
+	private static boolean hasSameEntries(IJavaProject project, IClasspathContainer container) {
+		try {
+			IClasspathContainer current = JavaCore.getClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, project);
+			if (current == null)
+				return false;
+			return Arrays.equals(current.getClasspathEntries(), container.getClasspathEntries());
+		} catch (JavaModelException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Notify all interested listeners in changes made to the master table
 	 * 
@@ -493,6 +545,40 @@ public class PluginModelManager implements IModelProviderListener {
 		return fEntries;
 	}
 
+	/**
+	 * Returns the snapshot of the current master table, taking a new one if the
+	 * table changed since the last one was taken.
+	 * 
+	 * @return the snapshot of the master table
+	 */
+	private PluginModelSnapshot getSnapshot() {
+		PluginModelSnapshot snapshot = fSnapshot;
+		if (snapshot != null)
+			return snapshot;
+		Map entries = getEntryTable();
+		int version;
+		synchronized (fSnapshotLock) {
+			version = fVersion;
+		}
+		snapshot = new PluginModelSnapshot(entries, version);
+		synchronized (fSnapshotLock) {
+			// do not publish a snapshot of a table that changed while it was taken
+			if (fVersion == version)
+				fSnapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Discards the current snapshot of the master table after it changed
+	 */
+	private void invalidateSnapshot() {
+		synchronized (fSnapshotLock) {
+			fVersion++;
+			fSnapshot = null;
+		}
+	}
+
 	/**
 	 * This method must be synchronized so that only one thread
 	 * initializes the table, and the rest would block until
@@ -950,18 +1036,8 @@ public class PluginModelManager implements IModelProviderListener {
 	 * (possibly) fragments that are checked on the Target Platform preference page.
 	 */
 	public IPluginModelBase[] getActiveModels(boolean includeFragments) {
-		int size = getEntryTable().size();
-		ArrayList result = new ArrayList(size);
-		Iterator iter = getEntryTable().values().iterator();
-		while (iter.hasNext()) {
-			ModelEntry entry = (ModelEntry) iter.next();
-			IPluginModelBase[] models = entry.getActiveModels();
-			for (int i = 0; i < models.length; i++) {
-				if (models[i] instanceof IPluginModel || includeFragments)
-					result.add(models[i]);
-			}
-		}
-		return (IPluginModelBase[]) result.toArray(new IPluginModelBase[result.size()]);
+		// callers own the returned array
+		return (IPluginModelBase[]) getSnapshot().getActiveModels(includeFragments).clone();
 	}
 
 	/**
@@ -1001,18 +1077,22 @@ public class PluginModelManager implements IModelProviderListener {
 	 * checked on the Target Platform preference page.
 	 */
 	public IPluginModelBase[] getAllModels(boolean includeFragments) {
-		int size = getEntryTable().size();
-		ArrayList result = new ArrayList(size);
-		Iterator iter = getEntryTable().values().iterator();
-		while (iter.hasNext()) {
-			ModelEntry entry = (ModelEntry) iter.next();
-			IPluginModelBase[] models = entry.hasWorkspaceModels() ? entry.getWorkspaceModels() : entry.getExternalModels();
-			for (int i = 0; i < models.length; i++) {
-				if (models[i] instanceof IPluginModel || includeFragments)
-					result.add(models[i]);
-			}
-		}
-		return (IPluginModelBase[]) result.toArray(new IPluginModelBase[result.size()]);
+		// callers own the returned array
+		return (IPluginModelBase[]) getSnapshot().getAllModels(includeFragments).clone();
+	}
+
+	/**
+	 * Returns the plug-ins and fragments with the given ID among the models returned by
+	 * {@link #getAllModels()}, in the same order.
+	 * <p>
+	 * The returned array is shared and must not be modified.
+	 * </p>
+	 * 
+	 * @param id the plug-in ID
+	 * @return the models with the given ID, possibly empty
+	 */
+	public IPluginModelBase[] findModels(String id) {
+		return getSnapshot().getModels(id);
 	}
 
 	/**
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.internal.core;
+
+import java.util.*;
+import org.eclipse.pde.core.plugin.*;
+
+/**
+ * An immutable view of the master table of the {@link PluginModelManager}, taken after
+ * a batch of model changes has been processed.
+ * <p>
+ * The active and all model lists are computed once, with and without fragments, in
+ * the order of the master table, along with an index of all models by plug-in id.
+ * The arrays held by a snapshot are never modified and must not be handed out to clients
+ * without being copied.
+ * </p>
+ */
+class PluginModelSnapshot {
+
+	private static final IPluginModelBase[] NO_MODELS = new IPluginModelBase[0];
+
+	private final int fVersion;
+	private final IPluginModelBase[] fActiveModels;
+	private final IPluginModelBase[] fActivePlugins;
+	private final IPluginModelBase[] fAllModels;
+	private final IPluginModelBase[] fAllPlugins;
+	private final Map fModelsById;
+
+	/**
+	 * Creates a snapshot of the given master table
+	 *
+	 * @param entries map of plug-in id to {@link ModelEntry}, synchronized on itself
+	 * @param version version of the master table the snapshot is taken from
+	 */
+	PluginModelSnapshot(Map entries, int version) {
+		fVersion = version;
+		ArrayList active = new ArrayList();
+		ArrayList all = new ArrayList();
+		synchronized (entries) {
+			Iterator iter = entries.values().iterator();
+			while (iter.hasNext()) {
+				ModelEntry entry = (ModelEntry) iter.next();
+				active.addAll(Arrays.asList(entry.getActiveModels()));
+				all.addAll(Arrays.asList(entry.hasWorkspaceModels() ? entry.getWorkspaceModels() : entry.getExternalModels()));
+			}
+		}
+		fActiveModels = (IPluginModelBase[]) active.toArray(new IPluginModelBase[active.size()]);
+		fActivePlugins = getPlugins(fActiveModels);
+		fAllModels = (IPluginModelBase[]) all.toArray(new IPluginModelBase[all.size()]);
+		fAllPlugins = getPlugins(fAllModels);
+
+		HashMap byId = new HashMap();
+		for (int i = 0; i < fAllModels.length; i++) {
+			IPluginBase base = fAllModels[i].getPluginBase();
+			String id = base == null ? null : base.getId();
+			if (id == null)
+				continue; // invalid plug-ins never match an ID
+			ArrayList models = (ArrayList) byId.get(id);
+			if (models == null) {
+				models = new ArrayList(1);
+				byId.put(id, models);
+			}
+			models.add(fAllModels[i]);
+		}
+		fModelsById = new HashMap((4 / 3) * byId.size() + 1);
+		Iterator iter = byId.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			List models = (List) entry.getValue();
+			fModelsById.put(entry.getKey(), models.toArray(new IPluginModelBase[models.size()]));
+		}
+	}
+
+	/**
+	 * Returns the plug-ins among the given models, leaving out fragments
+	 *
+	 * @param models models
+	 * @return the plug-in models
+	 */
+	private static IPluginModelBase[] getPlugins(IPluginModelBase[] models) {
+		ArrayList plugins = new ArrayList(models.length);
+		for (int i = 0; i < models.length; i++) {
+			if (models[i] instanceof IPluginModel)
+				plugins.add(models[i]);
+		}
+		if (plugins.size() == models.length)
+			return models;
+		return (IPluginModelBase[]) plugins.toArray(new IPluginModelBase[plugins.size()]);
+	}
+
+	/**
+	 * Returns the version of the master table this snapshot was taken from
+	 *
+	 * @return the version
+	 */
+	int getVersion() {
+		return fVersion;
+	}
+
+	/**
+	 * Returns the shared array of active models
+	 *
+	 * @param includeFragments whether fragments are included
+	 * @return the active models, not to be modified
+	 */
+	IPluginModelBase[] getActiveModels(boolean includeFragments) {
+		return includeFragments ? fActiveModels : fActivePlugins;
+	}
+
+	/**
+	 * Returns the shared array of all models
+	 *
+	 * @param includeFragments whether fragments are included
+	 * @return all models, not to be modified
+	 */
+	IPluginModelBase[] getAllModels(boolean includeFragments) {
+		return includeFragments ? fAllModels : fAllPlugins;
+	}
+
+	/**
+	 * Returns the shared array of the models with the given id among all models
+	 *
+	 * @param id plug-in id
+	 * @return the models with the id, not to be modified
+	 */
+	IPluginModelBase[] getModels(String id) {
+		IPluginModelBase[] models = (IPluginModelBase[]) fModelsById.get(id);
+		return models == null ? NO_MODELS : models;
+	}
+}
@@ -47,6 +47,8 @@ public class AllPDETests {
 		suite.addTest(ProjectCreationTests.suite());
 		suite.addTest(BundleRootTests.suite());
 		suite.addTest(PluginRegistryTests.suite());
+		suite.addTest(ExtensionRegistryTests.suite());
+		suite.addTest(RequiredPluginsContainerTests.suite());
 		suite.addTest(ClasspathResolverTest.suite());
 		return suite;
 	}
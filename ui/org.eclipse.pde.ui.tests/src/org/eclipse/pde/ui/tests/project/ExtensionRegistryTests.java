@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.ui.tests.project;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import junit.framework.*;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.pde.core.plugin.IPluginModelBase;
+import org.eclipse.pde.core.project.IBundleProjectDescription;
+import org.eclipse.pde.internal.core.PDECore;
+import org.eclipse.pde.internal.core.PDEExtensionRegistry;
+
+/**
+ * Tests that the extension registry answers queries about the plug-ins contributing to an
+ * extension point from its index, and that the index follows workspace changes.
+ *
+ * @since 3.7
+ */
+public class ExtensionRegistryTests extends TestCase {
+
+	private static final String POINT_ID = "org.eclipse.core.runtime.applications";
+	private static final String PROJECT_NAME = "test.extension.registry";
+
+	public static Test suite() {
+		return new TestSuite(ExtensionRegistryTests.class);
+	}
+
+	protected void tearDown() throws Exception {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(PROJECT_NAME);
+		if (project.exists()) {
+			project.delete(true, null);
+			ProjectCreationTests.waitForBuild();
+		}
+		super.tearDown();
+	}
+
+	/**
+	 * Creates a singleton bundle project, contributing an application if asked
+	 *
+	 * @param contribute whether to contribute an extension to {@link #POINT_ID}
+	 * @return the project
+	 * @throws CoreException
+	 */
+	private IProject createProject(boolean contribute) throws CoreException {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(PROJECT_NAME);
+		IBundleProjectDescription description = ProjectCreationTests.getBundleProjectService().getDescription(project);
+		description.setSymbolicName(PROJECT_NAME);
+		description.setSingleton(true);
+		description.apply(null);
+		setContributes(project, contribute);
+		return project;
+	}
+
+	/**
+	 * Writes the plugin.xml of the given project
+	 *
+	 * @param project the project
+	 * @param contribute whether to contribute an extension to {@link #POINT_ID}
+	 * @throws CoreException
+	 */
+	private void setContributes(IProject project, boolean contribute) throws CoreException {
+		StringBuffer buffer = new StringBuffer("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<?eclipse version=\"3.4\"?>\n<plugin>\n");
+		if (contribute)
+			buffer.append("<extension id=\"app\" point=\"").append(POINT_ID).append("\">\n<application><run class=\"a.App\"/></application>\n</extension>\n");
+		buffer.append("</plugin>\n");
+		IFile file = project.getFile("plugin.xml");
+		ByteArrayInputStream stream = new ByteArrayInputStream(buffer.toString().getBytes());
+		if (file.exists())
+			file.setContents(stream, true, false, null);
+		else
+			file.create(stream, true, null);
+		ProjectCreationTests.waitForBuild();
+	}
+
+	private boolean contains(IPluginModelBase[] models, IProject project) {
+		for (int i = 0; i < models.length; i++) {
+			IResource resource = models[i].getUnderlyingResource();
+			if (resource != null && project.equals(resource.getProject()))
+				return true;
+		}
+		return false;
+	}
+
+	private HashSet getIds(IPluginModelBase[] models) {
+		HashSet ids = new HashSet();
+		for (int i = 0; i < models.length; i++)
+			ids.add(models[i].getPluginBase().getId() + '_' + models[i].getPluginBase().getVersion());
+		return ids;
+	}
+
+	/**
+	 * Tests that repeated queries answer the same and that callers cannot modify the index through the returned arrays
+	 */
+	public void testRepeatedQuery() {
+		PDEExtensionRegistry registry = PDECore.getDefault().getExtensionsRegistry();
+		IPluginModelBase[] models = registry.findExtensionPlugins(POINT_ID, false);
+		assertTrue("Expected contributions to " + POINT_ID, models.length > 0);
+		HashSet ids = getIds(models);
+		Arrays.fill(models, null);
+		assertEquals("Wrong contributing plug-ins", ids, getIds(registry.findExtensionPlugins(POINT_ID, false)));
+	}
+
+	/**
+	 * Tests that a plug-in added with an extension, an extension added to or removed from a plug-in and a removed
+	 * plug-in are reflected by queries answered from the index
+	 *
+	 * @throws Exception
+	 */
+	public void testWorkspaceChanges() throws Exception {
+		PDEExtensionRegistry registry = PDECore.getDefault().getExtensionsRegistry();
+		// index the point before the workspace changes
+		registry.findExtensionPlugins(POINT_ID, false);
+		IProject project = createProject(true);
+		assertTrue("The added plug-in should contribute", contains(registry.findExtensionPlugins(POINT_ID, false), project));
+
+		setContributes(project, false);
+		assertFalse("The removed extension should not contribute", contains(registry.findExtensionPlugins(POINT_ID, false), project));
+
+		setContributes(project, true);
+		assertTrue("The added extension should contribute", contains(registry.findExtensionPlugins(POINT_ID, false), project));
+
+		project.delete(true, null);
+		ProjectCreationTests.waitForBuild();
+		assertFalse("The removed plug-in should not contribute", contains(registry.findExtensionPlugins(POINT_ID, false), project));
+	}
+
+	/**
+	 * Tests that the index saved when a registry is stopped answers the same as the registry, and is no
+	 * longer used once the workspace changes
+	 *
+	 * @throws Exception
+	 */
+	public void testSavedIndex() throws Exception {
+		PDEExtensionRegistry registry = new PDEExtensionRegistry();
+		HashSet ids;
+		try {
+			ids = getIds(registry.findExtensionPlugins(POINT_ID, false));
+		} finally {
+			registry.stop();
+		}
+		File index = new File(new File(PDECore.getDefault().getStateLocation().toFile(), ".extensions"), ".extensionIndex");
+		assertTrue("The index should have been saved", index.isFile());
+
+		registry = new PDEExtensionRegistry();
+		try {
+			assertEquals("Wrong contributing plug-ins", ids, getIds(registry.findExtensionPlugins(POINT_ID, false)));
+			IProject project = createProject(true);
+			assertTrue("The added plug-in should contribute", contains(registry.findExtensionPlugins(POINT_ID, false), project));
+		} finally {
+			registry.dispose();
+		}
+	}
+}
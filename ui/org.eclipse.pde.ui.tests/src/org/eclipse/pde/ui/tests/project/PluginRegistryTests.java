@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.pde.ui.tests.project;
 
+import java.util.Arrays;
 import junit.framework.*;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -178,6 +179,109 @@ public class PluginRegistryTests extends TestCase {
 		}
 	}
 	
+	/**
+	 * Creates a plug-in project with the given symbolic name and version
+	 * 
+	 * @param id symbolic name
+	 * @param version bundle version
+	 * @return the project
+	 * @throws CoreException
+	 */
+	private IProject createPlugin(String id, String version) throws CoreException {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject("test.registry.snapshot");
+		IBundleProjectDescription description = ProjectCreationTests.getBundleProjectService().getDescription(project);
+		description.setSymbolicName(id);
+		description.setBundleVersion(new Version(version));
+		description.apply(null);
+		waitForBuild();
+		return project;
+	}
+
+	private void deleteProject(IProject project) throws CoreException {
+		if (project.exists()) {
+			project.delete(true, null);
+			waitForBuild();
+		}
+	}
+
+	private boolean contains(IPluginModelBase[] models, IProject project) {
+		for (int i = 0; i < models.length; i++) {
+			if (models[i].getUnderlyingResource() != null && project.equals(models[i].getUnderlyingResource().getProject()))
+				return true;
+		}
+		return false;
+	}
+
+	public void testWorkspaceModelRanges() throws CoreException {
+		IProject project = createPlugin("test.registry.snapshot", "1.2.0");
+		try {
+			assertEquals(1, PluginRegistry.findModels("test.registry.snapshot", null, null).length);
+			assertEquals(1, PluginRegistry.findModels("test.registry.snapshot", new VersionRange("[1.0.0,2.0.0)"), null).length);
+			assertEquals(1, PluginRegistry.findModels("test.registry.snapshot", new VersionRange("1.2.0"), null).length);
+			assertEquals(0, PluginRegistry.findModels("test.registry.snapshot", new VersionRange("[1.2.1,2.0.0)"), null).length);
+			assertEquals(0, PluginRegistry.findModels("test.registry.snapshot", new VersionRange("[1.0.0,1.2.0)"), null).length);
+			assertEquals(1, PluginRegistry.findModels("test.registry.snapshot", "1.2.0", IMatchRules.PERFECT, null).length);
+			assertEquals(0, PluginRegistry.findModels("test.registry.snapshot", "1.3.0", IMatchRules.GREATER_OR_EQUAL, null).length);
+		} finally {
+			deleteProject(project);
+		}
+	}
+
+	/**
+	 * Tests that queries answered from the snapshot of the models follow a model being added,
+	 * its id changing and its removal
+	 * 
+	 * @throws CoreException
+	 */
+	public void testModelChanges() throws CoreException {
+		assertEquals(0, PluginRegistry.findModels("test.registry.snapshot", null, null).length);
+		assertNull(PluginRegistry.findModel("test.registry.snapshot"));
+		IProject project = createPlugin("test.registry.snapshot", "1.0.0");
+		try {
+			IPluginModelBase[] models = PluginRegistry.findModels("test.registry.snapshot", null, null);
+			assertEquals(1, models.length);
+			assertEquals(project, models[0].getUnderlyingResource().getProject());
+			assertTrue(contains(PluginRegistry.getActiveModels(), project));
+			assertTrue(contains(PluginRegistry.getAllModels(), project));
+
+			IBundleProjectDescription description = ProjectCreationTests.getBundleProjectService().getDescription(project);
+			description.setSymbolicName("test.registry.snapshot.renamed");
+			description.apply(null);
+			waitForBuild();
+			assertEquals(0, PluginRegistry.findModels("test.registry.snapshot", null, null).length);
+			models = PluginRegistry.findModels("test.registry.snapshot.renamed", null, null);
+			assertEquals(1, models.length);
+			assertEquals(project, models[0].getUnderlyingResource().getProject());
+			assertTrue(contains(PluginRegistry.getActiveModels(), project));
+		} finally {
+			deleteProject(project);
+		}
+		assertEquals(0, PluginRegistry.findModels("test.registry.snapshot.renamed", null, null).length);
+		assertFalse(contains(PluginRegistry.getActiveModels(), project));
+		assertFalse(contains(PluginRegistry.getAllModels(), project));
+	}
+
+	/**
+	 * Tests that callers modifying the returned arrays do not change the models returned to others
+	 */
+	public void testReturnedArraysOwned() {
+		IPluginModelBase[] active = PluginRegistry.getActiveModels();
+		IPluginModelBase[] all = PluginRegistry.getAllModels(false);
+		IPluginModelBase[] found = PluginRegistry.findModels("org.junit", null, null);
+		assertTrue(active.length > 0);
+		assertTrue(found.length > 0);
+		Arrays.fill(active, null);
+		Arrays.fill(all, null);
+		Arrays.fill(found, null);
+		active = PluginRegistry.getActiveModels();
+		all = PluginRegistry.getAllModels(false);
+		found = PluginRegistry.findModels("org.junit", null, null);
+		assertFalse(Arrays.asList(active).contains(null));
+		assertFalse(Arrays.asList(all).contains(null));
+		assertFalse(Arrays.asList(found).contains(null));
+		assertNotNull(PluginRegistry.findModel("org.junit"));
+	}
+
    /**
      * Wait for builds to complete
      */
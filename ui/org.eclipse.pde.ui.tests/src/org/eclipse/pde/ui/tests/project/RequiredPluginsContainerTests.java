@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.ui.tests.project;
+
+import junit.framework.*;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.pde.core.project.*;
+import org.eclipse.pde.internal.core.PDECore;
+
+/**
+ * Tests that a manifest change only resets the required plug-ins containers of the projects
+ * whose classpath it changes.
+ *
+ * @since 3.7
+ */
+public class RequiredPluginsContainerTests extends TestCase {
+
+	private static final String PROJECT_A = "test.container.a";
+	private static final String PROJECT_B = "test.container.b";
+
+	public static Test suite() {
+		return new TestSuite(RequiredPluginsContainerTests.class);
+	}
+
+	protected void tearDown() throws Exception {
+		String[] names = new String[] {PROJECT_B, PROJECT_A};
+		for (int i = 0; i < names.length; i++) {
+			IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(names[i]);
+			if (project.exists())
+				project.delete(true, null);
+		}
+		ProjectCreationTests.waitForBuild();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates or updates a Java plug-in project requiring the given bundles
+	 *
+	 * @param name project name and symbolic name
+	 * @param required symbolic names of the required bundles
+	 * @return the project
+	 * @throws CoreException
+	 */
+	private IProject setRequiredBundles(String name, String[] required) throws CoreException {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+		IBundleProjectService service = ProjectCreationTests.getBundleProjectService();
+		IBundleProjectDescription description = service.getDescription(project);
+		description.setSymbolicName(name);
+		description.setBundleClasspath(new IBundleClasspathEntry[] {service.newBundleClasspathEntry(new Path("src"), null, new Path("."))});
+		IRequiredBundleDescription[] bundles = new IRequiredBundleDescription[required.length];
+		for (int i = 0; i < required.length; i++)
+			bundles[i] = service.newRequiredBundle(required[i], null, false, false);
+		description.setRequiredBundles(bundles);
+		description.apply(null);
+		ProjectCreationTests.waitForBuild();
+		return project;
+	}
+
+	private IClasspathContainer getContainer(IProject project) throws CoreException {
+		IClasspathContainer container = JavaCore.getClasspathContainer(PDECore.REQUIRED_PLUGINS_CONTAINER_PATH, JavaCore.create(project));
+		assertNotNull("Missing required plug-ins container", container);
+		return container;
+	}
+
+	/**
+	 * Tests that a requirement added to a plug-in only resets the container of that plug-in, not the one
+	 * of a plug-in requiring it without re-exports
+	 *
+	 * @throws CoreException
+	 */
+	public void testUnchangedContainerKept() throws CoreException {
+		IProject a = setRequiredBundles(PROJECT_A, new String[] {"org.eclipse.core.runtime"});
+		IProject b = setRequiredBundles(PROJECT_B, new String[] {PROJECT_A});
+		IClasspathContainer containerA = getContainer(a);
+		IClasspathContainer containerB = getContainer(b);
+		int entries = containerA.getClasspathEntries().length;
+
+		setRequiredBundles(PROJECT_A, new String[] {"org.eclipse.core.runtime", "org.eclipse.core.variables"});
+		IClasspathContainer changed = getContainer(a);
+		assertNotSame("The container of the changed plug-in should have been reset", containerA, changed);
+		assertTrue("The added requirement should be on the classpath", changed.getClasspathEntries().length > entries);
+		assertSame("The container of the unchanged plug-in should have been kept", containerB, getContainer(b));
+	}
+}
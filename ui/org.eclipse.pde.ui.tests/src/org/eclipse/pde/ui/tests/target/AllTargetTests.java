@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ public class AllTargetTests {
 		TestSuite suite = new TestSuite("Test Suite for testing targets"); //$NON-NLS-1$
 		suite.addTest(TargetEnvironmentTestCase.suite());
 		suite.addTest(TargetPlatformHelperTests.suite());
+		suite.addTest(TargetStateTests.suite());
 		suite.addTest(LocalTargetDefinitionTests.suite());
 		suite.addTest(WorkspaceTargetDefinitionTests.suite());
 		suite.addTest(TargetDefinitionPersistenceTests.suite());
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.pde.ui.tests.target;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import junit.framework.*;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.pde.internal.core.PDEState;
+import org.eclipse.pde.internal.core.util.CoreUtility;
+
+/**
+ * Tests that a target state built from a previously persisted one reuses the descriptions
+ * of the unchanged bundles only, and that bundles read in parallel get the same ids as when
+ * read one at a time.
+ *
+ * @since 3.7
+ */
+public class TargetStateTests extends TestCase {
+
+	private File fRoot;
+	private File[] fBundles;
+	private PDEState fPersisted;
+
+	public static Test suite() {
+		return new TestSuite(TargetStateTests.class);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fRoot = File.createTempFile("targetstate", ".bundles");
+		fRoot.delete();
+		fBundles = new File[] {new File(fRoot, "a"), new File(fRoot, "b"), new File(fRoot, "c")};
+		long stamp = System.currentTimeMillis() - 60000;
+		for (int i = 0; i < fBundles.length; i++)
+			writeBundle(fBundles[i], "1.0.0", stamp + i * 2000);
+		fPersisted = new PDEState(getURLs(fBundles), true, new NullProgressMonitor());
+		// persists the state, as when bundles are added to the target
+		fPersisted.addAdditionalBundles(new URL[0]);
+		assertTrue("The state should have been persisted", fPersisted.getTargetDirectory().isDirectory());
+	}
+
+	protected void tearDown() throws Exception {
+		CoreUtility.deleteContent(fPersisted.getTargetDirectory());
+		CoreUtility.deleteContent(fRoot);
+		super.tearDown();
+	}
+
+	/**
+	 * Writes the manifest of a bundle named after its location
+	 *
+	 * @param bundle bundle location
+	 * @param version bundle version
+	 * @param stamp modification time to give to the manifest
+	 * @throws Exception
+	 */
+	private void writeBundle(File bundle, String version, long stamp) throws Exception {
+		File manifest = new File(bundle, "META-INF/MANIFEST.MF");
+		manifest.getParentFile().mkdirs();
+		StringBuffer buffer = new StringBuffer("Manifest-Version: 1.0\nBundle-ManifestVersion: 2\n");
+		buffer.append("Bundle-SymbolicName: targetstate.").append(bundle.getName()).append('\n');
+		buffer.append("Bundle-Version: ").append(version).append('\n');
+		FileOutputStream out = new FileOutputStream(manifest);
+		try {
+			out.write(buffer.toString().getBytes());
+		} finally {
+			out.close();
+		}
+		manifest.setLastModified(stamp);
+	}
+
+	private URL[] getURLs(File[] bundles) throws Exception {
+		URL[] urls = new URL[bundles.length];
+		for (int i = 0; i < bundles.length; i++)
+			urls[i] = bundles[i].toURL();
+		return urls;
+	}
+
+	private BundleDescription getBundle(PDEState state, File bundle) {
+		BundleDescription[] bundles = state.getState().getBundles("targetstate." + bundle.getName());
+		assertTrue("Only one description expected for " + bundle.getName(), bundles.length <= 1);
+		return bundles.length == 0 ? null : bundles[0];
+	}
+
+	/**
+	 * Tests that the descriptions of unchanged bundles are reused when a bundle is added to the target
+	 *
+	 * @throws Exception
+	 */
+	public void testUnchangedBundlesReused() throws Exception {
+		File added = new File(fRoot, "d");
+		writeBundle(added, "1.0.0", System.currentTimeMillis() - 10000);
+		PDEState state = new PDEState(getURLs(new File[] {fBundles[0], fBundles[1], fBundles[2], added}), true, new NullProgressMonitor());
+		for (int i = 0; i < fBundles.length; i++)
+			assertEquals("The description of " + fBundles[i].getName() + " should have been reused", getBundle(fPersisted, fBundles[i]).getBundleId(), getBundle(state, fBundles[i]).getBundleId());
+		assertNotNull("The added bundle should have been read", getBundle(state, added));
+	}
+
+	/**
+	 * Tests that a changed bundle is read again
+	 *
+	 * @throws Exception
+	 */
+	public void testChangedBundleRead() throws Exception {
+		writeBundle(fBundles[1], "2.0.0", System.currentTimeMillis() - 10000);
+		PDEState state = new PDEState(getURLs(fBundles), true, new NullProgressMonitor());
+		assertEquals("The unchanged bundle should have been reused", getBundle(fPersisted, fBundles[0]).getBundleId(), getBundle(state, fBundles[0]).getBundleId());
+		BundleDescription changed = getBundle(state, fBundles[1]);
+		assertFalse("The changed bundle should have been read again", getBundle(fPersisted, fBundles[1]).getBundleId() == changed.getBundleId());
+		assertEquals("Wrong version of the changed bundle", "2.0.0", changed.getVersion().toString());
+	}
+
+	/**
+	 * Tests that a bundle removed from the target is not kept in the state
+	 *
+	 * @throws Exception
+	 */
+	public void testRemovedBundleDropped() throws Exception {
+		PDEState state = new PDEState(getURLs(new File[] {fBundles[0], fBundles[1]}), true, new NullProgressMonitor());
+		assertEquals("The unchanged bundle should have been reused", getBundle(fPersisted, fBundles[0]).getBundleId(), getBundle(state, fBundles[0]).getBundleId());
+		assertEquals("The unchanged bundle should have been reused", getBundle(fPersisted, fBundles[1]).getBundleId(), getBundle(state, fBundles[1]).getBundleId());
+		assertNull("The removed bundle should not be in the state", getBundle(state, fBundles[2]));
+	}
+
+	/**
+	 * Tests that a new state, whose manifests are read on worker threads, has the same bundles with
+	 * the same ids as a state the bundles are added to one at a time
+	 *
+	 * @throws Exception
+	 */
+	public void testParallelLoading() throws Exception {
+		File[] bundles = new File[40];
+		long stamp = System.currentTimeMillis() - 10000;
+		for (int i = 0; i < bundles.length; i++) {
+			bundles[i] = new File(fRoot, "p" + i);
+			if (i % 7 == 3)
+				// no manifest, skipped
+				bundles[i].mkdirs();
+			else
+				writeBundle(bundles[i], "1.0." + i, stamp);
+		}
+		PDEState parallel = new PDEState(getURLs(bundles), false, new NullProgressMonitor());
+		PDEState serial = new PDEState(new URL[0], false, new NullProgressMonitor());
+		for (int i = 0; i < bundles.length; i++)
+			serial.addBundle(bundles[i], -1);
+		BundleDescription[] expected = serial.getState().getBundles();
+		assertEquals("Wrong number of bundles", expected.length, parallel.getState().getBundles().length);
+		for (int i = 0; i < expected.length; i++) {
+			BundleDescription desc = parallel.getState().getBundle(expected[i].getBundleId());
+			assertNotNull("Missing bundle " + expected[i].getSymbolicName(), desc);
+			assertEquals("Wrong bundle with id " + desc.getBundleId(), expected[i].getSymbolicName(), desc.getSymbolicName());
+			assertEquals("Wrong bundle with id " + desc.getBundleId(), expected[i].getVersion(), desc.getVersion());
+			assertEquals("Wrong bundle with id " + desc.getBundleId(), expected[i].getLocation(), desc.getLocation());
+		}
+	}
+}